@@ -0,0 +1,51 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Serializing a capture for the bridge: one string, the streamed 256KB chunks, and the JDK encoder as baseline. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class Base64EncoderBenchmark {
+
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    @Param({ "12MP", "50MP" })
+    public String sensor;
+
+    private byte[] capture;
+
+    @Setup
+    public void setUp() throws Exception {
+        int[] size = CaptureFixtures.sensorSize(sensor);
+        capture = CaptureFixtures.cameraJpeg(size[0], size[1]);
+    }
+
+    @Benchmark
+    public String encode() {
+        return Base64Encoder.encode(capture);
+    }
+
+    @Benchmark
+    public void encodeChunks(Blackhole blackhole) {
+        int step = Base64Encoder.chunkStep(CHUNK_SIZE);
+        for (int offset = 0; offset < capture.length; offset += step) {
+            blackhole.consume(Base64Encoder.encode(capture, offset, Math.min(step, capture.length - offset)));
+        }
+    }
+
+    @Benchmark
+    public String jdkBaseline() {
+        return Base64.getEncoder().encodeToString(capture);
+    }
+}
@@ -0,0 +1,98 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Synthetic stand-ins for sensor output at the sizes phones actually capture: a textured JPEG carrying typical
+ * camera EXIF, and YUV_420_888 planes with the strides CameraX reports. Generated once per benchmark trial.
+ */
+final class CaptureFixtures {
+
+    private CaptureFixtures() {}
+
+    /** {@code { width, height }} of a sensor size name ({@code 12MP} or {@code 50MP}), landscape as stored. */
+    static int[] sensorSize(String name) {
+        switch (name) {
+            case "12MP":
+                return new int[] { 4000, 3000 };
+            case "50MP":
+                return new int[] { 8160, 6120 };
+            default:
+                throw new IllegalArgumentException("Unknown sensor size " + name);
+        }
+    }
+
+    /** A quality-95 JPEG with a gradient plus noise (so it compresses like a photo) and camera EXIF. */
+    static byte[] cameraJpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        Random random = new Random(width * 31L + height);
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            int g = y * 255 / height;
+            for (int x = 0; x < width; x++) {
+                int noise = random.nextInt(32);
+                int r = Math.min(255, x * 255 / width + noise);
+                int b = Math.min(255, (x + y) * 255 / (width + height) + noise);
+                pixels[row + x] = (r << 16) | (Math.min(255, g + noise) << 8) | b;
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(width * height / 2);
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.95f);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+
+        ExifEdits cameraExif = new ExifEdits();
+        cameraExif.putTag("Make", "Capgo");
+        cameraExif.putTag("Model", "Benchmark " + width + "x" + height);
+        cameraExif.setOrientation(6);
+        cameraExif.setDimensions(width, height);
+        cameraExif.setDateTimeOriginal("2025:01:01 12:00:00");
+        cameraExif.setGpsLocation(48.8584, 2.2945);
+        byte[] jpeg = out.toByteArray();
+        return cameraExif.rewriteJpeg(jpeg, jpeg);
+    }
+
+    /** YUV_420_888 planes as most devices deliver them: padded luma rows and interleaved (pixel stride 2) chroma. */
+    static YuvTransform.Planes cameraPlanes(int width, int height) {
+        int yRowStride = (width + 63) & ~63;
+        int uvRowStride = yRowStride;
+        ByteBuffer y = ByteBuffer.allocateDirect(yRowStride * height);
+        // U and V views into one interleaved buffer, as with NV21-backed images
+        ByteBuffer vu = ByteBuffer.allocateDirect(uvRowStride * (height / 2));
+        Random random = new Random(width * 17L + height);
+        byte[] row = new byte[yRowStride];
+        for (int r = 0; r < height; r++) {
+            random.nextBytes(row);
+            y.put(row);
+        }
+        for (int r = 0; r < height / 2; r++) {
+            random.nextBytes(row);
+            vu.put(row, 0, uvRowStride);
+        }
+        y.clear();
+        vu.clear();
+        ByteBuffer v = vu.duplicate();
+        vu.position(1);
+        ByteBuffer u = vu.slice();
+        return new YuvTransform.Planes(y, yRowStride, 1, u, v, uvRowStride, 2, width, height);
+    }
+}
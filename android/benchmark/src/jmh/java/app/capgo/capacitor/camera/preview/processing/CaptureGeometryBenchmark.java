@@ -0,0 +1,48 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The per-capture size and crop math (preview crop, ROI, stored-grid mapping, target size, sample size and memory
+ * plan), run together as the decode stage does. Guards against this planning creeping into measurable time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CaptureGeometryBenchmark {
+
+    private static final long BUDGET_BYTES = 256L * 1024 * 1024;
+
+    @Param({ "12MP", "50MP" })
+    public String sensor;
+
+    private int width;
+    private int height;
+
+    @Setup
+    public void setUp() {
+        int[] size = CaptureFixtures.sensorSize(sensor);
+        width = size[0];
+        height = size[1];
+    }
+
+    @Benchmark
+    public void planPreviewRegionDecode(Blackhole blackhole) {
+        // Upright portrait capture shown in a 9:16 preview, with a centered ROI, fitted to 1920 px
+        int[] crop = CropGeometry.centerCropToAspect(height, width, 9f / 16f);
+        crop = CropGeometry.applyNormalizedRegion(crop, 0.1f, 0.1f, 0.8f, 0.8f);
+        int[] stored = CropGeometry.orientedToStored(crop, 90, height, width);
+        int[] target = ImageSizing.fitWithin(crop[2], crop[3], 1920, 1920);
+        blackhole.consume(ImageSizing.calculateInSampleSize(crop[2], crop[3], target[0], target[1]));
+        blackhole.consume(MemoryPlanner.planDecode(stored[2], stored[3], target[1], target[0], BUDGET_BYTES));
+    }
+}
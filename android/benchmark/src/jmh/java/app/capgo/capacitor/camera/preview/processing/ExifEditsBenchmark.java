@@ -0,0 +1,57 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * EXIF writes of the capture pipeline: the single-pass rewrite after a re-encode (orientation, size and heading, as
+ * the encode stage does), a passthrough re-stamp with caller tags, and the standalone block for WebP / HEIC.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExifEditsBenchmark {
+
+    @Param({ "12MP", "50MP" })
+    public String sensor;
+
+    private byte[] capture;
+
+    @Setup
+    public void setUp() throws Exception {
+        int[] size = CaptureFixtures.sensorSize(sensor);
+        capture = CaptureFixtures.cameraJpeg(size[0], size[1]);
+    }
+
+    @Benchmark
+    public byte[] rewriteAfterEncode() throws Exception {
+        ExifEdits edits = new ExifEdits();
+        edits.setOrientation(1);
+        edits.setDimensions(3000, 4000);
+        edits.setGpsHeading(271.5f);
+        return edits.rewriteJpeg(capture, capture);
+    }
+
+    @Benchmark
+    public byte[] restampPassthrough() throws Exception {
+        ExifEdits edits = new ExifEdits();
+        edits.putTag("Artist", "Field team");
+        edits.putTag("ImageDescription", "Inspection 42");
+        return edits.rewriteJpeg(capture, capture);
+    }
+
+    @Benchmark
+    public byte[] tiffBlock() throws Exception {
+        ExifEdits edits = new ExifEdits();
+        edits.setOrientation(1);
+        edits.setDimensions(3000, 4000);
+        return edits.toTiff(capture);
+    }
+}
@@ -0,0 +1,59 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Full-frame YUV conversion into reused arrays, at an analysis size and a 12MP capture, on the calling thread alone
+ * and split into one band per core. Run with {@code -prof gc} to confirm conversions allocate nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class YuvConverterBenchmark {
+
+    @Param({ "1080p", "12MP" })
+    public String frame;
+
+    @Param({ "1", "cores" })
+    public String bands;
+
+    private YuvTransform.Planes planes;
+    private YuvConverter converter;
+    private byte[] nv21;
+    private int[] argb;
+
+    @Setup
+    public void setUp() {
+        int[] size = "1080p".equals(frame) ? new int[] { 1920, 1080 } : CaptureFixtures.sensorSize(frame);
+        planes = CaptureFixtures.cameraPlanes(size[0], size[1]);
+        converter = "cores".equals(bands) ? YuvConverter.forAvailableProcessors(Integer.MAX_VALUE) : new YuvConverter(1);
+        nv21 = new byte[YuvTransform.nv21Size(size[0], size[1])];
+        argb = new int[YuvConverter.argbSize(size[0], size[1])];
+    }
+
+    @TearDown
+    public void tearDown() {
+        converter.close();
+    }
+
+    @Benchmark
+    public byte[] toNv21() {
+        converter.toNv21(planes, nv21);
+        return nv21;
+    }
+
+    @Benchmark
+    public int[] toArgb() {
+        converter.toArgb(planes, argb);
+        return argb;
+    }
+}
@@ -0,0 +1,67 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The YUV capture transform: a full-size portrait capture (rotate only), a 16:9 preview crop scaled to 1080p, and
+ * the luma-only export of a central scanner region at full resolution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class YuvTransformBenchmark {
+
+    @Param({ "12MP", "50MP" })
+    public String sensor;
+
+    private YuvTransform.Planes planes;
+    private int width;
+    private int height;
+    private byte[] fullOut;
+    private int[] previewCrop;
+    private byte[] scaledOut;
+    private int[] lumaRegion;
+    private byte[] lumaOut;
+
+    @Setup
+    public void setUp() {
+        int[] size = CaptureFixtures.sensorSize(sensor);
+        width = size[0];
+        height = size[1];
+        planes = CaptureFixtures.cameraPlanes(width, height);
+        fullOut = new byte[YuvTransform.nv21Size(height, width)];
+        // Portrait 9:16 preview on a landscape sensor: crop on the upright grid, then map back to storage
+        int[] upright = CropGeometry.centerCropToAspect(height, width, 9f / 16f);
+        previewCrop = CropGeometry.orientedToStored(upright, 90, height, width);
+        scaledOut = new byte[YuvTransform.nv21Size(1080, 1920)];
+        // Middle fifth of each side, as a barcode / MRZ scanner would ask for
+        lumaRegion = new int[] { width * 2 / 5, height * 2 / 5, width / 5, height / 5 };
+        lumaOut = new byte[(width / 5) * (height / 5)];
+    }
+
+    @Benchmark
+    public byte[] rotateFullFrame() {
+        YuvTransform.cropRotateScaleToNv21(planes, new int[] { 0, 0, width, height }, 90, height, width, fullOut);
+        return fullOut;
+    }
+
+    @Benchmark
+    public byte[] cropAndScaleTo1080p() {
+        YuvTransform.cropRotateScaleToNv21(planes, previewCrop, 90, 1080, 1920, scaledOut);
+        return scaledOut;
+    }
+
+    @Benchmark
+    public byte[] lumaRegion() {
+        YuvTransform.cropRotateScaleLuma(planes, lumaRegion, 90, lumaRegion[3], lumaRegion[2], lumaOut);
+        return lumaOut;
+    }
+}
@@ -0,0 +1,162 @@
+package app.capgo.capacitor.camera.preview;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Size-keyed pool of mutable bitmaps reused by the photo post-processing pipeline.
+ * <p>
+ * Bitmaps are bucketed by config and allocation size; a request is served by the smallest pooled bitmap that is
+ * large enough (but not wastefully so) and reconfigured to the requested size. The pool holds at most
+ * {@code maxBytes} and evicts the least recently released bitmaps first.
+ */
+public class BitmapPool {
+
+    // Do not hand out a bitmap more than this many times larger than requested
+    private static final int MAX_SIZE_MULTIPLE = 2;
+
+    private final long maxBytes;
+    private final Map<Bitmap.Config, TreeMap<Integer, ArrayDeque<Bitmap>>> buckets = new HashMap<>();
+    private final LinkedHashSet<Bitmap> lru = new LinkedHashSet<>();
+    private long currentBytes = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long puts = 0;
+    private long evictions = 0;
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /** Returns a mutable, cleared bitmap of exactly the requested size, reusing a pooled one when possible. */
+    public Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = take(width, height, config);
+        if (bitmap != null) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+            return bitmap;
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Returns a pooled bitmap suitable for {@code BitmapFactory.Options.inBitmap} when decoding to at most
+     * {@code width x height}, or null on a miss. The decoder reconfigures it to the decoded size.
+     */
+    public Bitmap getForDecode(int width, int height, Bitmap.Config config) {
+        return take(width, height, config);
+    }
+
+    /**
+     * Releases a bitmap back to the pool. Immutable or oversized bitmaps are recycled instead.
+     * The caller must not use the bitmap afterwards.
+     */
+    public synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || lru.contains(bitmap)) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (!bitmap.isMutable() || bitmap.getConfig() == null || size > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        buckets.computeIfAbsent(bitmap.getConfig(), (c) -> new TreeMap<>()).computeIfAbsent(size, (s) -> new ArrayDeque<>()).push(bitmap);
+        lru.add(bitmap);
+        currentBytes += size;
+        puts++;
+        trimToSize(maxBytes);
+    }
+
+    /** Recycles every pooled bitmap. */
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getPutCount() {
+        return puts;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public synchronized int getSize() {
+        return lru.size();
+    }
+
+    private synchronized Bitmap take(int width, int height, Bitmap.Config config) {
+        long required = (long) width * height * bytesPerPixel(config);
+        TreeMap<Integer, ArrayDeque<Bitmap>> sizes = buckets.get(config);
+        Integer key = (sizes != null && required <= Integer.MAX_VALUE) ? sizes.ceilingKey((int) required) : null;
+        if (key == null || key > required * MAX_SIZE_MULTIPLE) {
+            misses++;
+            return null;
+        }
+        ArrayDeque<Bitmap> bucket = sizes.get(key);
+        Bitmap bitmap = bucket.pop();
+        if (bucket.isEmpty()) {
+            sizes.remove(key);
+        }
+        lru.remove(bitmap);
+        currentBytes -= key;
+        try {
+            bitmap.reconfigure(width, height, config);
+        } catch (IllegalArgumentException e) {
+            bitmap.recycle();
+            misses++;
+            return null;
+        }
+        hits++;
+        return bitmap;
+    }
+
+    private void trimToSize(long size) {
+        Iterator<Bitmap> it = lru.iterator();
+        while (currentBytes > size && it.hasNext()) {
+            Bitmap oldest = it.next();
+            it.remove();
+            int bytes = oldest.getAllocationByteCount();
+            TreeMap<Integer, ArrayDeque<Bitmap>> sizes = buckets.get(oldest.getConfig());
+            if (sizes != null) {
+                ArrayDeque<Bitmap> bucket = sizes.get(bytes);
+                if (bucket != null) {
+                    bucket.remove(oldest);
+                    if (bucket.isEmpty()) {
+                        sizes.remove(bytes);
+                    }
+                }
+            }
+            currentBytes -= bytes;
+            evictions++;
+            oldest.recycle();
+        }
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.ALPHA_8) return 1;
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) return 2;
+        return 4;
+    }
+}
@@ -10,12 +10,16 @@ import android.content.Intent;
 import android.content.pm.ActivityInfo;
 import android.content.pm.PackageManager;
 import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.graphics.Color;
+import android.graphics.RectF;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.location.Location;
 import android.net.Uri;
 import android.provider.Settings;
+import android.util.Base64;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import android.util.Size;
@@ -29,10 +33,13 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.exifinterface.media.ExifInterface;
 import app.capgo.capacitor.camera.preview.model.CameraDevice;
 import app.capgo.capacitor.camera.preview.model.CameraSessionConfiguration;
+import app.capgo.capacitor.camera.preview.model.CaptureOptions;
 import app.capgo.capacitor.camera.preview.model.LensInfo;
 import app.capgo.capacitor.camera.preview.model.ZoomFactors;
+import app.capgo.capacitor.camera.preview.processing.FrameHistory;
 import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Logger;
@@ -45,8 +52,20 @@ import com.getcapacitor.annotation.Permission;
 import com.getcapacitor.annotation.PermissionCallback;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationServices;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 @CapacitorPlugin(
@@ -64,6 +83,25 @@ import org.json.JSONObject;
 public class CameraPreview extends Plugin implements CameraXView.CameraXViewListener {
 
     private final String pluginVersion = "";
+    private static final int CAPTURE_TIMINGS_CAPACITY = 100;
+    // Captures (and, separately, samples) allowed in flight when start() does not set maxConcurrentCaptures
+    private static final int DEFAULT_MAX_CONCURRENT_CAPTURES = 4;
+    private static final String CAPTURE_RESULT_ORDER_REQUEST = "request";
+    private static final String CAPTURE_RESULT_ORDER_COMPLETION = "completion";
+    // captureBurst clamps count to this, keeping one burst's encoded frames within a few hundred MB at 12MP
+    private static final int MAX_BURST_COUNT = 50;
+    // startFrameStream defaults: ten JPEGs a second, at most 640 px on the long edge
+    private static final double DEFAULT_FRAME_STREAM_FPS = 10;
+    private static final int DEFAULT_FRAME_STREAM_WIDTH = 640;
+    private static final int DEFAULT_FRAME_STREAM_HEIGHT = 640;
+    private static final int DEFAULT_FRAME_STREAM_QUALITY = 70;
+    private static final String FRAME_STREAM_DIRECTORY = "frame-stream";
+    // startFrameHistory defaults: about a second at 30 fps of 640 px frames, within 32 MB
+    private static final int DEFAULT_FRAME_HISTORY_FRAMES = 30;
+    private static final int DEFAULT_FRAME_HISTORY_WIDTH = 640;
+    private static final int DEFAULT_FRAME_HISTORY_HEIGHT = 640;
+    private static final long DEFAULT_FRAME_HISTORY_MAX_BYTES = 32L * 1024 * 1024;
+    private static final int DEFAULT_HISTORY_CAPTURE_QUALITY = 85;
 
     @Override
     protected void handleOnPause() {
@@ -93,6 +131,8 @@ public class CameraPreview extends Plugin implements CameraXView.CameraXViewList
             if (cameraXView == null) {
                 cameraXView = new CameraXView(getContext(), getBridge().getWebView());
                 cameraXView.setListener(this);
+                cameraXView.setCaptureTimingsLog(captureTimingsLog);
+                cameraXView.setFrameProcessorRegistry(frameProcessors);
             }
             cameraXView.startSession(lastSessionConfig);
         }
@@ -117,13 +157,42 @@ public class CameraPreview extends Plugin implements CameraXView.CameraXViewList
     static final String CAMERA_WITH_LOCATION_PERMISSION_ALIAS = "cameraWithLocation";
     static final String MICROPHONE_ONLY_PERMISSION_ALIAS = "microphoneOnly";
 
-    private String captureCallbackId = "";
-    private String sampleCallbackId = "";
+    // Raw JPEG bytes per captureChunk event (about 680KB once base64-encoded)
+    private static final int DEFAULT_STREAM_CHUNK_SIZE = 512 * 1024;
+    private static final int MIN_STREAM_CHUNK_SIZE = 16 * 1024;
+
+    private String burstCallbackId = null;
     private String cameraStartCallbackId = "";
     private final Object pendingStartLock = new Object();
     private PluginCall pendingStartCall;
     private int previousOrientationRequest = ActivityInfo.SCREEN_ORIENTATION_UNSPECIFIED;
     private CameraXView cameraXView;
+    // Kept across camera restarts, which recreate cameraXView
+    private final CaptureTimingsLog captureTimingsLog = new CaptureTimingsLog(CAPTURE_TIMINGS_CAPACITY);
+    private final FrameProcessorRegistry frameProcessors = new FrameProcessorRegistry();
+    private final CaptureRequestRegistry<PendingRequest> captureRequests = new CaptureRequestRegistry<>(
+        DEFAULT_MAX_CONCURRENT_CAPTURES,
+        true
+    );
+    private final CaptureRequestRegistry<PendingRequest> sampleRequests = new CaptureRequestRegistry<>(
+        DEFAULT_MAX_CONCURRENT_CAPTURES,
+        true
+    );
+
+    /** A saved capture or sample call; {@code options} is null for samples. */
+    private static final class PendingRequest {
+
+        final String callbackId;
+        final CaptureOptions options;
+        // The camera instance the request was handed to; its stop strands the request
+        final CameraXView view;
+
+        PendingRequest(String callbackId, CaptureOptions options, CameraXView view) {
+            this.callbackId = callbackId;
+            this.options = options;
+            this.view = view;
+        }
+    }
     private View rotationOverlay;
     private FusedLocationProviderClient fusedLocationClient;
     private Location lastLocation;
@@ -310,6 +379,12 @@ public class CameraPreview extends Plugin implements CameraXView.CameraXViewList
             return;
         }
 
+        String format = call.getString("format", CaptureOptions.FORMAT_JPEG);
+        if (!ImageEncoder.isSupported(format)) {
+            call.reject("Unsupported format on this device: " + format);
+            return;
+        }
+
         final boolean withExifLocation = Boolean.TRUE.equals(call.getBoolean("withExifLocation", false));
 
         if (withExifLocation) {
@@ -364,17 +439,192 @@ public class CameraPreview extends Plugin implements CameraXView.CameraXViewList
     }
 
     private void proceedWithCapture(PluginCall call, Location location) {
-        bridge.saveCall(call);
-        captureCallbackId = call.getCallbackId();
-
+        if (cameraXView == null || !cameraXView.isRunning()) {
+            call.reject("Camera is not running");
+            return;
+        }
         Integer quality = Objects.requireNonNull(call.getInt("quality", 85));
         final boolean saveToGallery = Boolean.TRUE.equals(call.getBoolean("saveToGallery"));
         Integer width = call.getInt("width");
         Integer height = call.getInt("height");
         final boolean embedTimestamp = Boolean.TRUE.equals(call.getBoolean("embedTimestamp"));
         final boolean embedLocation = Boolean.TRUE.equals(call.getBoolean("embedLocation"));
+        CaptureOptions options = new CaptureOptions(quality, saveToGallery, width, height, location, embedTimestamp, embedLocation);
+        options.setRoi(parseNormalizedRect(call.getObject("roi")));
+        options.setPassthrough(Boolean.TRUE.equals(call.getBoolean("passthrough")));
+        options.setPassthroughCrop(Boolean.TRUE.equals(call.getBoolean("passthroughCrop")));
+        options.setExifTags(parseStringMap(call.getObject("exifTags")));
+        options.setExifFields(parseExifFields(call.getData().opt("exif")));
+        options.setFormat(call.getString("format", CaptureOptions.FORMAT_JPEG));
+        options.setThumbnail(Boolean.TRUE.equals(call.getBoolean("thumbnail")));
+        options.setOverlayText(parseStringList(call.getData().optJSONArray("overlayText")));
+        options.setEmbedWatermark(Boolean.TRUE.equals(call.getBoolean("embedWatermark")));
+        if (Boolean.TRUE.equals(call.getBoolean("stream"))) {
+            String streamId = call.getString("streamId");
+            int chunkSize = Objects.requireNonNull(call.getInt("streamChunkSize", DEFAULT_STREAM_CHUNK_SIZE));
+            options.setStream(streamId != null ? streamId : UUID.randomUUID().toString(), Math.max(MIN_STREAM_CHUNK_SIZE, chunkSize));
+        }
+        String requestId = registerRequest(captureRequests, call, options);
+        if (requestId == null) {
+            return;
+        }
+        options.setRequestId(requestId);
+        cameraXView.capturePhoto(options);
+    }
 
-        cameraXView.capturePhoto(quality, saveToGallery, width, height, location, embedTimestamp, embedLocation);
+    /**
+     * Saves {@code call} under its {@code requestId} option (its callback ID by default), or rejects it when the
+     * registry is full or the ID is already pending.
+     *
+     * @return the request ID, or null if the call was rejected
+     */
+    private String registerRequest(CaptureRequestRegistry<PendingRequest> registry, PluginCall call, CaptureOptions options) {
+        String requestId = call.getString("requestId", call.getCallbackId());
+        if (registry.contains(requestId)) {
+            call.reject("A request with id " + requestId + " is already in flight", "duplicateRequestId");
+            return null;
+        }
+        if (!registry.register(requestId, new PendingRequest(call.getCallbackId(), options, cameraXView))) {
+            call.reject("Too many requests in flight (max " + registry.getMaxInFlight() + ")", "captureQueueFull");
+            return null;
+        }
+        bridge.saveCall(call);
+        return requestId;
+    }
+
+    /** Resolves or rejects the saved call of a completed request, in the order the registry decides. */
+    private void completeRequest(
+        CaptureRequestRegistry<PendingRequest> registry,
+        String requestId,
+        BiConsumer<PluginCall, PendingRequest> answer
+    ) {
+        boolean pending = registry.complete(requestId, (request) -> {
+            PluginCall call = bridge.getSavedCall(request.callbackId);
+            if (call == null) {
+                Log.w(TAG, "completeRequest: no saved call for request " + requestId);
+                return;
+            }
+            answer.accept(call, request);
+            bridge.releaseCall(call);
+        });
+        if (!pending) {
+            Log.d(TAG, "completeRequest: dropping result of cancelled or unknown request " + requestId);
+        }
+    }
+
+    /**
+     * Rejects the captures and samples still pending on {@code view}. Stopping a camera unbinds it and shuts its
+     * executors down, so CameraX callbacks of in-flight requests never arrive; without this their entries would
+     * hold back later ordered results and count against {@code maxConcurrentCaptures} for good.
+     */
+    private void failPendingRequests(CameraXView view) {
+        List<PendingRequest> stranded = new ArrayList<>(captureRequests.cancelIf((request) -> request.view == view));
+        stranded.addAll(sampleRequests.cancelIf((request) -> request.view == view));
+        for (PendingRequest request : stranded) {
+            if (request.options != null) {
+                request.options.cancel();
+            }
+            PluginCall pending = bridge.getSavedCall(request.callbackId);
+            if (pending != null) {
+                pending.reject("Camera stopped before the capture completed", "cameraStopped");
+                bridge.releaseCall(pending);
+            }
+        }
+        if (!stranded.isEmpty()) {
+            Log.d(TAG, "failPendingRequests: rejected " + stranded.size() + " request(s) of the stopped camera");
+        }
+    }
+
+    @PluginMethod
+    public void cancelCapture(PluginCall call) {
+        String requestId = call.getString("requestId");
+        if (requestId == null) {
+            call.reject("requestId is required");
+            return;
+        }
+        PendingRequest request = captureRequests.cancel(requestId);
+        if (request == null) {
+            request = sampleRequests.cancel(requestId);
+        }
+        if (request != null) {
+            if (request.options != null) {
+                request.options.cancel();
+            }
+            PluginCall pending = bridge.getSavedCall(request.callbackId);
+            if (pending != null) {
+                pending.reject("Capture cancelled", "captureCancelled");
+                bridge.releaseCall(pending);
+            }
+        }
+        JSObject ret = new JSObject();
+        ret.put("cancelled", request != null);
+        call.resolve(ret);
+    }
+
+    /** Maps the {@code exif} option ('none' | 'basic' | 'all' | string[]) to field names; null means every tag. */
+    private Set<String> parseExifFields(Object selection) {
+        if (selection instanceof JSONArray) {
+            JSONArray array = (JSONArray) selection;
+            Set<String> fields = new HashSet<>();
+            for (int i = 0; i < array.length(); i++) {
+                String name = array.optString(i, null);
+                if (name != null) {
+                    fields.add(name);
+                }
+            }
+            return fields;
+        }
+        if ("none".equals(selection)) {
+            return Collections.emptySet();
+        }
+        if ("basic".equals(selection)) {
+            return CameraXView.BASIC_EXIF_FIELDS;
+        }
+        return null;
+    }
+
+    private Map<String, String> parseStringMap(JSObject object) {
+        Map<String, String> map = new LinkedHashMap<>();
+        if (object == null) {
+            return map;
+        }
+        Iterator<String> keys = object.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            String value = object.optString(key, null);
+            if (value != null) {
+                map.put(key, value);
+            }
+        }
+        return map;
+    }
+
+    private List<String> parseStringList(JSONArray array) {
+        List<String> list = new ArrayList<>();
+        if (array == null) {
+            return list;
+        }
+        for (int i = 0; i < array.length(); i++) {
+            String value = array.optString(i, null);
+            if (value != null && !value.isEmpty()) {
+                list.add(value);
+            }
+        }
+        return list;
+    }
+
+    private RectF parseNormalizedRect(JSObject rect) {
+        if (rect == null) {
+            return null;
+        }
+        float x = (float) rect.optDouble("x", 0);
+        float y = (float) rect.optDouble("y", 0);
+        float w = (float) rect.optDouble("width", 1);
+        float h = (float) rect.optDouble("height", 1);
+        if (w <= 0 || h <= 0) {
+            return null;
+        }
+        return new RectF(x, y, x + w, y + h);
     }
 
     @PluginMethod
@@ -383,10 +633,256 @@ public class CameraPreview extends Plugin implements CameraXView.CameraXViewList
             call.reject("Camera is not running");
             return;
         }
-        bridge.saveCall(call);
-        sampleCallbackId = call.getCallbackId();
         Integer quality = Objects.requireNonNull(call.getInt("quality", 85));
-        cameraXView.captureSample(quality);
+        Integer width = call.getInt("width");
+        Integer height = call.getInt("height");
+        String requestId = registerRequest(sampleRequests, call, null);
+        if (requestId == null) {
+            return;
+        }
+        cameraXView.captureSample(requestId, quality, width, height);
+    }
+
+    @PluginMethod
+    public void captureBurst(PluginCall call) {
+        if (cameraXView == null || !cameraXView.isRunning()) {
+            call.reject("Camera is not running");
+            return;
+        }
+        if (burstCallbackId != null) {
+            call.reject("A burst capture is already in progress");
+            return;
+        }
+        Integer requestedCount = call.getInt("count");
+        if (requestedCount == null || requestedCount < 1) {
+            call.reject("count must be at least 1");
+            return;
+        }
+        int count = Math.min(requestedCount, MAX_BURST_COUNT);
+        int intervalMs = Math.max(0, Objects.requireNonNull(call.getInt("intervalMs", 0)));
+        Integer quality = Objects.requireNonNull(call.getInt("quality", 85));
+        Integer width = call.getInt("width");
+        Integer height = call.getInt("height");
+
+        bridge.saveCall(call);
+        burstCallbackId = call.getCallbackId();
+        CaptureOptions options = new CaptureOptions(quality, false, width, height, null, false, false);
+        options.setExifFields(parseExifFields(call.getData().opt("exif")));
+        cameraXView.captureBurst(options, count, intervalMs);
+    }
+
+    @PluginMethod
+    public void setWatermark(PluginCall call) {
+        if (cameraXView == null) {
+            call.reject("Camera is not running");
+            return;
+        }
+        String image = call.getString("image");
+        Bitmap watermark = null;
+        if (image != null && !image.isEmpty()) {
+            try {
+                if (image.startsWith("file://") || image.startsWith("/")) {
+                    watermark = BitmapFactory.decodeFile(Uri.parse(image).getPath());
+                } else {
+                    int comma = image.startsWith("data:") ? image.indexOf(',') : -1;
+                    byte[] bytes = Base64.decode(image.substring(comma + 1), Base64.DEFAULT);
+                    watermark = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+                }
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "setWatermark: Invalid image data", e);
+            }
+            if (watermark == null) {
+                call.reject("Could not decode watermark image");
+                return;
+            }
+        }
+        String position = call.getString("position", OverlayRenderer.POSITION_BOTTOM_RIGHT);
+        float opacity = Objects.requireNonNull(call.getFloat("opacity", 1f));
+        float size = Objects.requireNonNull(call.getFloat("size", 0.2f));
+        cameraXView.getOverlayRenderer().setWatermark(watermark, position, opacity, size);
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void getBitmapPoolStats(PluginCall call) {
+        if (cameraXView == null) {
+            call.reject("Camera is not running");
+            return;
+        }
+        BitmapPool pool = cameraXView.getBitmapPool();
+        JSObject ret = new JSObject();
+        ret.put("hits", pool.getHitCount());
+        ret.put("misses", pool.getMissCount());
+        ret.put("puts", pool.getPutCount());
+        ret.put("evictions", pool.getEvictionCount());
+        ret.put("count", pool.getSize());
+        ret.put("sizeBytes", pool.getCurrentBytes());
+        ret.put("maxSizeBytes", pool.getMaxBytes());
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void getCaptureTimings(PluginCall call) {
+        int limit = Objects.requireNonNull(call.getInt("limit", 0));
+        JSObject ret = new JSObject();
+        ret.put("captures", captureTimingsLog.toJson(limit));
+        ret.put("capacity", captureTimingsLog.getCapacity());
+        if (Boolean.TRUE.equals(call.getBoolean("clear", false))) {
+            captureTimingsLog.clear();
+        }
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void startFrameStream(PluginCall call) {
+        if (cameraXView == null || !cameraXView.isRunning()) {
+            call.reject("Camera is not running");
+            return;
+        }
+        String format = call.getString("format", FrameStream.FORMAT_JPEG);
+        if (!FrameStream.isSupportedFormat(format)) {
+            call.reject("Unsupported frame format: " + format);
+            return;
+        }
+        double maxFps = Objects.requireNonNull(call.getDouble("maxFps", DEFAULT_FRAME_STREAM_FPS));
+        Integer width = call.getInt("width");
+        Integer height = call.getInt("height");
+        if (width == null && height == null && FrameStream.FORMAT_JPEG.equals(format)) {
+            // Luma frames keep the region's resolution unless a size is asked for
+            width = DEFAULT_FRAME_STREAM_WIDTH;
+            height = DEFAULT_FRAME_STREAM_HEIGHT;
+        }
+        int quality = Objects.requireNonNull(call.getInt("quality", DEFAULT_FRAME_STREAM_QUALITY));
+        RectF roi = parseNormalizedRect(call.getObject("roi"));
+        File fileDirectory = Boolean.TRUE.equals(call.getBoolean("toFile", false))
+            ? new File(getContext().getCacheDir(), FRAME_STREAM_DIRECTORY)
+            : null;
+        FrameStream stream = new FrameStream(format, maxFps, width, height, quality, roi, fileDirectory);
+        getActivity().runOnUiThread(() -> {
+            try {
+                cameraXView.startFrameStream(stream);
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Failed to start frame stream: " + e.getMessage());
+            }
+        });
+    }
+
+    @PluginMethod
+    public void stopFrameStream(PluginCall call) {
+        if (cameraXView == null) {
+            call.resolve();
+            return;
+        }
+        getActivity().runOnUiThread(() -> {
+            cameraXView.stopFrameStream();
+            call.resolve();
+        });
+    }
+
+    @PluginMethod
+    public void getFrameStreamStats(PluginCall call) {
+        JSObject ret = new JSObject();
+        try {
+            JSONObject stats = cameraXView != null ? cameraXView.getFrameStreamStats() : null;
+            ret.put("active", stats != null);
+            if (stats != null) {
+                Iterator<String> keys = stats.keys();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    ret.put(key, stats.get(key));
+                }
+            }
+        } catch (JSONException e) {
+            call.reject("Failed to read frame stream stats: " + e.getMessage());
+            return;
+        }
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void startFrameHistory(PluginCall call) {
+        if (cameraXView == null || !cameraXView.isRunning()) {
+            call.reject("Camera is not running");
+            return;
+        }
+        int maxFrames = Objects.requireNonNull(call.getInt("maxFrames", DEFAULT_FRAME_HISTORY_FRAMES));
+        int width = Objects.requireNonNull(call.getInt("width", DEFAULT_FRAME_HISTORY_WIDTH));
+        int height = Objects.requireNonNull(call.getInt("height", DEFAULT_FRAME_HISTORY_HEIGHT));
+        Double maxMegabytes = call.getDouble("maxMemoryMB");
+        long maxBytes = maxMegabytes != null ? (long) (maxMegabytes * 1024 * 1024) : DEFAULT_FRAME_HISTORY_MAX_BYTES;
+        FrameHistory history;
+        try {
+            history = new FrameHistory(maxFrames, width, height, maxBytes);
+        } catch (IllegalArgumentException e) {
+            call.reject("Invalid frame history options: " + e.getMessage());
+            return;
+        } catch (OutOfMemoryError e) {
+            call.reject("Not enough memory for the frame history");
+            return;
+        }
+        getActivity().runOnUiThread(() -> {
+            try {
+                cameraXView.startFrameHistory(history);
+                JSObject ret = new JSObject();
+                ret.put("frames", history.getCapacity());
+                ret.put("width", history.getMaxWidth());
+                ret.put("height", history.getMaxHeight());
+                ret.put("bytes", history.getFootprintBytes());
+                call.resolve(ret);
+            } catch (Exception e) {
+                call.reject("Failed to start frame history: " + e.getMessage());
+            }
+        });
+    }
+
+    @PluginMethod
+    public void stopFrameHistory(PluginCall call) {
+        if (cameraXView == null) {
+            call.resolve();
+            return;
+        }
+        getActivity().runOnUiThread(() -> {
+            cameraXView.stopFrameHistory();
+            call.resolve();
+        });
+    }
+
+    @PluginMethod
+    public void captureFromHistory(PluginCall call) {
+        if (cameraXView == null || !cameraXView.isRunning()) {
+            call.reject("Camera is not running");
+            return;
+        }
+        long offsetMs = Math.max(0, Objects.requireNonNull(call.getInt("offsetMs", 0)));
+        int quality = Objects.requireNonNull(call.getInt("quality", DEFAULT_HISTORY_CAPTURE_QUALITY));
+        try {
+            call.resolve(JSObject.fromJSONObject(cameraXView.captureFromHistory(offsetMs, quality)));
+        } catch (IllegalStateException e) {
+            call.reject(e.getMessage());
+        } catch (JSONException e) {
+            call.reject("Failed to capture from history: " + e.getMessage());
+        }
+    }
+
+    @PluginMethod
+    public void getFrameProcessorStats(PluginCall call) {
+        JSObject ret = new JSObject();
+        try {
+            ret.put("processors", frameProcessors.toJson());
+        } catch (JSONException e) {
+            call.reject("Failed to read frame processor stats: " + e.getMessage());
+            return;
+        }
+        call.resolve(ret);
+    }
+
+    /**
+     * Native frame processors fed from the camera's analysis stream; for other plugins, see {@link FrameProcessor}.
+     * Processors stay attached across camera restarts.
+     */
+    public FrameProcessorRegistry getFrameProcessors() {
+        return frameProcessors;
     }
 
     @PluginMethod
@@ -893,6 +1389,21 @@ public class CameraPreview extends Plugin implements CameraXView.CameraXViewList
         final boolean storeToFile = Boolean.TRUE.equals(call.getBoolean("storeToFile", false));
         final boolean enableOpacity = Boolean.TRUE.equals(call.getBoolean("enableOpacity", false));
         final boolean disableExifHeaderStripping = Boolean.TRUE.equals(call.getBoolean("disableExifHeaderStripping", false));
+        final boolean yuvCapture = Boolean.TRUE.equals(call.getBoolean("yuvCapture", false));
+        final String captureMode = call.getString("captureMode", CameraSessionConfiguration.CAPTURE_MODE_MINIMIZE_LATENCY);
+        if (!isValidCaptureMode(captureMode)) {
+            call.reject("Invalid captureMode: " + captureMode);
+            return;
+        }
+        final double processingMemoryBudgetMB = Objects.requireNonNull(call.getDouble("processingMemoryBudgetMB", 0.0));
+        final String captureResultOrder = call.getString("captureResultOrder", CAPTURE_RESULT_ORDER_REQUEST);
+        if (!CAPTURE_RESULT_ORDER_REQUEST.equals(captureResultOrder) && !CAPTURE_RESULT_ORDER_COMPLETION.equals(captureResultOrder)) {
+            call.reject("Invalid captureResultOrder: " + captureResultOrder);
+            return;
+        }
+        final int maxConcurrentCaptures = Objects.requireNonNull(call.getInt("maxConcurrentCaptures", DEFAULT_MAX_CONCURRENT_CAPTURES));
+        captureRequests.configure(maxConcurrentCaptures, CAPTURE_RESULT_ORDER_REQUEST.equals(captureResultOrder));
+        sampleRequests.configure(maxConcurrentCaptures, CAPTURE_RESULT_ORDER_REQUEST.equals(captureResultOrder));
         final boolean lockOrientation = Boolean.TRUE.equals(call.getBoolean("lockAndroidOrientation", false));
         final boolean disableAudio = Boolean.TRUE.equals(call.getBoolean("disableAudio", true));
         this.lastDisableAudio = disableAudio;
@@ -936,6 +1447,8 @@ public class CameraPreview extends Plugin implements CameraXView.CameraXViewList
         previousOrientationRequest = getBridge().getActivity().getRequestedOrientation();
         cameraXView = new CameraXView(getContext(), getBridge().getWebView());
         cameraXView.setListener(this);
+        cameraXView.setCaptureTimingsLog(captureTimingsLog);
+        cameraXView.setFrameProcessorRegistry(frameProcessors);
 
         String finalDeviceId = deviceId;
         float finalTargetZoom = targetZoom;
@@ -1211,6 +1724,9 @@ public class CameraPreview extends Plugin implements CameraXView.CameraXViewList
                 );
                 config.setTargetZoom(finalTargetZoom);
                 config.setCentered(isCentered);
+                config.setYuvCapture(yuvCapture);
+                config.setCaptureMode(captureMode);
+                config.setProcessingMemoryBudget((long) (processingMemoryBudgetMB * 1024 * 1024));
 
                 bridge.saveCall(call);
                 cameraStartCallbackId = call.getCallbackId();
@@ -1444,32 +1960,114 @@ public class CameraPreview extends Plugin implements CameraXView.CameraXViewList
     }
 
     @Override
-    public void onPictureTaken(String base64, JSONObject exif) {
-        PluginCall pluginCall = bridge.getSavedCall(captureCallbackId);
-        if (pluginCall == null) {
-            Log.e("CameraPreview", "onPictureTaken: captureCallbackId is null");
-            return;
-        }
+    public void onPictureTaken(String requestId, String base64, JSONObject exif, JSONObject metrics) {
         JSObject result = new JSObject();
         result.put("value", base64);
         result.put("exif", exif);
-        pluginCall.resolve(result);
-        bridge.releaseCall(pluginCall);
+        result.put("metrics", metrics);
+        result.put("requestId", requestId);
+        completeRequest(captureRequests, requestId, (pluginCall, request) -> {
+            String streamId = request.options.getStreamId();
+            if (streamId != null && base64.isEmpty()) {
+                result.put("streamId", streamId);
+            }
+            pluginCall.resolve(result);
+        });
+    }
+
+    @Override
+    public void onPictureTakenError(String requestId, String message) {
+        completeRequest(captureRequests, requestId, (pluginCall, request) -> pluginCall.reject(message));
     }
 
     @Override
-    public void onPictureTakenError(String message) {
-        PluginCall pluginCall = bridge.getSavedCall(captureCallbackId);
-        if (pluginCall == null) {
-            Log.e("CameraPreview", "onPictureTakenError: captureCallbackId is null");
+    public void onBurstFrame(int index, String value, JSONObject exif, JSONObject metrics) {
+        JSObject data = new JSObject();
+        data.put("index", index);
+        data.put("value", value);
+        data.put("exif", exif);
+        data.put("metrics", metrics);
+        notifyListeners("burstFrame", data);
+    }
+
+    @Override
+    public void onBurstFrameError(int index, String message) {
+        JSObject data = new JSObject();
+        data.put("index", index);
+        data.put("error", message);
+        notifyListeners("burstFrame", data);
+    }
+
+    @Override
+    public void onBurstComplete(int captured, int failed, long durationMs) {
+        PluginCall call = burstCallbackId != null ? bridge.getSavedCall(burstCallbackId) : null;
+        burstCallbackId = null;
+        if (call == null) {
+            Log.w(TAG, "onBurstComplete: no pending call to resolve");
             return;
         }
-        pluginCall.reject(message);
-        bridge.releaseCall(pluginCall);
+        JSObject ret = new JSObject();
+        ret.put("captured", captured);
+        ret.put("failed", failed);
+        ret.put("durationMs", durationMs);
+        call.resolve(ret);
+        bridge.releaseCall(call);
+    }
+
+    @Override
+    public void onBurstError(String message) {
+        PluginCall call = burstCallbackId != null ? bridge.getSavedCall(burstCallbackId) : null;
+        burstCallbackId = null;
+        if (call == null) {
+            Log.e(TAG, "onBurstError (no pending call): " + message);
+            return;
+        }
+        call.reject(message);
+        bridge.releaseCall(call);
+    }
+
+    @Override
+    public void onCaptureChunk(String streamId, int index, String data) {
+        JSObject chunk = new JSObject();
+        chunk.put("streamId", streamId);
+        chunk.put("index", index);
+        chunk.put("data", data);
+        notifyListeners("captureChunk", chunk);
+    }
+
+    @Override
+    public void onCaptureStreamEnd(String streamId, int chunks, int byteLength) {
+        JSObject end = new JSObject();
+        end.put("streamId", streamId);
+        end.put("chunks", chunks);
+        end.put("byteLength", byteLength);
+        notifyListeners("captureStreamEnd", end);
+    }
+
+    @Override
+    public void onStreamFrame(JSONObject frame) {
+        try {
+            notifyListeners("frame", JSObject.fromJSONObject(frame));
+        } catch (JSONException e) {
+            Log.w(TAG, "onStreamFrame: Failed to forward frame", e);
+        }
+    }
+
+    @Override
+    public void onCaptureThumbnail(String requestId, String value, int width, int height, String source) {
+        JSObject thumbnail = new JSObject();
+        thumbnail.put("requestId", requestId);
+        thumbnail.put("value", value);
+        thumbnail.put("width", width);
+        thumbnail.put("height", height);
+        thumbnail.put("source", source);
+        notifyListeners("captureThumbnail", thumbnail);
     }
 
     @Override
     public void onCameraStopped(CameraXView source) {
+        // Even a stale instance (replaced by a forced restart) strands the requests it was handed
+        failPendingRequests(source);
         if (cameraXView != null && cameraXView != source) {
             Log.d(TAG, "onCameraStopped: ignoring callback from stale instance");
             return;
@@ -1682,29 +2280,16 @@ public class CameraPreview extends Plugin implements CameraXView.CameraXViewList
     }
 
     @Override
-    public void onSampleTaken(String result) {
-        PluginCall call = bridge.getSavedCall(sampleCallbackId);
-        if (call != null) {
-            JSObject ret = new JSObject();
-            ret.put("value", result);
-            call.resolve(ret);
-            bridge.releaseCall(call);
-            sampleCallbackId = null;
-        } else {
-            Log.w("CameraPreview", "onSampleTaken: no pending call to resolve");
-        }
+    public void onSampleTaken(String requestId, String result) {
+        JSObject ret = new JSObject();
+        ret.put("value", result);
+        ret.put("requestId", requestId);
+        completeRequest(sampleRequests, requestId, (call, request) -> call.resolve(ret));
     }
 
     @Override
-    public void onSampleTakenError(String message) {
-        PluginCall call = bridge.getSavedCall(sampleCallbackId);
-        if (call != null) {
-            call.reject(message);
-            bridge.releaseCall(call);
-            sampleCallbackId = null;
-        } else {
-            Log.e("CameraPreview", "Sample taken error (no pending call): " + message);
-        }
+    public void onSampleTakenError(String requestId, String message) {
+        completeRequest(sampleRequests, requestId, (call, request) -> call.reject(message));
     }
 
     @Override
@@ -1760,6 +2345,55 @@ public class CameraPreview extends Plugin implements CameraXView.CameraXViewList
         });
     }
 
+    @PluginMethod
+    public void setCaptureMode(PluginCall call) {
+        if (cameraXView == null || !cameraXView.isRunning()) {
+            call.reject("Camera is not running");
+            return;
+        }
+        String captureMode = call.getString("captureMode");
+        if (!isValidCaptureMode(captureMode)) {
+            call.reject("Invalid captureMode: " + captureMode);
+            return;
+        }
+        final CameraXView view = cameraXView;
+        view.setCaptureMode(
+            captureMode,
+            new CameraXView.BindCallback() {
+                @Override
+                public void onBound() {
+                    JSObject ret = new JSObject();
+                    ret.put("captureMode", view.getEffectiveCaptureMode());
+                    call.resolve(ret);
+                }
+
+                @Override
+                public void onError(String message) {
+                    call.reject(message);
+                }
+            }
+        );
+    }
+
+    @PluginMethod
+    public void getCaptureMode(PluginCall call) {
+        if (cameraXView == null || !cameraXView.isRunning()) {
+            call.reject("Camera is not running");
+            return;
+        }
+        JSObject ret = new JSObject();
+        ret.put("captureMode", cameraXView.getEffectiveCaptureMode());
+        call.resolve(ret);
+    }
+
+    private static boolean isValidCaptureMode(String captureMode) {
+        return (
+            CameraSessionConfiguration.CAPTURE_MODE_MINIMIZE_LATENCY.equals(captureMode) ||
+            CameraSessionConfiguration.CAPTURE_MODE_MAXIMIZE_QUALITY.equals(captureMode) ||
+            CameraSessionConfiguration.CAPTURE_MODE_ZERO_SHUTTER_LAG.equals(captureMode)
+        );
+    }
+
     @PluginMethod
     public void getAspectRatio(PluginCall call) {
         if (cameraXView == null || !cameraXView.isRunning()) {
@@ -1890,6 +2524,28 @@ public class CameraPreview extends Plugin implements CameraXView.CameraXViewList
         }
     }
 
+    @PluginMethod
+    public void getExif(PluginCall call) {
+        String path = call.getString("path");
+        if (path == null || path.isEmpty()) {
+            call.reject("path parameter is required");
+            return;
+        }
+        try {
+            java.io.File f = new java.io.File(Objects.requireNonNull(Uri.parse(path).getPath()));
+            if (!f.exists()) {
+                call.reject("File does not exist");
+                return;
+            }
+            ExifInterface exifInterface = new ExifInterface(f);
+            JSObject ret = new JSObject();
+            ret.put("exif", CameraXView.getExifData(exifInterface, parseExifFields(call.getData().opt("exif"))));
+            call.resolve(ret);
+        } catch (Exception e) {
+            call.reject("Failed to read EXIF: " + e.getMessage());
+        }
+    }
+
     @PluginMethod
     public void startRecordVideo(PluginCall call) {
         if (cameraXView == null || !cameraXView.isRunning()) {
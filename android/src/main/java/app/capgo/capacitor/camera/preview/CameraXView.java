@@ -1,17 +1,21 @@
 package app.capgo.capacitor.camera.preview;
 
 import android.Manifest;
+import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.content.res.Configuration;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.ImageFormat;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Rect;
-import android.graphics.Typeface;
+import android.graphics.RectF;
+import android.graphics.YuvImage;
 import android.graphics.drawable.GradientDrawable;
 import android.hardware.Sensor;
 import android.hardware.SensorEvent;
@@ -25,7 +29,9 @@ import android.location.Location;
 import android.media.MediaScannerConnection;
 import android.os.Build;
 import android.os.Environment;
-import android.util.Base64;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.DisplayMetrics;
 import android.util.Log;
 import android.util.Range;
@@ -50,6 +56,7 @@ import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ExposureState;
 import androidx.camera.core.FocusMeteringAction;
 import androidx.camera.core.FocusMeteringResult;
+import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageCapture;
 import androidx.camera.core.ImageCaptureException;
 import androidx.camera.core.ImageProxy;
@@ -80,42 +87,88 @@ import androidx.lifecycle.LifecycleObserver;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.LifecycleRegistry;
 import app.capgo.capacitor.camera.preview.model.CameraSessionConfiguration;
+import app.capgo.capacitor.camera.preview.model.CaptureMetrics;
+import app.capgo.capacitor.camera.preview.model.CaptureOptions;
 import app.capgo.capacitor.camera.preview.model.LensInfo;
 import app.capgo.capacitor.camera.preview.model.ZoomFactors;
+import app.capgo.capacitor.camera.preview.processing.Base64Encoder;
+import app.capgo.capacitor.camera.preview.processing.ByteArrayPool;
+import app.capgo.capacitor.camera.preview.processing.CropGeometry;
+import app.capgo.capacitor.camera.preview.processing.FrameHistory;
+import app.capgo.capacitor.camera.preview.processing.ImageSizing;
+import app.capgo.capacitor.camera.preview.processing.JpegLosslessCrop;
+import app.capgo.capacitor.camera.preview.processing.MemoryPlanner;
+import app.capgo.capacitor.camera.preview.processing.YuvConverter;
+import app.capgo.capacitor.camera.preview.processing.YuvTransform;
 import com.google.common.util.concurrent.ListenableFuture;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 public class CameraXView implements LifecycleOwner, LifecycleObserver {
 
     private static final String TAG = "CameraPreview CameraXView";
     private static final String FOCUS_INDICATOR_TAG = "cpcp_focus_indicator";
+    // Capture pipeline stage sizes; queues are bounded so a slow stage applies backpressure instead of piling up bitmaps
+    private static final int TRANSFORM_THREADS = 2;
+    private static final int TRANSFORM_QUEUE_DEPTH = 4;
+    private static final int ENCODE_THREADS = 2;
+    private static final int ENCODE_QUEUE_DEPTH = 4;
+    // Row bands a full-frame YUV conversion is split into at most
+    private static final int YUV_CONVERTER_BANDS = 4;
+    // captureThumbnail events: longest edge and JPEG quality
+    private static final int THUMBNAIL_MAX_SIZE = 320;
+    private static final int THUMBNAIL_QUALITY = 70;
+    // Makes storeToFile cache names unique across concurrent captures, see newCaptureFile
+    private static final AtomicLong CAPTURE_FILE_SEQUENCE = new AtomicLong();
+    // Failure message of captures whose CaptureOptions were cancelled before the pipeline finished them
+    private static final String CAPTURE_CANCELLED = "Capture cancelled";
 
     public interface CameraXViewListener {
-        void onPictureTaken(String base64, JSONObject exif);
-        void onPictureTakenError(String message);
-        void onSampleTaken(String result);
-        void onSampleTakenError(String message);
+        void onPictureTaken(String requestId, String base64, JSONObject exif, JSONObject metrics);
+        void onPictureTakenError(String requestId, String message);
+        void onSampleTaken(String requestId, String result);
+        void onSampleTakenError(String requestId, String message);
         void onCameraStarted(int width, int height, int x, int y);
         void onCameraStartError(String message);
         void onCameraStopped(CameraXView source);
+        void onBurstFrame(int index, String value, JSONObject exif, JSONObject metrics);
+        void onBurstFrameError(int index, String message);
+        void onBurstComplete(int captured, int failed, long durationMs);
+        void onBurstError(String message);
+        void onCaptureChunk(String streamId, int index, String data);
+        void onCaptureStreamEnd(String streamId, int chunks, int byteLength);
+        void onCaptureThumbnail(String requestId, String value, int width, int height, String source);
+        void onStreamFrame(JSONObject frame);
     }
 
     public interface VideoRecordingCallback {
@@ -123,6 +176,12 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
         void onError(String message);
     }
 
+    /** Outcome of rebinding the camera use cases; called on the main thread. */
+    public interface BindCallback {
+        void onBound();
+        void onError(String message);
+    }
+
     private ProcessCameraProvider cameraProvider;
     private Camera camera;
     private ImageCapture imageCapture;
@@ -149,14 +208,42 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
     private int originalWebViewBackground = android.graphics.Color.WHITE;
     private final LifecycleRegistry lifecycleRegistry;
     private final Executor mainExecutor;
+    // Shutter/IO stage: ImageCapture callbacks only copy bytes out and hand off to the stages below
     private ExecutorService cameraExecutor;
+    // Pixel transform stage (decode / crop / resize / overlay) and encode/serialize stage (compress / EXIF / output)
+    private ExecutorService transformExecutor;
+    private ExecutorService encodeExecutor;
+    // captureThumbnail events, built beside the transform stage so they never queue behind earlier captures
+    private ExecutorService thumbnailExecutor;
+    // Analysis use case, bound only while something consumes frames; runs on its own thread
+    private ImageAnalysis imageAnalysis;
+    private ExecutorService analysisExecutor;
+    private volatile FrameStream frameStream;
+    // Ring of recent analysis frames for captureFromHistory; keeps the analysis use case bound while set
+    private volatile FrameHistory frameHistory;
+    // Set by the plugin; native frame consumers that keep the analysis use case bound while attached
+    private volatile FrameProcessorRegistry frameProcessors;
     private boolean isRunning = false;
     private Size currentPreviewResolution = null;
     private ListenableFuture<FocusMeteringResult> currentFocusFuture = null; // Track current focus operation
     private String currentExposureMode = "CONTINUOUS"; // Default behavior
     // Capture/stop coordination
     private final Object captureLock = new Object();
-    private volatile boolean isCapturingPhoto = false;
+    // Reused bitmaps for capture post-processing (decode targets, rotate/scale outputs, overlay copies)
+    private final BitmapPool bitmapPool = new BitmapPool(Runtime.getRuntime().maxMemory() / 8);
+    // NV21 buffers of the YUV capture path, reused across captures
+    private final ByteArrayPool yuvBufferPool = new ByteArrayPool(Runtime.getRuntime().maxMemory() / 16);
+    // Full-frame YUV_420_888 conversion for untransformed frames; its worker threads live as long as the session
+    private volatile YuvConverter yuvConverter;
+    private final OverlayRenderer overlayRenderer = new OverlayRenderer();
+    // Share of the free heap a capture may plan for; the rest absorbs estimate error and concurrent allocations
+    private static final double HEAP_HEADROOM_RATIO = 0.8;
+    // NV21 buffer plus the encoded JPEG, per output pixel, for YUV captures
+    private static final double YUV_BYTES_PER_PIXEL = 2.0;
+    // Set by the plugin; receives the stage timings of every delivered capture
+    private volatile CaptureTimingsLog captureTimingsLog;
+    // capturePhoto lifecycles in progress, guarded by captureLock
+    private int photoCapturesInFlight = 0;
     private volatile boolean stopRequested = false;
     private volatile boolean previewDetachedOnDeferredStop = false;
 
@@ -241,12 +328,14 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
     }
 
     public boolean isCapturing() {
-        return isCapturingPhoto;
+        synchronized (captureLock) {
+            return photoCapturesInFlight > 0;
+        }
     }
 
     public boolean isBusy() {
         synchronized (captureLock) {
-            return isCapturingPhoto || stopRequested;
+            return photoCapturesInFlight > 0 || stopRequested;
         }
     }
 
@@ -371,6 +460,10 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
                 ) {
                     extension = ".webp";
                     mimeType = "image/webp";
+                } else if (data.length >= 12 && data[4] == 'f' && data[5] == 't' && data[6] == 'y' && data[7] == 'p') {
+                    // ISO-BMFF (ftyp box): the only one we produce is HEIC
+                    extension = ".heic";
+                    mimeType = "image/heic";
                 }
             }
 
@@ -393,6 +486,30 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
         }
     }
 
+    /** Streams an already-encoded capture file (EXIF included) into the gallery. */
+    private void saveFileToGallery(File source, String format) {
+        File photo = new File(
+            Environment.getExternalStoragePublicDirectory(Environment.DIRECTORY_PICTURES),
+            "IMG_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new java.util.Date()) + ImageEncoder.getExtension(format)
+        );
+        try (InputStream in = new FileInputStream(source); FileOutputStream out = new FileOutputStream(photo)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving image file to gallery", e);
+            return;
+        }
+        MediaScannerConnection.scanFile(
+            this.context,
+            new String[] { photo.getAbsolutePath() },
+            new String[] { ImageEncoder.getMimeType(format) },
+            null
+        );
+    }
+
     public void startSession(CameraSessionConfiguration config) {
         mainExecutor.execute(() -> {
             // Stop may run first (e.g. activity pause) and move the registry to DESTROYED while this
@@ -453,6 +570,11 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
 
             this.sessionConfig = config;
             cameraExecutor = Executors.newSingleThreadExecutor();
+            transformExecutor = newStageExecutor("cpcp-transform", TRANSFORM_THREADS, TRANSFORM_QUEUE_DEPTH);
+            encodeExecutor = newStageExecutor("cpcp-encode", ENCODE_THREADS, ENCODE_QUEUE_DEPTH);
+            analysisExecutor = Executors.newSingleThreadExecutor((r) -> new Thread(r, "cpcp-analysis"));
+            thumbnailExecutor = Executors.newSingleThreadExecutor((r) -> new Thread(r, "cpcp-thumbnail"));
+            yuvConverter = YuvConverter.forAvailableProcessors(YUV_CONVERTER_BANDS);
 
             // Reset cached orientation so we don't reuse stale values across sessions
             synchronized (accelerometerLock) {
@@ -545,6 +667,28 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
                 if (cameraExecutor != null) {
                     cameraExecutor.shutdown();
                 }
+                if (transformExecutor != null) {
+                    transformExecutor.shutdown();
+                }
+                if (encodeExecutor != null) {
+                    encodeExecutor.shutdown();
+                }
+                if (analysisExecutor != null) {
+                    analysisExecutor.shutdown();
+                }
+                if (thumbnailExecutor != null) {
+                    thumbnailExecutor.shutdown();
+                }
+                if (yuvConverter != null) {
+                    yuvConverter.close();
+                    yuvConverter = null;
+                }
+                frameStream = null;
+                frameHistory = null;
+                imageAnalysis = null;
+                bitmapPool.clear();
+                yuvBufferPool.clear();
+                overlayRenderer.clear();
                 removePreviewView();
             } catch (Exception e) {
                 Log.w(TAG, "performImmediateStop: error during stop", e);
@@ -916,9 +1060,84 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
         webView.setBackgroundColor(originalWebViewBackground);
     }
 
-    @OptIn(markerClass = ExperimentalCamera2Interop.class)
+    /** Maps the requested capture mode to ImageCapture's; ZSL is only requested from cameras that support it. */
+    private int resolveImageCaptureMode() {
+        String mode = sessionConfig.getCaptureMode();
+        if (CameraSessionConfiguration.CAPTURE_MODE_MAXIMIZE_QUALITY.equals(mode)) {
+            return ImageCapture.CAPTURE_MODE_MAXIMIZE_QUALITY;
+        }
+        if (CameraSessionConfiguration.CAPTURE_MODE_ZERO_SHUTTER_LAG.equals(mode)) {
+            try {
+                if (cameraProvider.getCameraInfo(currentCameraSelector).isZslSupported()) {
+                    return ImageCapture.CAPTURE_MODE_ZERO_SHUTTER_LAG;
+                }
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "resolveImageCaptureMode: No camera matches the selector", e);
+            }
+            Log.w(TAG, "resolveImageCaptureMode: Zero shutter lag is not supported by this camera, minimizing latency instead");
+        }
+        return ImageCapture.CAPTURE_MODE_MINIMIZE_LATENCY;
+    }
+
+    /**
+     * The capture mode actually in effect. CameraX silently falls back from zero shutter lag to minimize latency
+     * while the flash is on or auto and while video capture is bound, so this is evaluated on each call.
+     */
+    public String getEffectiveCaptureMode() {
+        if (sessionConfig == null) {
+            return CameraSessionConfiguration.CAPTURE_MODE_MINIMIZE_LATENCY;
+        }
+        String mode = sessionConfig.getCaptureMode();
+        if (!CameraSessionConfiguration.CAPTURE_MODE_ZERO_SHUTTER_LAG.equals(mode)) {
+            return mode;
+        }
+        boolean zsl =
+            camera != null &&
+            camera.getCameraInfo().isZslSupported() &&
+            currentFlashMode == ImageCapture.FLASH_MODE_OFF &&
+            !sessionConfig.isVideoModeEnabled();
+        return zsl ? mode : CameraSessionConfiguration.CAPTURE_MODE_MINIMIZE_LATENCY;
+    }
+
+    /**
+     * Switches the capture mode; ImageCapture's mode is fixed at build time, so the use cases are rebound.
+     * {@code callback} hears once the new ImageCapture is bound. Refused while a capture, burst, sample or focus is in
+     * flight, since unbinding would fail it.
+     */
+    public void setCaptureMode(String captureMode, BindCallback callback) {
+        if (sessionConfig == null) {
+            callback.onError("Camera is not running");
+            return;
+        }
+        synchronized (captureLock) {
+            synchronized (operationLock) {
+                if (photoCapturesInFlight > 0 || activeOperations > 0 || stopRequested || stopPending) {
+                    callback.onError("Cannot change capture mode while a capture is in progress");
+                    return;
+                }
+            }
+        }
+        Log.d(TAG, "setCaptureMode: Changing capture mode to " + captureMode);
+        sessionConfig.setCaptureMode(captureMode);
+        bindCameraUseCases(callback);
+    }
+
+    @SuppressLint("RestrictedApi")
+    private static void setYuvBufferFormat(ImageCapture.Builder builder) {
+        builder.setBufferFormat(ImageFormat.YUV_420_888);
+    }
+
     private void bindCameraUseCases() {
-        if (cameraProvider == null) return;
+        bindCameraUseCases(null);
+    }
+
+    /** Rebuilds and binds the use cases on the main thread, then reports to {@code callback} when one is given. */
+    @OptIn(markerClass = ExperimentalCamera2Interop.class)
+    private void bindCameraUseCases(final BindCallback callback) {
+        if (cameraProvider == null) {
+            if (callback != null) callback.onError("Camera is not running");
+            return;
+        }
         mainExecutor.execute(() -> {
             try {
                 Log.d(
@@ -955,12 +1174,16 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
 
                 Preview preview = new Preview.Builder().setResolutionSelector(resolutionSelector).setTargetRotation(rotation).build();
                 // Keep reference to preview use case for later re-binding (e.g., when enabling video)
-                imageCapture = new ImageCapture.Builder()
+                ImageCapture.Builder imageCaptureBuilder = new ImageCapture.Builder()
                     .setResolutionSelector(resolutionSelector)
-                    .setCaptureMode(ImageCapture.CAPTURE_MODE_MINIMIZE_LATENCY)
+                    .setCaptureMode(resolveImageCaptureMode())
                     .setFlashMode(currentFlashMode)
-                    .setTargetRotation(rotation)
-                    .build();
+                    .setTargetRotation(rotation);
+                if (sessionConfig.isYuvCapture()) {
+                    // In-memory captures then deliver YUV_420_888 planes; file/stream captures are still JPEG-encoded by CameraX
+                    setYuvBufferFormat(imageCaptureBuilder);
+                }
+                imageCapture = imageCaptureBuilder.build();
                 sampleImageCapture = imageCapture;
 
                 // Only setup VideoCapture if enableVideoMode is true
@@ -1018,6 +1241,20 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
                     currentDeviceId = Camera2CameraInfo.from(cameraInfo).getCameraId();
                     Log.d(TAG, "bindCameraUseCases: Camera successfully bound to device ID: " + currentDeviceId);
                 }
+                if (imageAnalysis != null || hasFrameProcessors()) {
+                    // unbindAll dropped it; frame consumers survive camera switches
+                    try {
+                        if (imageAnalysis == null) {
+                            imageAnalysis = buildImageAnalysis(null, null);
+                        }
+                        bindImageAnalysis();
+                    } catch (RuntimeException e) {
+                        Log.w(TAG, "bindCameraUseCases: Dropping frame analysis that cannot be bound with this camera", e);
+                        frameStream = null;
+                        frameHistory = null;
+                        imageAnalysis = null;
+                    }
+                }
 
                 resetExposureCompensationToDefault();
 
@@ -1120,6 +1357,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
                                         " to " +
                                         maxZoom
                                 );
+                                if (callback != null) callback.onError("Initial zoom level " + initialZoom + " is not available");
                                 return;
                             }
                         }
@@ -1130,6 +1368,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
 
                 isRunning = true;
                 Log.d(TAG, "bindCameraUseCases: Camera bound successfully");
+                if (callback != null) callback.onBound();
                 if (listener != null) {
                     // Post the callback to ensure layout is complete
                     previewContainer.post(() -> {
@@ -1164,6 +1403,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
                 // Restore webView background on error
                 restoreWebViewBackground();
                 if (listener != null) listener.onCameraStartError("Error binding camera: " + e.getMessage());
+                if (callback != null) callback.onError("Error binding camera: " + e.getMessage());
             }
         });
     }
@@ -1248,18 +1488,24 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
         }
     }
 
-    public void capturePhoto(
-        int quality,
-        final boolean saveToGallery,
-        Integer width,
-        Integer height,
-        Location location,
-        final boolean embedTimestamp,
-        final boolean embedLocation
-    ) {
+    public void capturePhoto(final CaptureOptions options) {
+        final String requestId = options.getRequestId();
+        final int quality = options.getQuality();
+        final boolean saveToGallery = options.isSaveToGallery();
+        final Integer width = options.getWidth();
+        final Integer height = options.getHeight();
+        final Location location = options.getLocation();
+        final boolean embedTimestamp = options.isEmbedTimestamp();
+        final boolean embedLocation = options.isEmbedLocation();
+        final RectF roi = options.getRoi();
+        final boolean passthrough = options.canPassthrough();
+        if (options.isPassthrough() && !passthrough) {
+            Log.w(TAG, "capturePhoto: passthrough ignored because resizing or overlays were requested");
+        }
+
         if (imageCapture == null) {
             if (listener != null) {
-                listener.onPictureTakenError("Camera not ready");
+                listener.onPictureTakenError(requestId, "Camera not ready");
             }
             return;
         }
@@ -1267,6 +1513,9 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
         // Prevent capture if a stop is pending
         if (IsOperationRunning("capturePhoto")) {
             Log.d(TAG, "capturePhoto: Ignored because stop is pending");
+            if (listener != null) {
+                listener.onPictureTakenError(requestId, "Camera is stopping");
+            }
             return;
         }
 
@@ -1289,187 +1538,106 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
                 ", embedTimestamp: " +
                 embedTimestamp +
                 ", embedLocation: " +
-                embedLocation
+                embedLocation +
+                ", roi: " +
+                roi +
+                ", passthrough: " +
+                passthrough
         );
 
         boolean dispatched = false;
         try {
             synchronized (captureLock) {
-                isCapturingPhoto = true;
+                photoCapturesInFlight++;
+            }
+
+            final CaptureResultCallback resultCallback = new CaptureResultCallback() {
+                @Override
+                public void onSuccess(String value, JSONObject exif, CaptureMetrics metrics) {
+                    if (listener != null) {
+                        listener.onPictureTaken(requestId, value, exif, metrics.toJson());
+                    }
+                    finishPhotoCapture();
+                }
+
+                @Override
+                public void onFailure(String message) {
+                    if (listener != null) {
+                        listener.onPictureTakenError(requestId, message);
+                    }
+                    finishPhotoCapture();
+                }
+            };
+
+            if (sessionConfig.isYuvCapture() && options.isJpeg() && !passthrough && !options.hasOverlay()) {
+                final CaptureMetrics metrics = new CaptureMetrics(CaptureMetrics.PIPELINE_YUV);
+                imageCapture.takePicture(
+                    cameraExecutor,
+                    new ImageCapture.OnImageCapturedCallback() {
+                        @Override
+                        public void onCaptureStarted() {
+                            metrics.mark(CaptureMetrics.STAGE_SHUTTER);
+                        }
+
+                        @Override
+                        public void onCaptureSuccess(@NonNull ImageProxy image) {
+                            metrics.mark(CaptureMetrics.STAGE_IMAGE_SAVED);
+                            processYuvCaptureAsync(image, options, lastCompassHeading, metrics, resultCallback);
+                        }
+
+                        @Override
+                        public void onError(@NonNull ImageCaptureException exception) {
+                            Log.e(TAG, "capturePhoto: YUV capture failed", exception);
+                            resultCallback.onFailure("Photo capture failed: " + exception.getMessage());
+                        }
+                    }
+                );
+                dispatched = true;
+                return;
             }
 
-            final ByteArrayOutputStream imageStream = new ByteArrayOutputStream();
+            // storeToFile sessions let CameraX write the JPEG straight to its final file
+            final File captureFile = sessionConfig.isStoreToFile() ? newCaptureFile("") : null;
+            final ByteArrayOutputStream imageStream = captureFile == null ? new ByteArrayOutputStream() : null;
             ImageCapture.Metadata metadata = new ImageCapture.Metadata();
             if (location != null) {
                 metadata.setLocation(location);
             }
-            ImageCapture.OutputFileOptions outputFileOptions = new ImageCapture.OutputFileOptions.Builder(imageStream)
+            ImageCapture.OutputFileOptions outputFileOptions = (captureFile != null
+                    ? new ImageCapture.OutputFileOptions.Builder(captureFile)
+                    : new ImageCapture.OutputFileOptions.Builder(imageStream))
                 .setMetadata(metadata)
                 .build();
 
+            final CaptureMetrics metrics = new CaptureMetrics(CaptureMetrics.PIPELINE_JPEG);
+            final CaptureResultCallback fileCallback = deletingFileOnFailure(captureFile, resultCallback);
             imageCapture.takePicture(
                 outputFileOptions,
                 cameraExecutor,
                 new ImageCapture.OnImageSavedCallback() {
+                    @Override
+                    public void onCaptureStarted() {
+                        metrics.mark(CaptureMetrics.STAGE_SHUTTER);
+                    }
+
                     @Override
                     public void onError(@NonNull ImageCaptureException exception) {
                         Log.e(TAG, "capturePhoto: Photo capture failed", exception);
-                        if (listener != null) {
-                            listener.onPictureTakenError("Photo capture failed: " + exception.getMessage());
-                        }
-                        // End of capture lifecycle
-                        synchronized (captureLock) {
-                            isCapturingPhoto = false;
-                            if (stopRequested) {
-                                performImmediateStop();
-                            }
-                        }
-                        endOperation("capturePhoto");
+                        fileCallback.onFailure("Photo capture failed: " + exception.getMessage());
                     }
 
                     @Override
                     public void onImageSaved(@NonNull ImageCapture.OutputFileResults output) {
-                        try {
-                            byte[] originalCaptureBytes = imageStream.toByteArray();
-                            byte[] bytes = originalCaptureBytes; // will be replaced if we transform
-                            int finalWidthOut = -1;
-                            int finalHeightOut = -1;
-                            boolean transformedPixels = false;
-                            // Snapshot compass heading at capture time for EXIF injection
-                            final float captureCompassHeading = lastCompassHeading;
-
-                            ExifInterface exifInterface = new ExifInterface(new ByteArrayInputStream(originalCaptureBytes));
-                            // Build EXIF JSON from captured bytes (location applied by metadata if provided)
-                            JSONObject exifData = getExifData(exifInterface);
-
-                            if (width != null || height != null) {
-                                Bitmap bitmap = BitmapFactory.decodeByteArray(originalCaptureBytes, 0, originalCaptureBytes.length);
-                                bitmap = applyExifOrientation(bitmap, exifInterface);
-                                Bitmap resizedBitmap = resizeBitmapToMaxDimensions(bitmap, width, height);
-                                if (embedTimestamp || embedLocation) {
-                                    resizedBitmap = drawTimestampAndLocationOntoBitmap(
-                                        resizedBitmap,
-                                        exifInterface,
-                                        embedTimestamp,
-                                        embedLocation
-                                    );
-                                }
-                                ByteArrayOutputStream stream = new ByteArrayOutputStream();
-                                resizedBitmap.compress(Bitmap.CompressFormat.JPEG, quality, stream);
-                                bytes = stream.toByteArray();
-                                transformedPixels = true;
-
-                                // Update EXIF JSON to reflect new dimensions; no in-place EXIF write to bytes
-                                try {
-                                    exifData.put("PixelXDimension", resizedBitmap.getWidth());
-                                    exifData.put("PixelYDimension", resizedBitmap.getHeight());
-                                    exifData.put("ImageWidth", resizedBitmap.getWidth());
-                                    exifData.put("ImageLength", resizedBitmap.getHeight());
-                                    exifData.put("Orientation", Integer.toString(ExifInterface.ORIENTATION_NORMAL));
-                                } catch (Exception ignore) {}
-                                finalWidthOut = resizedBitmap.getWidth();
-                                finalHeightOut = resizedBitmap.getHeight();
-                            } else {
-                                // No explicit size/ratio: crop to match current preview content
-                                Bitmap originalBitmap = BitmapFactory.decodeByteArray(originalCaptureBytes, 0, originalCaptureBytes.length);
-                                originalBitmap = applyExifOrientation(originalBitmap, exifInterface);
-                                Bitmap previewCropped = cropBitmapToMatchPreview(originalBitmap);
-                                if (embedTimestamp || embedLocation) {
-                                    previewCropped = drawTimestampAndLocationOntoBitmap(
-                                        previewCropped,
-                                        exifInterface,
-                                        embedTimestamp,
-                                        embedLocation
-                                    );
-                                }
-                                ByteArrayOutputStream stream = new ByteArrayOutputStream();
-                                previewCropped.compress(Bitmap.CompressFormat.JPEG, quality, stream);
-                                bytes = stream.toByteArray();
-                                transformedPixels = true;
-                                // Update EXIF JSON to reflect cropped dimensions; no in-place EXIF write to bytes
-                                try {
-                                    exifData.put("PixelXDimension", previewCropped.getWidth());
-                                    exifData.put("PixelYDimension", previewCropped.getHeight());
-                                    exifData.put("ImageWidth", previewCropped.getWidth());
-                                    exifData.put("ImageLength", previewCropped.getHeight());
-                                    exifData.put("Orientation", Integer.toString(ExifInterface.ORIENTATION_NORMAL));
-                                } catch (Exception ignore) {}
-                                finalWidthOut = previewCropped.getWidth();
-                                finalHeightOut = previewCropped.getHeight();
-                            }
-
-                            // After any transform, inject EXIF back into the in-memory JPEG bytes (no temp file)
-                            if (transformedPixels) {
-                                Integer fW = (finalWidthOut > 0) ? finalWidthOut : null;
-                                Integer fH = (finalHeightOut > 0) ? finalHeightOut : null;
-                                bytes = injectExifInMemory(bytes, originalCaptureBytes, fW, fH);
-                            }
-
-                            // Inject GPS image direction (compass heading) when a location was requested
-                            if (location != null && captureCompassHeading >= 0) {
-                                bytes = injectGpsHeadingIntoExif(bytes, captureCompassHeading);
-                                try {
-                                    exifData.put("GPSImgDirection", String.valueOf(captureCompassHeading));
-                                    exifData.put("GPSImgDirectionRef", "T");
-                                } catch (Exception e) {
-                                    Log.d(TAG, "capturePhoto: Failed to update EXIF JSON with heading data", e);
-                                }
-                            }
-
-                            // Save to gallery asynchronously if requested, copy EXIF to file
-                            if (saveToGallery) {
-                                final byte[] finalBytes = bytes;
-                                final ExifInterface exifForFile = exifInterface;
-                                final Integer fW = (finalWidthOut > 0) ? finalWidthOut : null;
-                                final Integer fH = (finalHeightOut > 0) ? finalHeightOut : null;
-                                new Thread(() -> saveImageToGallery(finalBytes, exifForFile, fW, fH)).start();
-                            }
-
-                            String resultValue;
-                            boolean returnFileUri = sessionConfig != null && sessionConfig.isStoreToFile();
-                            if (returnFileUri) {
-                                // Persist processed image to a file and return its URI to avoid heavy base64 bridging
-                                try {
-                                    String fileName =
-                                        "cpcp_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new java.util.Date()) + ".jpg";
-                                    File outDir = context.getCacheDir();
-                                    File outFile = new File(outDir, fileName);
-                                    FileOutputStream outFos = new FileOutputStream(outFile);
-                                    outFos.write(bytes);
-                                    outFos.close();
-
-                                    // No EXIF rewrite here; bytes already contain EXIF when needed
-
-                                    // Return a file path; apps can convert via Capacitor.convertFileSrc on JS side
-                                    resultValue = outFile.getAbsolutePath();
-                                } catch (IOException ioEx) {
-                                    Log.e(TAG, "capturePhoto: Failed to write image file", ioEx);
-                                    // Fallback to base64 if file write fails
-                                    resultValue = Base64.encodeToString(bytes, Base64.NO_WRAP);
-                                }
-                            } else {
-                                // Backward-compatible behavior
-                                resultValue = Base64.encodeToString(bytes, Base64.NO_WRAP);
-                            }
-
-                            if (listener != null) {
-                                listener.onPictureTaken(resultValue, exifData);
-                            }
-                        } catch (Exception e) {
-                            Log.e(TAG, "capturePhoto: Error processing image", e);
-                            if (listener != null) {
-                                listener.onPictureTakenError("Error processing image: " + e.getMessage());
-                            }
-                        } finally {
-                            // End of capture lifecycle
-                            synchronized (captureLock) {
-                                isCapturingPhoto = false;
-                                if (stopRequested) {
-                                    performImmediateStop();
-                                }
-                            }
-                            endOperation("capturePhoto");
-                        }
+                        metrics.mark(CaptureMetrics.STAGE_IMAGE_SAVED);
+                        // Snapshot compass heading at capture time for EXIF injection
+                        processCaptureAsync(
+                            captureFile != null ? JpegSource.of(captureFile) : JpegSource.of(imageStream.toByteArray()),
+                            options,
+                            lastCompassHeading,
+                            "",
+                            metrics,
+                            fileCallback
+                        );
                     }
                 }
             );
@@ -1478,371 +1646,1485 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
         } catch (Exception e) {
             Log.e(TAG, "capturePhoto: Failed to start photo capture", e);
             if (listener != null) {
-                listener.onPictureTakenError("Photo capture failed: " + e.getMessage());
+                listener.onPictureTakenError(requestId, "Photo capture failed: " + e.getMessage());
             }
         } finally {
             if (!dispatched) {
-                synchronized (captureLock) {
-                    isCapturingPhoto = false;
-                    if (stopRequested) {
-                        performImmediateStop();
-                    }
-                }
-                endOperation("capturePhoto");
+                finishPhotoCapture();
             }
         }
     }
 
-    private Bitmap drawTimestampAndLocationOntoBitmap(Bitmap src, ExifInterface exif, boolean embedTimestamp, boolean embedLocation) {
-        if (src == null) return null;
-
-        // Build strings (null-safe)
-        final String when = embedTimestamp ? buildTimestampStringFromExif(exif) : null;
-        final String where = (embedLocation ? buildLocationStringFromExif(exif) : null);
-
-        // Nothing to draw?
-        if ((when == null || when.isEmpty()) && (where == null || where.isEmpty())) {
-            Log.d(TAG, "capturePhoto:... embedTimestamp: " + embedTimestamp + ", embedLocation: " + embedLocation);
-            Log.d(TAG, "capturePhoto: nothing to draw");
-            return src;
+    /** End of a capturePhoto lifecycle, whichever stage it ended in. */
+    private void finishPhotoCapture() {
+        synchronized (captureLock) {
+            photoCapturesInFlight = Math.max(0, photoCapturesInFlight - 1);
+            if (photoCapturesInFlight == 0 && stopRequested) {
+                performImmediateStop();
+            }
         }
+        endOperation("capturePhoto");
+    }
 
-        final Bitmap bmp = src.isMutable() ? src : src.copy(Bitmap.Config.ARGB_8888, true);
-        final Canvas canvas = new Canvas(bmp);
-
-        // ---- Visual constants (match timestamp style) ----
-        final float fontPx = Math.max(10f, bmp.getWidth() * 0.035f); // ~3.5% of width
-        final float paddingH = 16f; // horizontal inner padding
-        final float paddingV = 10f; // vertical inner padding
-        final float margin = 12f; // margin from image edges
-        final float gap = 8f; // vertical gap between stacked pills
-        final float corner = 10f; // corner radius
-        final int bgColor = Color.argb(56, 31, 31, 31); // ~iOS gray at ~22% alpha
-
-        // Text paint
-        final Paint text = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.SUBPIXEL_TEXT_FLAG | Paint.LINEAR_TEXT_FLAG);
-        text.setColor(Color.WHITE);
-        text.setTypeface(Typeface.create("sans-serif-medium", Typeface.NORMAL));
-        text.setTextSize(fontPx);
-        text.setTextAlign(Paint.Align.LEFT);
-        text.setDither(true);
-        text.setFilterBitmap(true);
-        text.setHinting(Paint.HINTING_ON);
-        final Paint.FontMetrics fm = text.getFontMetrics();
-        final float lineHeight = fm.descent - fm.ascent;
-
-        // Background paint
-        final Paint bg = new Paint(Paint.ANTI_ALIAS_FLAG);
-        bg.setColor(bgColor);
-        bg.setStyle(Paint.Style.FILL);
-        bg.setShadowLayer(6f, 0f, 2f, Color.argb(64, 0, 0, 0));
-
-        float nextTop = margin;
-
-        // Helper to draw a pill aligned to the top-right, returns the bottom Y used
-        java.util.function.BiFunction<String, Float, Float> drawPill = (label, top) -> {
-            if (label == null || label.isEmpty()) return top;
-            float textW = text.measureText(label);
-            float bgW = textW + paddingH * 2f;
-            float bgH = lineHeight + paddingV * 2f;
-
-            float left = Math.max(0, bmp.getWidth() - bgW - margin);
-            float right = left + bgW;
-            float bottom = top + bgH;
+    /**
+     * Captures {@code count} photos, issuing each takePicture request as soon as the previous shutter has fired (or
+     * {@code intervalMs} after it) while earlier frames are still going through the transform and encode stages. The
+     * camera executor only copies the JPEG bytes out, so shutter cadence is bounded by the sensor rather than by
+     * post-processing, and only one request is pending at a time: a stop cancels the frames not yet requested.
+     * Each frame is reported through {@link CameraXViewListener#onBurstFrame}, then a summary through
+     * {@link CameraXViewListener#onBurstComplete}.
+     */
+    public void captureBurst(final CaptureOptions options, final int count, final long intervalMs) {
+        if (imageCapture == null) {
+            if (listener != null) {
+                listener.onBurstError("Camera not ready");
+            }
+            return;
+        }
+        if (IsOperationRunning("captureBurst")) {
+            Log.d(TAG, "captureBurst: Ignored because stop is pending");
+            if (listener != null) {
+                listener.onBurstError("Camera is stopping");
+            }
+            return;
+        }
 
-            // Background
-            canvas.drawRoundRect(left, top, right, bottom, corner, corner, bg);
+        int rotation = getRotationFromAccelerometer();
+        lastCaptureRotation = rotation;
+        imageCapture.setTargetRotation(rotation);
+        Log.d(TAG, "captureBurst: count=" + count + ", intervalMs=" + intervalMs + ", rotation=" + rotation);
+        takeBurstFrame(new Burst(imageCapture, options, count, intervalMs), 0);
+    }
 
-            // Text baseline
-            float textX = left + paddingH;
-            float textY = top + paddingV - fm.ascent; // convert top-left to baseline
-            canvas.drawText(label, textX, textY, text);
+    /** Progress of one {@link #captureBurst} call. */
+    private final class Burst {
 
-            return bottom;
-        };
+        final ImageCapture capture;
+        final CaptureOptions options;
+        final int count;
+        final long intervalMs;
+        final long startedAt = SystemClock.elapsedRealtime();
+        final Handler handler = new Handler(Looper.getMainLooper());
+        final AtomicInteger captured = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger finished = new AtomicInteger();
 
-        // 1) Timestamp (if any)
-        if (when != null && !when.isEmpty()) {
-            nextTop = drawPill.apply(when, nextTop);
-            // add gap below
-            nextTop += gap;
+        Burst(ImageCapture capture, CaptureOptions options, int count, long intervalMs) {
+            this.capture = capture;
+            this.options = options;
+            this.count = count;
+            this.intervalMs = intervalMs;
         }
 
-        // 2) Location (if any)
-        if (where != null && !where.isEmpty()) {
-            // If there was no timestamp drawn, we still start at top margin.
-            // If there was, we use the accumulated nextTop (= bottom + gap).
-            drawPill.apply(where, (when != null && !when.isEmpty()) ? nextTop : margin);
+        void frameFailed(int index, String message) {
+            failed.incrementAndGet();
+            if (listener != null) {
+                listener.onBurstFrameError(index, message);
+            }
+            frameDone();
         }
 
-        return bmp;
+        void frameDone() {
+            if (finished.incrementAndGet() == count) {
+                if (listener != null) {
+                    listener.onBurstComplete(captured.get(), failed.get(), SystemClock.elapsedRealtime() - startedAt);
+                }
+                endOperation("captureBurst");
+            }
+        }
     }
 
-    /** Build "yyyy-MM-dd HH:mm:ss" from EXIF, fallback to now. */
-    private String buildTimestampStringFromExif(ExifInterface exif) {
-        final String out = "yyyy-MM-dd HH:mm:ss";
+    /**
+     * Requests frame {@code index} of a burst, then schedules the next one once this shutter has fired (or the
+     * request failed), so no more than one request is ever queued. Frames not yet requested when the camera stops
+     * are reported as failed.
+     */
+    private void takeBurstFrame(final Burst burst, final int index) {
+        if (stopRequested) {
+            for (int i = index; i < burst.count; i++) {
+                burst.frameFailed(i, "Camera is stopping");
+            }
+            return;
+        }
+        final long requestedAt = SystemClock.elapsedRealtime();
+        final AtomicBoolean nextScheduled = new AtomicBoolean();
+        final Runnable scheduleNext = () -> {
+            if (index + 1 < burst.count && nextScheduled.compareAndSet(false, true)) {
+                long delay = Math.max(0, requestedAt + burst.intervalMs - SystemClock.elapsedRealtime());
+                burst.handler.postDelayed(() -> takeBurstFrame(burst, index + 1), delay);
+            }
+        };
+        final File captureFile = sessionConfig.isStoreToFile() ? newCaptureFile("_" + index) : null;
+        final ByteArrayOutputStream imageStream = captureFile == null ? new ByteArrayOutputStream() : null;
+        ImageCapture.OutputFileOptions outputFileOptions = (captureFile != null
+                ? new ImageCapture.OutputFileOptions.Builder(captureFile)
+                : new ImageCapture.OutputFileOptions.Builder(imageStream))
+            .build();
+        final CaptureMetrics frameMetrics = new CaptureMetrics(CaptureMetrics.PIPELINE_JPEG);
         try {
-            if (exif != null) {
-                String exifDate = exif.getAttribute(ExifInterface.TAG_DATETIME_ORIGINAL);
-                if (exifDate == null || exifDate.trim().isEmpty()) {
-                    exifDate = exif.getAttribute(ExifInterface.TAG_DATETIME);
-                }
-                if (exifDate != null && !exifDate.trim().isEmpty()) {
-                    java.text.SimpleDateFormat in = new java.text.SimpleDateFormat("yyyy:MM:dd HH:mm:ss", java.util.Locale.US);
-                    java.util.Date d = in.parse(exifDate);
-                    if (d != null) {
-                        return new java.text.SimpleDateFormat(out, java.util.Locale.getDefault()).format(d);
+            burst.capture.takePicture(
+                outputFileOptions,
+                cameraExecutor,
+                new ImageCapture.OnImageSavedCallback() {
+                    @Override
+                    public void onCaptureStarted() {
+                        frameMetrics.mark(CaptureMetrics.STAGE_SHUTTER);
+                        scheduleNext.run();
+                    }
+
+                    @Override
+                    public void onError(@NonNull ImageCaptureException exception) {
+                        Log.e(TAG, "captureBurst: Frame " + index + " failed", exception);
+                        scheduleNext.run();
+                        deletePartialFile(captureFile);
+                        burst.frameFailed(index, "Photo capture failed: " + exception.getMessage());
+                    }
+
+                    @Override
+                    public void onImageSaved(@NonNull ImageCapture.OutputFileResults output) {
+                        frameMetrics.mark(CaptureMetrics.STAGE_IMAGE_SAVED);
+                        // Devices that do not report the shutter schedule the next frame here
+                        scheduleNext.run();
+                        processCaptureAsync(
+                            captureFile != null ? JpegSource.of(captureFile) : JpegSource.of(imageStream.toByteArray()),
+                            burst.options,
+                            lastCompassHeading,
+                            "_" + index,
+                            frameMetrics,
+                            deletingFileOnFailure(
+                                captureFile,
+                                new CaptureResultCallback() {
+                                    @Override
+                                    public void onSuccess(String value, JSONObject exif, CaptureMetrics metrics) {
+                                        burst.captured.incrementAndGet();
+                                        if (listener != null) {
+                                            listener.onBurstFrame(index, value, exif, metrics.toJson());
+                                        }
+                                        burst.frameDone();
+                                    }
+
+                                    @Override
+                                    public void onFailure(String message) {
+                                        burst.frameFailed(index, message);
+                                    }
+                                }
+                            )
+                        );
                     }
                 }
-            }
-        } catch (Throwable ignored) {}
-        // Fallback to "now" if EXIF missing/invalid
-        return new java.text.SimpleDateFormat(out, java.util.Locale.getDefault()).format(new java.util.Date());
+            );
+        } catch (Exception e) {
+            Log.e(TAG, "captureBurst: Failed to start frame " + index, e);
+            scheduleNext.run();
+            deletePartialFile(captureFile);
+            burst.frameFailed(index, "Photo capture failed: " + e.getMessage());
+        }
     }
 
-    /** Build "lat, lon" from EXIF GPS. Returns null if absent (so caller can skip). */
-    private String buildLocationStringFromExif(ExifInterface exif) {
-        if (exif == null) return null;
-        try {
-            float[] latLong = new float[2];
-            if (exif.getLatLong(latLong)) {
-                // Keep a compact but readable precision (5 decimals ≈ ~1 m–10 m)
-                String lat = String.format(java.util.Locale.US, "%.5f", latLong[0]);
-                String lon = String.format(java.util.Locale.US, "%.5f", latLong[1]);
-                return lat + ", " + lon;
-            }
-        } catch (Throwable ignored) {}
-        return null; // No EXIF GPS → skip
+    /** Receives the outcome of {@link #processCaptureAsync}; exactly one method is called per capture. */
+    private interface CaptureResultCallback {
+        void onSuccess(String value, JSONObject exif, CaptureMetrics metrics);
+        void onFailure(String message);
     }
 
-    private int exifToDegrees(int exifOrientation) {
-        switch (exifOrientation) {
-            case ExifInterface.ORIENTATION_ROTATE_90:
-            case ExifInterface.ORIENTATION_TRANSPOSE:
-                return 90;
-            case ExifInterface.ORIENTATION_ROTATE_180:
-                return 180;
-            case ExifInterface.ORIENTATION_ROTATE_270:
-            case ExifInterface.ORIENTATION_TRANSVERSE:
-                return 270;
-            default:
-                return 0;
+    /**
+     * Wraps {@code callback} so a failed capture also deletes {@code file}, the storeToFile output CameraX wrote, and
+     * leaves nothing behind in the cache directory. A null file returns {@code callback} itself.
+     */
+    private static CaptureResultCallback deletingFileOnFailure(final File file, final CaptureResultCallback callback) {
+        if (file == null) {
+            return callback;
         }
-    }
+        return new CaptureResultCallback() {
+            private volatile boolean delivered;
 
-    private Bitmap applyExifOrientation(Bitmap bitmap, ExifInterface exif) {
-        try {
-            int orientation = exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED);
-            int rotation = exifToDegrees(orientation);
-            if (rotation == 0) return bitmap;
-            Matrix m = new Matrix();
-            m.postRotate(rotation);
-            Bitmap rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), m, true);
-            if (rotated != bitmap) {
-                try {
-                    bitmap.recycle();
-                } catch (Exception ignore) {}
+            @Override
+            public void onSuccess(String value, JSONObject exif, CaptureMetrics metrics) {
+                delivered = true;
+                callback.onSuccess(value, exif, metrics);
             }
-            return rotated;
-        } catch (Exception e) {
-            return bitmap;
-        }
+
+            @Override
+            public void onFailure(String message) {
+                // Never delete a file already handed to the caller
+                if (!delivered) {
+                    deletePartialFile(file);
+                }
+                callback.onFailure(message);
+            }
+        };
     }
 
-    private Bitmap resizeBitmapToMaxDimensions(Bitmap bitmap, Integer maxWidth, Integer maxHeight) {
-        int originalWidth = bitmap.getWidth();
-        int originalHeight = bitmap.getHeight();
-        float originalAspectRatio = (float) originalWidth / originalHeight;
-
-        int targetWidth;
-        int targetHeight = originalHeight;
-
-        if (maxWidth != null && maxHeight != null) {
-            // Both dimensions specified - fit within both maximums
-            float maxAspectRatio = (float) maxWidth / maxHeight;
-            if (originalAspectRatio > maxAspectRatio) {
-                // Original is wider - fit by width
-                targetWidth = maxWidth;
-                targetHeight = (int) (maxWidth / originalAspectRatio);
-            } else {
-                // Original is taller - fit by height
-                targetWidth = (int) (maxHeight * originalAspectRatio);
-                targetHeight = maxHeight;
-            }
-        } else if (maxWidth != null) {
-            // Only width specified - maintain aspect ratio
-            targetWidth = maxWidth;
-            targetHeight = (int) (maxWidth / originalAspectRatio);
-        } else {
-            // Only height specified - maintain aspect ratio
-            targetWidth = (int) (maxHeight * originalAspectRatio);
-            targetHeight = maxHeight;
+    private static void deletePartialFile(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            Log.w(TAG, "deletePartialFile: Could not delete " + file.getName());
         }
+    }
 
-        return Bitmap.createScaledBitmap(bitmap, targetWidth, targetHeight, true);
+    /** Output of the transform stage: either a bitmap to encode, or the JPEG to keep as-is (passthrough). */
+    private static final class TransformedCapture {
+
+        final JpegSource source;
+        final ExifInterface sourceExif;
+        final JSONObject exifData;
+        final Bitmap bitmap;
+        // Passthrough output when it differs from the source (lossless crop); null means "keep the source as-is"
+        final byte[] passthroughBytes;
+        // EXIF changes gathered by both stages and written once at the end of the encode stage
+        final ExifEditSet exifEdits;
+
+        TransformedCapture(
+            JpegSource source,
+            ExifInterface sourceExif,
+            JSONObject exifData,
+            Bitmap bitmap,
+            byte[] passthroughBytes,
+            ExifEditSet exifEdits
+        ) {
+            this.source = source;
+            this.sourceExif = sourceExif;
+            this.exifData = exifData;
+            this.bitmap = bitmap;
+            this.passthroughBytes = passthroughBytes;
+            this.exifEdits = exifEdits;
+        }
     }
 
-    private JSONObject getExifData(ExifInterface exifInterface) {
-        JSONObject exifData = new JSONObject();
-        try {
-            // Add all available exif tags to a JSON object
-            for (String[] tag : EXIF_TAGS) {
-                String value = exifInterface.getAttribute(tag[0]);
-                if (value != null) {
-                    exifData.put(tag[1], value);
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "getExifData: Error reading exif data", e);
+    /** Output of the encode stage: the final image bytes and the metadata describing them. */
+    private static final class ProcessedCapture {
+
+        // Exactly one of bytes / file is set: file-backed captures stay on disk
+        final byte[] bytes;
+        final File file;
+        final JSONObject exif;
+        final ExifInterface sourceExif;
+        final Integer width;
+        final Integer height;
+        final CaptureMetrics metrics;
+
+        ProcessedCapture(
+            byte[] bytes,
+            File file,
+            JSONObject exif,
+            ExifInterface sourceExif,
+            Integer width,
+            Integer height,
+            CaptureMetrics metrics
+        ) {
+            this.bytes = bytes;
+            this.file = file;
+            this.exif = exif;
+            this.sourceExif = sourceExif;
+            this.width = width;
+            this.height = height;
+            this.metrics = metrics;
         }
-        return exifData;
     }
 
-    // Inject EXIF into a JPEG byte[] fully in-memory using Apache Commons Imaging (no temp files)
-    // Copies EXIF from sourceJpeg (original capture) and updates orientation/dimensions if provided.
-    private byte[] injectExifInMemory(byte[] targetJpeg, byte[] sourceJpegWithExif, Integer finalWidth, Integer finalHeight) {
+    /**
+     * Runs a captured JPEG through the transform stage, then the encode/serialize stage, each on its own bounded
+     * executor, so the camera executor is free for the next shutter as soon as it has handed the bytes off.
+     */
+    private void processCaptureAsync(
+        final JpegSource jpeg,
+        final CaptureOptions options,
+        final float captureCompassHeading,
+        final String fileSuffix,
+        final CaptureMetrics metrics,
+        final CaptureResultCallback callback
+    ) {
+        if (options.isThumbnail()) {
+            emitCaptureThumbnailAsync(jpeg, options);
+        }
         try {
-            // Quick signature check for JPEG (FF D8 FF)
-            if (
-                targetJpeg == null ||
-                targetJpeg.length < 3 ||
-                (targetJpeg[0] & 0xFF) != 0xFF ||
-                (targetJpeg[1] & 0xFF) != 0xD8 ||
-                (targetJpeg[2] & 0xFF) != 0xFF
-            ) {
-                return targetJpeg; // Not a JPEG; nothing to do
-            }
+            transformExecutor.execute(() -> {
+                if (options.isCancelled()) {
+                    callback.onFailure(CAPTURE_CANCELLED);
+                    return;
+                }
+                final TransformedCapture transformed;
+                try {
+                    transformed = transformCapturedImage(jpeg, options, metrics);
+                } catch (Exception e) {
+                    Log.e(TAG, "processCaptureAsync: Error transforming image", e);
+                    callback.onFailure("Error processing image: " + e.getMessage());
+                    return;
+                }
+                try {
+                    encodeExecutor.execute(() -> {
+                        if (options.isCancelled()) {
+                            bitmapPool.put(transformed.bitmap);
+                            callback.onFailure(CAPTURE_CANCELLED);
+                            return;
+                        }
+                        try {
+                            ProcessedCapture processed;
+                            if (transformed.bitmap != null && !options.isJpeg()) {
+                                processed = encodeCapturedImageAs(transformed, options, captureCompassHeading, metrics);
+                            } else if (transformed.source.getFile() != null) {
+                                processed = encodeCapturedImageToFile(transformed, options, captureCompassHeading, metrics);
+                            } else {
+                                processed = encodeCapturedImage(transformed, options, captureCompassHeading, metrics);
+                            }
+                            deliverProcessedCapture(processed, options, fileSuffix, callback);
+                        } catch (Exception e) {
+                            Log.e(TAG, "processCaptureAsync: Error encoding image", e);
+                            callback.onFailure("Error processing image: " + e.getMessage());
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    bitmapPool.put(transformed.bitmap);
+                    callback.onFailure("Capture pipeline stopped");
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            callback.onFailure("Capture pipeline stopped");
+        }
+    }
 
-            // Use Commons Imaging to read EXIF from the original capture bytes
-            org.apache.commons.imaging.formats.jpeg.JpegImageMetadata jpegMetadata =
-                (org.apache.commons.imaging.formats.jpeg.JpegImageMetadata) org.apache.commons.imaging.Imaging.getMetadata(
-                    sourceJpegWithExif
-                );
-            org.apache.commons.imaging.formats.tiff.TiffImageMetadata exif = jpegMetadata != null ? jpegMetadata.getExif() : null;
+    /** Upright, cropped and scaled NV21 image produced from a YUV capture. */
+    private static final class YuvFrame {
 
-            org.apache.commons.imaging.formats.tiff.write.TiffOutputSet outputSet = exif != null
-                ? exif.getOutputSet()
-                : new org.apache.commons.imaging.formats.tiff.write.TiffOutputSet();
+        final byte[] nv21;
+        final int width;
+        final int height;
 
-            // Update orientation if requested (normalize to 1)
-            org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory rootDir = outputSet.getOrCreateRootDirectory();
-            rootDir.removeField(org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants.TIFF_TAG_ORIENTATION);
-            rootDir.add(org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants.TIFF_TAG_ORIENTATION, (short) 1);
+        YuvFrame(byte[] nv21, int width, int height) {
+            this.nv21 = nv21;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * YUV capture path: the image is handed to the transform executor, where the planes are cropped to the preview
+     * (and ROI), rotated upright and scaled into a pooled NV21 buffer and the image is then released; the encode stage
+     * produces the only JPEG of the capture and writes its EXIF in one pass. There is no decode at all, and the camera
+     * executor only hands the image off, as on the JPEG path. A requested thumbnail is built from the same image on
+     * the thumbnail executor.
+     */
+    private void processYuvCaptureAsync(
+        final ImageProxy image,
+        final CaptureOptions options,
+        final float captureCompassHeading,
+        final CaptureMetrics metrics,
+        final CaptureResultCallback callback
+    ) {
+        // The thumbnail reads the same planes on its own executor: the last of the two stages closes the image
+        final AtomicInteger imageUsers = new AtomicInteger(options.isThumbnail() ? 2 : 1);
+        final Runnable releaseImage = () -> {
+            if (imageUsers.decrementAndGet() == 0) {
+                image.close();
+            }
+        };
+        if (options.isThumbnail()) {
+            try {
+                thumbnailExecutor.execute(() -> {
+                    try {
+                        emitYuvThumbnail(image, options);
+                    } finally {
+                        releaseImage.run();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                releaseImage.run();
+            }
+        }
+        try {
+            transformExecutor.execute(() -> {
+                final YuvFrame frame;
+                try {
+                    if (options.isCancelled()) {
+                        callback.onFailure(CAPTURE_CANCELLED);
+                        return;
+                    }
+                    long convertStart = SystemClock.elapsedRealtimeNanos();
+                    frame = transformYuvCapture(image, options.getRoi(), options.getWidth(), options.getHeight(), metrics);
+                    metrics.mark(CaptureMetrics.STAGE_TRANSFORMED);
+                    metrics.setYuvConvertMs((SystemClock.elapsedRealtimeNanos() - convertStart) / 1e6);
+                } catch (Exception e) {
+                    Log.e(TAG, "processYuvCaptureAsync: Error transforming YUV image", e);
+                    callback.onFailure("Error processing image: " + e.getMessage());
+                    return;
+                } finally {
+                    releaseImage.run();
+                }
 
-            if (finalWidth != null || finalHeight != null) {
                 try {
-                    updateResizedDimensions(outputSet, finalWidth, finalHeight);
-                } catch (Exception dimensionUpdateError) {
-                    Log.w(TAG, "injectExifInMemory: Failed to update resized dimensions", dimensionUpdateError);
+                    encodeExecutor.execute(() -> {
+                        if (options.isCancelled()) {
+                            yuvBufferPool.put(frame.nv21);
+                            callback.onFailure(CAPTURE_CANCELLED);
+                            return;
+                        }
+                        try {
+                            ProcessedCapture processed = encodeYuvFrame(frame, options, captureCompassHeading, metrics);
+                            deliverProcessedCapture(processed, options, "", callback);
+                        } catch (Exception e) {
+                            Log.e(TAG, "processYuvCaptureAsync: Error encoding image", e);
+                            callback.onFailure("Error processing image: " + e.getMessage());
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    yuvBufferPool.put(frame.nv21);
+                    callback.onFailure("Capture pipeline stopped");
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            releaseImage.run();
+            callback.onFailure("Capture pipeline stopped");
+        }
+    }
+
+    /** @param metrics receives the memory plan; null skips planning (thumbnails are small by construction) */
+    private YuvFrame transformYuvCapture(ImageProxy image, RectF roi, Integer maxWidth, Integer maxHeight, CaptureMetrics metrics) {
+        if (image.getFormat() != ImageFormat.YUV_420_888) {
+            throw new IllegalStateException("Unexpected capture format " + image.getFormat());
+        }
+        int rotation = image.getImageInfo().getRotationDegrees();
+        boolean swapsAxes = rotation == 90 || rotation == 270;
+        int orientedWidth = swapsAxes ? image.getHeight() : image.getWidth();
+        int orientedHeight = swapsAxes ? image.getWidth() : image.getHeight();
+
+        int[] crop = computePreviewCropRect(orientedWidth, orientedHeight);
+        if (roi != null) {
+            crop = CropGeometry.applyNormalizedRegion(crop, roi.left, roi.top, roi.width(), roi.height());
+        }
+        int[] target = ImageSizing.fitWithin(crop[2], crop[3], maxWidth, maxHeight);
+        if (metrics != null) {
+            MemoryPlanner.Plan plan = MemoryPlanner.planBuffer(target[0], target[1], YUV_BYTES_PER_PIXEL, processingBudgetBytes());
+            if (plan.degraded) {
+                Log.w(TAG, "transformYuvCapture: Output reduced to " + plan.width + "x" + plan.height + " to fit the processing budget");
             }
+            metrics.setMemoryPlan(plan);
+            target = new int[] { plan.width, plan.height };
+        }
+        int outWidth = YuvTransform.evenSize(target[0]);
+        int outHeight = YuvTransform.evenSize(target[1]);
+        int[] stored = CropGeometry.orientedToStored(crop, rotation, orientedWidth, orientedHeight);
+
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        YuvTransform.Planes yuv = new YuvTransform.Planes(
+            planes[0].getBuffer(),
+            planes[0].getRowStride(),
+            planes[0].getPixelStride(),
+            planes[1].getBuffer(),
+            planes[2].getBuffer(),
+            planes[1].getRowStride(),
+            planes[1].getPixelStride(),
+            image.getWidth(),
+            image.getHeight()
+        );
+        byte[] nv21 = yuvBufferPool.get(YuvTransform.nv21Size(outWidth, outHeight));
+        YuvTransform.cropRotateScaleToNv21(yuv, stored, rotation, outWidth, outHeight, nv21);
+        return new YuvFrame(nv21, outWidth, outHeight);
+    }
 
-            java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
-            new org.apache.commons.imaging.formats.jpeg.exif.ExifRewriter().updateExifMetadataLossless(
-                new java.io.ByteArrayInputStream(targetJpeg),
-                out,
-                outputSet
+    /** Encode stage of the YUV path: the single JPEG encode, then EXIF built from scratch (there is no source JPEG). */
+    private ProcessedCapture encodeYuvFrame(YuvFrame frame, CaptureOptions options, float captureCompassHeading, CaptureMetrics metrics)
+        throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new YuvImage(frame.nv21, ImageFormat.NV21, frame.width, frame.height, null).compressToJpeg(
+            new Rect(0, 0, frame.width, frame.height),
+            options.getQuality(),
+            stream
+        );
+        yuvBufferPool.put(frame.nv21);
+        byte[] bytes = stream.toByteArray();
+        metrics.mark(CaptureMetrics.STAGE_ENCODED);
+
+        ExifEditSet exifEdits = new ExifEditSet()
+            .setDateTimeOriginal(new SimpleDateFormat("yyyy:MM:dd HH:mm:ss", Locale.US).format(new Date()))
+            .putTag("Make", Build.MANUFACTURER)
+            .putTag("Model", Build.MODEL);
+        Location location = options.getLocation();
+        if (location != null) {
+            exifEdits.setGpsLocation(location.getLatitude(), location.getLongitude());
+        }
+        for (Map.Entry<String, String> tag : options.getExifTags().entrySet()) {
+            exifEdits.putTag(tag.getKey(), tag.getValue());
+        }
+        // The JSON is rebuilt from the written EXIF below, so only the edit set matters here
+        addEncodeExifEdits(exifEdits, new JSONObject(), options, captureCompassHeading, frame.width, frame.height);
+
+        long exifStart = SystemClock.elapsedRealtimeNanos();
+        bytes = exifEdits.apply(bytes, bytes);
+        metrics.setExifWriteMs((SystemClock.elapsedRealtimeNanos() - exifStart) / 1e6);
+        metrics.mark(CaptureMetrics.STAGE_EXIF_WRITTEN);
+
+        ExifInterface outExif = new ExifInterface(new ByteArrayInputStream(bytes));
+        JSONObject exifData = getExifData(outExif, options.getExifFields());
+        return new ProcessedCapture(bytes, null, exifData, outExif, frame.width, frame.height, metrics);
+    }
+
+    /**
+     * Sends a small upright preview of a capture, framed like the final image, before the full-resolution result is
+     * decoded. Uses the EXIF thumbnail when the JPEG carries one, otherwise a heavily subsampled decode.
+     * Failures are logged only: the thumbnail is best-effort and never fails the capture.
+     */
+    private void emitCaptureThumbnail(JpegSource jpeg, ExifInterface exif, CaptureOptions options) {
+        if (listener == null) {
+            return;
+        }
+        try {
+            RectF roi = options.getRoi();
+            boolean cropToPreview = options.canPassthrough()
+                ? options.isPassthroughCrop()
+                : roi != null || (options.getWidth() == null && options.getHeight() == null);
+            String source = "exif";
+            Bitmap thumbnail = exif.hasThumbnail() ? exif.getThumbnailBitmap() : null;
+            if (thumbnail != null) {
+                thumbnail = applyExifOrientation(thumbnail, exif);
+                if (cropToPreview) {
+                    int[] crop = computePreviewCropRect(thumbnail.getWidth(), thumbnail.getHeight());
+                    if (roi != null) {
+                        crop = CropGeometry.applyNormalizedRegion(crop, roi.left, roi.top, roi.width(), roi.height());
+                    }
+                    if (crop[2] != thumbnail.getWidth() || crop[3] != thumbnail.getHeight()) {
+                        Bitmap cropped = Bitmap.createBitmap(thumbnail, crop[0], crop[1], crop[2], crop[3]);
+                        bitmapPool.put(thumbnail);
+                        thumbnail = cropped;
+                    }
+                }
+            } else {
+                source = "decode";
+                thumbnail = cropToPreview
+                    ? decodePreviewRegion(jpeg, exif, roi, THUMBNAIL_MAX_SIZE, THUMBNAIL_MAX_SIZE, processingBudgetBytes(), null)
+                    : decodeSampledBitmapToMaxDimensions(jpeg, exif, THUMBNAIL_MAX_SIZE, THUMBNAIL_MAX_SIZE, processingBudgetBytes(), null);
+            }
+            if (thumbnail == null) {
+                return;
+            }
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            thumbnail.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, stream);
+            int width = thumbnail.getWidth();
+            int height = thumbnail.getHeight();
+            bitmapPool.put(thumbnail);
+            listener.onCaptureThumbnail(options.getRequestId(), Base64Encoder.encode(stream.toByteArray()), width, height, source);
+        } catch (Exception e) {
+            Log.w(TAG, "emitCaptureThumbnail: Failed to build thumbnail", e);
+        }
+    }
+
+    /**
+     * Queues {@link #emitCaptureThumbnail} on the thumbnail executor as soon as the capture is saved, rather than at the
+     * start of its transform, which may wait behind earlier captures.
+     */
+    private void emitCaptureThumbnailAsync(final JpegSource jpeg, final CaptureOptions options) {
+        try {
+            thumbnailExecutor.execute(() -> {
+                try {
+                    emitCaptureThumbnail(jpeg, jpeg.readExif(), options);
+                } catch (IOException e) {
+                    Log.w(TAG, "emitCaptureThumbnailAsync: Failed to read EXIF", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Log.d(TAG, "emitCaptureThumbnailAsync: Capture pipeline stopped, no thumbnail");
+        }
+    }
+
+    /** YUV counterpart of {@link #emitCaptureThumbnail}: a small transform of the planes, encoded on its own. */
+    private void emitYuvThumbnail(ImageProxy image, CaptureOptions options) {
+        if (listener == null) {
+            return;
+        }
+        try {
+            YuvFrame thumbnail = transformYuvCapture(image, options.getRoi(), THUMBNAIL_MAX_SIZE, THUMBNAIL_MAX_SIZE, null);
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            new YuvImage(thumbnail.nv21, ImageFormat.NV21, thumbnail.width, thumbnail.height, null).compressToJpeg(
+                new Rect(0, 0, thumbnail.width, thumbnail.height),
+                THUMBNAIL_QUALITY,
+                stream
             );
-            return out.toByteArray();
-        } catch (Throwable t) {
-            Log.w(TAG, "injectExifInMemory: Failed to write EXIF in memory", t);
-            return targetJpeg; // Fallback: return original bytes
+            yuvBufferPool.put(thumbnail.nv21);
+            String value = Base64Encoder.encode(stream.toByteArray());
+            listener.onCaptureThumbnail(options.getRequestId(), value, thumbnail.width, thumbnail.height, "yuv");
+        } catch (Exception e) {
+            Log.w(TAG, "emitYuvThumbnail: Failed to build thumbnail", e);
+        }
+    }
+
+    /**
+     * Final step shared by every capture path: gallery copy, result serialization and the success callback. The
+     * dispatch stage is marked after the callback returns, so only the {@link #captureTimingsLog} entry carries it.
+     */
+    private void deliverProcessedCapture(
+        ProcessedCapture processed,
+        CaptureOptions options,
+        String fileSuffix,
+        CaptureResultCallback callback
+    ) {
+        // Save to gallery asynchronously if requested, copy EXIF to file
+        if (options.isSaveToGallery()) {
+            new Thread(() -> {
+                if (processed.file != null) {
+                    saveFileToGallery(processed.file, options.getFormat());
+                } else {
+                    saveImageToGallery(processed.bytes, processed.sourceExif, processed.width, processed.height);
+                }
+            }).start();
+        }
+        String value;
+        if (processed.file != null) {
+            value = processed.file.getAbsolutePath();
+        } else if (options.getStreamId() != null) {
+            streamCaptureResult(processed.bytes, options.getStreamId(), options.getStreamChunkSize());
+            value = "";
+        } else {
+            value = serializeCaptureResult(processed.bytes, fileSuffix, options.getFormat());
+        }
+        processed.metrics.mark(CaptureMetrics.STAGE_SERIALIZED);
+        retainExifFields(processed.exif, options.getExifFields());
+        processed.metrics.markComplete();
+        callback.onSuccess(value, processed.exif, processed.metrics);
+        processed.metrics.mark(CaptureMetrics.STAGE_DISPATCHED);
+        CaptureTimingsLog timingsLog = captureTimingsLog;
+        if (timingsLog != null) {
+            timingsLog.add(processed.metrics.toJson());
         }
     }
 
-    // Inject GPS image direction (compass heading) into a JPEG in memory using Apache Commons Imaging
-    private byte[] injectGpsHeadingIntoExif(byte[] jpeg, float headingDegrees) {
+    /**
+     * Transform stage: passthrough (optionally lossless-cropped) or decode / crop / resize / overlay to a bitmap.
+     */
+    private TransformedCapture transformCapturedImage(JpegSource originalCapture, CaptureOptions options, CaptureMetrics metrics)
+        throws IOException {
+        final RectF roi = options.getRoi();
+
+        ExifInterface exifInterface = originalCapture.readExif();
+        // Build EXIF JSON from captured bytes (location applied by metadata if provided)
+        JSONObject exifData = getExifData(exifInterface, options.getExifFields());
+        ExifEditSet exifEdits = new ExifEditSet();
+        for (Map.Entry<String, String> tag : options.getExifTags().entrySet()) {
+            exifEdits.putTag(tag.getKey(), tag.getValue());
+            if (ExifEditSet.getWritableTagNames().contains(tag.getKey())) {
+                try {
+                    exifData.put(tag.getKey(), tag.getValue());
+                } catch (Exception ignore) {}
+            }
+        }
+
+        if (options.canPassthrough()) {
+            // Keep the sensor JPEG: no decode, no re-encode. Orientation stays in EXIF.
+            byte[] bytes = null;
+            if (options.isPassthroughCrop()) {
+                JpegLosslessCrop.Result cropped = cropPassthroughToPreview(originalCapture, exifInterface, roi);
+                if (cropped != null) {
+                    bytes = cropped.jpeg;
+                    exifEdits.setDimensions(cropped.width, cropped.height);
+                    try {
+                        exifData.put("PixelXDimension", cropped.width);
+                        exifData.put("PixelYDimension", cropped.height);
+                        exifData.put("ImageWidth", cropped.width);
+                        exifData.put("ImageLength", cropped.height);
+                    } catch (Exception ignore) {}
+                }
+            }
+            metrics.mark(CaptureMetrics.STAGE_TRANSFORMED);
+            return new TransformedCapture(originalCapture, exifInterface, exifData, null, bytes, exifEdits);
+        }
+
+        Bitmap bitmap;
+        long budget = processingBudgetBytes();
         try {
-            org.apache.commons.imaging.formats.jpeg.JpegImageMetadata jpegMetadata =
-                (org.apache.commons.imaging.formats.jpeg.JpegImageMetadata) org.apache.commons.imaging.Imaging.getMetadata(jpeg);
-            org.apache.commons.imaging.formats.tiff.TiffImageMetadata exif = jpegMetadata != null ? jpegMetadata.getExif() : null;
+            bitmap = decodeCapturedBitmap(originalCapture, exifInterface, options, budget, metrics);
+        } catch (OutOfMemoryError e) {
+            // The heap changed under the plan (other allocations, fragmentation): free the pool and retry smaller
+            Log.w(TAG, "transformCapturedImage: Out of memory at a " + budget + " byte budget, retrying with a quarter", e);
+            bitmapPool.clear();
+            bitmap = decodeCapturedBitmap(originalCapture, exifInterface, options, budget / 4, metrics);
+        }
+        if (bitmap == null) {
+            throw new IOException("Failed to decode captured image");
+        }
+        // Decoding already crops and scales, so "transformed" only adds the overlay time
+        metrics.mark(CaptureMetrics.STAGE_DECODED);
+        if (options.hasOverlay()) {
+            bitmap = drawOverlay(bitmap, exifInterface, options);
+        }
+        metrics.mark(CaptureMetrics.STAGE_TRANSFORMED);
+        return new TransformedCapture(originalCapture, exifInterface, exifData, bitmap, null, exifEdits);
+    }
 
-            org.apache.commons.imaging.formats.tiff.write.TiffOutputSet outputSet = exif != null
-                ? exif.getOutputSet()
-                : new org.apache.commons.imaging.formats.tiff.write.TiffOutputSet();
+    private Bitmap decodeCapturedBitmap(JpegSource jpeg, ExifInterface exif, CaptureOptions options, long budget, CaptureMetrics metrics) {
+        Integer width = options.getWidth();
+        Integer height = options.getHeight();
+        RectF roi = options.getRoi();
+        if ((width != null || height != null) && roi == null) {
+            // Subsampled decode + single rotate/scale pass; never materializes the full-resolution bitmap
+            return decodeSampledBitmapToMaxDimensions(jpeg, exif, width, height, budget, metrics);
+        }
+        // Without an explicit size the capture is cropped to the current preview content (optionally narrowed
+        // to the caller's ROI), decoding only that region of the JPEG
+        return decodePreviewRegion(jpeg, exif, roi, width, height, budget, metrics);
+    }
 
-            org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory gpsDir = outputSet.getOrCreateGpsDirectory();
+    /**
+     * Heap bytes one capture may use for decoding: the session's budget (half the heap by default), capped by
+     * what the heap can still provide. Pooled bitmaps count as available since {@link #planDecode} frees them.
+     */
+    private long processingBudgetBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        long budget = sessionConfig != null ? sessionConfig.getProcessingMemoryBudget() : 0;
+        if (budget <= 0) {
+            budget = runtime.maxMemory() / 2;
+        }
+        long available = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory()) + bitmapPool.getCurrentBytes();
+        return Math.min(budget, (long) (available * HEAP_HEADROOM_RATIO));
+    }
 
-            gpsDir.removeField(org.apache.commons.imaging.formats.tiff.constants.GpsTagConstants.GPS_TAG_GPS_IMG_DIRECTION_REF);
-            gpsDir.add(
-                org.apache.commons.imaging.formats.tiff.constants.GpsTagConstants.GPS_TAG_GPS_IMG_DIRECTION_REF,
-                org.apache.commons.imaging.formats.tiff.constants.GpsTagConstants.GPS_TAG_GPS_IMG_DIRECTION_REF_VALUE_MAGNETIC_NORTH
+    /**
+     * Plans the decode of a {@code storedWidth x storedHeight} region to {@code targetWidth x targetHeight} (both on
+     * the stored grid) within {@code budget}, emptying the bitmap pool when the plan needs its room. The plan is
+     * recorded on {@code metrics} when given.
+     */
+    private MemoryPlanner.Plan planDecode(
+        int storedWidth,
+        int storedHeight,
+        int targetWidth,
+        int targetHeight,
+        long budget,
+        CaptureMetrics metrics
+    ) {
+        MemoryPlanner.Plan plan = MemoryPlanner.planDecode(storedWidth, storedHeight, targetWidth, targetHeight, budget);
+        Runtime runtime = Runtime.getRuntime();
+        long free = runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+        if (plan.estimatedBytes > free * HEAP_HEADROOM_RATIO) {
+            bitmapPool.clear();
+        }
+        if (plan.degraded) {
+            Log.w(
+                TAG,
+                "planDecode: Output reduced from " + targetWidth + "x" + targetHeight + " to " + plan.width + "x" + plan.height +
+                    " to fit a " + budget + " byte budget"
             );
+        }
+        if (metrics != null) {
+            metrics.setMemoryPlan(plan);
+        }
+        return plan;
+    }
 
-            gpsDir.removeField(org.apache.commons.imaging.formats.tiff.constants.GpsTagConstants.GPS_TAG_GPS_IMG_DIRECTION);
-            gpsDir.add(
-                org.apache.commons.imaging.formats.tiff.constants.GpsTagConstants.GPS_TAG_GPS_IMG_DIRECTION,
-                org.apache.commons.imaging.common.RationalNumber.valueOf(headingDegrees)
-            );
+    /** Encode stage: compress the transformed bitmap (if any) and write all EXIF edits in a single rewrite. */
+    private ProcessedCapture encodeCapturedImage(
+        TransformedCapture transformed,
+        CaptureOptions options,
+        float captureCompassHeading,
+        CaptureMetrics metrics
+    ) throws IOException {
+        byte[] bytes = transformed.passthroughBytes != null ? transformed.passthroughBytes : transformed.source.readBytes();
+        // EXIF is carried over from the capture unless the passthrough output already holds it
+        byte[] exifSource = bytes;
+        Integer finalWidth = null;
+        Integer finalHeight = null;
+
+        if (transformed.bitmap != null) {
+            Bitmap bitmap = transformed.bitmap;
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            bitmap.compress(Bitmap.CompressFormat.JPEG, options.getQuality(), stream);
+            finalWidth = bitmap.getWidth();
+            finalHeight = bitmap.getHeight();
+            bitmapPool.put(bitmap);
+            bytes = stream.toByteArray();
+            metrics.mark(CaptureMetrics.STAGE_ENCODED);
+        }
+        addEncodeExifEdits(transformed.exifEdits, transformed.exifData, options, captureCompassHeading, finalWidth, finalHeight);
+
+        if (transformed.bitmap != null || !transformed.exifEdits.isEmpty()) {
+            long exifStart = SystemClock.elapsedRealtimeNanos();
+            bytes = transformed.exifEdits.apply(bytes, exifSource);
+            metrics.setExifWriteMs((SystemClock.elapsedRealtimeNanos() - exifStart) / 1e6);
+            metrics.mark(CaptureMetrics.STAGE_EXIF_WRITTEN);
+        }
+
+        return new ProcessedCapture(bytes, null, transformed.exifData, transformed.sourceExif, finalWidth, finalHeight, metrics);
+    }
 
-            java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
-            new org.apache.commons.imaging.formats.jpeg.exif.ExifRewriter().updateExifMetadataLossless(
-                new java.io.ByteArrayInputStream(jpeg),
-                out,
-                outputSet
-            );
-            return out.toByteArray();
-        } catch (Throwable t) {
-            Log.w(TAG, "injectGpsHeadingIntoExif: Failed to inject heading EXIF", t);
-            return jpeg;
+    /**
+     * Encode stage for WebP / HEIC output. The EXIF block is built before encoding because these containers embed it
+     * themselves; file-backed captures are re-encoded next to the capture file, which is then deleted.
+     */
+    private ProcessedCapture encodeCapturedImageAs(
+        TransformedCapture transformed,
+        CaptureOptions options,
+        float captureCompassHeading,
+        CaptureMetrics metrics
+    ) throws IOException {
+        Bitmap bitmap = transformed.bitmap;
+        int finalWidth = bitmap.getWidth();
+        int finalHeight = bitmap.getHeight();
+        addEncodeExifEdits(transformed.exifEdits, transformed.exifData, options, captureCompassHeading, finalWidth, finalHeight);
+
+        long exifStart = SystemClock.elapsedRealtimeNanos();
+        byte[] exifTiff = transformed.exifEdits.toTiff(transformed.source);
+        metrics.setExifWriteMs((SystemClock.elapsedRealtimeNanos() - exifStart) / 1e6);
+        // The container formats embed EXIF while encoding, so this stage comes first here
+        metrics.mark(CaptureMetrics.STAGE_EXIF_WRITTEN);
+
+        String format = options.getFormat();
+        File captureFile = transformed.source.getFile();
+        try {
+            if (captureFile != null) {
+                String name = captureFile.getName();
+                int dot = name.lastIndexOf('.');
+                String baseName = dot > 0 ? name.substring(0, dot) : name;
+                File outFile = new File(captureFile.getParentFile(), baseName + ImageEncoder.getExtension(format));
+                try {
+                    ImageEncoder.encodeToFile(bitmap, format, options.getQuality(), exifTiff, outFile);
+                } catch (IOException | RuntimeException e) {
+                    deletePartialFile(outFile);
+                    throw e;
+                }
+                metrics.mark(CaptureMetrics.STAGE_ENCODED);
+                if (!captureFile.delete()) {
+                    Log.w(TAG, "encodeCapturedImageAs: Could not delete " + name);
+                }
+                return new ProcessedCapture(null, outFile, transformed.exifData, transformed.sourceExif, finalWidth, finalHeight, metrics);
+            }
+            byte[] bytes = ImageEncoder.encode(bitmap, format, options.getQuality(), exifTiff, context.getCacheDir());
+            metrics.mark(CaptureMetrics.STAGE_ENCODED);
+            return new ProcessedCapture(bytes, null, transformed.exifData, transformed.sourceExif, finalWidth, finalHeight, metrics);
+        } finally {
+            bitmapPool.put(bitmap);
         }
     }
 
-    private void updateResizedDimensions(
-        org.apache.commons.imaging.formats.tiff.write.TiffOutputSet outputSet,
+    /** Adds the encode-stage EXIF edits (upright orientation and output size, compass heading) and mirrors them in the JSON. */
+    private void addEncodeExifEdits(
+        ExifEditSet exifEdits,
+        JSONObject exifData,
+        CaptureOptions options,
+        float captureCompassHeading,
         Integer finalWidth,
         Integer finalHeight
-    ) throws org.apache.commons.imaging.ImagingException {
-        org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory rootDir = outputSet.getOrCreateRootDirectory();
-        if (finalWidth != null) {
-            replaceShortOrLongTag(
-                rootDir,
-                org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants.TIFF_TAG_IMAGE_WIDTH,
-                finalWidth
-            );
+    ) {
+        if (finalWidth != null && finalHeight != null) {
+            // Pixels are upright now
+            exifEdits.setOrientation(ExifInterface.ORIENTATION_NORMAL).setDimensions(finalWidth, finalHeight);
+            try {
+                exifData.put("PixelXDimension", finalWidth);
+                exifData.put("PixelYDimension", finalHeight);
+                exifData.put("ImageWidth", finalWidth);
+                exifData.put("ImageLength", finalHeight);
+                exifData.put("Orientation", Integer.toString(ExifInterface.ORIENTATION_NORMAL));
+            } catch (Exception ignore) {}
+        }
+        // GPS image direction (compass heading) when a location was requested
+        if (options.getLocation() != null && captureCompassHeading >= 0) {
+            exifEdits.setGpsHeading(captureCompassHeading);
+            try {
+                exifData.put("GPSImgDirection", String.valueOf(captureCompassHeading));
+                exifData.put("GPSImgDirectionRef", "T");
+            } catch (Exception e) {
+                Log.d(TAG, "addEncodeExifEdits: Failed to update EXIF JSON with heading data", e);
+            }
         }
-        if (finalHeight != null) {
-            replaceShortOrLongTag(
-                rootDir,
-                org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants.TIFF_TAG_IMAGE_LENGTH,
-                finalHeight
-            );
+    }
+
+    /**
+     * Encode stage for file-backed captures: compresses straight into a sibling file that then replaces the capture,
+     * and applies every EXIF change with a single in-place ExifInterface save. The JPEG never enters the Java heap
+     * unless a lossless passthrough crop needs it.
+     */
+    private ProcessedCapture encodeCapturedImageToFile(
+        TransformedCapture transformed,
+        CaptureOptions options,
+        float captureCompassHeading,
+        CaptureMetrics metrics
+    ) throws IOException {
+        File captureFile = transformed.source.getFile();
+        Integer finalWidth = null;
+        Integer finalHeight = null;
+
+        File pending = null;
+        try {
+            if (transformed.bitmap != null) {
+                Bitmap bitmap = transformed.bitmap;
+                pending = new File(captureFile.getParentFile(), captureFile.getName() + ".tmp");
+                try (FileOutputStream fos = new FileOutputStream(pending)) {
+                    bitmap.compress(Bitmap.CompressFormat.JPEG, options.getQuality(), fos);
+                }
+                finalWidth = bitmap.getWidth();
+                finalHeight = bitmap.getHeight();
+                bitmapPool.put(bitmap);
+            } else if (transformed.passthroughBytes != null) {
+                pending = new File(captureFile.getParentFile(), captureFile.getName() + ".tmp");
+                try (FileOutputStream fos = new FileOutputStream(pending)) {
+                    fos.write(transformed.passthroughBytes);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            deletePartialFile(pending);
+            throw e;
+        }
+        if (pending != null && !pending.renameTo(captureFile)) {
+            pending.delete();
+            throw new IOException("Failed to replace " + captureFile.getName());
+        }
+        if (pending != null) {
+            metrics.mark(CaptureMetrics.STAGE_ENCODED);
         }
 
-        org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory exifDir = outputSet.getOrCreateExifDirectory();
-        if (finalWidth != null) {
-            replaceShortTag(
-                exifDir,
-                org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants.EXIF_TAG_EXIF_IMAGE_WIDTH,
-                finalWidth
-            );
+        addEncodeExifEdits(transformed.exifEdits, transformed.exifData, options, captureCompassHeading, finalWidth, finalHeight);
+
+        if (transformed.bitmap != null || !transformed.exifEdits.isEmpty()) {
+            long exifStart = SystemClock.elapsedRealtimeNanos();
+            ExifInterface outExif = new ExifInterface(captureFile);
+            if (transformed.bitmap != null) {
+                copyExifAttributes(transformed.sourceExif, outExif);
+            }
+            transformed.exifEdits.applyTo(outExif);
+            outExif.saveAttributes();
+            metrics.setExifWriteMs((SystemClock.elapsedRealtimeNanos() - exifStart) / 1e6);
+            metrics.mark(CaptureMetrics.STAGE_EXIF_WRITTEN);
         }
-        if (finalHeight != null) {
-            replaceShortTag(
-                exifDir,
-                org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants.EXIF_TAG_EXIF_IMAGE_LENGTH,
-                finalHeight
-            );
+
+        return new ProcessedCapture(null, captureFile, transformed.exifData, transformed.sourceExif, finalWidth, finalHeight, metrics);
+    }
+
+    /** Drops JSON entries added by the pipeline (dimensions, heading, caller tags) that the caller did not ask for. */
+    private static void retainExifFields(JSONObject exifData, Set<String> fields) {
+        if (fields == null) {
+            return;
+        }
+        List<String> names = new ArrayList<>();
+        for (Iterator<String> it = exifData.keys(); it.hasNext();) {
+            names.add(it.next());
+        }
+        for (String name : names) {
+            if (!fields.contains(name)) {
+                exifData.remove(name);
+            }
+        }
+    }
+
+    /** Copies every known EXIF tag from the capture to a re-encoded file (dimensions/orientation come from the edit set). */
+    private void copyExifAttributes(ExifInterface source, ExifInterface target) {
+        for (String[] tag : EXIF_TAGS) {
+            String value = source.getAttribute(tag[0]);
+            if (value != null) {
+                target.setAttribute(tag[0], value);
+            }
+        }
+    }
+
+    private static ExecutorService newStageExecutor(final String name, int threads, int queueDepth) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            threads,
+            threads,
+            30,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueDepth),
+            (r) -> new Thread(r, name + "-" + threadCount.incrementAndGet()),
+            // Queue full: run in the submitting stage (backpressure). Never silently drop after shutdown.
+            (r, pool) -> {
+                if (pool.isShutdown()) {
+                    throw new RejectedExecutionException(name + " stopped");
+                }
+                r.run();
+            }
+        );
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /** Returns the value handed back to JS for a capture: a cache file path when storeToFile is on, base64 otherwise. */
+    private String serializeCaptureResult(byte[] bytes, String fileSuffix, String format) {
+        boolean returnFileUri = sessionConfig != null && sessionConfig.isStoreToFile();
+        if (returnFileUri) {
+            // Persist processed image to a file and return its URI to avoid heavy base64 bridging
+            File outFile = newCaptureFile(fileSuffix, ImageEncoder.getExtension(format));
+            try (FileOutputStream outFos = new FileOutputStream(outFile)) {
+                outFos.write(bytes);
+            } catch (IOException ioEx) {
+                Log.e(TAG, "serializeCaptureResult: Failed to write image file", ioEx);
+                deletePartialFile(outFile);
+                // Fallback to base64 if file write fails
+                return Base64Encoder.encode(bytes);
+            }
+            // No EXIF rewrite here; bytes already contain EXIF when needed
+            // Return a file path; apps can convert via Capacitor.convertFileSrc on JS side
+            return outFile.getAbsolutePath();
+        }
+        // Backward-compatible behavior
+        return Base64Encoder.encode(bytes);
+    }
+
+    /**
+     * Delivers a capture as a sequence of bounded base64 chunks followed by an end marker, so neither side ever
+     * materializes the whole image as one string. Chunks are cut on 3-byte boundaries: each one decodes on its own.
+     */
+    private void streamCaptureResult(byte[] bytes, String streamId, int chunkSize) {
+        int step = Base64Encoder.chunkStep(chunkSize);
+        int chunks = 0;
+        for (int offset = 0; offset < bytes.length; offset += step) {
+            int length = Math.min(step, bytes.length - offset);
+            if (listener != null) {
+                listener.onCaptureChunk(streamId, chunks, Base64Encoder.encode(bytes, offset, length));
+            }
+            chunks++;
+        }
+        if (listener != null) {
+            listener.onCaptureStreamEnd(streamId, chunks, bytes.length);
+        }
+    }
+
+    /**
+     * Cache file for a storeToFile capture. Captures may run concurrently and start within the same millisecond, so
+     * the name carries a process-wide sequence number after the timestamp.
+     */
+    private File newCaptureFile(String fileSuffix) {
+        return newCaptureFile(fileSuffix, ".jpg");
+    }
+
+    private File newCaptureFile(String fileSuffix, String extension) {
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss_SSS", Locale.US).format(new java.util.Date());
+        String fileName = "cpcp_" + timestamp + "_" + CAPTURE_FILE_SEQUENCE.incrementAndGet() + fileSuffix + extension;
+        return new File(context.getCacheDir(), fileName);
+    }
+
+    public BitmapPool getBitmapPool() {
+        return bitmapPool;
+    }
+
+    /**
+     * Draws the requested overlays (timestamp, location, caller lines, watermark) with the cached renderer.
+     * Decodes produce mutable pooled bitmaps, so the pixels are drawn on in place.
+     */
+    private Bitmap drawOverlay(Bitmap src, ExifInterface exif, CaptureOptions options) {
+        List<String> lines = new ArrayList<>();
+        if (options.isEmbedTimestamp()) {
+            lines.add(buildTimestampStringFromExif(exif));
+        }
+        if (options.isEmbedLocation()) {
+            lines.add(buildLocationStringFromExif(exif));
+        }
+        lines.addAll(options.getOverlayText());
+
+        final Bitmap bmp;
+        if (src.isMutable()) {
+            bmp = src;
+        } else {
+            Log.d(TAG, "drawOverlay: Copying immutable bitmap");
+            bmp = bitmapPool.get(src.getWidth(), src.getHeight(), Bitmap.Config.ARGB_8888);
+            new Canvas(bmp).drawBitmap(src, 0, 0, null);
+            bitmapPool.put(src);
+        }
+        overlayRenderer.render(bmp, lines, options.isEmbedWatermark());
+        return bmp;
+    }
+
+    public OverlayRenderer getOverlayRenderer() {
+        return overlayRenderer;
+    }
+
+    public void setCaptureTimingsLog(CaptureTimingsLog captureTimingsLog) {
+        this.captureTimingsLog = captureTimingsLog;
+    }
+
+    /** Build "yyyy-MM-dd HH:mm:ss" from EXIF, fallback to now. */
+    private String buildTimestampStringFromExif(ExifInterface exif) {
+        final String out = "yyyy-MM-dd HH:mm:ss";
+        try {
+            if (exif != null) {
+                String exifDate = exif.getAttribute(ExifInterface.TAG_DATETIME_ORIGINAL);
+                if (exifDate == null || exifDate.trim().isEmpty()) {
+                    exifDate = exif.getAttribute(ExifInterface.TAG_DATETIME);
+                }
+                if (exifDate != null && !exifDate.trim().isEmpty()) {
+                    java.text.SimpleDateFormat in = new java.text.SimpleDateFormat("yyyy:MM:dd HH:mm:ss", java.util.Locale.US);
+                    java.util.Date d = in.parse(exifDate);
+                    if (d != null) {
+                        return new java.text.SimpleDateFormat(out, java.util.Locale.getDefault()).format(d);
+                    }
+                }
+            }
+        } catch (Throwable ignored) {}
+        // Fallback to "now" if EXIF missing/invalid
+        return new java.text.SimpleDateFormat(out, java.util.Locale.getDefault()).format(new java.util.Date());
+    }
+
+    /** Build "lat, lon" from EXIF GPS. Returns null if absent (so caller can skip). */
+    private String buildLocationStringFromExif(ExifInterface exif) {
+        if (exif == null) return null;
+        try {
+            float[] latLong = new float[2];
+            if (exif.getLatLong(latLong)) {
+                // Keep a compact but readable precision (5 decimals ≈ ~1 m–10 m)
+                String lat = String.format(java.util.Locale.US, "%.5f", latLong[0]);
+                String lon = String.format(java.util.Locale.US, "%.5f", latLong[1]);
+                return lat + ", " + lon;
+            }
+        } catch (Throwable ignored) {}
+        return null; // No EXIF GPS → skip
+    }
+
+    private int exifToDegrees(int exifOrientation) {
+        switch (exifOrientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                return 90;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                return 180;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                return 270;
+            default:
+                return 0;
         }
     }
 
-    private void replaceShortOrLongTag(
-        org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory directory,
-        org.apache.commons.imaging.formats.tiff.taginfos.TagInfoShortOrLong tagInfo,
-        int value
-    ) throws org.apache.commons.imaging.ImagingException {
-        directory.removeField(tagInfo);
-        directory.add(tagInfo, value);
+    private Bitmap applyExifOrientation(Bitmap bitmap, ExifInterface exif) {
+        try {
+            int orientation = exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED);
+            int rotation = exifToDegrees(orientation);
+            if (rotation == 0) return bitmap;
+            boolean swapsAxes = rotation == 90 || rotation == 270;
+            int width = swapsAxes ? bitmap.getHeight() : bitmap.getWidth();
+            int height = swapsAxes ? bitmap.getWidth() : bitmap.getHeight();
+            return rotateAndScale(bitmap, rotation, width, height);
+        } catch (Exception e) {
+            return bitmap;
+        }
     }
 
-    private void replaceShortTag(
-        org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory directory,
-        org.apache.commons.imaging.formats.tiff.taginfos.TagInfoShort tagInfo,
-        int value
-    ) throws org.apache.commons.imaging.ImagingException {
-        int sanitizedValue = Math.max(0, Math.min(value, 0xFFFF));
-        directory.removeField(tagInfo);
-        directory.add(tagInfo, (short) sanitizedValue);
+    private Bitmap resizeBitmapToMaxDimensions(Bitmap bitmap, Integer maxWidth, Integer maxHeight) {
+        int[] target = ImageSizing.fitWithin(bitmap.getWidth(), bitmap.getHeight(), maxWidth, maxHeight);
+        return rotateAndScale(bitmap, 0, target[0], target[1]);
+    }
+
+    /**
+     * Decodes a sized capture straight to its output dimensions.
+     * The JPEG header is read first to pick a power-of-two inSampleSize, then EXIF rotation and the
+     * remaining scale are applied in one matrix pass, so the full-resolution bitmap is never allocated.
+     *
+     * @return the decoded bitmap, or null when the data cannot be decoded
+     */
+    private Bitmap decodeSampledBitmapToMaxDimensions(
+        JpegSource jpeg,
+        ExifInterface exif,
+        Integer maxWidth,
+        Integer maxHeight,
+        long budget,
+        CaptureMetrics metrics
+    ) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        jpeg.decode(bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            // Header unreadable; fall back to the full decode path
+            Bitmap bitmap = decodeIntoPooledBitmap(jpeg, 1, 0, 0);
+            if (bitmap == null) {
+                return null;
+            }
+            bitmap = applyExifOrientation(bitmap, exif);
+            return resizeBitmapToMaxDimensions(bitmap, maxWidth, maxHeight);
+        }
+
+        int rotation = exifToDegrees(exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED));
+        boolean swapsAxes = rotation == 90 || rotation == 270;
+        int orientedWidth = swapsAxes ? bounds.outHeight : bounds.outWidth;
+        int orientedHeight = swapsAxes ? bounds.outWidth : bounds.outHeight;
+        int[] target = ImageSizing.fitWithin(orientedWidth, orientedHeight, maxWidth, maxHeight);
+
+        MemoryPlanner.Plan plan = swapsAxes
+            ? planDecode(bounds.outWidth, bounds.outHeight, target[1], target[0], budget, metrics)
+            : planDecode(bounds.outWidth, bounds.outHeight, target[0], target[1], budget, metrics);
+        int outWidth = swapsAxes ? plan.height : plan.width;
+        int outHeight = swapsAxes ? plan.width : plan.height;
+        if (plan.isTiled()) {
+            BitmapRegionDecoder decoder = null;
+            try {
+                decoder = jpeg.newRegionDecoder();
+                int[] whole = { 0, 0, bounds.outWidth, bounds.outHeight };
+                return decodeRegionTiled(decoder, whole, rotation, plan, outWidth, outHeight);
+            } catch (IOException e) {
+                Log.w(TAG, "decodeSampledBitmapToMaxDimensions: Tiled decode not possible, decoding at once", e);
+            } finally {
+                if (decoder != null) {
+                    decoder.recycle();
+                }
+            }
+        }
+
+        Bitmap decoded = decodeIntoPooledBitmap(jpeg, plan.sampleSize, bounds.outWidth, bounds.outHeight);
+        if (decoded == null) {
+            return null;
+        }
+
+        return rotateAndScale(decoded, rotation, outWidth, outHeight);
+    }
+
+    /**
+     * Decodes only the visible preview rectangle of a capture with BitmapRegionDecoder, optionally narrowed to a
+     * normalized ROI (relative to that visible area), then rotates and scales it in one pass.
+     * Falls back to a full decode + crop if the region decoder cannot handle the data.
+     */
+    private Bitmap decodePreviewRegion(
+        JpegSource jpeg,
+        ExifInterface exif,
+        RectF roi,
+        Integer maxWidth,
+        Integer maxHeight,
+        long budget,
+        CaptureMetrics metrics
+    ) {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        jpeg.decode(bounds);
+
+        int rotation = exifToDegrees(exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED));
+        boolean swapsAxes = rotation == 90 || rotation == 270;
+        int orientedWidth = swapsAxes ? bounds.outHeight : bounds.outWidth;
+        int orientedHeight = swapsAxes ? bounds.outWidth : bounds.outHeight;
+
+        int[] crop = computePreviewCropRect(orientedWidth, orientedHeight);
+        if (roi != null) {
+            crop = CropGeometry.applyNormalizedRegion(crop, roi.left, roi.top, roi.width(), roi.height());
+        }
+        int[] target = ImageSizing.fitWithin(crop[2], crop[3], maxWidth, maxHeight);
+
+        MemoryPlanner.Plan plan = null;
+        BitmapRegionDecoder decoder = null;
+        try {
+            if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+                throw new IOException("Unreadable image header");
+            }
+            int[] stored = CropGeometry.orientedToStored(crop, rotation, orientedWidth, orientedHeight);
+            plan = swapsAxes
+                ? planDecode(stored[2], stored[3], target[1], target[0], budget, metrics)
+                : planDecode(stored[2], stored[3], target[0], target[1], budget, metrics);
+            int outWidth = swapsAxes ? plan.height : plan.width;
+            int outHeight = swapsAxes ? plan.width : plan.height;
+            decoder = jpeg.newRegionDecoder();
+            if (plan.isTiled()) {
+                return decodeRegionTiled(decoder, stored, rotation, plan, outWidth, outHeight);
+            }
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = plan.sampleSize;
+            options.inMutable = true;
+            Bitmap region = decoder.decodeRegion(new Rect(stored[0], stored[1], stored[0] + stored[2], stored[1] + stored[3]), options);
+            if (region == null) {
+                throw new IOException("Region decode returned null");
+            }
+            return rotateAndScale(region, rotation, outWidth, outHeight);
+        } catch (Exception e) {
+            Log.w(TAG, "decodePreviewRegion: Region decode failed, falling back to full decode", e);
+            // Keep the planned sample size: at full resolution this decode is the largest allocation of the pipeline
+            Bitmap full = decodeIntoPooledBitmap(jpeg, plan != null ? plan.sampleSize : 1, bounds.outWidth, bounds.outHeight);
+            full = applyExifOrientation(full, exif);
+            int[] fullCrop = computePreviewCropRect(full.getWidth(), full.getHeight());
+            if (roi != null) {
+                fullCrop = CropGeometry.applyNormalizedRegion(fullCrop, roi.left, roi.top, roi.width(), roi.height());
+            }
+            // Copy the crop into a pooled (mutable) bitmap so overlays can draw on it in place
+            Bitmap cropped = full;
+            if (fullCrop[2] != full.getWidth() || fullCrop[3] != full.getHeight()) {
+                cropped = bitmapPool.get(fullCrop[2], fullCrop[3], Bitmap.Config.ARGB_8888);
+                new Canvas(cropped).drawBitmap(full, -fullCrop[0], -fullCrop[1], null);
+                bitmapPool.put(full);
+            }
+            if (plan != null && plan.degraded) {
+                return resizeBitmapToMaxDimensions(cropped, plan.width, plan.height);
+            }
+            return (maxWidth != null || maxHeight != null) ? resizeBitmapToMaxDimensions(cropped, maxWidth, maxHeight) : cropped;
+        } finally {
+            if (decoder != null) {
+                decoder.recycle();
+            }
+        }
+    }
+
+    /**
+     * Losslessly crops a passthrough capture to the visible preview (optionally narrowed to a normalized ROI).
+     * The crop is done on the stored pixel grid so the EXIF orientation stays valid; its stored origin snaps to the
+     * JPEG's MCU grid, so up to one MCU of extra pixels may be kept on the stored top/left edges. Upright, those are
+     * the top/left edges only without rotation: the top/right for 90, the bottom/right for 180 and the bottom/left
+     * for 270 degrees.
+     *
+     * @return the cropped JPEG, or null when the data cannot be cropped losslessly (the caller keeps the full frame)
+     */
+    private JpegLosslessCrop.Result cropPassthroughToPreview(JpegSource jpeg, ExifInterface exif, RectF roi) {
+        try {
+            BitmapFactory.Options bounds = new BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            jpeg.decode(bounds);
+            int storedWidth = bounds.outWidth;
+            int storedHeight = bounds.outHeight;
+            if (storedWidth <= 0 || storedHeight <= 0) {
+                throw new IOException("Unreadable image header");
+            }
+            int rotation = exifToDegrees(exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_UNDEFINED));
+            boolean swapsAxes = rotation == 90 || rotation == 270;
+            int orientedWidth = swapsAxes ? storedHeight : storedWidth;
+            int orientedHeight = swapsAxes ? storedWidth : storedHeight;
+
+            int[] crop = computePreviewCropRect(orientedWidth, orientedHeight);
+            if (roi != null) {
+                crop = CropGeometry.applyNormalizedRegion(crop, roi.left, roi.top, roi.width(), roi.height());
+            }
+            int[] stored = CropGeometry.orientedToStored(crop, rotation, orientedWidth, orientedHeight);
+            if (stored[0] == 0 && stored[1] == 0 && stored[2] == storedWidth && stored[3] == storedHeight) {
+                return null; // Nothing to crop
+            }
+            return JpegLosslessCrop.crop(jpeg.readBytes(), stored[0], stored[1], stored[2], stored[3]);
+        } catch (Exception e) {
+            Log.w(TAG, "cropPassthroughToPreview: Lossless crop not possible, returning full frame", e);
+            return null;
+        }
+    }
+
+    /**
+     * Applies a clockwise rotation and a scale to {@code targetWidth x targetHeight} (upright size) in a single
+     * bitmap pass, recycling the input when a new bitmap was produced.
+     */
+    private Bitmap rotateAndScale(Bitmap decoded, int rotation, int targetWidth, int targetHeight) {
+        boolean swapsAxes = rotation == 90 || rotation == 270;
+        int decodedOrientedWidth = swapsAxes ? decoded.getHeight() : decoded.getWidth();
+        int decodedOrientedHeight = swapsAxes ? decoded.getWidth() : decoded.getHeight();
+        if (rotation == 0 && decodedOrientedWidth == targetWidth && decodedOrientedHeight == targetHeight) {
+            return decoded;
+        }
+
+        Matrix m = new Matrix();
+        m.postRotate(rotation);
+        RectF rotatedBounds = new RectF(0, 0, decoded.getWidth(), decoded.getHeight());
+        m.mapRect(rotatedBounds);
+        m.postTranslate(-rotatedBounds.left, -rotatedBounds.top);
+        m.postScale((float) targetWidth / decodedOrientedWidth, (float) targetHeight / decodedOrientedHeight);
+
+        Bitmap transformed = bitmapPool.get(targetWidth, targetHeight, Bitmap.Config.ARGB_8888);
+        new Canvas(transformed).drawBitmap(decoded, m, new Paint(Paint.FILTER_BITMAP_FLAG));
+        bitmapPool.put(decoded);
+        return transformed;
+    }
+
+    /**
+     * Tiled counterpart of a region decode followed by {@link #rotateAndScale}: {@code stored} is decoded in bands
+     * of {@link MemoryPlanner.Plan#bandSourceRows} source rows, each drawn straight into the upright
+     * {@code targetWidth x targetHeight} output, so only the output and one band are held at a time.
+     */
+    private Bitmap decodeRegionTiled(
+        BitmapRegionDecoder decoder,
+        int[] stored,
+        int rotation,
+        MemoryPlanner.Plan plan,
+        int targetWidth,
+        int targetHeight
+    ) throws IOException {
+        boolean swapsAxes = rotation == 90 || rotation == 270;
+        // Maps source pixels of the stored region to the upright output
+        Matrix regionToOutput = new Matrix();
+        regionToOutput.postRotate(rotation);
+        RectF rotatedBounds = new RectF(0, 0, stored[2], stored[3]);
+        regionToOutput.mapRect(rotatedBounds);
+        regionToOutput.postTranslate(-rotatedBounds.left, -rotatedBounds.top);
+        regionToOutput.postScale(
+            (float) targetWidth / (swapsAxes ? stored[3] : stored[2]),
+            (float) targetHeight / (swapsAxes ? stored[2] : stored[3])
+        );
+
+        Bitmap output = bitmapPool.get(targetWidth, targetHeight, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(output);
+        Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = plan.sampleSize;
+        Matrix bandToOutput = new Matrix();
+        for (int top = 0; top < stored[3]; top += plan.bandSourceRows) {
+            int rows = Math.min(plan.bandSourceRows, stored[3] - top);
+            Rect bandRect = new Rect(stored[0], stored[1] + top, stored[0] + stored[2], stored[1] + top + rows);
+            Bitmap band = decoder.decodeRegion(bandRect, options);
+            if (band == null) {
+                bitmapPool.put(output);
+                throw new IOException("Band decode returned null at row " + top);
+            }
+            // Band pixels -> region source pixels, whatever rounding the decoder applied to the sampled size
+            bandToOutput.setScale((float) stored[2] / band.getWidth(), (float) rows / band.getHeight());
+            bandToOutput.postTranslate(0, top);
+            bandToOutput.postConcat(regionToOutput);
+            canvas.drawBitmap(band, bandToOutput, paint);
+            band.recycle();
+        }
+        return output;
+    }
+
+    /**
+     * Decodes a JPEG at the given sample size into a pooled bitmap via {@code inBitmap} when one is available.
+     * Retries with a fresh allocation if the decoder rejects the pooled bitmap.
+     */
+    private Bitmap decodeIntoPooledBitmap(JpegSource jpeg, int sampleSize, int sourceWidth, int sourceHeight) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inMutable = true;
+        if (sourceWidth > 0 && sourceHeight > 0) {
+            int decodedWidth = (sourceWidth + sampleSize - 1) / sampleSize;
+            int decodedHeight = (sourceHeight + sampleSize - 1) / sampleSize;
+            options.inBitmap = bitmapPool.getForDecode(decodedWidth, decodedHeight, Bitmap.Config.ARGB_8888);
+        }
+        try {
+            return jpeg.decode(options);
+        } catch (IllegalArgumentException e) {
+            Log.d(TAG, "decodeIntoPooledBitmap: Pooled bitmap rejected, allocating a new one", e);
+            if (options.inBitmap != null) {
+                options.inBitmap.recycle();
+                options.inBitmap = null;
+            }
+            return jpeg.decode(options);
+        }
+    }
+
+    private JSONObject getExifData(ExifInterface exifInterface) {
+        return getExifData(exifInterface, null);
+    }
+
+    /** Small default tag set for the {@code exif: 'basic'} capture option. */
+    public static final Set<String> BASIC_EXIF_FIELDS = Collections.unmodifiableSet(
+        new HashSet<>(
+            Arrays.asList(
+                "DateTimeOriginal",
+                "OffsetTimeOriginal",
+                "Orientation",
+                "ImageWidth",
+                "ImageLength",
+                "PixelXDimension",
+                "PixelYDimension",
+                "Make",
+                "Model",
+                "GPSLatitude",
+                "GPSLatitudeRef",
+                "GPSLongitude",
+                "GPSLongitudeRef",
+                "GPSImgDirection",
+                "GPSImgDirectionRef"
+            )
+        )
+    );
+
+    /**
+     * Builds the EXIF JSON for the given field names ({@code null} for every known tag). Only the requested tags are read,
+     * so narrow selections skip most of the ExifInterface lookups.
+     */
+    public static JSONObject getExifData(ExifInterface exifInterface, Set<String> fields) {
+        JSONObject exifData = new JSONObject();
+        if (fields != null && fields.isEmpty()) {
+            return exifData;
+        }
+        try {
+            for (String[] tag : EXIF_TAGS) {
+                if (fields != null && !fields.contains(tag[1])) {
+                    continue;
+                }
+                String value = exifInterface.getAttribute(tag[0]);
+                if (value != null) {
+                    exifData.put(tag[1], value);
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "getExifData: Error reading exif data", e);
+        }
+        return exifData;
     }
 
     private static final String[][] EXIF_TAGS = new String[][] {
@@ -1989,19 +3271,358 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
         { ExifInterface.TAG_Y_RESOLUTION, "YResolution" }
     };
 
-    // Note: We avoid temporary files for EXIF writes. When we transform pixels (resize/crop),
-    // we recompress JPEG in-memory and update EXIF info only in the returned JSON, not in the bytes.
+    /**
+     * Starts delivering analysis frames through {@link CameraXViewListener#onStreamFrame}, replacing any running
+     * stream. Binds an ImageAnalysis use case sized for the stream next to the preview. Call on the main thread.
+     *
+     * @throws IllegalStateException if the camera is not running or the use case cannot be bound (e.g. together
+     * with video capture on devices that do not support that combination)
+     */
+    public void startFrameStream(FrameStream stream) {
+        if (!isRunning || cameraProvider == null || camera == null) {
+            throw new IllegalStateException("Camera is not running");
+        }
+        if (imageAnalysis != null) {
+            cameraProvider.unbind(imageAnalysis);
+        }
+        imageAnalysis = buildImageAnalysis(stream.getMaxWidth(), stream.getMaxHeight());
+        frameStream = stream;
+        try {
+            bindImageAnalysis();
+        } catch (RuntimeException e) {
+            frameStream = null;
+            imageAnalysis = null;
+            throw new IllegalStateException("Cannot start frame stream: " + e.getMessage(), e);
+        }
+    }
+
+    /** Stops the frame stream; the analysis use case stays bound while frame processors are attached. Main thread. */
+    public void stopFrameStream() {
+        frameStream = null;
+        updateImageAnalysis();
+    }
+
+    /**
+     * Connects the plugin's frame processors: the analysis use case is bound whenever the registry is not empty,
+     * and every analysis frame is dispatched to it before the frame stream sees it.
+     */
+    public void setFrameProcessorRegistry(FrameProcessorRegistry registry) {
+        this.frameProcessors = registry;
+        if (registry != null) {
+            registry.setChangeListener(() -> mainExecutor.execute(this::updateImageAnalysis));
+        }
+    }
+
+    public FrameProcessorRegistry getFrameProcessors() {
+        return frameProcessors;
+    }
+
+    private boolean hasFrameProcessors() {
+        FrameProcessorRegistry registry = frameProcessors;
+        return registry != null && !registry.isEmpty();
+    }
+
+    /** Binds or unbinds the analysis use case to match its consumers. Main thread. */
+    private void updateImageAnalysis() {
+        if (!isRunning || cameraProvider == null || camera == null) {
+            // bindCameraUseCases checks the consumers once the camera is up
+            return;
+        }
+        boolean needed = frameStream != null || frameHistory != null || hasFrameProcessors();
+        if (needed && imageAnalysis == null) {
+            imageAnalysis = buildImageAnalysis(null, null);
+            try {
+                bindImageAnalysis();
+            } catch (RuntimeException e) {
+                Log.w(TAG, "updateImageAnalysis: Cannot bind frame analysis", e);
+                imageAnalysis = null;
+            }
+        } else if (!needed && imageAnalysis != null) {
+            imageAnalysis.clearAnalyzer();
+            cameraProvider.unbind(imageAnalysis);
+            imageAnalysis = null;
+        }
+    }
+
+    /**
+     * Starts recording analysis frames into {@code history}, replacing any running history. The analysis use case
+     * already bound for a stream or frame processors is reused; otherwise one sized for the history is bound. Call
+     * on the main thread.
+     *
+     * @throws IllegalStateException if the camera is not running or the use case cannot be bound
+     */
+    public void startFrameHistory(FrameHistory history) {
+        if (!isRunning || cameraProvider == null || camera == null) {
+            throw new IllegalStateException("Camera is not running");
+        }
+        if (imageAnalysis != null) {
+            frameHistory = history;
+            return;
+        }
+        imageAnalysis = buildImageAnalysis(history.getMaxWidth(), history.getMaxHeight());
+        frameHistory = history;
+        try {
+            bindImageAnalysis();
+        } catch (RuntimeException e) {
+            frameHistory = null;
+            imageAnalysis = null;
+            throw new IllegalStateException("Cannot start frame history: " + e.getMessage(), e);
+        }
+    }
 
-    public void captureSample(int quality) {
+    /** Stops recording and releases the history's buffers once in-flight reads finish. Main thread. */
+    public void stopFrameHistory() {
+        frameHistory = null;
+        updateImageAnalysis();
+    }
+
+    /**
+     * Encodes the recorded frame closest to {@code offsetMs} before now as a JPEG, as
+     * {@code { value, width, height, timestamp, offsetMs }}. Runs on the calling thread; call it off the main thread.
+     *
+     * @throws IllegalStateException if no history is recording or no frame was recorded yet
+     */
+    public JSONObject captureFromHistory(long offsetMs, int quality) throws JSONException {
+        FrameHistory history = frameHistory;
+        if (history == null) {
+            throw new IllegalStateException("Frame history is not started");
+        }
+        byte[] nv21 = yuvBufferPool.get(history.getSlotBytes());
+        try {
+            FrameHistory.Frame frame = history.copyClosest(offsetMs * 1_000_000L, SystemClock.elapsedRealtimeNanos(), nv21);
+            if (frame == null) {
+                throw new IllegalStateException("No frame recorded yet");
+            }
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            new YuvImage(nv21, ImageFormat.NV21, frame.width, frame.height, null).compressToJpeg(
+                new Rect(0, 0, frame.width, frame.height),
+                quality,
+                stream
+            );
+            JSONObject result = new JSONObject();
+            result.put("value", Base64Encoder.encode(stream.toByteArray()));
+            result.put("width", frame.width);
+            result.put("height", frame.height);
+            result.put("timestamp", frame.timestampNanos / 1_000_000L);
+            result.put("offsetMs", frame.ageNanos / 1_000_000L);
+            return result;
+        } finally {
+            yuvBufferPool.put(nv21);
+        }
+    }
+
+    /** Counters of the running frame stream, or null when none is running. */
+    public JSONObject getFrameStreamStats() throws JSONException {
+        FrameStream stream = frameStream;
+        return stream != null ? stream.toJson() : null;
+    }
+
+    /**
+     * Analysis use case that never queues: while the analyzer is busy CameraX keeps only the newest frame. The
+     * requested size picks the closest sensor output, so the per-frame scale step stays small.
+     */
+    private ImageAnalysis buildImageAnalysis(Integer maxWidth, Integer maxHeight) {
+        ResolutionSelector.Builder selector = new ResolutionSelector.Builder();
+        if (maxWidth != null || maxHeight != null) {
+            // Bound sizes are in sensor (landscape) orientation; a missing side follows 4:3
+            int longEdge = Math.max(maxWidth != null ? maxWidth : 0, maxHeight != null ? maxHeight : 0);
+            int shortEdge = maxWidth != null && maxHeight != null ? Math.min(maxWidth, maxHeight) : longEdge * 3 / 4;
+            selector.setResolutionStrategy(
+                new ResolutionStrategy(new Size(longEdge, shortEdge), ResolutionStrategy.FALLBACK_RULE_CLOSEST_HIGHER_THEN_LOWER)
+            );
+        }
+        if (sessionConfig != null && sessionConfig.getAspectRatio() != null) {
+            int aspectRatio = "16:9".equals(sessionConfig.getAspectRatio()) ? AspectRatio.RATIO_16_9 : AspectRatio.RATIO_4_3;
+            selector.setAspectRatioStrategy(new AspectRatioStrategy(aspectRatio, AspectRatioStrategy.FALLBACK_RULE_AUTO));
+        }
+        int rotation = previewView != null && previewView.getDisplay() != null
+            ? previewView.getDisplay().getRotation()
+            : android.view.Surface.ROTATION_0;
+        ImageAnalysis analysis = new ImageAnalysis.Builder()
+            .setResolutionSelector(selector.build())
+            .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+            .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+            .setTargetRotation(rotation)
+            .build();
+        analysis.setAnalyzer(analysisExecutor, this::analyzeFrame);
+        return analysis;
+    }
+
+    /** Adds {@link #imageAnalysis} to the bound use cases. */
+    private void bindImageAnalysis() {
+        cameraProvider.bindToLifecycle(this, currentCameraSelector, imageAnalysis);
+        ResolutionInfo resolution = imageAnalysis.getResolutionInfo();
+        Log.d(TAG, "bindImageAnalysis: Analysis resolution " + (resolution != null ? resolution.getResolution() : "unknown"));
+    }
+
+    /**
+     * Analyzer of {@link #imageAnalysis}, on the analysis thread: frame processors first, then the frame history,
+     * then the frame stream.
+     */
+    private void analyzeFrame(@NonNull ImageProxy image) {
+        try {
+            FrameProcessorRegistry registry = frameProcessors;
+            if (registry != null) {
+                registry.dispatch(image);
+            }
+            FrameHistory history = frameHistory;
+            if (history != null) {
+                recordHistoryFrame(history, image);
+            }
+            FrameStream stream = frameStream;
+            if (stream != null) {
+                JSONObject frame = stream.process(image, yuvBufferPool);
+                if (frame != null && listener != null) {
+                    listener.onStreamFrame(frame);
+                }
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "analyzeFrame: Failed to stream frame", e);
+        } finally {
+            image.close();
+        }
+    }
+
+    private void recordHistoryFrame(FrameHistory history, ImageProxy image) {
+        if (image.getFormat() != ImageFormat.YUV_420_888) {
+            return;
+        }
+        try {
+            ImageProxy.PlaneProxy[] planes = image.getPlanes();
+            YuvTransform.Planes yuv = new YuvTransform.Planes(
+                planes[0].getBuffer(),
+                planes[0].getRowStride(),
+                planes[0].getPixelStride(),
+                planes[1].getBuffer(),
+                planes[2].getBuffer(),
+                planes[1].getRowStride(),
+                planes[1].getPixelStride(),
+                image.getWidth(),
+                image.getHeight()
+            );
+            history.record(
+                image.getImageInfo().getTimestamp(),
+                SystemClock.elapsedRealtimeNanos(),
+                yuv,
+                image.getImageInfo().getRotationDegrees()
+            );
+        } catch (RuntimeException e) {
+            // A failed record must not starve the frame stream
+            Log.w(TAG, "analyzeFrame: Failed to record history frame", e);
+        }
+    }
+
+    /**
+     * Returns the frame the preview is showing (upright, framed like the preview), scaled down to fit
+     * {@code width x height} and JPEG-encoded at {@code quality}. Reading the preview surface bypasses ImageCapture,
+     * so there is no AE/AF convergence, no flash and no sensor-resolution encode. Falls back to a still capture
+     * while the preview has no frame to show yet.
+     */
+    public void captureSample(final String requestId, final int quality, final Integer width, final Integer height) {
+        if (previewView == null) {
+            captureStillSample(requestId, quality);
+            return;
+        }
+        if (IsOperationRunning("captureSample")) {
+            Log.d(TAG, "captureSample: Ignored because stop is pending");
+            if (listener != null) {
+                listener.onSampleTakenError(requestId, "Camera is stopping");
+            }
+            return;
+        }
+        // PreviewView can only be read on the main thread
+        mainExecutor.execute(() -> {
+            Bitmap frame = null;
+            Rect bounds = null;
+            try {
+                if (previewView != null && isRunning) {
+                    frame = previewView.getBitmap();
+                    bounds = getActualCameraBounds();
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "captureSample: Failed to read preview frame", e);
+            }
+            if (frame == null) {
+                Log.d(TAG, "captureSample: No preview frame yet; falling back to a still capture");
+                endOperation("captureSample");
+                captureStillSample(requestId, quality);
+                return;
+            }
+            final Bitmap previewFrame = frame;
+            final Rect contentBounds = bounds;
+            try {
+                cameraExecutor.execute(() -> {
+                    try {
+                        String value = encodePreviewSample(previewFrame, contentBounds, quality, width, height);
+                        if (listener != null) {
+                            listener.onSampleTaken(requestId, value);
+                        }
+                    } catch (Exception e) {
+                        Log.e(TAG, "captureSample: Error encoding preview frame", e);
+                        if (listener != null) {
+                            listener.onSampleTakenError(requestId, "Error processing sample: " + e.getMessage());
+                        }
+                    } finally {
+                        endOperation("captureSample");
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                previewFrame.recycle();
+                if (listener != null) {
+                    listener.onSampleTakenError(requestId, "Capture pipeline stopped");
+                }
+                endOperation("captureSample");
+            }
+        });
+    }
+
+    /**
+     * Crops a preview bitmap to the camera content (dropping FIT_CENTER letterbox bars), scales it down to fit the
+     * requested size and encodes it. {@code bounds} are in view coordinates, which the bitmap shares.
+     */
+    private String encodePreviewSample(Bitmap frame, Rect bounds, int quality, Integer maxWidth, Integer maxHeight) {
+        Bitmap image = frame;
+        if (bounds != null && !bounds.isEmpty()) {
+            Rect crop = new Rect(bounds);
+            if (
+                crop.intersect(0, 0, frame.getWidth(), frame.getHeight()) &&
+                (crop.width() != frame.getWidth() || crop.height() != frame.getHeight())
+            ) {
+                image = Bitmap.createBitmap(frame, crop.left, crop.top, crop.width(), crop.height());
+            }
+        }
+        int[] size = ImageSizing.fitWithin(image.getWidth(), image.getHeight(), maxWidth, maxHeight);
+        // Samples are never upscaled: the preview is the most detail there is
+        if (size[0] < image.getWidth() && size[1] < image.getHeight()) {
+            Bitmap scaled = Bitmap.createScaledBitmap(image, size[0], size[1], true);
+            if (image != frame) {
+                image.recycle();
+            }
+            image = scaled;
+        }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        image.compress(Bitmap.CompressFormat.JPEG, quality, stream);
+        if (image != frame) {
+            image.recycle();
+        }
+        frame.recycle();
+        return Base64Encoder.encode(stream.toByteArray());
+    }
+
+    /** Sample taken as a full still capture; only used until the preview shows a frame. */
+    private void captureStillSample(final String requestId, int quality) {
         if (sampleImageCapture == null) {
             if (listener != null) {
-                listener.onSampleTakenError("Camera not ready");
+                listener.onSampleTakenError(requestId, "Camera not ready");
             }
             return;
         }
 
         if (IsOperationRunning("captureSample")) {
             Log.d(TAG, "captureSample: Ignored because stop is pending");
+            if (listener != null) {
+                listener.onSampleTakenError(requestId, "Camera is stopping");
+            }
             return;
         }
         Log.d(TAG, "captureSample: Starting sample capture with quality: " + quality);
@@ -2015,7 +3636,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
                     public void onError(@NonNull ImageCaptureException exception) {
                         Log.e(TAG, "captureSample: Sample capture failed", exception);
                         if (listener != null) {
-                            listener.onSampleTakenError("Sample capture failed: " + exception.getMessage());
+                            listener.onSampleTakenError(requestId, "Sample capture failed: " + exception.getMessage());
                         }
                         endOperation("captureSample");
                     }
@@ -2024,17 +3645,16 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
                     public void onCaptureSuccess(@NonNull ImageProxy image) {
                         //noinspection TryFinallyCanBeTryWithResources
                         try {
-                            // Convert ImageProxy to byte array
-                            byte[] bytes = imageProxyToByteArray(image);
-                            String base64 = Base64.encodeToString(bytes, Base64.NO_WRAP);
+                            byte[] bytes = sampleImageToJpeg(image, quality);
+                            String base64 = Base64Encoder.encode(bytes);
 
                             if (listener != null) {
-                                listener.onSampleTaken(base64);
+                                listener.onSampleTaken(requestId, base64);
                             }
                         } catch (Exception e) {
                             Log.e(TAG, "captureSample: Error processing sample", e);
                             if (listener != null) {
-                                listener.onSampleTakenError("Error processing sample: " + e.getMessage());
+                                listener.onSampleTakenError(requestId, "Error processing sample: " + e.getMessage());
                             }
                         } finally {
                             image.close();
@@ -2048,7 +3668,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
         } catch (Exception e) {
             Log.e(TAG, "captureSample: Failed to start sample capture", e);
             if (listener != null) {
-                listener.onSampleTakenError("Sample capture failed: " + e.getMessage());
+                listener.onSampleTakenError(requestId, "Sample capture failed: " + e.getMessage());
             }
         } finally {
             if (!dispatched) {
@@ -2057,22 +3677,65 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
         }
     }
 
-    private byte[] imageProxyToByteArray(ImageProxy image) {
+    /**
+     * JPEG bytes of a still sample. JPEG captures carry the file in their single plane; YUV captures (yuvCapture
+     * sessions) are converted to NV21 and encoded, as copying their first plane would only yield the luma.
+     */
+    private byte[] sampleImageToJpeg(ImageProxy image, int quality) throws IOException {
         ImageProxy.PlaneProxy[] planes = image.getPlanes();
-        ByteBuffer buffer = planes[0].getBuffer();
-        byte[] bytes = new byte[buffer.remaining()];
-        buffer.get(bytes);
-        return bytes;
+        if (image.getFormat() != ImageFormat.YUV_420_888) {
+            ByteBuffer buffer = planes[0].getBuffer();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+        // Read once: a concurrent stop may null the field between the check and the conversion
+        YuvConverter converter = yuvConverter;
+        if (converter == null) {
+            throw new IOException("Camera is stopping");
+        }
+        int width = YuvTransform.evenSize(image.getWidth());
+        int height = YuvTransform.evenSize(image.getHeight());
+        YuvTransform.Planes yuv = new YuvTransform.Planes(
+            planes[0].getBuffer(),
+            planes[0].getRowStride(),
+            planes[0].getPixelStride(),
+            planes[1].getBuffer(),
+            planes[2].getBuffer(),
+            planes[1].getRowStride(),
+            planes[1].getPixelStride(),
+            width,
+            height
+        );
+        byte[] nv21 = yuvBufferPool.get(YuvTransform.nv21Size(width, height));
+        try {
+            try {
+                converter.toNv21(yuv, nv21);
+            } catch (IllegalStateException e) {
+                // Closed by a stop that landed after the check above
+                throw new IOException("Camera is stopping", e);
+            }
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            new YuvImage(nv21, ImageFormat.NV21, width, height, null).compressToJpeg(new Rect(0, 0, width, height), quality, stream);
+            return stream.toByteArray();
+        } finally {
+            yuvBufferPool.put(nv21);
+        }
     }
 
-    private Bitmap cropBitmapToMatchPreview(Bitmap image) {
+    /**
+     * Computes the part of an upright capture that matches what the preview is showing.
+     *
+     * @return {@code int[] { x, y, width, height }} in upright image coordinates
+     */
+    private int[] computePreviewCropRect(int imgW, int imgH) {
         if (previewContainer == null || previewView == null) {
-            return image;
+            return new int[] { 0, 0, imgW, imgH };
         }
         int containerWidth = previewContainer.getWidth();
         int containerHeight = previewContainer.getHeight();
         if (containerWidth == 0 || containerHeight == 0) {
-            return image;
+            return new int[] { 0, 0, imgW, imgH };
         }
         // Compute preview aspect based on actual camera content bounds
         Rect bounds = getActualCameraBounds();
@@ -2091,28 +3754,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
             previewH = temp;
         }
 
-        float previewRatio = (float) previewW / (float) previewH;
-
-        int imgW = image.getWidth();
-        int imgH = image.getHeight();
-        float imgRatio = (float) imgW / (float) imgH;
-
-        int targetW = imgW;
-        int targetH = imgH;
-        if (imgRatio > previewRatio) {
-            // Image wider than preview: crop width
-            targetW = Math.round(imgH * previewRatio);
-        } else if (imgRatio < previewRatio) {
-            // Image taller than preview: crop height
-            targetH = Math.round(imgW / previewRatio);
-        }
-        int x = Math.max(0, (imgW - targetW) / 2);
-        int y = Math.max(0, (imgH - targetH) / 2);
-        try {
-            return Bitmap.createBitmap(image, x, y, Math.min(targetW, imgW - x), Math.min(targetH, imgH - y));
-        } catch (Exception ignore) {
-            return image;
-        }
+        return CropGeometry.centerCropToAspect(imgW, imgH, (float) previewW / (float) previewH);
     }
 
     // not working for xiaomi https://xiaomi.eu/community/threads/mi-11-ultra-unable-to-access-camera-lenses-in-apps-camera2-api.61456/
@@ -2367,7 +4009,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
     public void setFocus(float x, float y) throws Exception {
         // Ignore focus if capture/stop is in progress or view is gone
         synchronized (captureLock) {
-            if (isCapturingPhoto || stopRequested) {
+            if (photoCapturesInFlight > 0 || stopRequested) {
                 Log.d(TAG, "setFocus: Ignored because capture/stop in progress");
                 return;
             }
@@ -2898,6 +4540,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
                     boolean wasCentered = sessionConfig.isCentered();
 
                     // Update sessionConfig with the new device ID
+                    CameraSessionConfiguration previousConfig = sessionConfig;
                     sessionConfig = new CameraSessionConfiguration(
                         deviceId,
                         position,
@@ -2919,6 +4562,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
                         sessionConfig.isVideoModeEnabled(),
                         sessionConfig.getVideoQuality()
                     );
+                    sessionConfig.copyCaptureSettingsFrom(previousConfig);
 
                     sessionConfig.setCentered(wasCentered);
 
@@ -2944,6 +4588,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
         boolean wasCentered = sessionConfig.isCentered();
         Log.d(TAG, "flipCamera: Switching from " + currentPosition + " to " + newPosition);
 
+        CameraSessionConfiguration previousConfig = sessionConfig;
         sessionConfig = new CameraSessionConfiguration(
             null, // deviceId - clear device ID to force position-based selection
             newPosition, // position
@@ -2965,6 +4610,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
             sessionConfig.isVideoModeEnabled(), // enableVideoMode
             sessionConfig.getVideoQuality() // videoQuality
         );
+        sessionConfig.copyCaptureSettingsFrom(previousConfig);
 
         sessionConfig.setCentered(wasCentered);
 
@@ -3064,6 +4710,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
         Log.d(TAG, "Auto-centering will be applied (matching iOS behavior)");
 
         // Match iOS behavior: when aspect ratio changes, always auto-center
+        CameraSessionConfiguration previousConfig = sessionConfig;
         sessionConfig = new CameraSessionConfiguration(
             sessionConfig.getDeviceId(),
             sessionConfig.getPosition(),
@@ -3085,6 +4732,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
             sessionConfig.isVideoModeEnabled(),
             sessionConfig.getVideoQuality()
         );
+        sessionConfig.copyCaptureSettingsFrom(previousConfig);
         sessionConfig.setCentered(true);
 
         // Update layout and rebind camera with new aspect ratio
@@ -3140,6 +4788,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
         Log.d(TAG, "Auto-centering will be applied (matching iOS behavior)");
 
         // Match iOS behavior: when aspect ratio changes, always auto-center
+        CameraSessionConfiguration previousConfig = sessionConfig;
         sessionConfig = new CameraSessionConfiguration(
             sessionConfig.getDeviceId(),
             sessionConfig.getPosition(),
@@ -3161,6 +4810,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
             sessionConfig.isVideoModeEnabled(),
             sessionConfig.getVideoQuality()
         );
+        sessionConfig.copyCaptureSettingsFrom(previousConfig);
         sessionConfig.setCentered(true);
 
         // Update layout and rebind camera with new aspect ratio
@@ -3203,6 +4853,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
     public void setGridMode(String gridMode) {
         if (sessionConfig != null) {
             Log.d(TAG, "setGridMode: Changing grid mode to: " + gridMode);
+            CameraSessionConfiguration previousConfig = sessionConfig;
             sessionConfig = new CameraSessionConfiguration(
                 sessionConfig.getDeviceId(),
                 sessionConfig.getPosition(),
@@ -3224,6 +4875,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
                 sessionConfig.isVideoModeEnabled(),
                 sessionConfig.getVideoQuality()
             );
+            sessionConfig.copyCaptureSettingsFrom(previousConfig);
 
             // Update the grid overlay immediately
             if (gridOverlayView != null) {
@@ -3543,6 +5195,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
                         );
                     }
 
+                    CameraSessionConfiguration previousConfig = sessionConfig;
                     sessionConfig = new CameraSessionConfiguration(
                         sessionConfig.getDeviceId(),
                         sessionConfig.getPosition(),
@@ -3564,6 +5217,7 @@ public class CameraXView implements LifecycleOwner, LifecycleObserver {
                         sessionConfig.isVideoModeEnabled(),
                         sessionConfig.getVideoQuality()
                     );
+                    sessionConfig.copyCaptureSettingsFrom(previousConfig);
 
                     // If aspect ratio changed due to size update, rebind camera
                     if (isRunning && !Objects.equals(currentAspectRatio, calculatedAspectRatio)) {
@@ -0,0 +1,152 @@
+package app.capgo.capacitor.camera.preview;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * In-flight capture (or sample) requests keyed by request ID, so several can run at once and each result reaches
+ * the call that asked for it. Registration fails once {@code maxInFlight} requests are pending (backpressure). In
+ * ordered mode a result is held until every earlier request has been delivered or cancelled, so callers see
+ * results in request order even though the pipeline stages finish them out of order. Owned by the plugin so
+ * requests survive camera restarts, which recreate the {@link CameraXView}.
+ *
+ * @param <T> what the owner needs to answer a request (e.g. the saved call's ID)
+ */
+public class CaptureRequestRegistry<T> {
+
+    private static final class Entry<T> {
+
+        final T payload;
+        // Set once the result is in; ordered mode may hold it until earlier requests are done
+        Consumer<T> delivery;
+
+        Entry(T payload) {
+            this.payload = payload;
+        }
+    }
+
+    // Insertion order is request order
+    private final LinkedHashMap<String, Entry<T>> entries = new LinkedHashMap<>();
+    private int maxInFlight;
+    private boolean ordered;
+
+    public CaptureRequestRegistry(int maxInFlight, boolean ordered) {
+        configure(maxInFlight, ordered);
+    }
+
+    /** Applies new limits; lowering {@code maxInFlight} only affects later registrations. */
+    public synchronized void configure(int maxInFlight, boolean ordered) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.ordered = ordered;
+        if (!ordered) {
+            drain();
+        }
+    }
+
+    public synchronized int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public synchronized boolean isOrdered() {
+        return ordered;
+    }
+
+    /** Requests registered and not yet delivered or cancelled (including results held for ordering). */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized boolean isFull() {
+        return entries.size() >= maxInFlight;
+    }
+
+    public synchronized boolean contains(String requestId) {
+        return entries.containsKey(requestId);
+    }
+
+    /** @return false (and nothing is registered) if the registry is full or {@code requestId} is already pending */
+    public synchronized boolean register(String requestId, T payload) {
+        if (entries.size() >= maxInFlight || entries.containsKey(requestId)) {
+            return false;
+        }
+        entries.put(requestId, new Entry<>(payload));
+        return true;
+    }
+
+    /**
+     * Records the result of {@code requestId}; {@code delivery} runs now, or in ordered mode once every earlier
+     * request is done. Deliveries run under the registry lock so their order is the one decided here; they must
+     * only hand the result off and must not call back into the registry.
+     *
+     * @return false if the request is unknown (never registered, already completed or cancelled); the result is dropped
+     */
+    public synchronized boolean complete(String requestId, Consumer<T> delivery) {
+        Entry<T> entry = entries.get(requestId);
+        if (entry == null || entry.delivery != null) {
+            return false;
+        }
+        entry.delivery = delivery;
+        drain();
+        return true;
+    }
+
+    /**
+     * Removes a pending request; its result, if one arrives later, is dropped. Results held behind it are released.
+     *
+     * @return the request's payload, or null if it was not pending (unknown, or its result was already delivered)
+     */
+    public synchronized T cancel(String requestId) {
+        Entry<T> entry = entries.remove(requestId);
+        if (entry == null) {
+            return null;
+        }
+        drain();
+        return entry.payload;
+    }
+
+    /** Removes every request still waiting for its result; see {@link #cancelIf}. */
+    public synchronized List<T> cancelAll() {
+        return cancelIf((payload) -> true);
+    }
+
+    /**
+     * Removes the requests still waiting for their result whose payload matches {@code filter}, e.g. those handed
+     * to a camera that stopped before answering. Results already in but held for ordering are delivered, not
+     * cancelled.
+     *
+     * @return the removed payloads, in request order
+     */
+    public synchronized List<T> cancelIf(Predicate<T> filter) {
+        List<T> payloads = new ArrayList<>();
+        Iterator<Entry<T>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry<T> entry = it.next();
+            if (entry.delivery == null && filter.test(entry.payload)) {
+                payloads.add(entry.payload);
+                it.remove();
+            }
+        }
+        drain();
+        return payloads;
+    }
+
+    private void drain() {
+        Iterator<Map.Entry<String, Entry<T>>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry<T> entry = it.next().getValue();
+            if (entry.delivery == null) {
+                if (ordered) {
+                    return;
+                }
+                continue;
+            }
+            it.remove();
+            entry.delivery.accept(entry.payload);
+        }
+    }
+}
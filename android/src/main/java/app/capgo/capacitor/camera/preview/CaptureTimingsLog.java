@@ -0,0 +1,50 @@
+package app.capgo.capacitor.camera.preview;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Ring buffer of the most recent capture timings ({@code CaptureMetrics.toJson()} entries, oldest first). Owned by
+ * the plugin so the history survives camera restarts, which recreate the {@link CameraXView}.
+ */
+public class CaptureTimingsLog {
+
+    private final int capacity;
+    private final ArrayDeque<JSONObject> entries;
+
+    public CaptureTimingsLog(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.entries = new ArrayDeque<>(this.capacity);
+    }
+
+    public synchronized void add(JSONObject entry) {
+        if (entries.size() == capacity) {
+            entries.pollFirst();
+        }
+        entries.addLast(entry);
+    }
+
+    /** The newest {@code limit} entries (all of them when {@code limit} is not positive), oldest first. */
+    public synchronized JSONArray toJson(int limit) {
+        int skip = limit > 0 ? Math.max(0, entries.size() - limit) : 0;
+        JSONArray out = new JSONArray();
+        Iterator<JSONObject> it = entries.iterator();
+        for (int i = 0; it.hasNext(); i++) {
+            JSONObject entry = it.next();
+            if (i >= skip) {
+                out.put(entry);
+            }
+        }
+        return out;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,131 @@
+package app.capgo.capacitor.camera.preview;
+
+import android.util.Log;
+import androidx.exifinterface.media.ExifInterface;
+import app.capgo.capacitor.camera.preview.processing.ExifEdits;
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Every EXIF change a capture needs (orientation, dimensions, GPS heading, caller tags), collected up front and
+ * written in one pass: the source EXIF is parsed once and the output JPEG is rewritten once. The byte-level
+ * writers live in {@link ExifEdits}; this adds the ExifInterface path and turns failures into logged no-ops.
+ */
+public class ExifEditSet {
+
+    private static final String TAG = "CameraPreview/ExifEditSet";
+
+    private final ExifEdits edits = new ExifEdits();
+
+    /** Names accepted by {@link #putTag(String, String)}. */
+    public static Set<String> getWritableTagNames() {
+        return ExifEdits.getWritableTagNames();
+    }
+
+    public ExifEditSet setOrientation(int orientation) {
+        edits.setOrientation(orientation);
+        return this;
+    }
+
+    public ExifEditSet setDimensions(int width, int height) {
+        edits.setDimensions(width, height);
+        return this;
+    }
+
+    /** Compass heading in degrees, written as GPSImgDirection relative to magnetic north. */
+    public ExifEditSet setGpsHeading(float degrees) {
+        edits.setGpsHeading(degrees);
+        return this;
+    }
+
+    /** GPS position in decimal degrees; used when the image has no source EXIF to carry it (YUV captures). */
+    public ExifEditSet setGpsLocation(double latitude, double longitude) {
+        edits.setGpsLocation(latitude, longitude);
+        return this;
+    }
+
+    /** Capture time in EXIF format ({@code yyyy:MM:dd HH:mm:ss}), written to DateTime and DateTimeOriginal. */
+    public ExifEditSet setDateTimeOriginal(String dateTime) {
+        edits.setDateTimeOriginal(dateTime);
+        return this;
+    }
+
+    /** Sets a caller-supplied ASCII tag; unknown names are ignored (see {@link #getWritableTagNames()}). */
+    public ExifEditSet putTag(String name, String value) {
+        if (!edits.putTag(name, value)) {
+            Log.w(TAG, "putTag: Ignoring unsupported EXIF tag " + name);
+        }
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return edits.isEmpty();
+    }
+
+    /**
+     * Writes the EXIF of {@code exifSource} plus these edits into {@code target} (which may be the same array).
+     * Returns {@code target} unchanged if it is not a JPEG or the rewrite fails.
+     */
+    public byte[] apply(byte[] target, byte[] exifSource) {
+        if (!ExifEdits.isJpeg(target)) {
+            return target;
+        }
+        try {
+            return edits.rewriteJpeg(target, exifSource);
+        } catch (Throwable t) {
+            Log.w(TAG, "apply: Failed to write EXIF in memory", t);
+            return target;
+        }
+    }
+
+    /**
+     * The EXIF of {@code exifSource} plus these edits as a standalone TIFF block, for containers that store EXIF
+     * outside a JPEG APP1 segment (WebP, HEIC). Returns null if the block cannot be built.
+     */
+    public byte[] toTiff(JpegSource exifSource) {
+        try {
+            File file = exifSource.getFile();
+            return file != null ? edits.toTiff(file) : edits.toTiff(exifSource.readBytes());
+        } catch (Throwable t) {
+            Log.w(TAG, "toTiff: Failed to build EXIF block", t);
+            return null;
+        }
+    }
+
+    /** Applies the edits to an open ExifInterface; the caller saves it (once). */
+    public void applyTo(ExifInterface exif) {
+        Integer orientation = edits.getOrientation();
+        if (orientation != null) {
+            exif.setAttribute(ExifInterface.TAG_ORIENTATION, Integer.toString(orientation));
+        }
+        Integer width = edits.getWidth();
+        if (width != null) {
+            exif.setAttribute(ExifInterface.TAG_IMAGE_WIDTH, String.valueOf(width));
+            exif.setAttribute(ExifInterface.TAG_PIXEL_X_DIMENSION, String.valueOf(width));
+        }
+        Integer height = edits.getHeight();
+        if (height != null) {
+            exif.setAttribute(ExifInterface.TAG_IMAGE_LENGTH, String.valueOf(height));
+            exif.setAttribute(ExifInterface.TAG_PIXEL_Y_DIMENSION, String.valueOf(height));
+        }
+        Float gpsHeading = edits.getGpsHeading();
+        if (gpsHeading != null) {
+            exif.setAttribute(ExifInterface.TAG_GPS_IMG_DIRECTION, Math.round(gpsHeading * 100) + "/100");
+            exif.setAttribute(ExifInterface.TAG_GPS_IMG_DIRECTION_REF, ExifInterface.GPS_DIRECTION_MAGNETIC);
+        }
+        double[] gpsLatLong = edits.getGpsLatLong();
+        if (gpsLatLong != null) {
+            exif.setLatLong(gpsLatLong[0], gpsLatLong[1]);
+        }
+        String dateTimeOriginal = edits.getDateTimeOriginal();
+        if (dateTimeOriginal != null) {
+            exif.setAttribute(ExifInterface.TAG_DATETIME, dateTimeOriginal);
+            exif.setAttribute(ExifInterface.TAG_DATETIME_ORIGINAL, dateTimeOriginal);
+        }
+        // Writable tag names are the ExifInterface tag names
+        for (Map.Entry<String, String> entry : edits.getTags().entrySet()) {
+            exif.setAttribute(entry.getKey(), entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package app.capgo.capacitor.camera.preview;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageProxy;
+
+/**
+ * Native consumer of camera analysis frames, for other plugins (barcode scanning, quality checks) that would
+ * otherwise read base64 stills through JavaScript. Attach one through {@link FrameProcessorRegistry}, obtained from
+ * {@code CameraPreview#getFrameProcessors()}:
+ *
+ * <pre>
+ * CameraPreview camera = (CameraPreview) bridge.getPlugin("CameraPreview").getInstance();
+ * camera.getFrameProcessors().add("barcodes", image -&gt; scanner.scan(image), 20);
+ * </pre>
+ */
+public interface FrameProcessor {
+    /**
+     * Called on the analysis thread with each frame this processor is scheduled for. The image is the camera's own
+     * buffer (YUV_420_888, not copied): read it before returning and do not close it or keep it afterwards; the next
+     * frame is not delivered to anyone until every processor has returned.
+     *
+     * @param rotationDegrees clockwise rotation that makes the image upright
+     */
+    void process(@NonNull ImageProxy image, int rotationDegrees);
+}
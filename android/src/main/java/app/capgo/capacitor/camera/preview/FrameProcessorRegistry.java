@@ -0,0 +1,131 @@
+package app.capgo.capacitor.camera.preview;
+
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.camera.core.ImageProxy;
+import app.capgo.capacitor.camera.preview.processing.FrameSkipper;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Named {@link FrameProcessor}s fed from the analysis stream. Each processor has a per-frame time budget; one that
+ * runs over it on average is given only every n-th frame (see {@link FrameSkipper}) so it cannot hold the analysis
+ * thread for everyone. Owned by the plugin so processors stay attached across camera restarts, which recreate the
+ * {@link CameraXView}; the view binds the analysis use case while the registry is not empty.
+ */
+public class FrameProcessorRegistry {
+
+    private static final String TAG = "CameraPreview/FrameProcessors";
+
+    /** Per-frame budget when none is given: one frame at 30 fps. */
+    public static final double DEFAULT_BUDGET_MS = 33;
+
+    private static final class Entry {
+
+        final FrameProcessor processor;
+        final FrameSkipper skipper;
+        long failures;
+
+        Entry(FrameProcessor processor, double budgetMs) {
+            this.processor = processor;
+            this.skipper = new FrameSkipper(budgetMs);
+        }
+    }
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    // Copy-on-write snapshot read by the analysis thread
+    private volatile Entry[] snapshot = new Entry[0];
+    private volatile Runnable changeListener;
+
+    /** Attaches {@code processor} under {@code name}, replacing any processor of that name. */
+    public void add(String name, FrameProcessor processor, double budgetMs) {
+        synchronized (entries) {
+            entries.put(name, new Entry(processor, budgetMs));
+            snapshot = entries.values().toArray(new Entry[0]);
+        }
+        notifyChanged();
+    }
+
+    public void add(String name, FrameProcessor processor) {
+        add(name, processor, DEFAULT_BUDGET_MS);
+    }
+
+    /** @return false if no processor of that name was attached */
+    public boolean remove(String name) {
+        boolean removed;
+        synchronized (entries) {
+            removed = entries.remove(name) != null;
+            snapshot = entries.values().toArray(new Entry[0]);
+        }
+        if (removed) {
+            notifyChanged();
+        }
+        return removed;
+    }
+
+    public boolean isEmpty() {
+        return snapshot.length == 0;
+    }
+
+    /** Called (on the caller's thread) whenever processors are added or removed. */
+    void setChangeListener(Runnable listener) {
+        this.changeListener = listener;
+    }
+
+    private void notifyChanged() {
+        Runnable listener = changeListener;
+        if (listener != null) {
+            listener.run();
+        }
+    }
+
+    /** Runs every processor scheduled for this frame, in the order they were added. Analysis thread only. */
+    void dispatch(ImageProxy image) {
+        Entry[] current = snapshot;
+        if (current.length == 0) {
+            return;
+        }
+        int rotationDegrees = image.getImageInfo().getRotationDegrees();
+        for (Entry entry : current) {
+            if (!entry.skipper.shouldProcess()) {
+                continue;
+            }
+            long start = SystemClock.elapsedRealtimeNanos();
+            try {
+                entry.processor.process(image, rotationDegrees);
+            } catch (Exception e) {
+                synchronized (entry) {
+                    entry.failures++;
+                }
+                Log.w(TAG, "dispatch: Frame processor failed", e);
+            }
+            entry.skipper.record((SystemClock.elapsedRealtimeNanos() - start) / 1e6);
+        }
+    }
+
+    /** Timing stats keyed by processor name. */
+    public JSONObject toJson() throws JSONException {
+        JSONObject out = new JSONObject();
+        synchronized (entries) {
+            for (Map.Entry<String, Entry> named : entries.entrySet()) {
+                Entry entry = named.getValue();
+                FrameSkipper skipper = entry.skipper;
+                JSONObject stats = new JSONObject();
+                stats.put("processed", skipper.getProcessed());
+                stats.put("skipped", skipper.getSkipped());
+                stats.put("averageMs", skipper.getAverageMs());
+                stats.put("lastMs", skipper.getLastMs());
+                stats.put("maxMs", skipper.getMaxMs());
+                stats.put("budgetMs", skipper.getBudgetMs());
+                stats.put("stride", skipper.getStride());
+                synchronized (entry) {
+                    stats.put("failures", entry.failures);
+                }
+                out.put(named.getKey(), stats);
+            }
+        }
+        return out;
+    }
+}
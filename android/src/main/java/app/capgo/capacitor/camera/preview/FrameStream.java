@@ -0,0 +1,225 @@
+package app.capgo.capacitor.camera.preview;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.YuvImage;
+import android.os.SystemClock;
+import androidx.camera.core.ImageProxy;
+import app.capgo.capacitor.camera.preview.processing.Base64Encoder;
+import app.capgo.capacitor.camera.preview.processing.ByteArrayPool;
+import app.capgo.capacitor.camera.preview.processing.CropGeometry;
+import app.capgo.capacitor.camera.preview.processing.FramePacer;
+import app.capgo.capacitor.camera.preview.processing.ImageSizing;
+import app.capgo.capacitor.camera.preview.processing.YuvTransform;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * One {@code startFrameStream} session: turns ImageAnalysis frames into upright, downscaled JPEGs, at most
+ * {@code maxFps} of them per second. Frames are converted on the analysis thread; while it is busy CameraX keeps only
+ * the latest frame, so a slow consumer lowers the delivered rate instead of building a backlog. Frames are either
+ * inlined in the event as base64 or written to a small rotating set of files in the cache directory.
+ *
+ * <p>The {@link #FORMAT_LUMA} format skips colour and encoding altogether: frames are the raw Y plane of the region
+ * of interest, which is all barcode / MRZ / OCR scanners read.
+ */
+public class FrameStream {
+
+    public static final String FORMAT_JPEG = "jpeg";
+    // Raw 8-bit luma rows, rowStride bytes apart
+    public static final String FORMAT_LUMA = "luma";
+
+    // Files reused round-robin in file mode; a path stays valid for this many later frames
+    private static final int FILE_SLOTS = 4;
+    // Smallest region side considered when sizing the analysis stream, so a sliver does not ask for a huge one
+    private static final float MIN_ROI_FRACTION = 0.1f;
+
+    private final String format;
+    private final Integer maxWidth;
+    private final Integer maxHeight;
+    private final int quality;
+    private final RectF roi;
+    private final File fileDirectory;
+    private final FramePacer pacer;
+    private final long startedAtMillis = SystemClock.elapsedRealtime();
+    private long delivered;
+    private long failed;
+    private double totalProcessingMs;
+    private int lastWidth;
+    private int lastHeight;
+
+    /**
+     * @param maxWidth maximum frame width, or null (with {@code maxHeight}) for the region's own size
+     * @param roi normalized (0-1) region of the upright analysis frame to export, or null for the whole frame
+     * @param fileDirectory where frames are written, or null to inline them in the event
+     */
+    public FrameStream(
+        String format,
+        double maxFps,
+        Integer maxWidth,
+        Integer maxHeight,
+        int quality,
+        RectF roi,
+        File fileDirectory
+    ) {
+        this.format = format;
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+        this.quality = quality;
+        this.roi = roi;
+        this.fileDirectory = fileDirectory;
+        this.pacer = new FramePacer(maxFps);
+    }
+
+    public static boolean isSupportedFormat(String format) {
+        return FORMAT_JPEG.equals(format) || FORMAT_LUMA.equals(format);
+    }
+
+    /**
+     * Requested maximum size, scaled up by the region of interest so the region itself can reach it; used to pick
+     * the analysis resolution. Null when not set.
+     */
+    public Integer getMaxWidth() {
+        return maxWidth != null && roi != null ? Math.round(maxWidth / Math.max(roi.width(), MIN_ROI_FRACTION)) : maxWidth;
+    }
+
+    public Integer getMaxHeight() {
+        return maxHeight != null && roi != null ? Math.round(maxHeight / Math.max(roi.height(), MIN_ROI_FRACTION)) : maxHeight;
+    }
+
+    /**
+     * Converts one analysis frame (not closed here) into a {@code frame} event payload.
+     *
+     * @return null when the frame is skipped by the frame-rate cap
+     */
+    public JSONObject process(ImageProxy image, ByteArrayPool bufferPool) throws IOException, JSONException {
+        long timestampNanos = image.getImageInfo().getTimestamp();
+        if (!pacer.admit(timestampNanos)) {
+            return null;
+        }
+        long start = SystemClock.elapsedRealtimeNanos();
+        try {
+            if (image.getFormat() != ImageFormat.YUV_420_888) {
+                throw new IOException("Unexpected analysis format " + image.getFormat());
+            }
+            int rotation = image.getImageInfo().getRotationDegrees();
+            boolean swapsAxes = rotation == 90 || rotation == 270;
+            int orientedWidth = swapsAxes ? image.getHeight() : image.getWidth();
+            int orientedHeight = swapsAxes ? image.getWidth() : image.getHeight();
+            int[] region = { 0, 0, orientedWidth, orientedHeight };
+            if (roi != null) {
+                region = CropGeometry.applyNormalizedRegion(region, roi.left, roi.top, roi.width(), roi.height());
+            }
+            int[] target = ImageSizing.fitWithin(region[2], region[3], maxWidth, maxHeight);
+            if (target[0] > region[2] || target[1] > region[3]) {
+                // Never upscale past the analysis resolution
+                target = new int[] { region[2], region[3] };
+            }
+            int[] stored = CropGeometry.orientedToStored(region, rotation, orientedWidth, orientedHeight);
+
+            ImageProxy.PlaneProxy[] planes = image.getPlanes();
+            YuvTransform.Planes yuv = new YuvTransform.Planes(
+                planes[0].getBuffer(),
+                planes[0].getRowStride(),
+                planes[0].getPixelStride(),
+                planes[1].getBuffer(),
+                planes[2].getBuffer(),
+                planes[1].getRowStride(),
+                planes[1].getPixelStride(),
+                image.getWidth(),
+                image.getHeight()
+            );
+            boolean luma = FORMAT_LUMA.equals(format);
+            // Luma rows need no even size; NV21 does
+            int width = luma ? target[0] : YuvTransform.evenSize(target[0]);
+            int height = luma ? target[1] : YuvTransform.evenSize(target[1]);
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            if (luma) {
+                byte[] y = bufferPool.get(width * height);
+                try {
+                    YuvTransform.cropRotateScaleLuma(yuv, stored, rotation, width, height, y);
+                    stream.write(y, 0, width * height);
+                } finally {
+                    bufferPool.put(y);
+                }
+            } else {
+                byte[] nv21 = bufferPool.get(YuvTransform.nv21Size(width, height));
+                try {
+                    YuvTransform.cropRotateScaleToNv21(yuv, stored, rotation, width, height, nv21);
+                    new YuvImage(nv21, ImageFormat.NV21, width, height, null).compressToJpeg(
+                        new Rect(0, 0, width, height),
+                        quality,
+                        stream
+                    );
+                } finally {
+                    bufferPool.put(nv21);
+                }
+            }
+
+            long index;
+            synchronized (this) {
+                index = delivered;
+            }
+            JSONObject frame = new JSONObject();
+            frame.put("index", index);
+            frame.put("timestamp", timestampNanos / 1_000_000L);
+            frame.put("width", width);
+            frame.put("height", height);
+            frame.put("format", format);
+            if (luma) {
+                // Rows are tightly packed
+                frame.put("rowStride", width);
+            }
+            if (fileDirectory != null) {
+                frame.put("path", writeSlot(index, stream));
+            } else {
+                frame.put("value", Base64Encoder.encode(stream.toByteArray()));
+            }
+            synchronized (this) {
+                delivered++;
+                totalProcessingMs += (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+                lastWidth = width;
+                lastHeight = height;
+            }
+            return frame;
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                failed++;
+            }
+            throw e;
+        }
+    }
+
+    private String writeSlot(long index, ByteArrayOutputStream data) throws IOException {
+        if (!fileDirectory.isDirectory() && !fileDirectory.mkdirs()) {
+            throw new IOException("Cannot create " + fileDirectory);
+        }
+        String extension = FORMAT_LUMA.equals(format) ? ".y" : ".jpg";
+        File file = new File(fileDirectory, "frame-" + (index % FILE_SLOTS) + extension);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            data.writeTo(out);
+        }
+        return file.getAbsolutePath();
+    }
+
+    /** Counters for {@code getFrameStreamStats}. */
+    public synchronized JSONObject toJson() throws JSONException {
+        JSONObject stats = new JSONObject();
+        long elapsedMs = Math.max(1, SystemClock.elapsedRealtime() - startedAtMillis);
+        stats.put("received", pacer.getReceived());
+        stats.put("delivered", delivered);
+        stats.put("skipped", pacer.getSkipped());
+        stats.put("dropped", pacer.getDropped());
+        stats.put("failed", failed);
+        stats.put("fps", delivered * 1000.0 / elapsedMs);
+        stats.put("averageProcessingMs", delivered > 0 ? totalProcessingMs / delivered : 0);
+        stats.put("width", lastWidth);
+        stats.put("height", lastHeight);
+        return stats;
+    }
+}
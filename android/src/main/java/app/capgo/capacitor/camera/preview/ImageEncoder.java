@@ -0,0 +1,221 @@
+package app.capgo.capacitor.camera.preview;
+
+import android.graphics.Bitmap;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.media.MediaFormat;
+import android.os.Build;
+import android.util.Log;
+import androidx.heifwriter.HeifWriter;
+import app.capgo.capacitor.camera.preview.model.CaptureOptions;
+import app.capgo.capacitor.camera.preview.processing.WebpContainer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Encoders for the non-JPEG output formats ({@link CaptureOptions#getFormat()}). JPEG keeps its own path
+ * (compress, then {@link ExifEditSet#apply}); here the EXIF block is handed over up front because WebP and HEIC
+ * embed it in the container rather than in an APP1 segment. PNG output carries no EXIF.
+ */
+public final class ImageEncoder {
+
+    private static final String TAG = "CameraPreview/ImageEncoder";
+
+    // Upper bound for the hardware encoder to finish a single image
+    private static final long HEIC_TIMEOUT_MS = 10_000;
+    private static final byte[] EXIF_HEADER = { 'E', 'x', 'i', 'f', 0, 0 };
+
+    private static volatile Boolean heicEncoderAvailable;
+
+    private ImageEncoder() {}
+
+    /** Whether {@code format} can be produced on this device (HEIC needs API 28 and a HEVC / HEIC encoder). */
+    public static boolean isSupported(String format) {
+        if (format == null) {
+            return false;
+        }
+        switch (format) {
+            case CaptureOptions.FORMAT_JPEG:
+            case CaptureOptions.FORMAT_WEBP:
+            case CaptureOptions.FORMAT_WEBP_LOSSLESS:
+            case CaptureOptions.FORMAT_PNG:
+                return true;
+            case CaptureOptions.FORMAT_HEIC:
+                return Build.VERSION.SDK_INT >= Build.VERSION_CODES.P && hasHeicEncoder();
+            default:
+                return false;
+        }
+    }
+
+    public static String getExtension(String format) {
+        if (CaptureOptions.FORMAT_HEIC.equals(format)) {
+            return ".heic";
+        }
+        if (CaptureOptions.FORMAT_WEBP.equals(format) || CaptureOptions.FORMAT_WEBP_LOSSLESS.equals(format)) {
+            return ".webp";
+        }
+        if (CaptureOptions.FORMAT_PNG.equals(format)) {
+            return ".png";
+        }
+        return ".jpg";
+    }
+
+    public static String getMimeType(String format) {
+        if (CaptureOptions.FORMAT_HEIC.equals(format)) {
+            return "image/heic";
+        }
+        if (CaptureOptions.FORMAT_WEBP.equals(format) || CaptureOptions.FORMAT_WEBP_LOSSLESS.equals(format)) {
+            return "image/webp";
+        }
+        if (CaptureOptions.FORMAT_PNG.equals(format)) {
+            return "image/png";
+        }
+        return "image/jpeg";
+    }
+
+    /**
+     * Encodes {@code bitmap} as WebP, HEIC or PNG with {@code exifTiff} (TIFF-structured, may be null) embedded.
+     * HEIC goes through a temporary file in {@code tmpDir}: the platform encoder only writes to files.
+     */
+    public static byte[] encode(Bitmap bitmap, String format, int quality, byte[] exifTiff, File tmpDir) throws IOException {
+        if (CaptureOptions.FORMAT_HEIC.equals(format)) {
+            File tmp = File.createTempFile("cpcp_encode", ".heic", tmpDir);
+            try {
+                encodeHeic(bitmap, quality, exifTiff, tmp);
+                return readFile(tmp);
+            } finally {
+                tmp.delete();
+            }
+        }
+        if (CaptureOptions.FORMAT_PNG.equals(format)) {
+            return encodePng(bitmap);
+        }
+        return encodeWebp(bitmap, format, quality, exifTiff);
+    }
+
+    /** Same as {@link #encode}, writing straight to {@code out}. */
+    public static void encodeToFile(Bitmap bitmap, String format, int quality, byte[] exifTiff, File out) throws IOException {
+        if (CaptureOptions.FORMAT_HEIC.equals(format)) {
+            encodeHeic(bitmap, quality, exifTiff, out);
+            return;
+        }
+        byte[] bytes = CaptureOptions.FORMAT_PNG.equals(format) ? encodePng(bitmap) : encodeWebp(bitmap, format, quality, exifTiff);
+        try (FileOutputStream fos = new FileOutputStream(out)) {
+            fos.write(bytes);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static byte[] encodeWebp(Bitmap bitmap, String format, int quality, byte[] exifTiff) throws IOException {
+        boolean lossless = CaptureOptions.FORMAT_WEBP_LOSSLESS.equals(format);
+        Bitmap.CompressFormat compressFormat;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            compressFormat = lossless ? Bitmap.CompressFormat.WEBP_LOSSLESS : Bitmap.CompressFormat.WEBP_LOSSY;
+        } else {
+            // Before API 30, WEBP at quality 100 is the lossless encoder
+            compressFormat = Bitmap.CompressFormat.WEBP;
+            if (lossless) {
+                quality = 100;
+            } else {
+                quality = Math.min(quality, 99);
+            }
+        }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        if (!bitmap.compress(compressFormat, quality, stream)) {
+            throw new IOException("WebP encoding failed");
+        }
+        byte[] bytes = stream.toByteArray();
+        if (exifTiff == null) {
+            return bytes;
+        }
+        try {
+            return WebpContainer.withExif(bytes, exifTiff, bitmap.getWidth(), bitmap.getHeight());
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "encodeWebp: Could not embed EXIF, keeping the image without it", e);
+            return bytes;
+        }
+    }
+
+    private static byte[] encodePng(Bitmap bitmap) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        if (!bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream)) {
+            throw new IOException("PNG encoding failed");
+        }
+        return stream.toByteArray();
+    }
+
+    private static void encodeHeic(Bitmap bitmap, int quality, byte[] exifTiff, File out) throws IOException {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) {
+            throw new IOException("HEIC encoding requires Android 9");
+        }
+        HeifWriter writer = new HeifWriter.Builder(
+            out.getAbsolutePath(),
+            bitmap.getWidth(),
+            bitmap.getHeight(),
+            HeifWriter.INPUT_MODE_BITMAP
+        )
+            .setQuality(Math.max(0, Math.min(quality, 100)))
+            .setMaxImages(1)
+            .build();
+        try {
+            writer.start();
+            writer.addBitmap(bitmap);
+            if (exifTiff != null) {
+                // HeifWriter expects the APP1-style block: "Exif\0\0" followed by the TIFF header
+                byte[] block = new byte[EXIF_HEADER.length + exifTiff.length];
+                System.arraycopy(EXIF_HEADER, 0, block, 0, EXIF_HEADER.length);
+                System.arraycopy(exifTiff, 0, block, EXIF_HEADER.length, exifTiff.length);
+                writer.addExifData(0, block, 0, block.length);
+            }
+            writer.stop(HEIC_TIMEOUT_MS);
+        } catch (Exception e) {
+            out.delete();
+            throw new IOException("HEIC encoding failed: " + e.getMessage(), e);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static boolean hasHeicEncoder() {
+        Boolean available = heicEncoderAvailable;
+        if (available == null) {
+            available = false;
+            MediaCodecList codecs = new MediaCodecList(MediaCodecList.REGULAR_CODECS);
+            for (MediaCodecInfo info : codecs.getCodecInfos()) {
+                if (!info.isEncoder()) {
+                    continue;
+                }
+                for (String type : info.getSupportedTypes()) {
+                    if (
+                        MediaFormat.MIMETYPE_VIDEO_HEVC.equalsIgnoreCase(type) ||
+                        MediaFormat.MIMETYPE_IMAGE_ANDROID_HEIC.equalsIgnoreCase(type)
+                    ) {
+                        available = true;
+                        break;
+                    }
+                }
+            }
+            heicEncoderAvailable = available;
+        }
+        return available;
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        byte[] data = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of " + file.getName());
+                }
+                offset += read;
+            }
+        }
+        return data;
+    }
+}
@@ -0,0 +1,124 @@
+package app.capgo.capacitor.camera.preview;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.os.Build;
+import androidx.exifinterface.media.ExifInterface;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A captured JPEG, either held in memory or written by ImageCapture straight to a file (storeToFile sessions).
+ * Decoders read from the file directly, so the file-backed path never holds the whole JPEG on the Java heap.
+ */
+public abstract class JpegSource {
+
+    public static JpegSource of(byte[] data) {
+        return new Bytes(data);
+    }
+
+    public static JpegSource of(File file) {
+        return new FileBacked(file);
+    }
+
+    /** Decodes with {@link BitmapFactory}; honours {@code inJustDecodeBounds}, {@code inSampleSize} and {@code inBitmap}. */
+    public abstract Bitmap decode(BitmapFactory.Options options);
+
+    public abstract BitmapRegionDecoder newRegionDecoder() throws IOException;
+
+    public abstract ExifInterface readExif() throws IOException;
+
+    /** The whole JPEG; returns the backing array (not a copy) for in-memory sources. */
+    public abstract byte[] readBytes() throws IOException;
+
+    /** The backing file, or null for in-memory sources. */
+    public File getFile() {
+        return null;
+    }
+
+    private static final class Bytes extends JpegSource {
+
+        private final byte[] data;
+
+        Bytes(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public Bitmap decode(BitmapFactory.Options options) {
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public BitmapRegionDecoder newRegionDecoder() throws IOException {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                return BitmapRegionDecoder.newInstance(data, 0, data.length);
+            }
+            return BitmapRegionDecoder.newInstance(data, 0, data.length, false);
+        }
+
+        @Override
+        public ExifInterface readExif() throws IOException {
+            return new ExifInterface(new ByteArrayInputStream(data));
+        }
+
+        @Override
+        public byte[] readBytes() {
+            return data;
+        }
+    }
+
+    private static final class FileBacked extends JpegSource {
+
+        private final File file;
+
+        FileBacked(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public Bitmap decode(BitmapFactory.Options options) {
+            return BitmapFactory.decodeFile(file.getAbsolutePath(), options);
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public BitmapRegionDecoder newRegionDecoder() throws IOException {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                return BitmapRegionDecoder.newInstance(file.getAbsolutePath());
+            }
+            return BitmapRegionDecoder.newInstance(file.getAbsolutePath(), false);
+        }
+
+        @Override
+        public ExifInterface readExif() throws IOException {
+            return new ExifInterface(file);
+        }
+
+        @Override
+        public byte[] readBytes() throws IOException {
+            byte[] data = new byte[(int) file.length()];
+            try (InputStream in = new FileInputStream(file)) {
+                int offset = 0;
+                while (offset < data.length) {
+                    int read = in.read(data, offset, data.length - offset);
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of " + file.getName());
+                    }
+                    offset += read;
+                }
+            }
+            return data;
+        }
+
+        @Override
+        public File getFile() {
+            return file;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package app.capgo.capacitor.camera.preview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws capture overlays (stacked text pills in the top-right corner, and an optional watermark) onto a mutable
+ * bitmap. Paints and the typeface are created once; pill backgrounds (rounded rect plus blurred shadow, the costly
+ * part) are pre-rendered per pill height as a three-slice strip whose 1 px middle column is stretched to the label.
+ * Calls are serialized: the shared paints are reconfigured per image size.
+ */
+public class OverlayRenderer {
+
+    public static final String POSITION_TOP_LEFT = "top-left";
+    public static final String POSITION_TOP_RIGHT = "top-right";
+    public static final String POSITION_BOTTOM_LEFT = "bottom-left";
+    public static final String POSITION_BOTTOM_RIGHT = "bottom-right";
+
+    // Visual constants (match the original timestamp style)
+    private static final float FONT_WIDTH_RATIO = 0.035f; // ~3.5% of the image width
+    private static final float MIN_FONT_PX = 10f;
+    private static final float PADDING_H = 16f;
+    private static final float PADDING_V = 10f;
+    private static final float MARGIN = 12f;
+    private static final float GAP = 8f;
+    private static final float CORNER = 10f;
+    private static final float SHADOW_RADIUS = 6f;
+    private static final float SHADOW_DY = 2f;
+    private static final int BACKGROUND_COLOR = Color.argb(56, 31, 31, 31); // ~iOS gray at ~22% alpha
+    private static final int SHADOW_COLOR = Color.argb(64, 0, 0, 0);
+    // Room around the pill for the shadow blur
+    private static final int SHADOW_PAD = (int) Math.ceil(SHADOW_RADIUS + SHADOW_DY);
+    private static final int MAX_CACHED_PILLS = 4;
+
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.SUBPIXEL_TEXT_FLAG | Paint.LINEAR_TEXT_FLAG);
+    private final Paint backgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Paint watermarkPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect srcRect = new Rect();
+    private final RectF dstRect = new RectF();
+    private final Paint.FontMetrics fontMetrics = new Paint.FontMetrics();
+
+    // Pill strips keyed by pill height, least recently used first
+    private final LinkedHashMap<Integer, Bitmap> pillCache = new LinkedHashMap<Integer, Bitmap>(MAX_CACHED_PILLS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Bitmap> eldest) {
+            if (size() > MAX_CACHED_PILLS) {
+                eldest.getValue().recycle();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private Bitmap watermark;
+    private String watermarkPosition = POSITION_BOTTOM_RIGHT;
+    private float watermarkWidthRatio = 0.2f;
+
+    public OverlayRenderer() {
+        textPaint.setColor(Color.WHITE);
+        textPaint.setTypeface(Typeface.create("sans-serif-medium", Typeface.NORMAL));
+        textPaint.setTextAlign(Paint.Align.LEFT);
+        textPaint.setDither(true);
+        textPaint.setFilterBitmap(true);
+        textPaint.setHinting(Paint.HINTING_ON);
+
+        backgroundPaint.setColor(BACKGROUND_COLOR);
+        backgroundPaint.setStyle(Paint.Style.FILL);
+        backgroundPaint.setShadowLayer(SHADOW_RADIUS, 0f, SHADOW_DY, SHADOW_COLOR);
+    }
+
+    /**
+     * Sets (or clears, with null) the watermark drawn by {@link #render} when requested. The renderer takes
+     * ownership of the bitmap.
+     *
+     * @param position one of the {@code POSITION_*} constants
+     * @param opacity 0-1
+     * @param widthRatio watermark width as a fraction of the image width
+     */
+    public synchronized void setWatermark(Bitmap watermark, String position, float opacity, float widthRatio) {
+        if (this.watermark != null && this.watermark != watermark) {
+            this.watermark.recycle();
+        }
+        this.watermark = watermark;
+        this.watermarkPosition = position != null ? position : POSITION_BOTTOM_RIGHT;
+        this.watermarkWidthRatio = Math.max(0.01f, Math.min(widthRatio, 1f));
+        watermarkPaint.setAlpha(Math.round(Math.max(0f, Math.min(opacity, 1f)) * 255));
+    }
+
+    public synchronized boolean hasWatermark() {
+        return watermark != null;
+    }
+
+    /**
+     * Draws {@code lines} as stacked pills (empty entries are skipped) and, if asked and configured, the watermark.
+     *
+     * @param bitmap must be mutable
+     */
+    public synchronized void render(Bitmap bitmap, List<String> lines, boolean drawWatermark) {
+        Canvas canvas = new Canvas(bitmap);
+        if (drawWatermark && watermark != null) {
+            drawWatermark(canvas, bitmap.getWidth(), bitmap.getHeight());
+        }
+
+        float fontPx = Math.max(MIN_FONT_PX, bitmap.getWidth() * FONT_WIDTH_RATIO);
+        textPaint.setTextSize(fontPx);
+        textPaint.getFontMetrics(fontMetrics);
+        float lineHeight = fontMetrics.descent - fontMetrics.ascent;
+        int pillHeight = Math.round(lineHeight + PADDING_V * 2f);
+        Bitmap pill = null;
+
+        float top = MARGIN;
+        for (String label : lines) {
+            if (label == null || label.isEmpty()) {
+                continue;
+            }
+            if (pill == null) {
+                pill = getPill(pillHeight);
+            }
+            float width = textPaint.measureText(label) + PADDING_H * 2f;
+            float left = Math.max(0, bitmap.getWidth() - width - MARGIN);
+            drawPill(canvas, pill, left, top, width);
+            canvas.drawText(label, left + PADDING_H, top + PADDING_V - fontMetrics.ascent, textPaint);
+            top += pillHeight + GAP;
+        }
+    }
+
+    /** Drops the cached pills and the watermark. */
+    public synchronized void clear() {
+        for (Bitmap pill : pillCache.values()) {
+            pill.recycle();
+        }
+        pillCache.clear();
+        setWatermark(null, null, 1f, watermarkWidthRatio);
+    }
+
+    /**
+     * Pre-rendered pill strip for one pill height: left cap, a 1 px middle column and right cap, with the shadow,
+     * padded by {@link #SHADOW_PAD} on every side.
+     */
+    private Bitmap getPill(int pillHeight) {
+        Bitmap pill = pillCache.get(pillHeight);
+        if (pill != null) {
+            return pill;
+        }
+        int cap = (int) Math.ceil(CORNER) + SHADOW_PAD;
+        pill = Bitmap.createBitmap(2 * cap + 1, pillHeight + 2 * SHADOW_PAD, Bitmap.Config.ARGB_8888);
+        float right = pill.getWidth() - SHADOW_PAD;
+        new Canvas(pill).drawRoundRect(SHADOW_PAD, SHADOW_PAD, right, SHADOW_PAD + pillHeight, CORNER, CORNER, backgroundPaint);
+        pillCache.put(pillHeight, pill);
+        return pill;
+    }
+
+    private void drawPill(Canvas canvas, Bitmap pill, float left, float top, float width) {
+        int cap = (pill.getWidth() - 1) / 2;
+        float x0 = left - SHADOW_PAD;
+        float y0 = top - SHADOW_PAD;
+        float y1 = y0 + pill.getHeight();
+        float x1 = left + width + SHADOW_PAD;
+
+        srcRect.set(0, 0, cap, pill.getHeight());
+        dstRect.set(x0, y0, x0 + cap, y1);
+        canvas.drawBitmap(pill, srcRect, dstRect, bitmapPaint);
+
+        srcRect.set(cap, 0, cap + 1, pill.getHeight());
+        dstRect.set(x0 + cap, y0, x1 - cap, y1);
+        canvas.drawBitmap(pill, srcRect, dstRect, bitmapPaint);
+
+        srcRect.set(cap + 1, 0, pill.getWidth(), pill.getHeight());
+        dstRect.set(x1 - cap, y0, x1, y1);
+        canvas.drawBitmap(pill, srcRect, dstRect, bitmapPaint);
+    }
+
+    private void drawWatermark(Canvas canvas, int width, int height) {
+        float drawWidth = width * watermarkWidthRatio;
+        float drawHeight = drawWidth * watermark.getHeight() / watermark.getWidth();
+        boolean left = POSITION_TOP_LEFT.equals(watermarkPosition) || POSITION_BOTTOM_LEFT.equals(watermarkPosition);
+        boolean top = POSITION_TOP_LEFT.equals(watermarkPosition) || POSITION_TOP_RIGHT.equals(watermarkPosition);
+        float x = left ? MARGIN : width - drawWidth - MARGIN;
+        float y = top ? MARGIN : height - drawHeight - MARGIN;
+        srcRect.set(0, 0, watermark.getWidth(), watermark.getHeight());
+        dstRect.set(x, y, x + drawWidth, y + drawHeight);
+        canvas.drawBitmap(watermark, srcRect, dstRect, watermarkPaint);
+    }
+}
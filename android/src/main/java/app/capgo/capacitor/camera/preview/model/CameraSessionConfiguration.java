@@ -5,6 +5,10 @@ package app.capgo.capacitor.camera.preview.model;
  */
 public class CameraSessionConfiguration {
 
+    public static final String CAPTURE_MODE_MINIMIZE_LATENCY = "minimizeLatency";
+    public static final String CAPTURE_MODE_MAXIMIZE_QUALITY = "maximizeQuality";
+    public static final String CAPTURE_MODE_ZERO_SHUTTER_LAG = "zeroShutterLag";
+
     private final String deviceId;
     private final String position;
     private final int x;
@@ -26,6 +30,9 @@ public class CameraSessionConfiguration {
     private float targetZoom = 1.0f;
     private boolean isCentered = false;
     private final String videoQuality;
+    private boolean yuvCapture = false;
+    private String captureMode = CAPTURE_MODE_MINIMIZE_LATENCY;
+    private long processingMemoryBudget = 0;
 
     public CameraSessionConfiguration(
         String deviceId,
@@ -185,4 +192,38 @@ public class CameraSessionConfiguration {
     public boolean getEnableVideoMode() {
         return enableVideoMode;
     }
+
+    /** Whether captures that need pixel processing use YUV_420_888 buffers instead of decoding a CameraX JPEG. */
+    public boolean isYuvCapture() {
+        return yuvCapture;
+    }
+
+    public void setYuvCapture(boolean yuvCapture) {
+        this.yuvCapture = yuvCapture;
+    }
+
+    /** Requested ImageCapture mode, one of the {@code CAPTURE_MODE_*} constants. */
+    public String getCaptureMode() {
+        return captureMode;
+    }
+
+    public void setCaptureMode(String captureMode) {
+        this.captureMode = captureMode != null ? captureMode : CAPTURE_MODE_MINIMIZE_LATENCY;
+    }
+
+    /** Heap bytes one capture may use while being decoded and processed; 0 picks a share of the heap. */
+    public long getProcessingMemoryBudget() {
+        return processingMemoryBudget;
+    }
+
+    public void setProcessingMemoryBudget(long processingMemoryBudget) {
+        this.processingMemoryBudget = Math.max(0, processingMemoryBudget);
+    }
+
+    /** Carries the capture settings that are not constructor arguments over to a rebuilt configuration. */
+    public void copyCaptureSettingsFrom(CameraSessionConfiguration other) {
+        this.yuvCapture = other.yuvCapture;
+        this.captureMode = other.captureMode;
+        this.processingMemoryBudget = other.processingMemoryBudget;
+    }
 }
@@ -0,0 +1,120 @@
+package app.capgo.capacitor.camera.preview.model;
+
+import app.capgo.capacitor.camera.preview.processing.MemoryPlanner;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Timings collected while post-processing a single capture, reported back with the result. Besides the totals,
+ * each pipeline stage is stamped with {@link #mark} on the monotonic clock, relative to the capture request.
+ */
+public class CaptureMetrics {
+
+    /** CameraX produced a JPEG that was decoded (if needed) and re-encoded. */
+    public static final String PIPELINE_JPEG = "jpeg";
+    /** CameraX produced YUV planes that were transformed and encoded once. */
+    public static final String PIPELINE_YUV = "yuv";
+
+    // Stage names, in pipeline order; a stage that does not apply to a capture is simply not marked
+    public static final String STAGE_SHUTTER = "shutter";
+    public static final String STAGE_IMAGE_SAVED = "imageSaved";
+    public static final String STAGE_DECODED = "decoded";
+    public static final String STAGE_TRANSFORMED = "transformed";
+    public static final String STAGE_ENCODED = "encoded";
+    public static final String STAGE_EXIF_WRITTEN = "exifWritten";
+    public static final String STAGE_SERIALIZED = "serialized";
+    public static final String STAGE_DISPATCHED = "dispatched";
+
+    private final String pipeline;
+    private final long requestedAtNanos = System.nanoTime();
+    private final long requestedAtMillis = System.currentTimeMillis();
+    private final Map<String, Double> stages = new LinkedHashMap<>();
+    private double latencyMs = 0;
+    private double yuvConvertMs = 0;
+    private double exifWriteMs = 0;
+    private MemoryPlanner.Plan memoryPlan;
+
+    public CaptureMetrics(String pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    public String getPipeline() {
+        return pipeline;
+    }
+
+    /** Time from the capture request to the result being ready for delivery. */
+    public double getLatencyMs() {
+        return latencyMs;
+    }
+
+    /** Records the end of the capture; call once, right before the result is delivered. */
+    public void markComplete() {
+        latencyMs = (System.nanoTime() - requestedAtNanos) / 1e6;
+    }
+
+    /** Records that {@code stage} (one of the {@code STAGE_*} names) finished now; a repeated mark overwrites. */
+    public synchronized void mark(String stage) {
+        stages.put(stage, (System.nanoTime() - requestedAtNanos) / 1e6);
+    }
+
+    /** Wall-clock time of the capture request, to line results up with other logs. */
+    public long getRequestedAtMillis() {
+        return requestedAtMillis;
+    }
+
+    /** Time spent cropping, rotating and scaling the YUV planes (YUV pipeline only). */
+    public double getYuvConvertMs() {
+        return yuvConvertMs;
+    }
+
+    public void setYuvConvertMs(double yuvConvertMs) {
+        this.yuvConvertMs = yuvConvertMs;
+    }
+
+    /** Time spent parsing the source EXIF and writing the output EXIF (a single pass). */
+    public double getExifWriteMs() {
+        return exifWriteMs;
+    }
+
+    public void setExifWriteMs(double exifWriteMs) {
+        this.exifWriteMs = exifWriteMs;
+    }
+
+    /** How the decode (or YUV transform) was fitted into the processing memory budget, if one was planned. */
+    public synchronized MemoryPlanner.Plan getMemoryPlan() {
+        return memoryPlan;
+    }
+
+    public synchronized void setMemoryPlan(MemoryPlanner.Plan memoryPlan) {
+        this.memoryPlan = memoryPlan;
+    }
+
+    public synchronized JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("pipeline", pipeline);
+            json.put("requestedAt", requestedAtMillis);
+            json.put("latencyMs", latencyMs);
+            json.put("exifWriteMs", exifWriteMs);
+            if (PIPELINE_YUV.equals(pipeline)) {
+                json.put("yuvConvertMs", yuvConvertMs);
+            }
+            JSONObject timings = new JSONObject();
+            for (Map.Entry<String, Double> stage : stages.entrySet()) {
+                timings.put(stage.getKey(), stage.getValue());
+            }
+            json.put("timings", timings);
+            if (memoryPlan != null) {
+                JSONObject memory = new JSONObject();
+                memory.put("strategy", memoryPlan.strategy);
+                memory.put("estimatedBytes", memoryPlan.estimatedBytes);
+                memory.put("budgetBytes", memoryPlan.budgetBytes);
+                memory.put("degraded", memoryPlan.degraded);
+                json.put("memory", memory);
+            }
+        } catch (JSONException ignore) {}
+        return json;
+    }
+}
@@ -0,0 +1,215 @@
+package app.capgo.capacitor.camera.preview.model;
+
+import android.graphics.RectF;
+import android.location.Location;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Options for a single photo capture.
+ */
+public class CaptureOptions {
+
+    public static final String FORMAT_JPEG = "jpeg";
+    public static final String FORMAT_WEBP = "webp";
+    public static final String FORMAT_WEBP_LOSSLESS = "webp-lossless";
+    public static final String FORMAT_HEIC = "heic";
+    public static final String FORMAT_PNG = "png";
+
+    private final int quality;
+    private final boolean saveToGallery;
+    private final Integer width;
+    private final Integer height;
+    private final Location location;
+    private final boolean embedTimestamp;
+    private final boolean embedLocation;
+    private RectF roi;
+    private boolean passthrough = false;
+    private boolean passthroughCrop = false;
+    private Map<String, String> exifTags = Collections.emptyMap();
+    private Set<String> exifFields = null;
+    private String streamId = null;
+    private int streamChunkSize = 0;
+    private String format = FORMAT_JPEG;
+    private boolean thumbnail = false;
+    private List<String> overlayText = Collections.emptyList();
+    private boolean embedWatermark = false;
+    private String requestId = null;
+    private volatile boolean cancelled = false;
+
+    public CaptureOptions(
+        int quality,
+        boolean saveToGallery,
+        Integer width,
+        Integer height,
+        Location location,
+        boolean embedTimestamp,
+        boolean embedLocation
+    ) {
+        this.quality = quality;
+        this.saveToGallery = saveToGallery;
+        this.width = width;
+        this.height = height;
+        this.location = location;
+        this.embedTimestamp = embedTimestamp;
+        this.embedLocation = embedLocation;
+    }
+
+    public int getQuality() {
+        return quality;
+    }
+
+    public boolean isSaveToGallery() {
+        return saveToGallery;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public Location getLocation() {
+        return location;
+    }
+
+    public boolean isEmbedTimestamp() {
+        return embedTimestamp;
+    }
+
+    public boolean isEmbedLocation() {
+        return embedLocation;
+    }
+
+    /** Normalized (0-1) sub-rectangle of the visible preview to keep, or null for the whole preview. */
+    public RectF getRoi() {
+        return roi;
+    }
+
+    public void setRoi(RectF roi) {
+        this.roi = roi;
+    }
+
+    /** Return the sensor JPEG as-is (no decode / re-encode); rotation stays in the EXIF Orientation tag. */
+    public boolean isPassthrough() {
+        return passthrough;
+    }
+
+    public void setPassthrough(boolean passthrough) {
+        this.passthrough = passthrough;
+    }
+
+    /** In passthrough mode, losslessly crop to the preview (and ROI) on the JPEG's MCU grid. */
+    public boolean isPassthroughCrop() {
+        return passthroughCrop;
+    }
+
+    public void setPassthroughCrop(boolean passthroughCrop) {
+        this.passthroughCrop = passthroughCrop;
+    }
+
+    /** Caller-supplied EXIF tags (by EXIF name) written alongside the capture's own metadata. */
+    public Map<String, String> getExifTags() {
+        return exifTags;
+    }
+
+    public void setExifTags(Map<String, String> exifTags) {
+        this.exifTags = exifTags != null ? exifTags : Collections.emptyMap();
+    }
+
+    /** EXIF field names to return with the result; null returns every known tag, an empty set returns none. */
+    public Set<String> getExifFields() {
+        return exifFields;
+    }
+
+    public void setExifFields(Set<String> exifFields) {
+        this.exifFields = exifFields;
+    }
+
+    /** Identifier of the chunk stream the result is delivered through, or null to return it in one piece. */
+    public String getStreamId() {
+        return streamId;
+    }
+
+    /** Raw JPEG bytes per streamed chunk. */
+    public int getStreamChunkSize() {
+        return streamChunkSize;
+    }
+
+    public void setStream(String streamId, int chunkSize) {
+        this.streamId = streamId;
+        this.streamChunkSize = chunkSize;
+    }
+
+    /** Output encoding, one of the {@code FORMAT_*} constants. */
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format != null ? format : FORMAT_JPEG;
+    }
+
+    /** Emit a small upright preview of the capture before the full-resolution result is processed. */
+    public boolean isThumbnail() {
+        return thumbnail;
+    }
+
+    public void setThumbnail(boolean thumbnail) {
+        this.thumbnail = thumbnail;
+    }
+
+    /** Extra text lines drawn as pills below the timestamp / location. */
+    public List<String> getOverlayText() {
+        return overlayText;
+    }
+
+    public void setOverlayText(List<String> overlayText) {
+        this.overlayText = overlayText != null ? overlayText : Collections.emptyList();
+    }
+
+    /** Draw the session watermark (see {@code OverlayRenderer#setWatermark}). */
+    public boolean isEmbedWatermark() {
+        return embedWatermark;
+    }
+
+    public void setEmbedWatermark(boolean embedWatermark) {
+        this.embedWatermark = embedWatermark;
+    }
+
+    /** Identifier the result is reported under (see {@code CaptureRequestRegistry}). */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    /** Set when the caller gave up on the capture; the pipeline stops at its next stage boundary. */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /** Whether anything has to be drawn onto the pixels. */
+    public boolean hasOverlay() {
+        return embedTimestamp || embedLocation || embedWatermark || !overlayText.isEmpty();
+    }
+
+    public boolean isJpeg() {
+        return FORMAT_JPEG.equals(format);
+    }
+
+    /** Passthrough only applies when nothing requires touching the pixels (and the sensor JPEG is what was asked for). */
+    public boolean canPassthrough() {
+        return passthrough && width == null && height == null && !hasOverlay() && isJpeg();
+    }
+}
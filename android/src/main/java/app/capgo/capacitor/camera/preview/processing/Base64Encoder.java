@@ -0,0 +1,56 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Standard Base64 (RFC 4648, padded, no line breaks) for capture results. Writes ASCII bytes that become the
+ * string in one copy, and sizes bridge chunks so each one decodes on its own. Kept free of Android types.
+ */
+public final class Base64Encoder {
+
+    private static final byte[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(
+        StandardCharsets.US_ASCII
+    );
+
+    private Base64Encoder() {}
+
+    /** Length of the encoding of {@code length} bytes. */
+    public static int encodedLength(int length) {
+        return ((length + 2) / 3) * 4;
+    }
+
+    public static String encode(byte[] data) {
+        return encode(data, 0, data.length);
+    }
+
+    public static String encode(byte[] data, int offset, int length) {
+        byte[] out = new byte[encodedLength(length)];
+        int end = offset + length;
+        int fullEnd = offset + (length / 3) * 3;
+        int o = 0;
+        for (int i = offset; i < fullEnd; i += 3) {
+            int bits = ((data[i] & 0xFF) << 16) | ((data[i + 1] & 0xFF) << 8) | (data[i + 2] & 0xFF);
+            out[o++] = ALPHABET[bits >>> 18];
+            out[o++] = ALPHABET[(bits >>> 12) & 0x3F];
+            out[o++] = ALPHABET[(bits >>> 6) & 0x3F];
+            out[o++] = ALPHABET[bits & 0x3F];
+        }
+        int remaining = end - fullEnd;
+        if (remaining > 0) {
+            int bits = (data[fullEnd] & 0xFF) << 16;
+            if (remaining == 2) {
+                bits |= (data[fullEnd + 1] & 0xFF) << 8;
+            }
+            out[o++] = ALPHABET[bits >>> 18];
+            out[o++] = ALPHABET[(bits >>> 12) & 0x3F];
+            out[o++] = remaining == 2 ? ALPHABET[(bits >>> 6) & 0x3F] : (byte) '=';
+            out[o] = '=';
+        }
+        return new String(out, StandardCharsets.US_ASCII);
+    }
+
+    /** Source bytes per chunk for a requested chunk size: a multiple of 3 (at least 3), so chunks carry no padding. */
+    public static int chunkStep(int chunkSize) {
+        return Math.max(3, chunkSize - chunkSize % 3);
+    }
+}
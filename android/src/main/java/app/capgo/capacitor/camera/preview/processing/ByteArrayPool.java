@@ -0,0 +1,68 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Size-keyed pool of byte arrays for per-capture / per-frame pixel buffers (NV21, planes), so steady-state
+ * processing does not allocate. A request is served by the smallest pooled array that is large enough (but
+ * at most twice the requested size); the pool keeps at most {@code maxBytes} and drops the largest arrays first.
+ */
+public final class ByteArrayPool {
+
+    // Do not hand out an array more than this many times larger than requested
+    private static final int MAX_SIZE_MULTIPLE = 2;
+
+    private final long maxBytes;
+    private final TreeMap<Integer, ArrayDeque<byte[]>> buckets = new TreeMap<>();
+    private long currentBytes = 0;
+
+    public ByteArrayPool(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /** Returns an array of at least {@code size} bytes; its content is unspecified. */
+    public synchronized byte[] get(int size) {
+        Map.Entry<Integer, ArrayDeque<byte[]>> entry = buckets.ceilingEntry(size);
+        if (entry == null || entry.getKey() > (long) size * MAX_SIZE_MULTIPLE) {
+            return new byte[size];
+        }
+        ArrayDeque<byte[]> bucket = entry.getValue();
+        byte[] array = bucket.pop();
+        if (bucket.isEmpty()) {
+            buckets.remove(entry.getKey());
+        }
+        currentBytes -= array.length;
+        return array;
+    }
+
+    /** Returns an array to the pool. The caller must not use it afterwards. */
+    public synchronized void put(byte[] array) {
+        if (array == null || array.length == 0 || array.length > maxBytes) {
+            return;
+        }
+        buckets.computeIfAbsent(array.length, (s) -> new ArrayDeque<>()).push(array);
+        currentBytes += array.length;
+        Iterator<Map.Entry<Integer, ArrayDeque<byte[]>>> it = buckets.descendingMap().entrySet().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            ArrayDeque<byte[]> bucket = it.next().getValue();
+            while (currentBytes > maxBytes && !bucket.isEmpty()) {
+                currentBytes -= bucket.pop().length;
+            }
+            if (bucket.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        buckets.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+}
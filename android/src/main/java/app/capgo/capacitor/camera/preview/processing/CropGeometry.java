@@ -0,0 +1,84 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+/**
+ * Crop-rectangle math for the photo post-processing pipeline.
+ * Rectangles are {@code int[] { x, y, width, height }} so this stays free of Android types.
+ */
+public final class CropGeometry {
+
+    private CropGeometry() {}
+
+    /** Largest centered rectangle of the image that matches {@code aspectRatio} (width / height). */
+    public static int[] centerCropToAspect(int imageWidth, int imageHeight, float aspectRatio) {
+        int targetWidth = imageWidth;
+        int targetHeight = imageHeight;
+        if (aspectRatio > 0 && imageWidth > 0 && imageHeight > 0) {
+            float imageRatio = (float) imageWidth / (float) imageHeight;
+            if (imageRatio > aspectRatio) {
+                // Image wider than target: crop width
+                targetWidth = Math.round(imageHeight * aspectRatio);
+            } else if (imageRatio < aspectRatio) {
+                // Image taller than target: crop height
+                targetHeight = Math.round(imageWidth / aspectRatio);
+            }
+        }
+        int x = Math.max(0, (imageWidth - targetWidth) / 2);
+        int y = Math.max(0, (imageHeight - targetHeight) / 2);
+        int width = Math.max(1, Math.min(targetWidth, imageWidth - x));
+        int height = Math.max(1, Math.min(targetHeight, imageHeight - y));
+        return new int[] { x, y, width, height };
+    }
+
+    /**
+     * Narrows {@code rect} to a normalized (0-1) sub-rectangle of itself.
+     * Values are clamped so the result always lies inside {@code rect} and is at least 1x1.
+     */
+    public static int[] applyNormalizedRegion(int[] rect, float x, float y, float width, float height) {
+        float nx = clamp(x, 0f, 1f);
+        float ny = clamp(y, 0f, 1f);
+        float nw = clamp(width, 0f, 1f - nx);
+        float nh = clamp(height, 0f, 1f - ny);
+
+        int left = rect[0] + Math.round(nx * rect[2]);
+        int top = rect[1] + Math.round(ny * rect[3]);
+        int w = Math.max(1, Math.round(nw * rect[2]));
+        int h = Math.max(1, Math.round(nh * rect[3]));
+        left = Math.min(left, rect[0] + rect[2] - 1);
+        top = Math.min(top, rect[1] + rect[3] - 1);
+        w = Math.min(w, rect[0] + rect[2] - left);
+        h = Math.min(h, rect[1] + rect[3] - top);
+        return new int[] { left, top, w, h };
+    }
+
+    /**
+     * Maps a rectangle expressed in upright (EXIF-rotated) image coordinates back to the stored, unrotated
+     * pixel grid, so it can be handed to a region decoder.
+     *
+     * @param rotationDegrees clockwise rotation that turns the stored image upright (0, 90, 180 or 270)
+     * @param orientedWidth width of the upright image
+     * @param orientedHeight height of the upright image
+     */
+    public static int[] orientedToStored(int[] rect, int rotationDegrees, int orientedWidth, int orientedHeight) {
+        int left = rect[0];
+        int top = rect[1];
+        int right = rect[0] + rect[2];
+        int bottom = rect[1] + rect[3];
+        switch (rotationDegrees) {
+            case 90:
+                // stored (x, y) -> upright (storedHeight - y, x); storedHeight == orientedWidth
+                return new int[] { top, orientedWidth - right, bottom - top, right - left };
+            case 180:
+                return new int[] { orientedWidth - right, orientedHeight - bottom, right - left, bottom - top };
+            case 270:
+                // stored (x, y) -> upright (y, storedWidth - x); storedWidth == orientedHeight
+                return new int[] { orientedHeight - bottom, left, bottom - top, right - left };
+            default:
+                return new int[] { left, top, right - left, bottom - top };
+        }
+    }
+
+    private static float clamp(float value, float min, float max) {
+        if (Float.isNaN(value)) return min;
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,255 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.imaging.Imaging;
+import org.apache.commons.imaging.ImagingException;
+import org.apache.commons.imaging.common.ImageMetadata;
+import org.apache.commons.imaging.common.RationalNumber;
+import org.apache.commons.imaging.formats.jpeg.JpegImageMetadata;
+import org.apache.commons.imaging.formats.jpeg.exif.ExifRewriter;
+import org.apache.commons.imaging.formats.tiff.TiffImageMetadata;
+import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
+import org.apache.commons.imaging.formats.tiff.constants.GpsTagConstants;
+import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
+import org.apache.commons.imaging.formats.tiff.taginfos.TagInfo;
+import org.apache.commons.imaging.formats.tiff.taginfos.TagInfoAscii;
+import org.apache.commons.imaging.formats.tiff.taginfos.TagInfoShort;
+import org.apache.commons.imaging.formats.tiff.taginfos.TagInfoShortOrLong;
+import org.apache.commons.imaging.formats.tiff.write.TiffImageWriterLossy;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputDirectory;
+import org.apache.commons.imaging.formats.tiff.write.TiffOutputSet;
+
+/**
+ * EXIF edits of a capture and their commons-imaging writers: the source EXIF is parsed once and the output is
+ * rewritten once. Kept free of Android types; failures are thrown and left to the caller to report.
+ */
+public final class ExifEdits {
+
+    /** Caller-writable ASCII tags, keyed by their EXIF name (which is also the ExifInterface tag name). */
+    private static final Map<String, WritableTag> WRITABLE_TAGS = new LinkedHashMap<>();
+
+    static {
+        WRITABLE_TAGS.put("ImageDescription", new WritableTag(TiffTagConstants.TIFF_TAG_IMAGE_DESCRIPTION, false));
+        WRITABLE_TAGS.put("Artist", new WritableTag(TiffTagConstants.TIFF_TAG_ARTIST, false));
+        WRITABLE_TAGS.put("Copyright", new WritableTag(TiffTagConstants.TIFF_TAG_COPYRIGHT, false));
+        WRITABLE_TAGS.put("Software", new WritableTag(TiffTagConstants.TIFF_TAG_SOFTWARE, false));
+        WRITABLE_TAGS.put("Make", new WritableTag(TiffTagConstants.TIFF_TAG_MAKE, false));
+        WRITABLE_TAGS.put("Model", new WritableTag(TiffTagConstants.TIFF_TAG_MODEL, false));
+        WRITABLE_TAGS.put("ImageUniqueID", new WritableTag(ExifTagConstants.EXIF_TAG_IMAGE_UNIQUE_ID, true));
+    }
+
+    private Integer orientation;
+    private Integer width;
+    private Integer height;
+    private Float gpsHeading;
+    private double[] gpsLatLong;
+    private String dateTimeOriginal;
+    private final Map<String, String> tags = new LinkedHashMap<>();
+
+    public static Set<String> getWritableTagNames() {
+        return Collections.unmodifiableSet(WRITABLE_TAGS.keySet());
+    }
+
+    public static boolean isJpeg(byte[] data) {
+        return data != null && data.length >= 3 && (data[0] & 0xFF) == 0xFF && (data[1] & 0xFF) == 0xD8 && (data[2] & 0xFF) == 0xFF;
+    }
+
+    public void setOrientation(int orientation) {
+        this.orientation = orientation;
+    }
+
+    public void setDimensions(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public void setGpsHeading(float degrees) {
+        this.gpsHeading = degrees;
+    }
+
+    public void setGpsLocation(double latitude, double longitude) {
+        this.gpsLatLong = new double[] { latitude, longitude };
+    }
+
+    public void setDateTimeOriginal(String dateTime) {
+        this.dateTimeOriginal = dateTime;
+    }
+
+    /** @return false (and nothing is set) when {@code name} is not writable or {@code value} is null */
+    public boolean putTag(String name, String value) {
+        if (!WRITABLE_TAGS.containsKey(name) || value == null) {
+            return false;
+        }
+        tags.put(name, value);
+        return true;
+    }
+
+    public Integer getOrientation() {
+        return orientation;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public Float getGpsHeading() {
+        return gpsHeading;
+    }
+
+    /** {@code { latitude, longitude }}, or null. */
+    public double[] getGpsLatLong() {
+        return gpsLatLong;
+    }
+
+    public String getDateTimeOriginal() {
+        return dateTimeOriginal;
+    }
+
+    /** Caller tags by EXIF name, in insertion order. */
+    public Map<String, String> getTags() {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    public boolean isEmpty() {
+        return (
+            orientation == null &&
+            width == null &&
+            height == null &&
+            gpsHeading == null &&
+            gpsLatLong == null &&
+            dateTimeOriginal == null &&
+            tags.isEmpty()
+        );
+    }
+
+    /**
+     * Returns the JPEG {@code target} carrying the EXIF of {@code exifSource} (any JPEG, possibly {@code target}
+     * itself) plus these edits. Image data is copied untouched.
+     */
+    public byte[] rewriteJpeg(byte[] target, byte[] exifSource) throws IOException {
+        if (!isJpeg(target)) {
+            throw new IOException("Not a JPEG");
+        }
+        TiffOutputSet outputSet = outputSetOf(Imaging.getMetadata(exifSource));
+        applyTo(outputSet);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(target.length + 64 * 1024);
+        new ExifRewriter().updateExifMetadataLossless(new ByteArrayInputStream(target), out, outputSet);
+        return out.toByteArray();
+    }
+
+    /** The EXIF of the JPEG {@code exifSource} plus these edits, as a standalone TIFF block. */
+    public byte[] toTiff(byte[] exifSource) throws IOException {
+        return toTiff(Imaging.getMetadata(exifSource));
+    }
+
+    /** Same as {@link #toTiff(byte[])}, reading the source EXIF from a file without loading the image. */
+    public byte[] toTiff(File exifSource) throws IOException {
+        return toTiff(Imaging.getMetadata(exifSource));
+    }
+
+    private byte[] toTiff(ImageMetadata metadata) throws IOException {
+        TiffOutputSet outputSet = outputSetOf(metadata);
+        applyTo(outputSet);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        new TiffImageWriterLossy(outputSet.byteOrder).write(out, outputSet);
+        return out.toByteArray();
+    }
+
+    private static TiffOutputSet outputSetOf(ImageMetadata metadata) throws ImagingException {
+        TiffImageMetadata exif = metadata instanceof JpegImageMetadata ? ((JpegImageMetadata) metadata).getExif() : null;
+        return exif != null ? exif.getOutputSet() : new TiffOutputSet();
+    }
+
+    private void applyTo(TiffOutputSet outputSet) throws ImagingException {
+        TiffOutputDirectory rootDir = outputSet.getOrCreateRootDirectory();
+        if (orientation != null) {
+            rootDir.removeField(TiffTagConstants.TIFF_TAG_ORIENTATION);
+            rootDir.add(TiffTagConstants.TIFF_TAG_ORIENTATION, orientation.shortValue());
+        }
+        if (width != null || height != null) {
+            TiffOutputDirectory exifDir = outputSet.getOrCreateExifDirectory();
+            if (width != null) {
+                replaceShortOrLongTag(rootDir, TiffTagConstants.TIFF_TAG_IMAGE_WIDTH, width);
+                replaceShortTag(exifDir, ExifTagConstants.EXIF_TAG_EXIF_IMAGE_WIDTH, width);
+            }
+            if (height != null) {
+                replaceShortOrLongTag(rootDir, TiffTagConstants.TIFF_TAG_IMAGE_LENGTH, height);
+                replaceShortTag(exifDir, ExifTagConstants.EXIF_TAG_EXIF_IMAGE_LENGTH, height);
+            }
+        }
+        if (gpsHeading != null) {
+            TiffOutputDirectory gpsDir = outputSet.getOrCreateGpsDirectory();
+            gpsDir.removeField(GpsTagConstants.GPS_TAG_GPS_IMG_DIRECTION_REF);
+            gpsDir.add(GpsTagConstants.GPS_TAG_GPS_IMG_DIRECTION_REF, GpsTagConstants.GPS_TAG_GPS_IMG_DIRECTION_REF_VALUE_MAGNETIC_NORTH);
+            gpsDir.removeField(GpsTagConstants.GPS_TAG_GPS_IMG_DIRECTION);
+            gpsDir.add(GpsTagConstants.GPS_TAG_GPS_IMG_DIRECTION, RationalNumber.valueOf(gpsHeading));
+        }
+        if (gpsLatLong != null) {
+            outputSet.setGpsInDegrees(gpsLatLong[1], gpsLatLong[0]);
+        }
+        if (dateTimeOriginal != null) {
+            rootDir.removeField(TiffTagConstants.TIFF_TAG_DATE_TIME);
+            rootDir.add(TiffTagConstants.TIFF_TAG_DATE_TIME, dateTimeOriginal);
+            TiffOutputDirectory exifDir = outputSet.getOrCreateExifDirectory();
+            exifDir.removeField(ExifTagConstants.EXIF_TAG_DATE_TIME_ORIGINAL);
+            exifDir.add(ExifTagConstants.EXIF_TAG_DATE_TIME_ORIGINAL, dateTimeOriginal);
+        }
+        for (Map.Entry<String, String> entry : tags.entrySet()) {
+            WritableTag tag = WRITABLE_TAGS.get(entry.getKey());
+            TiffOutputDirectory directory = tag.inExifDirectory ? outputSet.getOrCreateExifDirectory() : rootDir;
+            directory.removeField(tag.tiffTag);
+            directory.add(tag.tiffTag, fitAscii(tag.tiffTag, entry.getValue()));
+        }
+    }
+
+    /** Pads (with spaces) or truncates {@code value} for fixed-length ASCII tags such as the 33-byte ImageUniqueID. */
+    private static String fitAscii(TagInfoAscii tag, String value) {
+        if (tag.length == TagInfo.LENGTH_UNKNOWN || tag.length <= 0) {
+            return value;
+        }
+        // The writer appends the terminating NUL
+        int chars = tag.length - 1;
+        if (value.length() >= chars) {
+            return value.substring(0, chars);
+        }
+        StringBuilder padded = new StringBuilder(chars).append(value);
+        while (padded.length() < chars) {
+            padded.append(' ');
+        }
+        return padded.toString();
+    }
+
+    private static void replaceShortOrLongTag(TiffOutputDirectory directory, TagInfoShortOrLong tagInfo, int value)
+        throws ImagingException {
+        directory.removeField(tagInfo);
+        directory.add(tagInfo, value);
+    }
+
+    private static void replaceShortTag(TiffOutputDirectory directory, TagInfoShort tagInfo, int value) throws ImagingException {
+        int sanitizedValue = Math.max(0, Math.min(value, 0xFFFF));
+        directory.removeField(tagInfo);
+        directory.add(tagInfo, (short) sanitizedValue);
+    }
+
+    private static final class WritableTag {
+
+        final TagInfoAscii tiffTag;
+        final boolean inExifDirectory;
+
+        WritableTag(TagInfoAscii tiffTag, boolean inExifDirectory) {
+            this.tiffTag = tiffTag;
+            this.inExifDirectory = inExifDirectory;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Ring of the most recent analysis frames, upright and downscaled to NV21, so a capture can reach back to before
+ * the shutter was tapped. Every slot is a direct buffer allocated up front for the largest frame that fits the
+ * size bounds, and the number of slots is capped by a byte budget: the footprint is fixed while recording, and
+ * off the Java heap. Frames are recorded from a single thread (the analyzer); reads may come from any thread.
+ * Kept free of Android types.
+ */
+public final class FrameHistory {
+
+    /** A frame copied out of the history. */
+    public static final class Frame {
+
+        public final long timestampNanos;
+        /** How long before the requested moment's "now" the frame was taken. */
+        public final long ageNanos;
+        public final int width;
+        public final int height;
+
+        Frame(long timestampNanos, long ageNanos, int width, int height) {
+            this.timestampNanos = timestampNanos;
+            this.ageNanos = ageNanos;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private final int maxWidth;
+    private final int maxHeight;
+    private final int slotBytes;
+    private final ByteBuffer[] slots;
+    private final long[] timestamps;
+    private final int[] widths;
+    private final int[] heights;
+    private final boolean[] filled;
+    // Writer-only scratch: YuvTransform writes arrays, slots are direct buffers
+    private final byte[] scratch;
+    private final int[] wholeFrame = new int[4];
+    // Guarded by this
+    private int next;
+    private long newestTimestampNanos = -1;
+    private long newestReceivedAtNanos;
+    private long recorded;
+
+    /**
+     * @param maxFrames frames to keep at most
+     * @param maxWidth upright width frames are downscaled to fit
+     * @param maxHeight upright height frames are downscaled to fit
+     * @param maxBytes budget for all slots; fewer than {@code maxFrames} are kept when it is exceeded
+     * @throws IllegalArgumentException when the budget cannot hold a single frame
+     */
+    public FrameHistory(int maxFrames, int maxWidth, int maxHeight, long maxBytes) {
+        this.maxWidth = YuvTransform.evenSize(maxWidth);
+        this.maxHeight = YuvTransform.evenSize(maxHeight);
+        this.slotBytes = YuvTransform.nv21Size(this.maxWidth, this.maxHeight);
+        int capacity = (int) Math.min(maxFrames, maxBytes / slotBytes);
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                "A budget of " + maxBytes + " bytes cannot hold one " + this.maxWidth + "x" + this.maxHeight + " frame"
+            );
+        }
+        slots = new ByteBuffer[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = ByteBuffer.allocateDirect(slotBytes);
+        }
+        timestamps = new long[capacity];
+        widths = new int[capacity];
+        heights = new int[capacity];
+        filled = new boolean[capacity];
+        scratch = new byte[slotBytes];
+    }
+
+    /** Frames the ring holds once full. */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /** Bytes of one slot; {@link #copyClosest} needs an output array at least this large. */
+    public int getSlotBytes() {
+        return slotBytes;
+    }
+
+    /** Bytes held by all slots. */
+    public long getFootprintBytes() {
+        return (long) slotBytes * slots.length;
+    }
+
+    public int getMaxWidth() {
+        return maxWidth;
+    }
+
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+
+    public synchronized long getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Stores a frame in the oldest slot. Call from one thread only.
+     *
+     * @param timestampNanos sensor timestamp of the frame
+     * @param receivedAtNanos when the frame was received, on the clock later passed to {@link #copyClosest}
+     * @param rotationDegrees clockwise rotation that makes the frame upright
+     */
+    public void record(long timestampNanos, long receivedAtNanos, YuvTransform.Planes planes, int rotationDegrees) {
+        boolean swapsAxes = rotationDegrees == 90 || rotationDegrees == 270;
+        int orientedWidth = swapsAxes ? planes.height : planes.width;
+        int orientedHeight = swapsAxes ? planes.width : planes.height;
+        int[] target = ImageSizing.fitWithin(orientedWidth, orientedHeight, maxWidth, maxHeight);
+        // Never upscale; fitting within the bounds keeps every frame within a slot
+        int width = YuvTransform.evenSize(Math.min(target[0], orientedWidth));
+        int height = YuvTransform.evenSize(Math.min(target[1], orientedHeight));
+
+        wholeFrame[2] = planes.width;
+        wholeFrame[3] = planes.height;
+        YuvTransform.cropRotateScaleToNv21(planes, wholeFrame, rotationDegrees, width, height, scratch);
+
+        int slot;
+        synchronized (this) {
+            slot = next;
+            next = (next + 1) % slots.length;
+            // Readers skip the slot while it is rewritten
+            filled[slot] = false;
+        }
+        ByteBuffer buffer = slots[slot];
+        buffer.clear();
+        buffer.put(scratch, 0, YuvTransform.nv21Size(width, height));
+        synchronized (this) {
+            timestamps[slot] = timestampNanos;
+            widths[slot] = width;
+            heights[slot] = height;
+            filled[slot] = true;
+            newestTimestampNanos = timestampNanos;
+            newestReceivedAtNanos = receivedAtNanos;
+            recorded++;
+        }
+    }
+
+    /**
+     * Copies the frame closest to {@code offsetNanos} before {@code nowNanos} into {@code out} as NV21. "Now" is
+     * mapped onto sensor time through the newest frame, so the lag between exposure and delivery does not count.
+     *
+     * @param nowNanos the current time, on the clock used for {@code receivedAtNanos}
+     * @return null when no frame has been recorded yet
+     */
+    public synchronized Frame copyClosest(long offsetNanos, long nowNanos, byte[] out) {
+        if (out.length < slotBytes) {
+            throw new IllegalArgumentException("Output buffer too small");
+        }
+        if (newestTimestampNanos < 0) {
+            return null;
+        }
+        long sensorNow = newestTimestampNanos + Math.max(0, nowNanos - newestReceivedAtNanos);
+        long target = sensorNow - offsetNanos;
+        int best = -1;
+        for (int i = 0; i < slots.length; i++) {
+            if (filled[i] && (best < 0 || Math.abs(timestamps[i] - target) < Math.abs(timestamps[best] - target))) {
+                best = i;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        // Bulk read through a duplicate, so the slot's own position stays the writer's
+        ByteBuffer source = slots[best].duplicate();
+        source.position(0);
+        source.get(out, 0, YuvTransform.nv21Size(widths[best], heights[best]));
+        return new Frame(timestamps[best], sensorNow - timestamps[best], widths[best], heights[best]);
+    }
+}
@@ -0,0 +1,95 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+/**
+ * Frame-rate cap and drop accounting for analysis frames, driven by sensor timestamps. Frames the analyzer never
+ * saw (dropped upstream because it was still busy) are estimated from gaps larger than the sensor frame period.
+ * Kept free of Android types.
+ */
+public final class FramePacer {
+
+    // Gaps per window over which the sensor frame period is re-estimated (it changes with exposure)
+    private static final int PERIOD_WINDOW = 30;
+
+    private final long minIntervalNanos;
+    private long lastSeenNanos = -1;
+    private long lastAdmittedNanos = -1;
+    private long framePeriodNanos = 0;
+    private long windowMinGapNanos = Long.MAX_VALUE;
+    private int windowGaps = 0;
+    private long received;
+    private long admitted;
+    private long skipped;
+    private long dropped;
+
+    /** @param maxFps frames per second to admit at most; 0 or less admits every frame */
+    public FramePacer(double maxFps) {
+        this.minIntervalNanos = maxFps > 0 ? (long) (1_000_000_000L / maxFps) : 0;
+    }
+
+    /**
+     * Records a frame the analyzer received and decides whether to process it.
+     *
+     * @return false when the frame comes too soon after the last admitted one
+     */
+    public synchronized boolean admit(long timestampNanos) {
+        received++;
+        if (lastSeenNanos >= 0 && timestampNanos > lastSeenNanos) {
+            recordGap(timestampNanos - lastSeenNanos);
+        }
+        lastSeenNanos = timestampNanos;
+        if (lastAdmittedNanos >= 0 && minIntervalNanos > 0) {
+            // Half a sensor period of slack, so a 15 fps cap on a 30 fps sensor keeps every other frame despite jitter
+            long slack = Math.min(framePeriodNanos, minIntervalNanos) / 2;
+            if (timestampNanos - lastAdmittedNanos < minIntervalNanos - slack) {
+                skipped++;
+                return false;
+            }
+        }
+        lastAdmittedNanos = timestampNanos;
+        admitted++;
+        return true;
+    }
+
+    private void recordGap(long gap) {
+        if (framePeriodNanos == 0) {
+            framePeriodNanos = gap;
+        } else {
+            long missed = Math.round((double) gap / framePeriodNanos) - 1;
+            if (missed > 0) {
+                dropped += missed;
+            }
+        }
+        windowMinGapNanos = Math.min(windowMinGapNanos, gap);
+        if (++windowGaps == PERIOD_WINDOW) {
+            framePeriodNanos = windowMinGapNanos;
+            windowMinGapNanos = Long.MAX_VALUE;
+            windowGaps = 0;
+        } else if (gap < framePeriodNanos) {
+            framePeriodNanos = gap;
+        }
+    }
+
+    /** Frames handed to {@link #admit}. */
+    public synchronized long getReceived() {
+        return received;
+    }
+
+    public synchronized long getAdmitted() {
+        return admitted;
+    }
+
+    /** Frames turned away by the frame-rate cap. */
+    public synchronized long getSkipped() {
+        return skipped;
+    }
+
+    /** Estimated sensor frames that never reached {@link #admit} because the analyzer was still busy. */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /** Current estimate of the sensor frame period, or 0 before two frames were seen. */
+    public synchronized long getFramePeriodNanos() {
+        return framePeriodNanos;
+    }
+}
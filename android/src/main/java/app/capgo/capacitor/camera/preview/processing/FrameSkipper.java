@@ -0,0 +1,74 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+/**
+ * Per-consumer frame skipping and timing for analysis frames. A consumer whose average run time exceeds its
+ * per-frame budget only runs on every {@code n}-th frame, with {@code n} chosen so its average cost per frame fits
+ * the budget again; {@code n} falls back as the consumer speeds up. Kept free of Android types.
+ */
+public final class FrameSkipper {
+
+    // Weight of the newest run in the moving average
+    private static final double AVERAGE_WEIGHT = 0.2;
+
+    private final double budgetMs;
+    private double averageMs;
+    private int stride = 1;
+    private long frames;
+    private long processed;
+    private long skipped;
+    private double lastMs;
+    private double maxMs;
+
+    /** @param budgetMs time the consumer may spend per frame on average */
+    public FrameSkipper(double budgetMs) {
+        this.budgetMs = Math.max(0.1, budgetMs);
+    }
+
+    /** Counts a frame and decides whether the consumer runs on it. */
+    public synchronized boolean shouldProcess() {
+        boolean run = frames++ % stride == 0;
+        if (!run) {
+            skipped++;
+        }
+        return run;
+    }
+
+    /** Records the duration of a run and adjusts the stride. */
+    public synchronized void record(double elapsedMs) {
+        processed++;
+        lastMs = elapsedMs;
+        maxMs = Math.max(maxMs, elapsedMs);
+        averageMs = processed == 1 ? elapsedMs : averageMs + AVERAGE_WEIGHT * (elapsedMs - averageMs);
+        stride = Math.max(1, (int) Math.ceil(averageMs / budgetMs));
+    }
+
+    public double getBudgetMs() {
+        return budgetMs;
+    }
+
+    /** Moving average of the run time, in milliseconds. */
+    public synchronized double getAverageMs() {
+        return averageMs;
+    }
+
+    public synchronized double getLastMs() {
+        return lastMs;
+    }
+
+    public synchronized double getMaxMs() {
+        return maxMs;
+    }
+
+    /** The consumer currently runs on one frame out of this many. */
+    public synchronized int getStride() {
+        return stride;
+    }
+
+    public synchronized long getProcessed() {
+        return processed;
+    }
+
+    public synchronized long getSkipped() {
+        return skipped;
+    }
+}
@@ -0,0 +1,61 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+/**
+ * Size math shared by the photo post-processing pipeline.
+ * Kept free of Android types so it can be exercised on a plain JVM.
+ */
+public final class ImageSizing {
+
+    private ImageSizing() {}
+
+    /**
+     * Computes the output size of an image fitted within the given maximums while keeping its aspect ratio.
+     * When both maximums are given the image fits inside both; when only one is given the other side follows
+     * the aspect ratio. Returns the source size when neither maximum is provided.
+     *
+     * @return {@code int[] { width, height }}
+     */
+    public static int[] fitWithin(int sourceWidth, int sourceHeight, Integer maxWidth, Integer maxHeight) {
+        if (sourceWidth <= 0 || sourceHeight <= 0 || (maxWidth == null && maxHeight == null)) {
+            return new int[] { sourceWidth, sourceHeight };
+        }
+        float sourceAspectRatio = (float) sourceWidth / sourceHeight;
+
+        int targetWidth;
+        int targetHeight;
+        if (maxWidth != null && maxHeight != null) {
+            float maxAspectRatio = (float) maxWidth / maxHeight;
+            if (sourceAspectRatio > maxAspectRatio) {
+                // Source is wider - fit by width
+                targetWidth = maxWidth;
+                targetHeight = (int) (maxWidth / sourceAspectRatio);
+            } else {
+                // Source is taller - fit by height
+                targetWidth = (int) (maxHeight * sourceAspectRatio);
+                targetHeight = maxHeight;
+            }
+        } else if (maxWidth != null) {
+            targetWidth = maxWidth;
+            targetHeight = (int) (maxWidth / sourceAspectRatio);
+        } else {
+            targetWidth = (int) (maxHeight * sourceAspectRatio);
+            targetHeight = maxHeight;
+        }
+        return new int[] { Math.max(1, targetWidth), Math.max(1, targetHeight) };
+    }
+
+    /**
+     * Largest power-of-two sample size that still decodes at least {@code targetWidth x targetHeight} pixels,
+     * so the final scale step only ever shrinks the decoded image.
+     */
+    public static int calculateInSampleSize(int sourceWidth, int sourceHeight, int targetWidth, int targetHeight) {
+        int sampleSize = 1;
+        if (sourceWidth <= 0 || sourceHeight <= 0 || targetWidth <= 0 || targetHeight <= 0) {
+            return sampleSize;
+        }
+        while (sourceWidth / (sampleSize * 2) >= targetWidth && sourceHeight / (sampleSize * 2) >= targetHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
@@ -0,0 +1,597 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lossless crop of baseline JPEGs in the DCT domain (the same idea as {@code jpegtran -crop}).
+ * <p>
+ * The entropy-coded data is Huffman-decoded block by block without any IDCT; blocks inside the crop are
+ * re-emitted unchanged, so no generation loss occurs. The crop origin is snapped down to the MCU grid
+ * (8 or 16 px depending on chroma subsampling) while the right/bottom edges are kept exact. All of this is on the
+ * stored grid, before any EXIF rotation; restart intervals are dropped, the output being a single run of MCUs.
+ * AC coefficients are copied with the source Huffman tables; DC differences change at the new row
+ * starts, so DC is re-coded with the standard Annex K tables, which cover every 8-bit category.
+ * <p>
+ * Only single-scan baseline/extended sequential Huffman JPEGs (what camera HALs produce) are supported;
+ * anything else raises {@link IOException} so callers can fall back.
+ */
+public final class JpegLosslessCrop {
+
+    /** Cropped JPEG plus the rectangle actually kept, in stored (unrotated) pixel coordinates. */
+    public static final class Result {
+
+        public final byte[] jpeg;
+        public final int x;
+        public final int y;
+        public final int width;
+        public final int height;
+
+        Result(byte[] jpeg, int x, int y, int width, int height) {
+            this.jpeg = jpeg;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private static final int LOOKAHEAD = 9;
+
+    // ITU T.81 Annex K.3 typical DC tables (counts for code lengths 1..16, then symbols)
+    private static final int[] STD_DC_LUMA_COUNTS = { 0, 1, 5, 1, 1, 1, 1, 1, 1, 0, 0, 0, 0, 0, 0, 0 };
+    private static final int[] STD_DC_CHROMA_COUNTS = { 0, 3, 1, 1, 1, 1, 1, 1, 1, 1, 1, 0, 0, 0, 0, 0 };
+    private static final int[] STD_DC_VALUES = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11 };
+
+    private JpegLosslessCrop() {}
+
+    /** MCU width and height of a JPEG ({@code int[] { w, h }}), i.e. the alignment a lossless crop snaps to. */
+    public static int[] mcuSize(byte[] jpeg) throws IOException {
+        Frame frame = parse(jpeg).frame;
+        return new int[] { frame.mcuWidth, frame.mcuHeight };
+    }
+
+    /**
+     * Crops {@code jpeg} to the given rectangle (stored pixel coordinates). The rectangle is clamped to the image,
+     * its origin snapped down to the MCU grid, and the exact rectangle kept is reported in the result.
+     */
+    public static Result crop(byte[] jpeg, int x, int y, int width, int height) throws IOException {
+        Parsed parsed = parse(jpeg);
+        Frame frame = parsed.frame;
+
+        int left = clamp(x, 0, frame.width - 1);
+        int top = clamp(y, 0, frame.height - 1);
+        int right = clamp(x + Math.max(1, width), left + 1, frame.width);
+        int bottom = clamp(y + Math.max(1, height), top + 1, frame.height);
+        left = (left / frame.mcuWidth) * frame.mcuWidth;
+        top = (top / frame.mcuHeight) * frame.mcuHeight;
+        int outWidth = right - left;
+        int outHeight = bottom - top;
+
+        int mcusX = ceilDiv(frame.width, frame.mcuWidth);
+        int mcusY = ceilDiv(frame.height, frame.mcuHeight);
+        int firstCol = left / frame.mcuWidth;
+        int lastCol = ceilDiv(right, frame.mcuWidth) - 1;
+        int firstRow = top / frame.mcuHeight;
+        int lastRow = ceilDiv(bottom, frame.mcuHeight) - 1;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(jpeg.length);
+        out.write(0xFF);
+        out.write(0xD8);
+        for (byte[] segment : parsed.preserved) {
+            out.write(segment, 0, segment.length);
+        }
+        writeFrameHeader(out, parsed, outWidth, outHeight);
+        HuffmanTable stdDcLuma = new HuffmanTable(STD_DC_LUMA_COUNTS, STD_DC_VALUES);
+        HuffmanTable stdDcChroma = new HuffmanTable(STD_DC_CHROMA_COUNTS, STD_DC_VALUES);
+        writeHuffmanTables(out, parsed, stdDcLuma, stdDcChroma);
+        writeScanHeader(out, parsed);
+
+        int components = frame.componentIds.length;
+        HuffmanTable[] dcIn = new HuffmanTable[components];
+        HuffmanTable[] acIn = new HuffmanTable[components];
+        HuffmanTable[] dcOut = new HuffmanTable[components];
+        for (int c = 0; c < components; c++) {
+            dcIn[c] = parsed.dcTables[parsed.scanDcTable[c]];
+            acIn[c] = parsed.acTables[parsed.scanAcTable[c]];
+            dcOut[c] = c == 0 ? stdDcLuma : stdDcChroma;
+            if (dcIn[c] == null || acIn[c] == null) {
+                throw new IOException("Scan references an undefined Huffman table");
+            }
+        }
+
+        BitReader reader = new BitReader(jpeg, parsed.scanDataOffset);
+        BitWriter writer = new BitWriter(out);
+        int[] predIn = new int[components];
+        int[] predOut = new int[components];
+        int mcuCount = 0;
+
+        for (int my = 0; my <= lastRow && my < mcusY; my++) {
+            for (int mx = 0; mx < mcusX; mx++) {
+                if (parsed.restartInterval > 0 && mcuCount > 0 && mcuCount % parsed.restartInterval == 0) {
+                    reader.restart();
+                    Arrays.fill(predIn, 0);
+                }
+                boolean keep = my >= firstRow && mx >= firstCol && mx <= lastCol;
+                for (int c = 0; c < components; c++) {
+                    int blocks = frame.blocksH[c] * frame.blocksV[c];
+                    for (int b = 0; b < blocks; b++) {
+                        int category = decode(reader, dcIn[c]);
+                        int diff = category == 0 ? 0 : extend(reader.read(category), category);
+                        predIn[c] += diff;
+                        if (keep) {
+                            int outDiff = predIn[c] - predOut[c];
+                            predOut[c] = predIn[c];
+                            int outCategory = category(outDiff);
+                            writer.write(dcOut[c].codes[outCategory], dcOut[c].sizes[outCategory]);
+                            if (outCategory > 0) {
+                                writer.write(outDiff < 0 ? outDiff - 1 : outDiff, outCategory);
+                            }
+                        }
+                        for (int k = 1; k < 64;) {
+                            int rs = decode(reader, acIn[c]);
+                            int run = rs >> 4;
+                            int size = rs & 0x0F;
+                            int extra = size > 0 ? reader.read(size) : 0;
+                            if (keep) {
+                                writer.write(acIn[c].codes[rs], acIn[c].sizes[rs]);
+                                if (size > 0) {
+                                    writer.write(extra, size);
+                                }
+                            }
+                            if (size == 0) {
+                                if (run == 15) {
+                                    k += 16;
+                                    continue;
+                                }
+                                break; // EOB
+                            }
+                            k += run + 1;
+                        }
+                    }
+                }
+                mcuCount++;
+            }
+        }
+        writer.flush();
+        out.write(0xFF);
+        out.write(0xD9);
+        return new Result(out.toByteArray(), left, top, outWidth, outHeight);
+    }
+
+    private static final class Frame {
+
+        int marker;
+        int precision;
+        int width;
+        int height;
+        int[] componentIds;
+        int[] samplingH;
+        int[] samplingV;
+        int[] quantTables;
+        int[] blocksH;
+        int[] blocksV;
+        int mcuWidth;
+        int mcuHeight;
+    }
+
+    private static final class Parsed {
+
+        final List<byte[]> preserved = new ArrayList<>();
+        final HuffmanTable[] dcTables = new HuffmanTable[4];
+        final HuffmanTable[] acTables = new HuffmanTable[4];
+        Frame frame;
+        int restartInterval;
+        int[] scanDcTable;
+        int[] scanAcTable;
+        int scanDataOffset;
+    }
+
+    private static Parsed parse(byte[] jpeg) throws IOException {
+        if (jpeg == null || jpeg.length < 4 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != 0xD8) {
+            throw new IOException("Not a JPEG");
+        }
+        Parsed parsed = new Parsed();
+        int pos = 2;
+        while (pos + 4 <= jpeg.length) {
+            if ((jpeg[pos] & 0xFF) != 0xFF) {
+                throw new IOException("Expected marker at offset " + pos);
+            }
+            int marker = jpeg[pos + 1] & 0xFF;
+            if (marker == 0xFF) {
+                pos++; // fill byte
+                continue;
+            }
+            int length = ((jpeg[pos + 2] & 0xFF) << 8) | (jpeg[pos + 3] & 0xFF);
+            int payload = pos + 4;
+            int next = pos + 2 + length;
+            if (length < 2 || next > jpeg.length) {
+                throw new IOException("Truncated segment 0x" + Integer.toHexString(marker));
+            }
+            if (marker == 0xC0 || marker == 0xC1) {
+                parsed.frame = parseFrame(jpeg, payload, marker);
+            } else if (marker == 0xC4) {
+                parseHuffmanTables(jpeg, payload, next, parsed);
+            } else if (marker == 0xDD) {
+                parsed.restartInterval = ((jpeg[payload] & 0xFF) << 8) | (jpeg[payload + 1] & 0xFF);
+            } else if (marker == 0xDA) {
+                parseScan(jpeg, payload, parsed);
+                parsed.scanDataOffset = next;
+                return parsed;
+            } else if (marker == 0xDB || marker == 0xFE || (marker >= 0xE0 && marker <= 0xEF)) {
+                if (!isMultiPictureSegment(jpeg, marker, payload, next)) {
+                    parsed.preserved.add(Arrays.copyOfRange(jpeg, pos, next));
+                }
+            } else {
+                throw new IOException("Unsupported JPEG marker 0x" + Integer.toHexString(marker));
+            }
+            pos = next;
+        }
+        throw new IOException("No scan found");
+    }
+
+    private static Frame parseFrame(byte[] jpeg, int p, int marker) throws IOException {
+        Frame frame = new Frame();
+        frame.marker = marker;
+        frame.precision = jpeg[p] & 0xFF;
+        frame.height = ((jpeg[p + 1] & 0xFF) << 8) | (jpeg[p + 2] & 0xFF);
+        frame.width = ((jpeg[p + 3] & 0xFF) << 8) | (jpeg[p + 4] & 0xFF);
+        int components = jpeg[p + 5] & 0xFF;
+        if (frame.precision != 8 || frame.width == 0 || frame.height == 0 || components == 0 || components > 4) {
+            throw new IOException("Unsupported frame header");
+        }
+        frame.componentIds = new int[components];
+        frame.samplingH = new int[components];
+        frame.samplingV = new int[components];
+        frame.quantTables = new int[components];
+        frame.blocksH = new int[components];
+        frame.blocksV = new int[components];
+        int hMax = 1;
+        int vMax = 1;
+        for (int c = 0; c < components; c++) {
+            int o = p + 6 + c * 3;
+            frame.componentIds[c] = jpeg[o] & 0xFF;
+            frame.samplingH[c] = (jpeg[o + 1] >> 4) & 0x0F;
+            frame.samplingV[c] = jpeg[o + 1] & 0x0F;
+            frame.quantTables[c] = jpeg[o + 2] & 0xFF;
+            hMax = Math.max(hMax, frame.samplingH[c]);
+            vMax = Math.max(vMax, frame.samplingV[c]);
+        }
+        if (components == 1) {
+            // Non-interleaved scan: one 8x8 block per MCU regardless of the declared sampling factors
+            hMax = 1;
+            vMax = 1;
+            frame.blocksH[0] = 1;
+            frame.blocksV[0] = 1;
+        } else {
+            for (int c = 0; c < components; c++) {
+                frame.blocksH[c] = frame.samplingH[c];
+                frame.blocksV[c] = frame.samplingV[c];
+            }
+        }
+        frame.mcuWidth = 8 * hMax;
+        frame.mcuHeight = 8 * vMax;
+        return frame;
+    }
+
+    private static void parseHuffmanTables(byte[] jpeg, int p, int end, Parsed parsed) throws IOException {
+        while (p < end) {
+            int tableClass = (jpeg[p] >> 4) & 0x0F;
+            int tableId = jpeg[p] & 0x0F;
+            if (tableId > 3 || tableClass > 1) {
+                throw new IOException("Invalid Huffman table id");
+            }
+            int[] counts = new int[16];
+            int total = 0;
+            for (int i = 0; i < 16; i++) {
+                counts[i] = jpeg[p + 1 + i] & 0xFF;
+                total += counts[i];
+            }
+            if (p + 17 + total > end) {
+                throw new IOException("Truncated Huffman table");
+            }
+            int[] values = new int[total];
+            for (int i = 0; i < total; i++) {
+                values[i] = jpeg[p + 17 + i] & 0xFF;
+            }
+            HuffmanTable table = new HuffmanTable(counts, values);
+            if (tableClass == 0) {
+                parsed.dcTables[tableId] = table;
+            } else {
+                parsed.acTables[tableId] = table;
+            }
+            p += 17 + total;
+        }
+    }
+
+    private static void parseScan(byte[] jpeg, int p, Parsed parsed) throws IOException {
+        Frame frame = parsed.frame;
+        if (frame == null) {
+            throw new IOException("Scan before frame header");
+        }
+        int components = jpeg[p] & 0xFF;
+        if (components != frame.componentIds.length) {
+            throw new IOException("Multi-scan JPEGs are not supported");
+        }
+        parsed.scanDcTable = new int[components];
+        parsed.scanAcTable = new int[components];
+        for (int i = 0; i < components; i++) {
+            int id = jpeg[p + 1 + i * 2] & 0xFF;
+            if (id != frame.componentIds[i]) {
+                throw new IOException("Scan component order differs from frame");
+            }
+            parsed.scanDcTable[i] = (jpeg[p + 2 + i * 2] >> 4) & 0x03;
+            parsed.scanAcTable[i] = jpeg[p + 2 + i * 2] & 0x03;
+        }
+        int o = p + 1 + components * 2;
+        int ss = jpeg[o] & 0xFF;
+        int se = jpeg[o + 1] & 0xFF;
+        int approximation = jpeg[o + 2] & 0xFF;
+        if (ss != 0 || se != 63 || approximation != 0) {
+            throw new IOException("Progressive scans are not supported");
+        }
+    }
+
+    /** APP2 "MPF" segments hold offsets to appended images that a crop would invalidate. */
+    private static boolean isMultiPictureSegment(byte[] jpeg, int marker, int payload, int end) {
+        return (
+            marker == 0xE2 &&
+            end - payload >= 4 &&
+            jpeg[payload] == 'M' &&
+            jpeg[payload + 1] == 'P' &&
+            jpeg[payload + 2] == 'F' &&
+            jpeg[payload + 3] == 0
+        );
+    }
+
+    private static void writeFrameHeader(ByteArrayOutputStream out, Parsed parsed, int width, int height) {
+        Frame frame = parsed.frame;
+        int components = frame.componentIds.length;
+        writeMarker(out, frame.marker, 8 + components * 3);
+        out.write(frame.precision);
+        out.write(height >> 8);
+        out.write(height & 0xFF);
+        out.write(width >> 8);
+        out.write(width & 0xFF);
+        out.write(components);
+        for (int c = 0; c < components; c++) {
+            out.write(frame.componentIds[c]);
+            out.write((frame.samplingH[c] << 4) | frame.samplingV[c]);
+            out.write(frame.quantTables[c]);
+        }
+    }
+
+    private static void writeHuffmanTables(ByteArrayOutputStream out, Parsed parsed, HuffmanTable dcLuma, HuffmanTable dcChroma) {
+        int components = parsed.frame.componentIds.length;
+        List<Integer> acIds = new ArrayList<>();
+        for (int c = 0; c < components; c++) {
+            if (!acIds.contains(parsed.scanAcTable[c])) {
+                acIds.add(parsed.scanAcTable[c]);
+            }
+        }
+        int length = 2 + (17 + dcLuma.values.length);
+        if (components > 1) {
+            length += 17 + dcChroma.values.length;
+        }
+        for (int id : acIds) {
+            length += 17 + parsed.acTables[id].values.length;
+        }
+        writeMarker(out, 0xC4, length);
+        writeTable(out, 0x00, dcLuma);
+        if (components > 1) {
+            writeTable(out, 0x01, dcChroma);
+        }
+        for (int id : acIds) {
+            writeTable(out, 0x10 | id, parsed.acTables[id]);
+        }
+    }
+
+    private static void writeTable(ByteArrayOutputStream out, int classAndId, HuffmanTable table) {
+        out.write(classAndId);
+        for (int i = 1; i <= 16; i++) {
+            out.write(table.counts[i]);
+        }
+        for (int value : table.values) {
+            out.write(value);
+        }
+    }
+
+    private static void writeScanHeader(ByteArrayOutputStream out, Parsed parsed) {
+        Frame frame = parsed.frame;
+        int components = frame.componentIds.length;
+        writeMarker(out, 0xDA, 6 + components * 2);
+        out.write(components);
+        for (int c = 0; c < components; c++) {
+            out.write(frame.componentIds[c]);
+            out.write(((c == 0 ? 0 : 1) << 4) | parsed.scanAcTable[c]);
+        }
+        out.write(0); // Ss
+        out.write(63); // Se
+        out.write(0); // Ah/Al
+    }
+
+    private static void writeMarker(ByteArrayOutputStream out, int marker, int length) {
+        out.write(0xFF);
+        out.write(marker);
+        out.write(length >> 8);
+        out.write(length & 0xFF);
+    }
+
+    private static int decode(BitReader reader, HuffmanTable table) throws IOException {
+        int entry = table.lookup[reader.peek(LOOKAHEAD)];
+        if (entry != 0) {
+            reader.skip(entry >> 8);
+            return entry & 0xFF;
+        }
+        for (int len = LOOKAHEAD + 1; len <= 16; len++) {
+            int code = reader.peek(len);
+            if (table.maxCode[len] >= 0 && code >= table.minCode[len] && code <= table.maxCode[len]) {
+                reader.skip(len);
+                return table.values[table.valPtr[len] + code - table.minCode[len]];
+            }
+        }
+        throw new IOException("Corrupt Huffman data");
+    }
+
+    private static int extend(int bits, int size) {
+        return bits < (1 << (size - 1)) ? bits - (1 << size) + 1 : bits;
+    }
+
+    private static int category(int value) {
+        return value == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(Math.abs(value));
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return (a + b - 1) / b;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static final class HuffmanTable {
+
+        final int[] counts = new int[17];
+        final int[] values;
+        final int[] minCode = new int[17];
+        final int[] maxCode = new int[17];
+        final int[] valPtr = new int[17];
+        final int[] lookup = new int[1 << LOOKAHEAD];
+        final int[] codes = new int[256];
+        final int[] sizes = new int[256];
+
+        HuffmanTable(int[] counts16, int[] values) {
+            this.values = values;
+            System.arraycopy(counts16, 0, counts, 1, 16);
+            int code = 0;
+            int k = 0;
+            for (int len = 1; len <= 16; len++) {
+                valPtr[len] = k;
+                minCode[len] = code;
+                maxCode[len] = counts[len] > 0 ? code + counts[len] - 1 : -1;
+                for (int i = 0; i < counts[len]; i++) {
+                    int symbol = values[k];
+                    codes[symbol] = code;
+                    sizes[symbol] = len;
+                    if (len <= LOOKAHEAD) {
+                        int shift = LOOKAHEAD - len;
+                        int base = code << shift;
+                        for (int fill = 0; fill < (1 << shift); fill++) {
+                            lookup[base + fill] = (len << 8) | symbol;
+                        }
+                    }
+                    code++;
+                    k++;
+                }
+                code <<= 1;
+            }
+        }
+    }
+
+    /** Reads entropy-coded bits, removing 0xFF00 byte stuffing and stopping at markers. */
+    private static final class BitReader {
+
+        private final byte[] data;
+        private int pos;
+        private long buffer;
+        private int bits;
+        private boolean markerHit;
+
+        BitReader(byte[] data, int pos) {
+            this.data = data;
+            this.pos = pos;
+        }
+
+        private void fill() {
+            while (bits <= 56) {
+                int b = 0;
+                if (!markerHit && pos < data.length) {
+                    b = data[pos] & 0xFF;
+                    if (b == 0xFF) {
+                        int next = pos + 1 < data.length ? data[pos + 1] & 0xFF : 0xD9;
+                        if (next == 0x00) {
+                            pos += 2;
+                        } else {
+                            markerHit = true;
+                            b = 0;
+                        }
+                    } else {
+                        pos++;
+                    }
+                }
+                buffer = (buffer << 8) | b;
+                bits += 8;
+            }
+        }
+
+        int peek(int n) {
+            if (bits < n) fill();
+            return (int) ((buffer >>> (bits - n)) & ((1L << n) - 1));
+        }
+
+        void skip(int n) {
+            bits -= n;
+        }
+
+        int read(int n) {
+            int value = peek(n);
+            bits -= n;
+            return value;
+        }
+
+        /** Drops the padding bits of the current interval and consumes the following RSTn marker. */
+        void restart() throws IOException {
+            buffer = 0;
+            bits = 0;
+            markerHit = false;
+            while (pos + 1 < data.length) {
+                int b = data[pos] & 0xFF;
+                int next = data[pos + 1] & 0xFF;
+                if (b == 0xFF && next >= 0xD0 && next <= 0xD7) {
+                    pos += 2;
+                    return;
+                }
+                if (b == 0xFF && next != 0x00 && next != 0xFF) {
+                    break;
+                }
+                pos++;
+            }
+            throw new IOException("Missing restart marker");
+        }
+    }
+
+    /** Writes entropy-coded bits with 0xFF00 byte stuffing. */
+    private static final class BitWriter {
+
+        private final ByteArrayOutputStream out;
+        private long buffer;
+        private int bits;
+
+        BitWriter(ByteArrayOutputStream out) {
+            this.out = out;
+        }
+
+        void write(int value, int n) {
+            buffer = (buffer << n) | (value & ((1L << n) - 1));
+            bits += n;
+            while (bits >= 8) {
+                int b = (int) (buffer >>> (bits - 8)) & 0xFF;
+                out.write(b);
+                if (b == 0xFF) {
+                    out.write(0);
+                }
+                bits -= 8;
+            }
+        }
+
+        /** Pads the last byte with 1-bits as required by the spec. */
+        void flush() {
+            if (bits > 0) {
+                write((1 << (8 - bits)) - 1, 8 - bits);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+/**
+ * Keeps capture post-processing within a heap budget. A decode plan is, in order of preference: decode the region at
+ * the sample size the output needs and scale it in one pass; decode it in horizontal bands drawn straight into the
+ * output bitmap; or shrink the output until one of those fits. Kept free of Android types.
+ */
+public final class MemoryPlanner {
+
+    public static final int ARGB_BYTES_PER_PIXEL = 4;
+
+    /** The decoded region and the output bitmap are held at the same time. */
+    public static final String STRATEGY_DIRECT = "direct";
+    /** The region is decoded band by band; only the output bitmap and one band are held. */
+    public static final String STRATEGY_TILED = "tiled";
+
+    // Bands smaller than this (in decoded rows) cost more in decoder setup than they save
+    private static final int MIN_BAND_ROWS = 64;
+    // Each downscale step keeps this fraction of the output pixels
+    private static final double DOWNSCALE_STEP = 0.8;
+
+    private MemoryPlanner() {}
+
+    /** How to produce a {@code width x height} output from a source region. */
+    public static final class Plan {
+
+        public final String strategy;
+        /** Power-of-two decode sample size. */
+        public final int sampleSize;
+        public final int width;
+        public final int height;
+        /** Source rows (a multiple of {@link #sampleSize}) decoded per band; 0 when not tiled. */
+        public final int bandSourceRows;
+        public final long estimatedBytes;
+        public final long budgetBytes;
+        /** The output is smaller than requested because the requested size did not fit the budget. */
+        public final boolean degraded;
+
+        Plan(
+            String strategy,
+            int sampleSize,
+            int width,
+            int height,
+            int bandSourceRows,
+            long estimatedBytes,
+            long budgetBytes,
+            boolean degraded
+        ) {
+            this.strategy = strategy;
+            this.sampleSize = sampleSize;
+            this.width = width;
+            this.height = height;
+            this.bandSourceRows = bandSourceRows;
+            this.estimatedBytes = estimatedBytes;
+            this.budgetBytes = budgetBytes;
+            this.degraded = degraded;
+        }
+
+        public boolean isTiled() {
+            return STRATEGY_TILED.equals(strategy);
+        }
+    }
+
+    /**
+     * Plans the decode of a {@code sourceWidth x sourceHeight} region into a {@code targetWidth x targetHeight}
+     * ARGB bitmap. Both sizes are on the same (stored) pixel grid: bands run along its rows.
+     */
+    public static Plan planDecode(int sourceWidth, int sourceHeight, int targetWidth, int targetHeight, long budgetBytes) {
+        int width = Math.max(1, targetWidth);
+        int height = Math.max(1, targetHeight);
+        boolean degraded = false;
+        while (true) {
+            Plan plan = tryPlan(sourceWidth, sourceHeight, width, height, budgetBytes, degraded);
+            if (plan != null) {
+                return plan;
+            }
+            if (width == 1 && height == 1) {
+                // Nothing smaller to offer; report the overrun rather than loop
+                return directPlan(sourceWidth, sourceHeight, 1, 1, budgetBytes, true);
+            }
+            int[] smaller = shrink(width, height, DOWNSCALE_STEP);
+            width = smaller[0];
+            height = smaller[1];
+            degraded = true;
+        }
+    }
+
+    /**
+     * Plans an output produced without a decode (YUV planes): the largest size, at most {@code width x height} with
+     * the same aspect ratio, whose buffers of {@code bytesPerPixel} fit {@code budgetBytes}.
+     */
+    public static Plan planBuffer(int width, int height, double bytesPerPixel, long budgetBytes) {
+        double bytes = (double) width * height * bytesPerPixel;
+        if (bytes <= budgetBytes) {
+            return new Plan(STRATEGY_DIRECT, 1, width, height, 0, (long) bytes, budgetBytes, false);
+        }
+        int[] size = shrink(width, height, budgetBytes / bytes);
+        long estimated = (long) ((double) size[0] * size[1] * bytesPerPixel);
+        return new Plan(STRATEGY_DIRECT, 1, size[0], size[1], 0, estimated, budgetBytes, true);
+    }
+
+    private static Plan tryPlan(int sourceWidth, int sourceHeight, int width, int height, long budgetBytes, boolean degraded) {
+        Plan direct = directPlan(sourceWidth, sourceHeight, width, height, budgetBytes, degraded);
+        if (direct.estimatedBytes <= budgetBytes) {
+            return direct;
+        }
+        int sampleSize = direct.sampleSize;
+        long decodedRowBytes = (long) ceilDiv(sourceWidth, sampleSize) * ARGB_BYTES_PER_PIXEL;
+        int decodedHeight = ceilDiv(sourceHeight, sampleSize);
+        long outputBytes = (long) width * height * ARGB_BYTES_PER_PIXEL;
+        long bandBudget = budgetBytes - outputBytes;
+        int minRows = Math.min(MIN_BAND_ROWS, decodedHeight);
+        if (bandBudget < decodedRowBytes * minRows) {
+            return null;
+        }
+        int bandRows = (int) Math.min(decodedHeight, bandBudget / decodedRowBytes);
+        return new Plan(
+            STRATEGY_TILED,
+            sampleSize,
+            width,
+            height,
+            bandRows * sampleSize,
+            outputBytes + decodedRowBytes * bandRows,
+            budgetBytes,
+            degraded
+        );
+    }
+
+    private static Plan directPlan(int sourceWidth, int sourceHeight, int width, int height, long budgetBytes, boolean degraded) {
+        int sampleSize = ImageSizing.calculateInSampleSize(sourceWidth, sourceHeight, width, height);
+        long decodedBytes = (long) ceilDiv(sourceWidth, sampleSize) * ceilDiv(sourceHeight, sampleSize) * ARGB_BYTES_PER_PIXEL;
+        long outputBytes = (long) width * height * ARGB_BYTES_PER_PIXEL;
+        return new Plan(STRATEGY_DIRECT, sampleSize, width, height, 0, decodedBytes + outputBytes, budgetBytes, degraded);
+    }
+
+    /** Scales the pixel count by {@code areaFactor}, keeping the aspect ratio; never below 1x1. */
+    private static int[] shrink(int width, int height, double areaFactor) {
+        double linear = Math.sqrt(Math.max(0, areaFactor));
+        return new int[] { Math.max(1, (int) (width * linear)), Math.max(1, (int) (height * linear)) };
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
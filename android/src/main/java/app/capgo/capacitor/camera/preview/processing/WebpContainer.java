@@ -0,0 +1,124 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Minimal RIFF/WebP container editing. {@code Bitmap.compress} produces a simple (VP8 / VP8L) WebP with no room
+ * for metadata; this rewrites it as an extended (VP8X) file carrying an EXIF chunk, without touching the bitstream.
+ */
+public final class WebpContainer {
+
+    private static final int FLAG_ALPHA = 0x10;
+    private static final int FLAG_EXIF = 0x08;
+
+    private WebpContainer() {}
+
+    public static boolean isWebp(byte[] data) {
+        return (
+            data != null &&
+            data.length >= 12 &&
+            data[0] == 'R' &&
+            data[1] == 'I' &&
+            data[2] == 'F' &&
+            data[3] == 'F' &&
+            data[8] == 'W' &&
+            data[9] == 'E' &&
+            data[10] == 'B' &&
+            data[11] == 'P'
+        );
+    }
+
+    /**
+     * Returns {@code webp} with {@code tiff} (a TIFF-structured EXIF block, without the {@code Exif\0\0} prefix) as
+     * its EXIF chunk, replacing any existing one. {@code width} and {@code height} are the canvas size.
+     *
+     * @throws IllegalArgumentException if {@code webp} is not a well-formed WebP file
+     */
+    public static byte[] withExif(byte[] webp, byte[] tiff, int width, int height) {
+        if (!isWebp(webp)) {
+            throw new IllegalArgumentException("Not a WebP file");
+        }
+        ByteArrayOutputStream chunks = new ByteArrayOutputStream(webp.length + tiff.length + 64);
+        byte[] vp8x = null;
+        int flags = FLAG_EXIF;
+        int offset = 12;
+        while (offset + 8 <= webp.length) {
+            int size = readLe32(webp, offset + 4);
+            int padded = size + (size & 1);
+            if (size < 0 || offset + 8 + size > webp.length) {
+                throw new IllegalArgumentException("Truncated WebP chunk at " + offset);
+            }
+            if (is(webp, offset, "VP8X")) {
+                vp8x = new byte[size];
+                System.arraycopy(webp, offset + 8, vp8x, 0, size);
+            } else if (!is(webp, offset, "EXIF")) {
+                if (is(webp, offset, "VP8L") && size >= 5 && ((webp[offset + 12] >> 4) & 1) != 0) {
+                    flags |= FLAG_ALPHA;
+                } else if (is(webp, offset, "ALPH")) {
+                    flags |= FLAG_ALPHA;
+                }
+                chunks.write(webp, offset, Math.min(8 + padded, webp.length - offset));
+            }
+            offset += 8 + padded;
+        }
+
+        if (vp8x == null) {
+            vp8x = new byte[10];
+            writeLe24(vp8x, 4, width - 1);
+            writeLe24(vp8x, 7, height - 1);
+        }
+        vp8x[0] = (byte) (vp8x[0] | flags);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(chunks.size() + tiff.length + 48);
+        writeChunkHeader(out, "RIFF", 4 + (8 + vp8x.length) + chunks.size() + 8 + tiff.length + (tiff.length & 1));
+        out.write('W');
+        out.write('E');
+        out.write('B');
+        out.write('P');
+        // VP8X must come first; EXIF goes after the image data
+        writeChunkHeader(out, "VP8X", vp8x.length);
+        out.write(vp8x, 0, vp8x.length);
+        byte[] body = chunks.toByteArray();
+        out.write(body, 0, body.length);
+        writeChunkHeader(out, "EXIF", tiff.length);
+        out.write(tiff, 0, tiff.length);
+        if ((tiff.length & 1) != 0) {
+            out.write(0);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean is(byte[] data, int offset, String fourCc) {
+        for (int i = 0; i < 4; i++) {
+            if (data[offset + i] != fourCc.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readLe32(byte[] data, int offset) {
+        return (
+            (data[offset] & 0xFF) |
+            ((data[offset + 1] & 0xFF) << 8) |
+            ((data[offset + 2] & 0xFF) << 16) |
+            ((data[offset + 3] & 0xFF) << 24)
+        );
+    }
+
+    private static void writeLe24(byte[] data, int offset, int value) {
+        data[offset] = (byte) value;
+        data[offset + 1] = (byte) (value >> 8);
+        data[offset + 2] = (byte) (value >> 16);
+    }
+
+    private static void writeChunkHeader(ByteArrayOutputStream out, String fourCc, int size) {
+        for (int i = 0; i < 4; i++) {
+            out.write(fourCc.charAt(i));
+        }
+        out.write(size);
+        out.write(size >> 8);
+        out.write(size >> 16);
+        out.write(size >> 24);
+    }
+}
@@ -0,0 +1,297 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * Full-frame YUV_420_888 to NV21 or ARGB conversion honouring row and pixel strides, into caller-owned (or pooled)
+ * arrays. Rows are split into bands converted in parallel: the calling thread takes the first band and a fixed
+ * set of worker threads the others, woken through a monitor, so a conversion allocates nothing. Planes are read
+ * with absolute gets only, which keeps the shared buffers' positions untouched. Kept free of Android types.
+ *
+ * <p>Instances are thread-safe (conversions are serialized) and must be {@link #close() closed} to stop the
+ * workers. A conversion that a close interrupts throws {@link IllegalStateException}, as does any later one.
+ */
+public final class YuvConverter implements Closeable {
+
+    // BT.601 full-range (JFIF) coefficients in 16.16 fixed point, as camera YUV is full range
+    private static final int CR_TO_R = 91881;
+    private static final int CB_TO_G = 22554;
+    private static final int CR_TO_G = 46802;
+    private static final int CB_TO_B = 116130;
+    private static final int HALF = 1 << 15;
+
+    // Bands never get thinner than this, so small frames stay on the calling thread
+    private static final int MIN_BAND_ROWS = 64;
+
+    private static final int KIND_NV21 = 0;
+    private static final int KIND_ARGB = 1;
+
+    private final Object monitor = new Object();
+    private final Thread[] workers;
+    // Current job, guarded by monitor; workers read it once per generation
+    private int generation;
+    private int pendingBands;
+    private boolean closed;
+    private int jobKind;
+    private int jobBands;
+    private YuvTransform.Planes jobPlanes;
+    private byte[] jobNv21;
+    private int[] jobArgb;
+    private RuntimeException jobFailure;
+
+    /** @param bands maximum number of bands converted at once, counting the calling thread; 1 runs inline */
+    public YuvConverter(int bands) {
+        workers = new Thread[Math.max(0, bands - 1)];
+        for (int i = 0; i < workers.length; i++) {
+            final int band = i + 1;
+            workers[i] = new Thread(() -> workerLoop(band), "cpcp-yuv-" + band);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    /** A converter using every core, capped at {@code maxBands}. */
+    public static YuvConverter forAvailableProcessors(int maxBands) {
+        return new YuvConverter(Math.min(maxBands, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /** Bands a conversion may be split into (worker threads plus the calling thread). */
+    public int getBands() {
+        return workers.length + 1;
+    }
+
+    /** Size of an ARGB conversion of the planes, in ints. */
+    public static int argbSize(int width, int height) {
+        return width * height;
+    }
+
+    /**
+     * Writes the planes into {@code out} as NV21 (Y rows, then interleaved V/U rows).
+     *
+     * @param out at least {@link YuvTransform#nv21Size(int, int)} bytes; the planes' size must be even
+     */
+    public void toNv21(YuvTransform.Planes planes, byte[] out) {
+        if ((planes.width & 1) != 0 || (planes.height & 1) != 0) {
+            throw new IllegalArgumentException("NV21 needs an even size: " + planes.width + "x" + planes.height);
+        }
+        if (out.length < YuvTransform.nv21Size(planes.width, planes.height)) {
+            throw new IllegalArgumentException("Output buffer too small");
+        }
+        run(KIND_NV21, planes, out, null);
+    }
+
+    /**
+     * Writes the planes into {@code out} as opaque ARGB pixels (the {@code Bitmap.Config.ARGB_8888} int layout),
+     * row after row.
+     *
+     * @param out at least {@link #argbSize(int, int)} ints
+     */
+    public void toArgb(YuvTransform.Planes planes, int[] out) {
+        if (out.length < argbSize(planes.width, planes.height)) {
+            throw new IllegalArgumentException("Output buffer too small");
+        }
+        run(KIND_ARGB, planes, null, out);
+    }
+
+    @Override
+    public void close() {
+        synchronized (monitor) {
+            closed = true;
+            monitor.notifyAll();
+        }
+    }
+
+    private synchronized void run(int kind, YuvTransform.Planes planes, byte[] nv21, int[] argb) {
+        int bands = Math.max(1, Math.min(workers.length + 1, planes.height / MIN_BAND_ROWS));
+        if (bands == 1) {
+            convertBand(kind, planes, nv21, argb, 0, 1);
+            return;
+        }
+        synchronized (monitor) {
+            if (closed) {
+                throw new IllegalStateException("Converter closed");
+            }
+            jobKind = kind;
+            jobBands = bands;
+            jobPlanes = planes;
+            jobNv21 = nv21;
+            jobArgb = argb;
+            jobFailure = null;
+            pendingBands = bands - 1;
+            generation++;
+            monitor.notifyAll();
+        }
+        RuntimeException failure = null;
+        try {
+            convertBand(kind, planes, nv21, argb, 0, bands);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        boolean interrupted = false;
+        synchronized (monitor) {
+            // Workers write into the caller's array: wait for them even when interrupted
+            while (pendingBands > 0) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (failure == null) {
+                failure = jobFailure;
+            }
+            jobPlanes = null;
+            jobNv21 = null;
+            jobArgb = null;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void workerLoop(int band) {
+        int seen = 0;
+        while (true) {
+            int kind;
+            int bands;
+            YuvTransform.Planes planes;
+            byte[] nv21;
+            int[] argb;
+            synchronized (monitor) {
+                boolean interrupted = false;
+                while (!closed && generation == seen && !interrupted) {
+                    try {
+                        monitor.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (closed || interrupted) {
+                    // Without this worker later split conversions would wait forever: an interrupt closes the converter
+                    closed = true;
+                    if (generation != seen && band < jobBands) {
+                        // Leaving with a band of the current job unconverted: fail it so run() stops waiting
+                        if (jobFailure == null) {
+                            jobFailure = new IllegalStateException("Converter closed");
+                        }
+                        pendingBands--;
+                    }
+                    monitor.notifyAll();
+                    return;
+                }
+                seen = generation;
+                if (band >= jobBands) {
+                    // This job has fewer bands than workers
+                    continue;
+                }
+                kind = jobKind;
+                bands = jobBands;
+                planes = jobPlanes;
+                nv21 = jobNv21;
+                argb = jobArgb;
+            }
+            RuntimeException failure = null;
+            try {
+                convertBand(kind, planes, nv21, argb, band, bands);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            synchronized (monitor) {
+                if (failure != null && jobFailure == null) {
+                    jobFailure = failure;
+                }
+                if (--pendingBands == 0) {
+                    monitor.notifyAll();
+                }
+            }
+        }
+    }
+
+    private static void convertBand(int kind, YuvTransform.Planes planes, byte[] nv21, int[] argb, int band, int bands) {
+        // Bands start on even rows so each chroma row belongs to exactly one band
+        int pairs = (planes.height + 1) / 2;
+        int row0 = 2 * (int) ((long) pairs * band / bands);
+        int row1 = Math.min(planes.height, 2 * (int) ((long) pairs * (band + 1) / bands));
+        if (kind == KIND_NV21) {
+            nv21Rows(planes, nv21, row0, row1);
+        } else {
+            argbRows(planes, argb, row0, row1);
+        }
+    }
+
+    /** Converts rows {@code [row0, row1)} ({@code row0} even) to NV21. */
+    static void nv21Rows(YuvTransform.Planes planes, byte[] out, int row0, int row1) {
+        int width = planes.width;
+        ByteBuffer y = planes.y;
+        int yRowStride = planes.yRowStride;
+        int yPixelStride = planes.yPixelStride;
+        for (int row = row0; row < row1; row++) {
+            int src = row * yRowStride;
+            int dst = row * width;
+            for (int x = 0; x < width; x++) {
+                out[dst + x] = y.get(src + x * yPixelStride);
+            }
+        }
+
+        ByteBuffer u = planes.u;
+        ByteBuffer v = planes.v;
+        int uvRowStride = planes.uvRowStride;
+        int uvPixelStride = planes.uvPixelStride;
+        int chromaWidth = width / 2;
+        int chromaOffset = width * planes.height;
+        for (int chromaRow = row0 / 2; chromaRow < row1 / 2; chromaRow++) {
+            int src = chromaRow * uvRowStride;
+            int dst = chromaOffset + chromaRow * width;
+            for (int x = 0; x < chromaWidth; x++) {
+                int index = src + x * uvPixelStride;
+                // NV21 interleaves V before U
+                out[dst + 2 * x] = v.get(index);
+                out[dst + 2 * x + 1] = u.get(index);
+            }
+        }
+    }
+
+    /** Converts rows {@code [row0, row1)} ({@code row0} even) to ARGB; odd widths / heights are handled. */
+    static void argbRows(YuvTransform.Planes planes, int[] out, int row0, int row1) {
+        int width = planes.width;
+        ByteBuffer y = planes.y;
+        ByteBuffer u = planes.u;
+        ByteBuffer v = planes.v;
+        int yRowStride = planes.yRowStride;
+        int yPixelStride = planes.yPixelStride;
+        int uvRowStride = planes.uvRowStride;
+        int uvPixelStride = planes.uvPixelStride;
+        for (int row = row0; row < row1; row++) {
+            int ySrc = row * yRowStride;
+            int uvSrc = (row >> 1) * uvRowStride;
+            int dst = row * width;
+            for (int x = 0; x < width; x += 2) {
+                int index = uvSrc + (x >> 1) * uvPixelStride;
+                int cb = (u.get(index) & 0xFF) - 128;
+                int cr = (v.get(index) & 0xFF) - 128;
+                int dr = CR_TO_R * cr + HALF;
+                int dg = -CB_TO_G * cb - CR_TO_G * cr + HALF;
+                int db = CB_TO_B * cb + HALF;
+                out[dst + x] = argb((y.get(ySrc + x * yPixelStride) & 0xFF) << 16, dr, dg, db);
+                if (x + 1 < width) {
+                    out[dst + x + 1] = argb((y.get(ySrc + (x + 1) * yPixelStride) & 0xFF) << 16, dr, dg, db);
+                }
+            }
+        }
+    }
+
+    private static int argb(int luma, int dr, int dg, int db) {
+        int r = clamp((luma + dr) >> 16);
+        int g = clamp((luma + dg) >> 16);
+        int b = clamp((luma + db) >> 16);
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+}
@@ -0,0 +1,217 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Crop / rotate / scale of YUV_420_888 planes straight into an NV21 buffer, so a YUV capture can be encoded to
+ * JPEG exactly once. Downscaling averages every source pixel of an output pixel's footprint (box filter), so
+ * large reductions do not alias. Kept free of Android types; planes are described by {@link Planes}.
+ */
+public final class YuvTransform {
+
+    private YuvTransform() {}
+
+    /** The three planes of a YUV_420_888 image, with the strides reported by {@code Image.Plane}. */
+    public static final class Planes {
+
+        public final ByteBuffer y;
+        public final ByteBuffer u;
+        public final ByteBuffer v;
+        public final int yRowStride;
+        public final int yPixelStride;
+        public final int uvRowStride;
+        public final int uvPixelStride;
+        public final int width;
+        public final int height;
+
+        public Planes(
+            ByteBuffer y,
+            int yRowStride,
+            int yPixelStride,
+            ByteBuffer u,
+            ByteBuffer v,
+            int uvRowStride,
+            int uvPixelStride,
+            int width,
+            int height
+        ) {
+            this.y = y;
+            this.u = u;
+            this.v = v;
+            this.yRowStride = yRowStride;
+            this.yPixelStride = yPixelStride;
+            this.uvRowStride = uvRowStride;
+            this.uvPixelStride = uvPixelStride;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /** Bytes needed for an NV21 image of the given (even) size. */
+    public static int nv21Size(int width, int height) {
+        return width * height + 2 * ((width + 1) / 2) * ((height + 1) / 2);
+    }
+
+    /** Rounds a dimension down to the even size NV21 requires (at least 2). */
+    public static int evenSize(int size) {
+        return Math.max(2, size & ~1);
+    }
+
+    /**
+     * Writes {@code storedCrop} of the planes, rotated clockwise by {@code rotationDegrees} and scaled to
+     * {@code outWidth x outHeight} (upright, both even), into {@code out} as NV21.
+     *
+     * @param storedCrop {@code { x, y, width, height }} on the stored (unrotated) pixel grid
+     * @param out caller-owned buffer of at least {@link #nv21Size(int, int)} bytes
+     */
+    public static void cropRotateScaleToNv21(
+        Planes planes,
+        int[] storedCrop,
+        int rotationDegrees,
+        int outWidth,
+        int outHeight,
+        byte[] out
+    ) {
+        if ((outWidth & 1) != 0 || (outHeight & 1) != 0) {
+            throw new IllegalArgumentException("NV21 output size must be even: " + outWidth + "x" + outHeight);
+        }
+        if (out.length < nv21Size(outWidth, outHeight)) {
+            throw new IllegalArgumentException("Output buffer too small");
+        }
+        int cropX = storedCrop[0];
+        int cropY = storedCrop[1];
+        int cropWidth = storedCrop[2];
+        int cropHeight = storedCrop[3];
+        boolean swapsAxes = rotationDegrees == 90 || rotationDegrees == 270;
+
+        // Footprint of each output column / row on the upright crop
+        int[] xs = boundaries(swapsAxes ? cropHeight : cropWidth, outWidth);
+        int[] ys = boundaries(swapsAxes ? cropWidth : cropHeight, outHeight);
+        int[] rect = new int[4];
+        scaleLuma(planes, storedCrop, rotationDegrees, xs, ys, out, rect);
+
+        ByteBuffer uPlane = planes.u;
+        ByteBuffer vPlane = planes.v;
+        int uvRowStride = planes.uvRowStride;
+        int uvPixelStride = planes.uvPixelStride;
+        int chromaOffset = outWidth * outHeight;
+        for (int cy = 0; cy < outHeight / 2; cy++) {
+            int rowOffset = chromaOffset + cy * outWidth;
+            for (int cx = 0; cx < outWidth / 2; cx++) {
+                toStored(xs[2 * cx], xs[2 * cx + 2], ys[2 * cy], ys[2 * cy + 2], rotationDegrees, cropWidth, cropHeight, rect);
+                int x0 = (cropX + rect[0]) >> 1;
+                int x1 = ((cropX + rect[1] - 1) >> 1) + 1;
+                int y0 = (cropY + rect[2]) >> 1;
+                int y1 = ((cropY + rect[3] - 1) >> 1) + 1;
+                int sumU = 0;
+                int sumV = 0;
+                for (int sy = y0; sy < y1; sy++) {
+                    int base = sy * uvRowStride;
+                    for (int sx = x0; sx < x1; sx++) {
+                        int index = base + sx * uvPixelStride;
+                        sumU += uPlane.get(index) & 0xFF;
+                        sumV += vPlane.get(index) & 0xFF;
+                    }
+                }
+                int count = (x1 - x0) * (y1 - y0);
+                // NV21 interleaves V before U
+                out[rowOffset + 2 * cx] = (byte) (sumV / count);
+                out[rowOffset + 2 * cx + 1] = (byte) (sumU / count);
+            }
+        }
+    }
+
+    /**
+     * Writes the luma of {@code storedCrop}, rotated and scaled like {@link #cropRotateScaleToNv21}, into {@code out}
+     * as {@code outHeight} tightly packed rows of {@code outWidth} bytes. Chroma is never read, and any output size
+     * is allowed. Meant for consumers that only look at brightness (barcode, MRZ, OCR).
+     *
+     * @param out caller-owned buffer of at least {@code outWidth * outHeight} bytes
+     */
+    public static void cropRotateScaleLuma(
+        Planes planes,
+        int[] storedCrop,
+        int rotationDegrees,
+        int outWidth,
+        int outHeight,
+        byte[] out
+    ) {
+        if (outWidth < 1 || outHeight < 1) {
+            throw new IllegalArgumentException("Invalid output size: " + outWidth + "x" + outHeight);
+        }
+        if (out.length < outWidth * outHeight) {
+            throw new IllegalArgumentException("Output buffer too small");
+        }
+        boolean swapsAxes = rotationDegrees == 90 || rotationDegrees == 270;
+        int[] xs = boundaries(swapsAxes ? storedCrop[3] : storedCrop[2], outWidth);
+        int[] ys = boundaries(swapsAxes ? storedCrop[2] : storedCrop[3], outHeight);
+        scaleLuma(planes, storedCrop, rotationDegrees, xs, ys, out, new int[4]);
+    }
+
+    /** Box-filters the Y plane over the output spans {@code xs} / {@code ys} into the first rows of {@code out}. */
+    private static void scaleLuma(Planes planes, int[] storedCrop, int rotationDegrees, int[] xs, int[] ys, byte[] out, int[] rect) {
+        int cropX = storedCrop[0];
+        int cropY = storedCrop[1];
+        int cropWidth = storedCrop[2];
+        int cropHeight = storedCrop[3];
+        int outWidth = xs.length - 1;
+        int outHeight = ys.length - 1;
+        ByteBuffer yPlane = planes.y;
+        int yRowStride = planes.yRowStride;
+        int yPixelStride = planes.yPixelStride;
+        for (int oy = 0; oy < outHeight; oy++) {
+            int rowOffset = oy * outWidth;
+            for (int ox = 0; ox < outWidth; ox++) {
+                toStored(xs[ox], xs[ox + 1], ys[oy], ys[oy + 1], rotationDegrees, cropWidth, cropHeight, rect);
+                int sum = 0;
+                for (int sy = cropY + rect[2]; sy < cropY + rect[3]; sy++) {
+                    int base = sy * yRowStride;
+                    for (int sx = cropX + rect[0]; sx < cropX + rect[1]; sx++) {
+                        sum += yPlane.get(base + sx * yPixelStride) & 0xFF;
+                    }
+                }
+                out[rowOffset + ox] = (byte) (sum / ((rect[1] - rect[0]) * (rect[3] - rect[2])));
+            }
+        }
+    }
+
+    /** {@code dst + 1} boundaries splitting {@code src} pixels into {@code dst} non-empty spans (spans repeat when upscaling). */
+    private static int[] boundaries(int src, int dst) {
+        int[] bounds = new int[dst + 1];
+        for (int i = 0; i <= dst; i++) {
+            bounds[i] = (int) ((long) i * src / dst);
+        }
+        return bounds;
+    }
+
+    /**
+     * Maps the upright span {@code [a0, a1) x [b0, b1)} to the stored grid of a crop of {@code width x height},
+     * writing {@code { x0, x1, y0, y1 }} (relative to the crop, never empty) into {@code rect}.
+     */
+    private static void toStored(int a0, int a1, int b0, int b1, int rotationDegrees, int width, int height, int[] rect) {
+        switch (rotationDegrees) {
+            case 90:
+                // stored (x, y) -> upright (height - 1 - y, x)
+                setSpan(rect, b0, b1, height - a1, height - a0, width, height);
+                break;
+            case 180:
+                setSpan(rect, width - a1, width - a0, height - b1, height - b0, width, height);
+                break;
+            case 270:
+                // stored (x, y) -> upright (y, width - 1 - x)
+                setSpan(rect, width - b1, width - b0, a0, a1, width, height);
+                break;
+            default:
+                setSpan(rect, a0, a1, b0, b1, width, height);
+        }
+    }
+
+    private static void setSpan(int[] rect, int x0, int x1, int y0, int y1, int width, int height) {
+        x0 = Math.min(Math.max(x0, 0), width - 1);
+        y0 = Math.min(Math.max(y0, 0), height - 1);
+        rect[0] = x0;
+        rect[1] = Math.min(Math.max(x1, x0 + 1), width);
+        rect[2] = y0;
+        rect[3] = Math.min(Math.max(y1, y0 + 1), height);
+    }
+}
@@ -0,0 +1,97 @@
+package app.capgo.capacitor.camera.preview;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class CaptureRequestRegistryTest {
+
+    private final List<String> delivered = new ArrayList<>();
+
+    @Test
+    public void orderedModeHoldsResultsUntilEarlierRequestsFinish() {
+        CaptureRequestRegistry<String> registry = new CaptureRequestRegistry<>(4, true);
+        registry.register("a", "A");
+        registry.register("b", "B");
+        registry.register("c", "C");
+
+        assertTrue(registry.complete("c", delivered::add));
+        assertTrue(registry.complete("b", delivered::add));
+        assertTrue(delivered.isEmpty());
+        assertEquals(3, registry.size());
+
+        registry.complete("a", delivered::add);
+        assertEquals(Arrays.asList("A", "B", "C"), delivered);
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void unorderedModeDeliversImmediately() {
+        CaptureRequestRegistry<String> registry = new CaptureRequestRegistry<>(4, false);
+        registry.register("a", "A");
+        registry.register("b", "B");
+
+        registry.complete("b", delivered::add);
+        assertEquals(Arrays.asList("B"), delivered);
+        assertEquals(1, registry.size());
+    }
+
+    @Test
+    public void rejectsRegistrationsPastTheLimitAndDuplicates() {
+        CaptureRequestRegistry<String> registry = new CaptureRequestRegistry<>(2, true);
+        assertTrue(registry.register("a", "A"));
+        assertFalse(registry.register("a", "A2"));
+        assertTrue(registry.register("b", "B"));
+        assertTrue(registry.isFull());
+        assertFalse(registry.register("c", "C"));
+
+        registry.complete("a", delivered::add);
+        assertTrue(registry.register("c", "C"));
+    }
+
+    @Test
+    public void cancellingTheHeadReleasesHeldResults() {
+        CaptureRequestRegistry<String> registry = new CaptureRequestRegistry<>(4, true);
+        registry.register("a", "A");
+        registry.register("b", "B");
+        registry.complete("b", delivered::add);
+
+        assertEquals("A", registry.cancel("a"));
+        assertEquals(Arrays.asList("B"), delivered);
+        assertFalse(registry.complete("a", delivered::add));
+        assertNull(registry.cancel("a"));
+    }
+
+    @Test
+    public void switchingToUnorderedFlushesHeldResults() {
+        CaptureRequestRegistry<String> registry = new CaptureRequestRegistry<>(4, true);
+        registry.register("a", "A");
+        registry.register("b", "B");
+        registry.complete("b", delivered::add);
+
+        registry.configure(4, false);
+        assertEquals(Arrays.asList("B"), delivered);
+        assertEquals(Arrays.asList("A"), registry.cancelAll());
+        assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void cancellingAStoppedCameraDeliversHeldResultsAndFreesSlots() {
+        CaptureRequestRegistry<String> registry = new CaptureRequestRegistry<>(3, true);
+        registry.register("a", "old-A");
+        registry.register("b", "old-B");
+        registry.register("c", "new-C");
+        registry.complete("b", delivered::add);
+        registry.complete("c", delivered::add);
+        assertTrue(registry.isFull());
+
+        // "a" never answers: its camera stopped
+        assertEquals(Arrays.asList("old-A"), registry.cancelIf((payload) -> payload.startsWith("old-")));
+        assertEquals(Arrays.asList("old-B", "new-C"), delivered);
+        assertEquals(0, registry.size());
+        assertTrue(registry.register("d", "new-D"));
+    }
+}
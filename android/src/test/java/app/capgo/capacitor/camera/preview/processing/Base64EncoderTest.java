@@ -0,0 +1,52 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import static org.junit.Assert.*;
+
+import java.util.Base64;
+import java.util.Random;
+import org.junit.Test;
+
+public class Base64EncoderTest {
+
+    @Test
+    public void matchesTheJdkEncoderForEveryPaddingCase() {
+        Random random = new Random(42);
+        for (int length = 0; length < 64; length++) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            assertEquals(Base64.getEncoder().encodeToString(data), Base64Encoder.encode(data));
+        }
+    }
+
+    @Test
+    public void encodesASlice() {
+        byte[] data = "xxfoobarxx".getBytes();
+        assertEquals("Zm9vYmFy", Base64Encoder.encode(data, 2, 6));
+        assertEquals("Zm9vYg==", Base64Encoder.encode(data, 2, 4));
+        assertEquals("", Base64Encoder.encode(data, 2, 0));
+    }
+
+    @Test
+    public void chunksDecodeOnTheirOwn() {
+        byte[] data = new byte[1000];
+        new Random(7).nextBytes(data);
+        int step = Base64Encoder.chunkStep(100);
+        assertEquals(99, step);
+        StringBuilder joined = new StringBuilder();
+        for (int offset = 0; offset < data.length; offset += step) {
+            String chunk = Base64Encoder.encode(data, offset, Math.min(step, data.length - offset));
+            if (offset + step < data.length) {
+                assertFalse(chunk.contains("="));
+            }
+            joined.append(chunk);
+        }
+        assertArrayEquals(data, Base64.getDecoder().decode(joined.toString()));
+    }
+
+    @Test
+    public void chunkStepIsAtLeastOneGroup() {
+        assertEquals(3, Base64Encoder.chunkStep(0));
+        assertEquals(3, Base64Encoder.chunkStep(2));
+        assertEquals(3, Base64Encoder.chunkStep(5));
+    }
+}
@@ -0,0 +1,64 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ByteArrayPoolTest {
+
+    @Test
+    public void reusesTheSmallestArrayThatFits() {
+        ByteArrayPool pool = new ByteArrayPool(1 << 20);
+        byte[] small = new byte[1000];
+        byte[] large = new byte[4000];
+        pool.put(large);
+        pool.put(small);
+        assertEquals(5000, pool.getCurrentBytes());
+
+        assertSame(small, pool.get(600));
+        assertSame(large, pool.get(2500));
+        assertEquals(0, pool.getCurrentBytes());
+        // Nothing pooled any more: a fresh array of the exact size
+        assertEquals(1000, pool.get(1000).length);
+    }
+
+    @Test
+    public void neverHandsOutAnArrayMoreThanTwiceTheRequest() {
+        ByteArrayPool pool = new ByteArrayPool(1 << 20);
+        byte[] pooled = new byte[3000];
+        pool.put(pooled);
+
+        byte[] fresh = pool.get(1000);
+        assertNotSame(pooled, fresh);
+        assertEquals(1000, fresh.length);
+        assertEquals(3000, pool.getCurrentBytes());
+        assertSame(pooled, pool.get(1500));
+    }
+
+    @Test
+    public void evictsTheLargestArraysToStayWithinTheBudget() {
+        ByteArrayPool pool = new ByteArrayPool(10_000);
+        byte[] a = new byte[2000];
+        byte[] b = new byte[3000];
+        byte[] c = new byte[4000];
+        pool.put(a);
+        pool.put(c);
+        pool.put(b);
+        assertEquals(9000, pool.getCurrentBytes());
+
+        // 11000 bytes would exceed the budget: the 4000-byte array goes, not the newest one
+        byte[] d = new byte[2000];
+        pool.put(d);
+        assertEquals(7000, pool.getCurrentBytes());
+        assertSame(b, pool.get(3000));
+        assertNotSame(c, pool.get(4000));
+
+        // Arrays larger than the whole budget are never kept
+        pool.put(new byte[10_001]);
+        assertEquals(4000, pool.getCurrentBytes());
+
+        pool.clear();
+        assertEquals(0, pool.getCurrentBytes());
+        assertNotSame(a, pool.get(2000));
+    }
+}
@@ -0,0 +1,55 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class CropGeometryTest {
+
+    @Test
+    public void centerCropTrimsTheLongSide() {
+        // 4:3 sensor shown in a 16:10 preview
+        assertArrayEquals(new int[] { 0, 250, 4000, 2500 }, CropGeometry.centerCropToAspect(4000, 3000, 16f / 10f));
+        // 4:3 sensor shown in a portrait 9:16 preview
+        assertArrayEquals(new int[] { 1156, 0, 1688, 3000 }, CropGeometry.centerCropToAspect(4000, 3000, 9f / 16f));
+    }
+
+    @Test
+    public void centerCropKeepsMatchingAspectOrInvalidInput() {
+        assertArrayEquals(new int[] { 0, 0, 4000, 3000 }, CropGeometry.centerCropToAspect(4000, 3000, 4f / 3f));
+        assertArrayEquals(new int[] { 0, 0, 4000, 3000 }, CropGeometry.centerCropToAspect(4000, 3000, 0f));
+    }
+
+    @Test
+    public void normalizedRegionIsRelativeToTheRect() {
+        int[] rect = { 100, 200, 1000, 500 };
+        assertArrayEquals(new int[] { 350, 300, 500, 250 }, CropGeometry.applyNormalizedRegion(rect, 0.25f, 0.2f, 0.5f, 0.5f));
+    }
+
+    @Test
+    public void normalizedRegionIsClampedInsideTheRect() {
+        int[] rect = { 0, 0, 100, 100 };
+        assertArrayEquals(new int[] { 50, 0, 50, 100 }, CropGeometry.applyNormalizedRegion(rect, 0.5f, -1f, 2f, 2f));
+        assertArrayEquals(new int[] { 99, 99, 1, 1 }, CropGeometry.applyNormalizedRegion(rect, 1f, 1f, 0f, 0f));
+        assertArrayEquals(new int[] { 0, 0, 100, 100 }, CropGeometry.applyNormalizedRegion(rect, Float.NaN, Float.NaN, 1f, 1f));
+    }
+
+    @Test
+    public void orientedToStoredMapsEveryRotation() {
+        // Upright image 300x400; a 10x20 rect at (30, 40)
+        int[] rect = { 30, 40, 10, 20 };
+        assertArrayEquals(new int[] { 30, 40, 10, 20 }, CropGeometry.orientedToStored(rect, 0, 300, 400));
+        assertArrayEquals(new int[] { 260, 340, 10, 20 }, CropGeometry.orientedToStored(rect, 180, 300, 400));
+        assertArrayEquals(new int[] { 40, 260, 20, 10 }, CropGeometry.orientedToStored(rect, 90, 300, 400));
+        assertArrayEquals(new int[] { 340, 30, 20, 10 }, CropGeometry.orientedToStored(rect, 270, 300, 400));
+    }
+
+    @Test
+    public void orientedToStoredKeepsTheFullFrame() {
+        for (int rotation : new int[] { 0, 90, 180, 270 }) {
+            boolean swaps = rotation == 90 || rotation == 270;
+            int[] stored = CropGeometry.orientedToStored(new int[] { 0, 0, 300, 400 }, rotation, 300, 400);
+            assertArrayEquals(new int[] { 0, 0, swaps ? 400 : 300, swaps ? 300 : 400 }, stored);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import javax.imageio.ImageIO;
+import org.apache.commons.imaging.Imaging;
+import org.apache.commons.imaging.common.ImageMetadata;
+import org.apache.commons.imaging.formats.jpeg.JpegImageMetadata;
+import org.apache.commons.imaging.formats.tiff.TiffField;
+import org.apache.commons.imaging.formats.tiff.TiffImageMetadata;
+import org.apache.commons.imaging.formats.tiff.constants.ExifTagConstants;
+import org.apache.commons.imaging.formats.tiff.constants.GpsTagConstants;
+import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
+import org.apache.commons.imaging.formats.tiff.taginfos.TagInfo;
+import org.junit.Test;
+
+public class ExifEditsTest {
+
+    private static byte[] jpeg(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static TiffImageMetadata exifOf(byte[] jpeg) throws Exception {
+        ImageMetadata metadata = Imaging.getMetadata(jpeg);
+        assertTrue(metadata instanceof JpegImageMetadata);
+        TiffImageMetadata exif = ((JpegImageMetadata) metadata).getExif();
+        assertNotNull(exif);
+        return exif;
+    }
+
+    private static TiffField field(TiffImageMetadata exif, TagInfo tag) throws Exception {
+        TiffField field = exif.findField(tag, true);
+        assertNotNull("missing " + tag.name, field);
+        return field;
+    }
+
+    @Test
+    public void rewritesOrientationDimensionsAndTagsInOnePass() throws Exception {
+        byte[] source = jpeg(64, 48);
+        ExifEdits edits = new ExifEdits();
+        edits.setOrientation(1);
+        edits.setDimensions(64, 48);
+        assertTrue(edits.putTag("Artist", "Capgo"));
+        assertTrue(edits.putTag("ImageUniqueID", "0123456789abcdef0123456789abcdef"));
+
+        byte[] out = edits.rewriteJpeg(source, source);
+        TiffImageMetadata exif = exifOf(out);
+        assertEquals(1, field(exif, TiffTagConstants.TIFF_TAG_ORIENTATION).getIntValue());
+        assertEquals(64, field(exif, TiffTagConstants.TIFF_TAG_IMAGE_WIDTH).getIntValue());
+        assertEquals(48, field(exif, ExifTagConstants.EXIF_TAG_EXIF_IMAGE_LENGTH).getIntValue());
+        assertEquals("Capgo", field(exif, TiffTagConstants.TIFF_TAG_ARTIST).getStringValue());
+        assertEquals("0123456789abcdef0123456789abcdef", field(exif, ExifTagConstants.EXIF_TAG_IMAGE_UNIQUE_ID).getStringValue());
+    }
+
+    @Test
+    public void fitsFixedLengthTags() throws Exception {
+        // ImageUniqueID is exactly 32 characters plus the terminator
+        byte[] source = jpeg(16, 16);
+        ExifEdits edits = new ExifEdits();
+        edits.putTag("ImageUniqueID", "abc123");
+        TiffImageMetadata exif = exifOf(edits.rewriteJpeg(source, source));
+        assertEquals("abc123", field(exif, ExifTagConstants.EXIF_TAG_IMAGE_UNIQUE_ID).getStringValue().trim());
+
+        edits.putTag("ImageUniqueID", "0123456789abcdef0123456789abcdef-too-long");
+        exif = exifOf(edits.rewriteJpeg(source, source));
+        assertEquals("0123456789abcdef0123456789abcdef", field(exif, ExifTagConstants.EXIF_TAG_IMAGE_UNIQUE_ID).getStringValue());
+    }
+
+    @Test
+    public void carriesTheSourceExifOverToANewImage() throws Exception {
+        ExifEdits first = new ExifEdits();
+        first.putTag("Make", "Camera Co");
+        byte[] source = first.rewriteJpeg(jpeg(64, 48), jpeg(64, 48));
+
+        ExifEdits second = new ExifEdits();
+        second.setDimensions(32, 24);
+        byte[] resized = second.rewriteJpeg(jpeg(32, 24), source);
+
+        TiffImageMetadata exif = exifOf(resized);
+        assertEquals("Camera Co", field(exif, TiffTagConstants.TIFF_TAG_MAKE).getStringValue());
+        assertEquals(32, field(exif, ExifTagConstants.EXIF_TAG_EXIF_IMAGE_WIDTH).getIntValue());
+    }
+
+    @Test
+    public void writesGpsHeadingAndLocation() throws Exception {
+        byte[] source = jpeg(16, 16);
+        ExifEdits edits = new ExifEdits();
+        edits.setGpsHeading(123.45f);
+        edits.setGpsLocation(48.8584, 2.2945);
+
+        TiffImageMetadata exif = exifOf(edits.rewriteJpeg(source, source));
+        assertEquals(123.45, field(exif, GpsTagConstants.GPS_TAG_GPS_IMG_DIRECTION).getDoubleValue(), 0.01);
+        assertEquals("M", field(exif, GpsTagConstants.GPS_TAG_GPS_IMG_DIRECTION_REF).getStringValue());
+        TiffImageMetadata.GpsInfo gps = exif.getGpsInfo();
+        assertEquals(48.8584, gps.getLatitudeAsDegreesNorth(), 1e-4);
+        assertEquals(2.2945, gps.getLongitudeAsDegreesEast(), 1e-4);
+    }
+
+    @Test
+    public void keepsTheImageDataUntouched() throws Exception {
+        byte[] source = jpeg(32, 32);
+        ExifEdits edits = new ExifEdits();
+        edits.setOrientation(6);
+        BufferedImage before = ImageIO.read(new java.io.ByteArrayInputStream(source));
+        BufferedImage after = ImageIO.read(new java.io.ByteArrayInputStream(edits.rewriteJpeg(source, source)));
+        for (int y = 0; y < 32; y++) {
+            for (int x = 0; x < 32; x++) {
+                assertEquals(before.getRGB(x, y), after.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void buildsAStandaloneTiffBlock() throws Exception {
+        byte[] source = jpeg(16, 16);
+        ExifEdits edits = new ExifEdits();
+        edits.setDateTimeOriginal("2024:01:02 03:04:05");
+        byte[] tiff = edits.toTiff(source);
+        // "II*\0" or "MM\0*"
+        assertTrue((tiff[0] == 'I' && tiff[1] == 'I' && tiff[2] == 42) || (tiff[0] == 'M' && tiff[1] == 'M' && tiff[3] == 42));
+    }
+
+    @Test
+    public void rejectsUnknownTagsAndNonJpegTargets() throws Exception {
+        ExifEdits edits = new ExifEdits();
+        assertFalse(edits.putTag("FNumber", "2.8"));
+        assertFalse(edits.putTag("Artist", null));
+        assertTrue(edits.isEmpty());
+        assertFalse(ExifEdits.isJpeg(new byte[] { 'R', 'I', 'F', 'F' }));
+        try {
+            edits.rewriteJpeg(new byte[] { 1, 2, 3 }, jpeg(8, 8));
+            fail("expected an IOException");
+        } catch (java.io.IOException expected) {
+            // Not a JPEG
+        }
+    }
+}
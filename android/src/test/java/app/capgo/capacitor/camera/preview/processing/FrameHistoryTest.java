@@ -0,0 +1,106 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class FrameHistoryTest {
+
+    private static final long PERIOD_30FPS = 33_333_333L;
+
+    /** A {@code width x height} frame whose luma is the constant {@code value}. */
+    private static YuvTransform.Planes frame(int width, int height, int value) {
+        byte[] y = new byte[width * height];
+        Arrays.fill(y, (byte) value);
+        byte[] chroma = new byte[(width / 2) * (height / 2)];
+        Arrays.fill(chroma, (byte) 128);
+        return new YuvTransform.Planes(
+            ByteBuffer.wrap(y),
+            width,
+            1,
+            ByteBuffer.wrap(chroma),
+            ByteBuffer.wrap(chroma),
+            width / 2,
+            1,
+            width,
+            height
+        );
+    }
+
+    @Test
+    public void capsTheSlotCountByTheByteBudget() {
+        int slot = YuvTransform.nv21Size(64, 48);
+        FrameHistory history = new FrameHistory(30, 64, 48, slot * 5L + 1);
+        assertEquals(5, history.getCapacity());
+        assertEquals(slot * 5L, history.getFootprintBytes());
+
+        assertEquals(30, new FrameHistory(30, 64, 48, Long.MAX_VALUE).getCapacity());
+    }
+
+    @Test
+    public void rejectsABudgetBelowOneFrame() {
+        try {
+            new FrameHistory(30, 64, 48, 100);
+            fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // 64x48 NV21 needs 4608 bytes
+        }
+    }
+
+    @Test
+    public void returnsTheFrameClosestToTheOffset() {
+        FrameHistory history = new FrameHistory(10, 64, 48, Long.MAX_VALUE);
+        byte[] out = new byte[history.getSlotBytes()];
+        assertNull(history.copyClosest(0, 0, out));
+
+        long received = 5_000_000_000L;
+        for (int i = 0; i < 10; i++) {
+            // Sensor time and receive time run on different clocks
+            history.record(i * PERIOD_30FPS, received + i * PERIOD_30FPS, frame(64, 48, i), 0);
+        }
+        long now = received + 9 * PERIOD_30FPS;
+
+        FrameHistory.Frame latest = history.copyClosest(0, now, out);
+        assertEquals(9 * PERIOD_30FPS, latest.timestampNanos);
+        assertEquals(9, out[0]);
+
+        // 100 ms back is three frames back
+        FrameHistory.Frame earlier = history.copyClosest(100_000_000L, now, out);
+        assertEquals(6 * PERIOD_30FPS, earlier.timestampNanos);
+        assertEquals(6, out[0]);
+        assertEquals(3 * PERIOD_30FPS, earlier.ageNanos);
+        assertEquals(64, earlier.width);
+        assertEquals(48, earlier.height);
+
+        // Further back than the ring reaches: the oldest frame
+        assertEquals(0, history.copyClosest(10_000_000_000L, now, out).timestampNanos);
+    }
+
+    @Test
+    public void overwritesTheOldestFrames() {
+        FrameHistory history = new FrameHistory(3, 64, 48, Long.MAX_VALUE);
+        for (int i = 0; i < 5; i++) {
+            history.record(i * PERIOD_30FPS, i * PERIOD_30FPS, frame(64, 48, i), 0);
+        }
+        byte[] out = new byte[history.getSlotBytes()];
+        FrameHistory.Frame oldest = history.copyClosest(10_000_000_000L, 4 * PERIOD_30FPS, out);
+        assertEquals(2 * PERIOD_30FPS, oldest.timestampNanos);
+        assertEquals(2, out[0]);
+        assertEquals(5, history.getRecorded());
+    }
+
+    @Test
+    public void storesFramesUprightAndDownscaled() {
+        FrameHistory history = new FrameHistory(2, 48, 64, Long.MAX_VALUE);
+        // Landscape sensor frame of a portrait scene
+        history.record(0, 0, frame(128, 96, 7), 90);
+        byte[] out = new byte[history.getSlotBytes()];
+        FrameHistory.Frame stored = history.copyClosest(0, 0, out);
+        assertEquals(48, stored.width);
+        assertEquals(64, stored.height);
+        assertEquals(7, out[0]);
+        assertEquals(7, out[48 * 64 - 1]);
+    }
+}
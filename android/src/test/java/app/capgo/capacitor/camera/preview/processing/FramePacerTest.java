@@ -0,0 +1,68 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class FramePacerTest {
+
+    private static final long PERIOD_30FPS = 33_333_333L;
+
+    @Test
+    public void uncappedAdmitsEveryFrame() {
+        FramePacer pacer = new FramePacer(0);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(pacer.admit(i * PERIOD_30FPS));
+        }
+        assertEquals(10, pacer.getAdmitted());
+        assertEquals(0, pacer.getSkipped());
+    }
+
+    @Test
+    public void halfRateCapKeepsEveryOtherFrameDespiteJitter() {
+        FramePacer pacer = new FramePacer(15);
+        long t = 0;
+        for (int i = 0; i < 30; i++) {
+            // +-1 ms of timestamp jitter
+            pacer.admit(t + (i % 2 == 0 ? 1_000_000L : -1_000_000L));
+            t += PERIOD_30FPS;
+        }
+        assertEquals(15, pacer.getAdmitted());
+        assertEquals(15, pacer.getSkipped());
+    }
+
+    @Test
+    public void estimatesFramesDroppedUpstream() {
+        FramePacer pacer = new FramePacer(0);
+        pacer.admit(0);
+        pacer.admit(PERIOD_30FPS);
+        // Analyzer was busy for three sensor frames
+        pacer.admit(5 * PERIOD_30FPS);
+        pacer.admit(6 * PERIOD_30FPS);
+        assertEquals(3, pacer.getDropped());
+        assertEquals(4, pacer.getReceived());
+        assertEquals(PERIOD_30FPS, pacer.getFramePeriodNanos());
+    }
+
+    @Test
+    public void followsASlowerSensorRate() {
+        FramePacer pacer = new FramePacer(0);
+        long t = 0;
+        for (int i = 0; i < 5; i++) {
+            pacer.admit(t);
+            t += PERIOD_30FPS;
+        }
+        // Low light: the sensor drops to 15 fps; gaps look like one drop each until the period is re-estimated
+        for (int i = 0; i < 60; i++) {
+            pacer.admit(t);
+            t += 2 * PERIOD_30FPS;
+        }
+        long droppedBefore = pacer.getDropped();
+        for (int i = 0; i < 10; i++) {
+            pacer.admit(t);
+            t += 2 * PERIOD_30FPS;
+        }
+        assertEquals(droppedBefore, pacer.getDropped());
+        assertEquals(2 * PERIOD_30FPS, pacer.getFramePeriodNanos());
+    }
+}
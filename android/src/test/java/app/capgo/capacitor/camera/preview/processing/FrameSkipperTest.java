@@ -0,0 +1,49 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class FrameSkipperTest {
+
+    @Test
+    public void fastConsumerRunsOnEveryFrame() {
+        FrameSkipper skipper = new FrameSkipper(33);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(skipper.shouldProcess());
+            skipper.record(5);
+        }
+        assertEquals(1, skipper.getStride());
+        assertEquals(0, skipper.getSkipped());
+    }
+
+    @Test
+    public void slowConsumerIsThinnedToItsBudget() {
+        FrameSkipper skipper = new FrameSkipper(10);
+        int runs = 0;
+        for (int i = 0; i < 300; i++) {
+            if (skipper.shouldProcess()) {
+                skipper.record(35);
+                runs++;
+            }
+        }
+        assertEquals(4, skipper.getStride());
+        assertEquals(300 - runs, skipper.getSkipped());
+        assertTrue(runs * 35.0 / 300 <= 10.5);
+        assertEquals(35, skipper.getMaxMs(), 1e-9);
+    }
+
+    @Test
+    public void strideFallsBackWhenTheConsumerSpeedsUp() {
+        FrameSkipper skipper = new FrameSkipper(10);
+        skipper.shouldProcess();
+        skipper.record(50);
+        assertEquals(5, skipper.getStride());
+        for (int i = 0; i < 200; i++) {
+            if (skipper.shouldProcess()) {
+                skipper.record(2);
+            }
+        }
+        assertEquals(1, skipper.getStride());
+    }
+}
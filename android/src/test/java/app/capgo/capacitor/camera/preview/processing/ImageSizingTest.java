@@ -0,0 +1,48 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ImageSizingTest {
+
+    @Test
+    public void fitWithinKeepsSourceWithoutMaximums() {
+        assertArrayEquals(new int[] { 4000, 3000 }, ImageSizing.fitWithin(4000, 3000, null, null));
+    }
+
+    @Test
+    public void fitWithinFitsInsideBothMaximums() {
+        // Wider than the box: width bound
+        assertArrayEquals(new int[] { 1000, 750 }, ImageSizing.fitWithin(4000, 3000, 1000, 1000));
+        // Taller than the box: height bound
+        assertArrayEquals(new int[] { 750, 1000 }, ImageSizing.fitWithin(3000, 4000, 1000, 1000));
+    }
+
+    @Test
+    public void fitWithinFollowsAspectRatioWithOneMaximum() {
+        assertArrayEquals(new int[] { 2000, 1500 }, ImageSizing.fitWithin(4000, 3000, 2000, null));
+        assertArrayEquals(new int[] { 800, 600 }, ImageSizing.fitWithin(4000, 3000, null, 600));
+    }
+
+    @Test
+    public void fitWithinNeverReturnsAnEmptySize() {
+        assertArrayEquals(new int[] { 1, 1 }, ImageSizing.fitWithin(10000, 10, 1, null));
+    }
+
+    @Test
+    public void inSampleSizeNeverDecodesBelowTarget() {
+        assertEquals(1, ImageSizing.calculateInSampleSize(4000, 3000, 4000, 3000));
+        assertEquals(2, ImageSizing.calculateInSampleSize(4000, 3000, 2000, 1500));
+        assertEquals(2, ImageSizing.calculateInSampleSize(4000, 3000, 1999, 1400));
+        assertEquals(4, ImageSizing.calculateInSampleSize(8160, 6120, 1920, 1440));
+        // The short side limits the sample size
+        assertEquals(1, ImageSizing.calculateInSampleSize(4000, 3000, 1000, 2000));
+    }
+
+    @Test
+    public void inSampleSizeIgnoresInvalidSizes() {
+        assertEquals(1, ImageSizing.calculateInSampleSize(0, 3000, 100, 100));
+        assertEquals(1, ImageSizing.calculateInSampleSize(4000, 3000, 0, 100));
+    }
+}
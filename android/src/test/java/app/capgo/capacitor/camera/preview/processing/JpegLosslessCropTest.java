@@ -0,0 +1,182 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import static org.junit.Assert.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import org.junit.Test;
+import org.w3c.dom.Node;
+
+public class JpegLosslessCropTest {
+
+    private static final String JPEG_METADATA_FORMAT = "javax_imageio_jpeg_image_1.0";
+
+    /** Smooth gradients plus noise, so neighbouring blocks differ and a misplaced block shows. */
+    private static BufferedImage image(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(width * 31L + height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(32)) & 0xFF;
+                int g = (y * 255 / height + random.nextInt(32)) & 0xFF;
+                int b = ((x + y) * 4 + random.nextInt(32)) & 0xFF;
+                image.setRGB(x, y, r << 16 | g << 8 | b);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Baseline JPEG as the JDK writes it: 4:2:0 for colour, a single component for grayscale.
+     *
+     * @param restartInterval MCUs between restart markers, or 0 for none
+     */
+    private static byte[] encode(BufferedImage image, int restartInterval, boolean progressive) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(0.9f);
+        if (progressive) {
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        }
+        IIOMetadata metadata = writer.getDefaultImageMetadata(new ImageTypeSpecifier(image), param);
+        if (restartInterval > 0) {
+            IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(JPEG_METADATA_FORMAT);
+            Node markers = root.getElementsByTagName("markerSequence").item(0);
+            IIOMetadataNode dri = new IIOMetadataNode("dri");
+            dri.setAttribute("interval", Integer.toString(restartInterval));
+            markers.insertBefore(dri, markers.getFirstChild());
+            metadata.setFromTree(JPEG_METADATA_FORMAT, root);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, metadata), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static BufferedImage decode(byte[] jpeg) throws IOException {
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(jpeg));
+        assertNotNull("undecodable JPEG", decoded);
+        return decoded;
+    }
+
+    private static boolean containsMarker(byte[] jpeg, int first, int last) {
+        for (int i = 0; i + 1 < jpeg.length; i++) {
+            int marker = jpeg[i + 1] & 0xFF;
+            if ((jpeg[i] & 0xFF) == 0xFF && marker >= first && marker <= last) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Asserts the decoded crop equals the decoded original over the crop, {@code margin} pixels in from every edge:
+     * the DCT blocks are copied untouched, but chroma upsampling blends in neighbours the crop no longer has.
+     */
+    private static void assertMatchesOriginal(byte[] original, JpegLosslessCrop.Result result, int margin) throws IOException {
+        BufferedImage source = decode(original);
+        BufferedImage cropped = decode(result.jpeg);
+        assertEquals(result.width, cropped.getWidth());
+        assertEquals(result.height, cropped.getHeight());
+        for (int y = margin; y < result.height - margin; y++) {
+            for (int x = margin; x < result.width - margin; x++) {
+                int expected = source.getRGB(result.x + x, result.y + y);
+                assertEquals("pixel " + x + "," + y, Integer.toHexString(expected), Integer.toHexString(cropped.getRGB(x, y)));
+            }
+        }
+    }
+
+    @Test
+    public void snapsTheOriginToTheMcuGridAndKeepsTheFarEdgesExact() throws Exception {
+        byte[] jpeg = encode(image(100, 80, BufferedImage.TYPE_INT_RGB), 0, false);
+        assertArrayEquals(new int[] { 16, 16 }, JpegLosslessCrop.mcuSize(jpeg));
+
+        JpegLosslessCrop.Result result = JpegLosslessCrop.crop(jpeg, 21, 13, 50, 40);
+        assertEquals(16, result.x);
+        assertEquals(0, result.y);
+        // Right and bottom stay at 71 and 53
+        assertEquals(55, result.width);
+        assertEquals(53, result.height);
+        BufferedImage decoded = decode(result.jpeg);
+        assertEquals(55, decoded.getWidth());
+        assertEquals(53, decoded.getHeight());
+
+        // Clamped to the image, then snapped
+        result = JpegLosslessCrop.crop(jpeg, 90, 70, 100, 100);
+        assertEquals(80, result.x);
+        assertEquals(64, result.y);
+        assertEquals(20, result.width);
+        assertEquals(16, result.height);
+    }
+
+    @Test
+    public void cropsColourSubsampledJpegsWithoutTouchingTheKeptBlocks() throws Exception {
+        byte[] jpeg = encode(image(160, 120, BufferedImage.TYPE_INT_RGB), 0, false);
+        JpegLosslessCrop.Result result = JpegLosslessCrop.crop(jpeg, 40, 24, 90, 70);
+        assertEquals(32, result.x);
+        assertEquals(16, result.y);
+        assertMatchesOriginal(jpeg, result, 8);
+    }
+
+    @Test
+    public void cropsGrayscaleJpegsAlongTheBlockGrid() throws Exception {
+        byte[] jpeg = encode(image(100, 80, BufferedImage.TYPE_BYTE_GRAY), 0, false);
+        // One component: the MCU is a single 8x8 block
+        assertArrayEquals(new int[] { 8, 8 }, JpegLosslessCrop.mcuSize(jpeg));
+
+        JpegLosslessCrop.Result result = JpegLosslessCrop.crop(jpeg, 21, 13, 50, 40);
+        assertEquals(16, result.x);
+        assertEquals(8, result.y);
+        assertEquals(55, result.width);
+        assertEquals(45, result.height);
+        // No upsampling: every pixel matches, edges included
+        assertMatchesOriginal(jpeg, result, 0);
+    }
+
+    @Test
+    public void dropsRestartIntervals() throws Exception {
+        for (int interval : new int[] { 1, 3 }) {
+            byte[] jpeg = encode(image(160, 120, BufferedImage.TYPE_INT_RGB), interval, false);
+            assertTrue("fixture lacks a DRI segment", containsMarker(jpeg, 0xDD, 0xDD));
+            assertTrue("fixture lacks restart markers", containsMarker(jpeg, 0xD0, 0xD7));
+
+            JpegLosslessCrop.Result result = JpegLosslessCrop.crop(jpeg, 40, 24, 90, 70);
+            // The output is one uninterrupted scan, so neither the interval nor the markers may remain
+            assertFalse(containsMarker(result.jpeg, 0xDD, 0xDD));
+            assertFalse(containsMarker(result.jpeg, 0xD0, 0xD7));
+            assertMatchesOriginal(jpeg, result, 8);
+        }
+    }
+
+    @Test
+    public void rejectsWhatItCannotCropLosslessly() throws Exception {
+        try {
+            JpegLosslessCrop.crop(encode(image(64, 64, BufferedImage.TYPE_INT_RGB), 0, true), 8, 8, 32, 32);
+            fail("expected an IOException");
+        } catch (IOException expected) {
+            // progressive JPEGs have several scans
+        }
+        try {
+            JpegLosslessCrop.crop(new byte[] { (byte) 0x89, 'P', 'N', 'G' }, 0, 0, 1, 1);
+            fail("expected an IOException");
+        } catch (IOException expected) {
+            // not a JPEG at all
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class MemoryPlannerTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    public void decodesDirectlyWhenTheBudgetAllows() {
+        MemoryPlanner.Plan plan = MemoryPlanner.planDecode(4000, 3000, 2000, 1500, 256 * MB);
+        assertEquals(MemoryPlanner.STRATEGY_DIRECT, plan.strategy);
+        assertEquals(2, plan.sampleSize);
+        assertEquals(2000, plan.width);
+        assertEquals(1500, plan.height);
+        assertEquals(2 * 2000L * 1500 * 4, plan.estimatedBytes);
+        assertFalse(plan.degraded);
+    }
+
+    @Test
+    public void tilesBeforeDownscaling() {
+        // 12MP at full size: 48MB decoded + 48MB output does not fit 64MB, the output plus bands does
+        MemoryPlanner.Plan plan = MemoryPlanner.planDecode(4000, 3000, 4000, 3000, 64 * MB);
+        assertTrue(plan.isTiled());
+        assertFalse(plan.degraded);
+        assertEquals(4000, plan.width);
+        assertEquals(0, plan.bandSourceRows % plan.sampleSize);
+        assertTrue(plan.bandSourceRows > 0);
+        assertTrue(plan.estimatedBytes <= plan.budgetBytes);
+    }
+
+    @Test
+    public void downscalesWhenTheOutputAloneDoesNotFit() {
+        // 50MP output is ~190MB
+        MemoryPlanner.Plan plan = MemoryPlanner.planDecode(8160, 6120, 8160, 6120, 128 * MB);
+        assertTrue(plan.degraded);
+        assertTrue(plan.width < 8160);
+        assertEquals(8160f / 6120f, (float) plan.width / plan.height, 0.01f);
+        assertTrue(plan.estimatedBytes <= plan.budgetBytes);
+    }
+
+    @Test
+    public void reportsAnOverrunInsteadOfLooping() {
+        MemoryPlanner.Plan plan = MemoryPlanner.planDecode(8160, 6120, 8160, 6120, 1);
+        assertTrue(plan.degraded);
+        assertEquals(1, plan.width);
+        assertEquals(1, plan.height);
+    }
+
+    @Test
+    public void buffersShrinkToTheBudget() {
+        MemoryPlanner.Plan fits = MemoryPlanner.planBuffer(4000, 3000, 2.0, 64 * MB);
+        assertFalse(fits.degraded);
+        assertEquals(4000, fits.width);
+
+        MemoryPlanner.Plan shrunk = MemoryPlanner.planBuffer(16320, 12240, 2.0, 64 * MB);
+        assertTrue(shrunk.degraded);
+        assertTrue(shrunk.estimatedBytes <= 64 * MB);
+    }
+}
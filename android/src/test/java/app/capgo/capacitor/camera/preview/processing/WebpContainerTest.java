@@ -0,0 +1,212 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class WebpContainerTest {
+
+    private static final int FLAG_ALPHA = 0x10;
+    private static final int FLAG_EXIF = 0x08;
+
+    private static final class Chunk {
+
+        final String fourCc;
+        final byte[] payload;
+
+        Chunk(String fourCc, byte[] payload) {
+            this.fourCc = fourCc;
+            this.payload = payload;
+        }
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (seed + i * 7);
+        }
+        return data;
+    }
+
+    private static void writeLe32(ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >> 8);
+        out.write(value >> 16);
+        out.write(value >> 24);
+    }
+
+    private static byte[] chunk(String fourCc, byte[] payload) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(fourCc.getBytes(StandardCharsets.US_ASCII), 0, 4);
+        writeLe32(out, payload.length);
+        out.write(payload, 0, payload.length);
+        if ((payload.length & 1) != 0) {
+            out.write(0);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] riff(byte[]... chunks) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write('W');
+        body.write('E');
+        body.write('B');
+        body.write('P');
+        for (byte[] chunk : chunks) {
+            body.write(chunk, 0, chunk.length);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("RIFF".getBytes(StandardCharsets.US_ASCII), 0, 4);
+        writeLe32(out, body.size());
+        byte[] data = body.toByteArray();
+        out.write(data, 0, data.length);
+        return out.toByteArray();
+    }
+
+    /** VP8X payload: flags, three reserved bytes, then the canvas size minus one as 24-bit values. */
+    private static byte[] vp8x(int flags, int width, int height) {
+        byte[] payload = new byte[10];
+        payload[0] = (byte) flags;
+        payload[4] = (byte) (width - 1);
+        payload[5] = (byte) ((width - 1) >> 8);
+        payload[7] = (byte) (height - 1);
+        payload[8] = (byte) ((height - 1) >> 8);
+        return payload;
+    }
+
+    /** VP8L payload: signature byte, then 14-bit width - 1, 14-bit height - 1 and the alpha_is_used bit. */
+    private static byte[] vp8l(int width, int height, boolean alpha) {
+        byte[] payload = bytes(21, 3);
+        long header = (width - 1) | ((long) (height - 1) << 14) | ((alpha ? 1L : 0L) << 28);
+        payload[0] = 0x2F;
+        for (int i = 0; i < 4; i++) {
+            payload[1 + i] = (byte) (header >> (8 * i));
+        }
+        return payload;
+    }
+
+    private static int readLe(byte[] data, int offset, int length) {
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            value |= (data[offset + i] & 0xFF) << (8 * i);
+        }
+        return value;
+    }
+
+    /** Splits a WebP file into chunks, asserting the RIFF size and that every chunk starts on an even offset. */
+    private static List<Chunk> chunks(byte[] webp) {
+        assertTrue(WebpContainer.isWebp(webp));
+        assertEquals("RIFF size", webp.length - 8, readLe(webp, 4, 4));
+        assertEquals("RIFF files have an even length", 0, webp.length & 1);
+        List<Chunk> chunks = new ArrayList<>();
+        int offset = 12;
+        while (offset < webp.length) {
+            int size = readLe(webp, offset + 4, 4);
+            byte[] payload = new byte[size];
+            System.arraycopy(webp, offset + 8, payload, 0, size);
+            chunks.add(new Chunk(new String(webp, offset, 4, StandardCharsets.US_ASCII), payload));
+            if ((size & 1) != 0) {
+                assertEquals("padding byte", 0, webp[offset + 8 + size]);
+            }
+            offset += 8 + size + (size & 1);
+        }
+        assertEquals(webp.length, offset);
+        return chunks;
+    }
+
+    private static void assertFourCcs(List<Chunk> chunks, String... expected) {
+        String[] actual = new String[chunks.size()];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = chunks.get(i).fourCc;
+        }
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void wrapsALossyFileInAnExtendedOne() {
+        // Odd-sized bitstream: its padding byte must survive
+        byte[] bitstream = bytes(11, 1);
+        byte[] tiff = bytes(20, 2);
+        List<Chunk> out = chunks(WebpContainer.withExif(riff(chunk("VP8 ", bitstream)), tiff, 640, 480));
+
+        assertFourCcs(out, "VP8X", "VP8 ", "EXIF");
+        byte[] header = out.get(0).payload;
+        assertEquals(FLAG_EXIF, header[0]);
+        assertEquals(639, readLe(header, 4, 3));
+        assertEquals(479, readLe(header, 7, 3));
+        assertArrayEquals(bitstream, out.get(1).payload);
+        assertArrayEquals(tiff, out.get(2).payload);
+    }
+
+    @Test
+    public void flagsAlphaOnlyForLosslessFilesThatUseIt() {
+        byte[] tiff = bytes(8, 4);
+        List<Chunk> opaque = chunks(WebpContainer.withExif(riff(chunk("VP8L", vp8l(32, 16, false))), tiff, 32, 16));
+        assertFourCcs(opaque, "VP8X", "VP8L", "EXIF");
+        assertEquals(FLAG_EXIF, opaque.get(0).payload[0]);
+
+        List<Chunk> translucent = chunks(WebpContainer.withExif(riff(chunk("VP8L", vp8l(32, 16, true))), tiff, 32, 16));
+        assertEquals(FLAG_EXIF | FLAG_ALPHA, translucent.get(0).payload[0]);
+        assertArrayEquals(vp8l(32, 16, true), translucent.get(1).payload);
+    }
+
+    @Test
+    public void keepsAnExtendedFilesHeaderAndChunks() {
+        byte[] alpha = bytes(7, 5);
+        byte[] bitstream = bytes(30, 6);
+        byte[] webp = riff(chunk("VP8X", vp8x(FLAG_ALPHA, 100, 50)), chunk("ALPH", alpha), chunk("VP8 ", bitstream));
+        // The existing canvas size wins over the one passed in
+        List<Chunk> out = chunks(WebpContainer.withExif(webp, bytes(9, 7), 640, 480));
+
+        assertFourCcs(out, "VP8X", "ALPH", "VP8 ", "EXIF");
+        byte[] header = out.get(0).payload;
+        assertEquals(FLAG_ALPHA | FLAG_EXIF, header[0]);
+        assertEquals(99, readLe(header, 4, 3));
+        assertEquals(49, readLe(header, 7, 3));
+        assertArrayEquals(alpha, out.get(1).payload);
+        assertArrayEquals(bitstream, out.get(2).payload);
+    }
+
+    @Test
+    public void replacesAnExistingExifChunk() {
+        byte[] webp = riff(chunk("VP8X", vp8x(FLAG_EXIF, 64, 64)), chunk("VP8 ", bytes(12, 8)), chunk("EXIF", bytes(33, 9)));
+        byte[] tiff = bytes(15, 10);
+        List<Chunk> out = chunks(WebpContainer.withExif(webp, tiff, 64, 64));
+
+        assertFourCcs(out, "VP8X", "VP8 ", "EXIF");
+        assertEquals(FLAG_EXIF, out.get(0).payload[0]);
+        assertArrayEquals(tiff, out.get(2).payload);
+    }
+
+    @Test
+    public void padsAnOddSizedExifChunk() {
+        byte[] tiff = bytes(13, 11);
+        byte[] out = WebpContainer.withExif(riff(chunk("VP8 ", bytes(10, 12))), tiff, 8, 8);
+        // 12-byte header, VP8X (8 + 10), VP8 (8 + 10), EXIF (8 + 13 + 1 padding byte)
+        assertEquals(12 + 18 + 18 + 22, out.length);
+        assertArrayEquals(tiff, chunks(out).get(2).payload);
+    }
+
+    @Test
+    public void rejectsMalformedInput() {
+        try {
+            WebpContainer.withExif(new byte[] { 'R', 'I', 'F', 'F', 4, 0, 0, 0, 'W', 'A', 'V', 'E' }, bytes(8, 0), 8, 8);
+            fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // a RIFF file, but not WebP
+        }
+        byte[] truncated = riff(chunk("VP8 ", bytes(40, 0)));
+        byte[] shortened = new byte[truncated.length - 10];
+        System.arraycopy(truncated, 0, shortened, 0, shortened.length);
+        try {
+            WebpContainer.withExif(shortened, bytes(8, 0), 8, 8);
+            fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // the bitstream chunk runs past the end of the file
+        }
+    }
+}
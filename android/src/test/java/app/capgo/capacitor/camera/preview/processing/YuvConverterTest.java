@@ -0,0 +1,201 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.Test;
+
+public class YuvConverterTest {
+
+    /**
+     * Random planes with padded rows; chroma is planar ({@code uvPixelStride} 1) or U/V views into one interleaved
+     * buffer ({@code uvPixelStride} 2), as cameras deliver it.
+     */
+    private static YuvTransform.Planes planes(int width, int height, int uvPixelStride, long seed) {
+        Random random = new Random(seed);
+        int yRowStride = width + 7;
+        byte[] y = new byte[yRowStride * height];
+        random.nextBytes(y);
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        if (uvPixelStride == 1) {
+            int uvRowStride = chromaWidth + 3;
+            byte[] u = new byte[uvRowStride * chromaHeight];
+            byte[] v = new byte[u.length];
+            random.nextBytes(u);
+            random.nextBytes(v);
+            return new YuvTransform.Planes(
+                ByteBuffer.wrap(y),
+                yRowStride,
+                1,
+                ByteBuffer.wrap(u),
+                ByteBuffer.wrap(v),
+                uvRowStride,
+                1,
+                width,
+                height
+            );
+        }
+        int uvRowStride = 2 * chromaWidth + 4;
+        ByteBuffer vu = ByteBuffer.allocateDirect(uvRowStride * chromaHeight);
+        byte[] bytes = new byte[vu.capacity()];
+        random.nextBytes(bytes);
+        vu.put(bytes).clear();
+        ByteBuffer v = vu.duplicate();
+        vu.position(1);
+        return new YuvTransform.Planes(ByteBuffer.wrap(y), yRowStride, 1, vu.slice(), v, uvRowStride, 2, width, height);
+    }
+
+    private static int sample(ByteBuffer plane, int index) {
+        return plane.get(index) & 0xFF;
+    }
+
+    /** Straightforward floating-point BT.601 full-range conversion of one pixel. */
+    private static int referenceArgb(YuvTransform.Planes p, int x, int row) {
+        double luma = sample(p.y, row * p.yRowStride + x * p.yPixelStride);
+        int chroma = (row / 2) * p.uvRowStride + (x / 2) * p.uvPixelStride;
+        double cb = sample(p.u, chroma) - 128;
+        double cr = sample(p.v, chroma) - 128;
+        int r = (int) Math.max(0, Math.min(255, Math.round(luma + 1.402 * cr)));
+        int g = (int) Math.max(0, Math.min(255, Math.round(luma - 0.344136 * cb - 0.714136 * cr)));
+        int b = (int) Math.max(0, Math.min(255, Math.round(luma + 1.772 * cb)));
+        return 0xFF000000 | (r << 16) | (g << 8) | b;
+    }
+
+    private static void assertMatchesReferenceArgb(YuvTransform.Planes p, int[] out) {
+        for (int row = 0; row < p.height; row++) {
+            for (int x = 0; x < p.width; x++) {
+                int expected = referenceArgb(p, x, row);
+                int actual = out[row * p.width + x];
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    int delta = Math.abs(((expected >> shift) & 0xFF) - ((actual >> shift) & 0xFF));
+                    assertTrue("pixel " + x + "," + row + " off by " + delta, delta <= 1);
+                }
+                assertEquals(0xFF, actual >>> 24);
+            }
+        }
+    }
+
+    @Test
+    public void copiesStridedPlanesToNv21() {
+        for (int uvPixelStride = 1; uvPixelStride <= 2; uvPixelStride++) {
+            YuvTransform.Planes p = planes(6, 4, uvPixelStride, 1);
+            byte[] out = new byte[YuvTransform.nv21Size(6, 4)];
+            try (YuvConverter converter = new YuvConverter(1)) {
+                converter.toNv21(p, out);
+            }
+            for (int row = 0; row < 4; row++) {
+                for (int x = 0; x < 6; x++) {
+                    assertEquals(p.y.get(row * p.yRowStride + x), out[row * 6 + x]);
+                }
+            }
+            for (int row = 0; row < 2; row++) {
+                for (int x = 0; x < 3; x++) {
+                    int index = row * p.uvRowStride + x * uvPixelStride;
+                    assertEquals(p.v.get(index), out[24 + row * 6 + 2 * x]);
+                    assertEquals(p.u.get(index), out[24 + row * 6 + 2 * x + 1]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void convertsToArgbWithinRoundingOfTheReference() {
+        for (int uvPixelStride = 1; uvPixelStride <= 2; uvPixelStride++) {
+            YuvTransform.Planes p = planes(33, 17, uvPixelStride, 2);
+            int[] out = new int[YuvConverter.argbSize(33, 17)];
+            try (YuvConverter converter = new YuvConverter(1)) {
+                converter.toArgb(p, out);
+            }
+            assertMatchesReferenceArgb(p, out);
+        }
+    }
+
+    @Test
+    public void parallelBandsMatchTheSingleThreadedResult() {
+        YuvTransform.Planes p = planes(320, 486, 2, 3);
+        byte[] serialNv21 = new byte[YuvTransform.nv21Size(320, 486)];
+        int[] serialArgb = new int[YuvConverter.argbSize(320, 486)];
+        try (YuvConverter serial = new YuvConverter(1)) {
+            serial.toNv21(p, serialNv21);
+            serial.toArgb(p, serialArgb);
+        }
+
+        byte[] nv21 = new byte[serialNv21.length];
+        int[] argb = new int[serialArgb.length];
+        try (YuvConverter parallel = new YuvConverter(4)) {
+            assertEquals(4, parallel.getBands());
+            // Reused output arrays and repeated conversions, as for a stream of frames
+            for (int i = 0; i < 3; i++) {
+                parallel.toNv21(p, nv21);
+                parallel.toArgb(p, argb);
+            }
+        }
+        assertArrayEquals(serialNv21, nv21);
+        assertArrayEquals(serialArgb, argb);
+        assertMatchesReferenceArgb(p, argb);
+    }
+
+    @Test
+    public void closingDuringAConversionNeverLeavesTheCallerWaiting() throws Exception {
+        YuvTransform.Planes p = planes(320, 1024, 2, 6);
+        final byte[] out = new byte[YuvTransform.nv21Size(320, 1024)];
+        for (int i = 0; i < 50; i++) {
+            final YuvConverter converter = new YuvConverter(4);
+            final Throwable[] unexpected = new Throwable[1];
+            Thread caller = new Thread(() -> {
+                try {
+                    while (true) {
+                        converter.toNv21(p, out);
+                    }
+                } catch (IllegalStateException expected) {
+                    // closed before or while converting
+                } catch (Throwable t) {
+                    unexpected[0] = t;
+                }
+            });
+            caller.start();
+            Thread.sleep(i % 4);
+            converter.close();
+            caller.join(5000);
+            assertFalse("conversion still waiting after close, iteration " + i, caller.isAlive());
+            assertNull(unexpected[0]);
+        }
+    }
+
+    @Test
+    public void leavesPlanePositionsUntouched() {
+        YuvTransform.Planes p = planes(256, 256, 2, 4);
+        try (YuvConverter converter = new YuvConverter(2)) {
+            converter.toNv21(p, new byte[YuvTransform.nv21Size(256, 256)]);
+        }
+        assertEquals(0, p.y.position());
+        assertEquals(0, p.u.position());
+        assertEquals(0, p.v.position());
+    }
+
+    @Test
+    public void rejectsUndersizedOutputAndOddNv21Sizes() {
+        try (YuvConverter converter = new YuvConverter(1)) {
+            try {
+                converter.toNv21(planes(4, 4, 1, 5), new byte[23]);
+                fail("expected an IllegalArgumentException");
+            } catch (IllegalArgumentException expected) {
+                // 4x4 NV21 needs 24 bytes
+            }
+            try {
+                converter.toNv21(planes(5, 4, 1, 5), new byte[64]);
+                fail("expected an IllegalArgumentException");
+            } catch (IllegalArgumentException expected) {
+                // NV21 needs even sizes
+            }
+            try {
+                converter.toArgb(planes(4, 4, 1, 5), new int[15]);
+                fail("expected an IllegalArgumentException");
+            } catch (IllegalArgumentException expected) {
+                // one int per pixel
+            }
+        }
+    }
+}
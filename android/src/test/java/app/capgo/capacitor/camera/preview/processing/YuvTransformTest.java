@@ -0,0 +1,73 @@
+package app.capgo.capacitor.camera.preview.processing;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+public class YuvTransformTest {
+
+    /** Planes of a {@code width x height} image whose luma is {@code x + 10 * y}, with constant chroma. */
+    private static YuvTransform.Planes planes(int width, int height) {
+        byte[] y = new byte[width * height];
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                y[row * width + col] = (byte) (col + 10 * row);
+            }
+        }
+        byte[] u = new byte[(width / 2) * (height / 2)];
+        byte[] v = new byte[u.length];
+        java.util.Arrays.fill(u, (byte) 100);
+        java.util.Arrays.fill(v, (byte) 200);
+        return new YuvTransform.Planes(ByteBuffer.wrap(y), width, 1, ByteBuffer.wrap(u), ByteBuffer.wrap(v), width / 2, 1, width, height);
+    }
+
+    @Test
+    public void copiesWithoutRotationOrScale() {
+        byte[] out = new byte[YuvTransform.nv21Size(4, 2)];
+        YuvTransform.cropRotateScaleToNv21(planes(4, 2), new int[] { 0, 0, 4, 2 }, 0, 4, 2, out);
+        assertArrayEquals(new byte[] { 0, 1, 2, 3, 10, 11, 12, 13, (byte) 200, 100, (byte) 200, 100 }, out);
+    }
+
+    @Test
+    public void rotatesClockwise() {
+        byte[] out = new byte[YuvTransform.nv21Size(2, 4)];
+        YuvTransform.cropRotateScaleToNv21(planes(4, 2), new int[] { 0, 0, 4, 2 }, 90, 2, 4, out);
+        // Upright row r is stored column r read bottom-up
+        assertArrayEquals(new byte[] { 10, 0, 11, 1, 12, 2, 13, 3 }, java.util.Arrays.copyOf(out, 8));
+    }
+
+    @Test
+    public void boxFiltersWhenDownscaling() {
+        byte[] out = new byte[YuvTransform.nv21Size(2, 2)];
+        YuvTransform.cropRotateScaleToNv21(planes(4, 4), new int[] { 0, 0, 4, 4 }, 0, 2, 2, out);
+        // Mean of {0, 1, 10, 11} and so on
+        assertArrayEquals(new byte[] { 5, 7, 25, 27 }, java.util.Arrays.copyOf(out, 4));
+    }
+
+    @Test
+    public void extractsCroppedRotatedLumaAtAnySize() {
+        // Stored columns 1-3 of rows 0-1, turned upright (each row is a stored column read bottom-up): 2 wide, 3 tall
+        byte[] out = new byte[6];
+        YuvTransform.cropRotateScaleLuma(planes(4, 2), new int[] { 1, 0, 3, 2 }, 90, 2, 3, out);
+        assertArrayEquals(new byte[] { 11, 1, 12, 2, 13, 3 }, out);
+    }
+
+    @Test
+    public void boxFiltersLumaWhenDownscaling() {
+        byte[] out = new byte[1];
+        YuvTransform.cropRotateScaleLuma(planes(4, 4), new int[] { 2, 2, 2, 2 }, 0, 1, 1, out);
+        // Mean of {22, 23, 32, 33}
+        assertArrayEquals(new byte[] { 27 }, out);
+    }
+
+    @Test
+    public void rejectsOddOutputSizes() {
+        try {
+            YuvTransform.cropRotateScaleToNv21(planes(4, 4), new int[] { 0, 0, 4, 4 }, 0, 3, 2, new byte[64]);
+            fail("expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // NV21 needs even sizes
+        }
+    }
+}
@@ -6,6 +6,10 @@ export type FlashMode = CameraPreviewFlashMode;
 
 export type GridMode = 'none' | '3x3' | '4x4';
 
+export type CaptureMode = 'minimizeLatency' | 'maximizeQuality' | 'zeroShutterLag';
+
+export type CaptureResultOrder = 'request' | 'completion';
+
 export type CameraPositioning = 'center' | 'top' | 'bottom';
 
 export interface CameraPermissionStatus {
@@ -180,6 +184,52 @@ export interface CameraPreviewOptions {
    * @default false
    */
   disableExifHeaderStripping?: boolean;
+  /**
+   * If true, in-memory captures are taken as YUV frames that are cropped, rotated and scaled before a single
+   * JPEG encode, instead of decoding and re-encoding the camera's JPEG. Captures with overlays
+   * (`embedTimestamp`, `embedLocation`) or the passthrough fast path still use the JPEG pipeline.
+   * Compare the two with `metrics.pipeline` and `metrics.latencyMs` on the capture result.
+   * @platform android
+   * @default false
+   * @since 8.8.0
+   */
+  yuvCapture?: boolean;
+  /**
+   * Trades capture latency against quality: `minimizeLatency`, `maximizeQuality` (multi-frame processing where the
+   * device offers it), or `zeroShutterLag` (returns a frame buffered at the moment of the tap). Zero shutter lag
+   * falls back to `minimizeLatency` on cameras without support, while the flash is on or auto, and in video mode;
+   * {@link CameraPreviewPlugin.getCaptureMode} reports the mode in effect.
+   * @platform android
+   * @default "minimizeLatency"
+   * @since 8.8.0
+   */
+  captureMode?: CaptureMode;
+  /**
+   * Heap memory, in megabytes, one capture may use while it is decoded and processed. Captures that would need more
+   * are decoded in bands or, failing that, returned at a lower resolution (reported in `metrics.memory`) instead of
+   * running out of memory. Passthrough captures are never decoded and are not affected.
+   * Defaults to half of the app's heap, capped by the memory still free at capture time.
+   * @platform android
+   * @since 8.8.0
+   */
+  processingMemoryBudgetMB?: number;
+  /**
+   * How many `capture` calls (and, separately, `captureSample` calls) may be in flight at once. Calls beyond the
+   * limit reject right away with the code `captureQueueFull` instead of queueing. Calls still in flight when the
+   * camera stops or restarts reject with the code `cameraStopped`.
+   * @platform android
+   * @default 4
+   * @since 8.8.0
+   */
+  maxConcurrentCaptures?: number;
+  /**
+   * Order in which concurrent `capture` / `captureSample` calls resolve: `'request'` holds a finished result until
+   * every earlier call has settled, `'completion'` resolves each call as soon as its image is ready.
+   * @platform android
+   * @default "request"
+   * @since 8.8.0
+   */
+  captureResultOrder?: CaptureResultOrder;
   /**
    * If true, disables the audio stream, preventing audio permission requests.
    * @default true
@@ -265,12 +315,15 @@ export interface CameraPreviewPictureOptions {
   width?: number;
   /**
    * The quality of the captured image, from 0 to 100.
-   * Does not apply to `png` format.
+   * Does not apply to `png` and `webp-lossless` formats.
    * @default 85
    */
   quality?: number;
   /**
-   * The format of the captured image.
+   * The format of the captured image. The same encoding is used when `saveToGallery` is true.
+   * EXIF metadata is kept for `jpeg`, `webp`, `webp-lossless` and `heic`; `png` carries none.
+   * On Android, `heic` needs Android 9 and a hardware HEVC encoder; capture rejects otherwise.
+   * Any format other than `jpeg` disables `passthrough` and `yuvCapture`.
    * @default "jpeg"
    */
   format?: PictureFormat;
@@ -300,6 +353,19 @@ export interface CameraPreviewPictureOptions {
    * @since 7.18.0
    */
   embedLocation?: boolean;
+  /**
+   * Extra lines of text drawn as pills below the timestamp and location (for example a job or asset number).
+   * @platform android
+   * @since 8.8.0
+   */
+  overlayText?: string[];
+  /**
+   * If true, draws the watermark configured with {@link CameraPreviewPlugin.setWatermark}.
+   * @platform android
+   * @default false
+   * @since 8.8.0
+   */
+  embedWatermark?: boolean;
   /**
    * Sets the priority for photo quality vs. capture speed.
    * - "speed": Prioritizes faster capture times, may reduce image quality.
@@ -312,6 +378,381 @@ export interface CameraPreviewPictureOptions {
    * @default "speed"
    */
   photoQualityPrioritization?: 'speed' | 'balanced' | 'quality';
+  /**
+   * Restricts the captured image to a region of the visible preview area.
+   * Coordinates are normalized (0-1) relative to what the preview shows; only that region of the
+   * sensor image is decoded. Combined with `width`/`height`, the region is then fitted within those maximums.
+   * @platform android
+   * @since 8.8.0
+   */
+  roi?: NormalizedRect;
+  /**
+   * If true, returns the JPEG produced by the camera without decoding or re-encoding it.
+   * Rotation is carried by the EXIF `Orientation` tag instead of being applied to the pixels,
+   * and the full sensor frame is returned unless `passthroughCrop` is set.
+   * Ignored when `width`, `height`, `embedTimestamp` or `embedLocation` require pixel changes.
+   * @platform android
+   * @default false
+   * @since 8.8.0
+   */
+  passthrough?: boolean;
+  /**
+   * In `passthrough` mode, crops the JPEG to the visible preview area (narrowed by `roi` when set) without
+   * re-encoding. The crop origin is aligned to the JPEG block grid (8 or 16 pixels), so a few extra pixels
+   * may be kept on the top and left edges. Falls back to the full frame if the JPEG cannot be cropped losslessly.
+   * @platform android
+   * @default false
+   * @since 8.8.0
+   */
+  passthroughCrop?: boolean;
+  /**
+   * Extra EXIF tags to write into the captured image, in the same pass as the orientation, size and heading updates.
+   * Supported tags: `ImageDescription`, `Artist`, `Copyright`, `Software`, `Make`, `Model`, `ImageUniqueID`.
+   * Other names are ignored.
+   * @platform android
+   * @since 8.8.0
+   */
+  exifTags?: Record<string, string>;
+  /**
+   * Which EXIF fields to return with the result: `'none'`, `'basic'` (capture time, orientation, size,
+   * make/model and GPS position/heading), `'all'`, or an explicit list of field names (as in {@link ExifData}).
+   * Narrower selections skip most of the EXIF extraction and shrink the result sent over the bridge.
+   * Use {@link CameraPreviewPlugin.getExif} to read the rest later.
+   * @platform android
+   * @default 'all'
+   * @since 8.8.0
+   */
+  exif?: ExifSelection;
+  /**
+   * Delivers the image as a sequence of `captureChunk` events followed by a `captureStreamEnd` event instead of
+   * one large base64 string; `capture` then resolves with an empty `value` and the `streamId`. Avoids building
+   * a multi-megabyte string on either side of the bridge. Ignored when `storeToFile` is enabled.
+   * See `captureToBlob` for a helper that assembles the chunks into a `Blob`.
+   * @platform android
+   * @default false
+   * @since 8.8.0
+   */
+  stream?: boolean;
+  /**
+   * Raw image bytes per `captureChunk` event when `stream` is set (minimum 16384).
+   * @platform android
+   * @default 524288
+   * @since 8.8.0
+   */
+  streamChunkSize?: number;
+  /**
+   * Identifier reported in the stream events, to match them with this capture. Generated when omitted.
+   * @platform android
+   * @since 8.8.0
+   */
+  streamId?: string;
+  /**
+   * Emits a `captureThumbnail` event with a small JPEG preview (longest edge up to 320 px) as soon as the shutter
+   * completes, framed like the final image, before the full-resolution result is processed.
+   * Uses the JPEG's embedded EXIF thumbnail when present, otherwise a heavily subsampled decode.
+   * @platform android
+   * @default false
+   * @since 8.8.0
+   */
+  thumbnail?: boolean;
+  /**
+   * Identifier of this capture, reported back as `requestId` and accepted by `cancelCapture`. Defaults to an ID
+   * generated by the bridge; set it to be able to cancel the capture before it resolves.
+   * @platform android
+   * @since 8.8.0
+   */
+  requestId?: string;
+}
+
+/** An early, low-resolution preview of a capture, delivered through the `captureThumbnail` event. */
+export interface CaptureThumbnail {
+  /** The `requestId` of the capture the thumbnail belongs to, as resolved by `capture`. */
+  requestId: string;
+  /** The base64 encoded JPEG thumbnail. */
+  value: string;
+  /** The thumbnail width in pixels. */
+  width: number;
+  /** The thumbnail height in pixels. */
+  height: number;
+  /**
+   * Where the pixels came from: the JPEG's EXIF thumbnail, a subsampled decode of the capture, or the YUV frame
+   * (`yuvCapture`).
+   */
+  source: 'exif' | 'decode' | 'yuv';
+}
+
+/**
+ * Defines the options of `startFrameStream`.
+ */
+export interface FrameStreamOptions {
+  /**
+   * Frames per second to deliver at most. Frames the consumer cannot keep up with are dropped, never queued.
+   * `0` delivers every analysis frame.
+   * @default 10
+   */
+  maxFps?: number;
+  /**
+   * The maximum width of a frame in pixels, keeping the aspect ratio. For `jpeg` frames, defaults to 640 when
+   * neither `width` nor `height` is set; `luma` frames keep the region's resolution.
+   */
+  width?: number;
+  /**
+   * The maximum height of a frame in pixels, keeping the aspect ratio. For `jpeg` frames, defaults to 640 when
+   * neither `width` nor `height` is set; `luma` frames keep the region's resolution.
+   */
+  height?: number;
+  /**
+   * How frames are encoded.
+   * @default "jpeg"
+   */
+  format?: FrameStreamFormat;
+  /**
+   * Restricts frames to a region of the upright analysis frame, in normalized (0-1) coordinates. `width` and
+   * `height` then apply to the region.
+   */
+  roi?: NormalizedRect;
+  /**
+   * JPEG quality of the frames, from 0 to 100. Ignored for `luma` frames.
+   * @default 70
+   */
+  quality?: number;
+  /**
+   * Writes each frame to a file in the cache directory and sends its `path` instead of inlining it as base64.
+   * Files are reused round-robin: a path stays valid until four more frames have been delivered.
+   * @default false
+   */
+  toFile?: boolean;
+}
+
+/**
+ * `jpeg` frames are colour JPEGs. `luma` frames are the raw 8-bit brightness (Y plane) of the frame, one byte per
+ * pixel in rows `rowStride` bytes apart, without colour or compression: what barcode, MRZ and OCR scanners read.
+ */
+export type FrameStreamFormat = 'jpeg' | 'luma';
+
+/** An upright analysis frame, delivered through the `frame` event. */
+export interface StreamFrame {
+  /** Zero-based position of the frame in the stream. */
+  index: number;
+  /** Sensor timestamp of the frame, in milliseconds (monotonic clock, not wall time). */
+  timestamp: number;
+  /** The frame width in pixels. */
+  width: number;
+  /** The frame height in pixels. */
+  height: number;
+  /** The frame encoding. */
+  format: FrameStreamFormat;
+  /** Bytes from the start of one row to the next, for `luma` frames. */
+  rowStride?: number;
+  /** The base64 encoded frame, unless `toFile` is set. */
+  value?: string;
+  /** Absolute path of the frame file, when `toFile` is set. */
+  path?: string;
+}
+
+/** Counters of the running frame stream, returned by `getFrameStreamStats`. */
+export interface FrameStreamStats {
+  /** Whether a frame stream is running; the counters are only present when it is. */
+  active: boolean;
+  /** Frames the analyzer received. */
+  received?: number;
+  /** Frames sent through the `frame` event. */
+  delivered?: number;
+  /** Frames turned away by `maxFps`. */
+  skipped?: number;
+  /** Estimated sensor frames dropped because the previous frame was still being converted. */
+  dropped?: number;
+  /** Frames that failed to convert. */
+  failed?: number;
+  /** Average delivered frames per second since the stream started. */
+  fps?: number;
+  /** Average time to convert and encode a frame, in milliseconds. */
+  averageProcessingMs?: number;
+  /** Width of the last delivered frame in pixels. */
+  width?: number;
+  /** Height of the last delivered frame in pixels. */
+  height?: number;
+}
+
+/**
+ * Defines the options of `startFrameHistory`.
+ */
+export interface FrameHistoryOptions {
+  /**
+   * The number of recent frames to keep at most. Fewer are kept when they would not fit `maxMemoryMB`.
+   * @default 30
+   */
+  maxFrames?: number;
+  /**
+   * The maximum width of a recorded frame in pixels, keeping the aspect ratio.
+   * @default 640
+   */
+  width?: number;
+  /**
+   * The maximum height of a recorded frame in pixels, keeping the aspect ratio.
+   * @default 640
+   */
+  height?: number;
+  /**
+   * Memory the recorded frames may take, in megabytes. It is allocated up front and stays fixed while recording.
+   * @default 32
+   */
+  maxMemoryMB?: number;
+}
+
+/** The frame history allocated by `startFrameHistory`. */
+export interface FrameHistoryInfo {
+  /** The number of frames the history holds once full. */
+  frames: number;
+  /** The maximum width of a recorded frame in pixels. */
+  width: number;
+  /** The maximum height of a recorded frame in pixels. */
+  height: number;
+  /** Memory taken by the recorded frames, in bytes. */
+  bytes: number;
+}
+
+/** A frame returned by `captureFromHistory`. */
+export interface HistoryFrame {
+  /** The base64 encoded JPEG. */
+  value: string;
+  /** The frame width in pixels. */
+  width: number;
+  /** The frame height in pixels. */
+  height: number;
+  /** Sensor timestamp of the frame, in milliseconds (monotonic clock, not wall time). */
+  timestamp: number;
+  /** How long before the call the frame was taken, in milliseconds. */
+  offsetMs: number;
+}
+
+/** Timing of one native frame processor, as returned by `getFrameProcessorStats`. */
+export interface FrameProcessorStats {
+  /** Frames the processor ran on. */
+  processed: number;
+  /** Frames withheld from the processor because it was over its time budget. */
+  skipped: number;
+  /** Moving average of the processor's run time, in milliseconds. */
+  averageMs: number;
+  /** Duration of the latest run, in milliseconds. */
+  lastMs: number;
+  /** Longest run so far, in milliseconds. */
+  maxMs: number;
+  /** Time the processor may spend per frame on average, in milliseconds. */
+  budgetMs: number;
+  /** The processor currently runs on one frame out of `stride`. */
+  stride: number;
+  /** Runs that threw. */
+  failures: number;
+}
+
+/** A piece of a streamed capture, delivered through the `captureChunk` event. */
+export interface CaptureChunk {
+  /** The stream the chunk belongs to. */
+  streamId: string;
+  /** The zero-based position of the chunk in the stream. */
+  index: number;
+  /** Base64 of this chunk's bytes; every chunk decodes on its own. */
+  data: string;
+}
+
+/** Marks the end of a streamed capture, delivered through the `captureStreamEnd` event. */
+export interface CaptureStreamEnd {
+  /** The stream that finished. */
+  streamId: string;
+  /** The number of chunks sent. */
+  chunks: number;
+  /** The total size of the image in bytes. */
+  byteLength: number;
+}
+
+/** Selects which EXIF fields are extracted: a preset or an explicit list of field names. */
+export type ExifSelection = 'none' | 'basic' | 'all' | string[];
+
+/** Post-processing timings of a capture. */
+export interface CaptureMetrics {
+  /** Which capture pipeline produced the image: a re-encoded camera JPEG, or YUV planes encoded once. */
+  pipeline: 'jpeg' | 'yuv';
+  /** Time from the capture request to the result being ready, in milliseconds. */
+  latencyMs: number;
+  /** Time spent cropping, rotating and scaling the YUV planes, in milliseconds (`yuv` pipeline only). */
+  yuvConvertMs?: number;
+  /** Time spent reading the source EXIF and writing the output EXIF (a single pass), in milliseconds. */
+  exifWriteMs: number;
+  /**
+   * Wall-clock time of the capture request, in milliseconds since the epoch.
+   *
+   * @since 8.8.0
+   */
+  requestedAt?: number;
+  /**
+   * When each pipeline stage finished, in milliseconds since the capture request (monotonic clock). Stages that do not
+   * apply to a capture are missing.
+   *
+   * @since 8.8.0
+   */
+  timings?: CaptureStageTimings;
+  /**
+   * How the decode was fitted into the processing memory budget (see `processingMemoryBudgetMB`). Missing when the
+   * capture was not decoded.
+   *
+   * @since 8.8.0
+   */
+  memory?: CaptureMemoryPlan;
+}
+
+/** How a capture's decode was fitted into the processing memory budget. */
+export interface CaptureMemoryPlan {
+  /** `direct` decodes the region at once; `tiled` decodes it in bands straight into the output. */
+  strategy: 'direct' | 'tiled';
+  /** Estimated peak bytes of the plan. */
+  estimatedBytes: number;
+  /** The budget the plan was made for, in bytes. */
+  budgetBytes: number;
+  /** True when the image was returned at a lower resolution than requested to stay within the budget. */
+  degraded: boolean;
+}
+
+/**
+ * Stage completion times of a capture, in milliseconds since the request. `dispatched` is only present in
+ * `getCaptureTimings()` entries: it is recorded after the result has been handed to the listener.
+ */
+export interface CaptureStageTimings {
+  /** The sensor exposure started. */
+  shutter?: number;
+  /** The camera delivered the image (`onImageSaved`, or the YUV frame). */
+  imageSaved?: number;
+  /** The JPEG was decoded (cropped and scaled) to a bitmap. */
+  decoded?: number;
+  /** Overlays were drawn, or the YUV planes were cropped, rotated and scaled. */
+  transformed?: number;
+  /** The output image was encoded. */
+  encoded?: number;
+  /** The EXIF block was written. */
+  exifWritten?: number;
+  /** The result was written to a file, converted to Base64 or streamed. */
+  serialized?: number;
+  /** The result was handed to the listener. */
+  dispatched?: number;
+}
+
+/** Recent capture timings, oldest first. */
+export interface CaptureTimings {
+  captures: CaptureMetrics[];
+  /** The number of captures kept. */
+  capacity: number;
+}
+
+/** A rectangle expressed in normalized (0-1) coordinates. */
+export interface NormalizedRect {
+  /** The left edge, from 0 to 1. */
+  x: number;
+  /** The top edge, from 0 to 1. */
+  y: number;
+  /** The width, from 0 to 1. */
+  width: number;
+  /** The height, from 0 to 1. */
+  height: number;
 }
 
 /** Represents EXIF data extracted from an image. */
@@ -319,7 +760,10 @@ export interface ExifData {
   [key: string]: any;
 }
 
-export type PictureFormat = 'jpeg' | 'png';
+/**
+ * Output encoding of a capture. `webp`, `webp-lossless` and `heic` are available on Android since 8.8.0.
+ */
+export type PictureFormat = 'jpeg' | 'png' | 'webp' | 'webp-lossless' | 'heic';
 
 /** Defines a standard picture size with width and height. */
 export interface PictureSize {
@@ -346,6 +790,113 @@ export interface CameraSampleOptions {
    * @default 85
    */
   quality?: number;
+  /**
+   * The maximum width of the sample in pixels, keeping the aspect ratio. Samples are never upscaled beyond the
+   * preview's own resolution.
+   * @platform android
+   * @since 8.8.0
+   */
+  width?: number;
+  /**
+   * The maximum height of the sample in pixels, keeping the aspect ratio. Samples are never upscaled beyond the
+   * preview's own resolution.
+   * @platform android
+   * @since 8.8.0
+   */
+  height?: number;
+  /**
+   * Identifier of this sample, reported back as `requestId` and accepted by `cancelCapture`.
+   * @platform android
+   * @since 8.8.0
+   */
+  requestId?: string;
+}
+
+/**
+ * Defines the options for a burst capture.
+ */
+export interface CameraBurstOptions {
+  /** The number of photos to capture, at most 50; larger values are clamped. */
+  count: number;
+  /**
+   * The delay between two shutter requests, in milliseconds. `0` issues each as soon as the previous shutter fired.
+   * @default 0
+   */
+  intervalMs?: number;
+  /**
+   * The quality of the captured images, from 0 to 100.
+   * @default 85
+   */
+  quality?: number;
+  /** The maximum width of each picture in pixels, see {@link CameraPreviewPictureOptions.width}. */
+  width?: number;
+  /** The maximum height of each picture in pixels, see {@link CameraPreviewPictureOptions.height}. */
+  height?: number;
+  /** Which EXIF fields to return with each frame, see {@link CameraPreviewPictureOptions.exif}. */
+  exif?: ExifSelection;
+}
+
+/** A single frame of a burst capture, delivered through the `burstFrame` event. */
+export interface BurstFrame {
+  /** The zero-based position of the frame in the burst. */
+  index: number;
+  /** Base64 string, or file path if `storeToFile` is true. Absent when the frame failed. */
+  value?: string;
+  /** Extracted EXIF metadata of the frame. */
+  exif?: ExifData;
+  /** Post-processing timings of the frame. */
+  metrics?: CaptureMetrics;
+  /** The reason the frame failed, if it did. */
+  error?: string;
+}
+
+/** Summary of a finished burst capture. */
+export interface BurstResult {
+  /** The number of frames delivered successfully. */
+  captured: number;
+  /** The number of frames that failed. */
+  failed: number;
+  /** Time from the first shutter request to the last processed frame, in milliseconds. */
+  durationMs: number;
+}
+
+/** Watermark drawn by the capture overlay. */
+export interface WatermarkOptions {
+  /** The image, as base64 (optionally a data URL) or a file path. Omit to remove the watermark. */
+  image?: string;
+  /**
+   * The corner the watermark is drawn in.
+   * @default "bottom-right"
+   */
+  position?: 'top-left' | 'top-right' | 'bottom-left' | 'bottom-right';
+  /**
+   * The opacity, from 0 to 1.
+   * @default 1
+   */
+  opacity?: number;
+  /**
+   * The watermark width as a fraction of the image width, from 0 to 1.
+   * @default 0.2
+   */
+  size?: number;
+}
+
+/** Counters of the bitmap pool used by the photo post-processing pipeline. */
+export interface BitmapPoolStats {
+  /** Number of requests served by a pooled bitmap. */
+  hits: number;
+  /** Number of requests that required a new allocation. */
+  misses: number;
+  /** Number of bitmaps released back into the pool. */
+  puts: number;
+  /** Number of pooled bitmaps recycled to stay within the byte budget. */
+  evictions: number;
+  /** Number of bitmaps currently pooled. */
+  count: number;
+  /** Bytes currently held by the pool. */
+  sizeBytes: number;
+  /** Byte budget of the pool. */
+  maxSizeBytes: number;
 }
 
 /**
@@ -428,22 +979,176 @@ export interface CameraPreviewPlugin {
    * If `storeToFile` was set to `true` when starting the preview, the returned
    * `value` will be an absolute file path on the device instead of a base64 string. Use getBase64FromFilePath to get the base64 string from the file path.
    *
+   * On Android several captures may be in flight at once (see `maxConcurrentCaptures` and `captureResultOrder`).
+   *
    * @param {CameraPreviewPictureOptions} options - The options for capturing the picture.
-   * @returns {Promise<{ value: string; exif: ExifData }>} Resolves with:
-   *   - `value`: base64 string, or file path if `storeToFile` is true
+   * @returns {Promise<{ value: string; exif: ExifData; metrics?: CaptureMetrics; streamId?: string; requestId?: string }>} Resolves with:
+   *   - `value`: base64 string, or file path if `storeToFile` is true (empty when the image was streamed)
    *   - `exif`: extracted EXIF metadata when available
+   *   - `metrics`: post-processing timings (Android only)
+   *   - `streamId`: the stream the image was delivered through, when `stream` is set (Android only)
+   *   - `requestId`: the capture's request ID (Android only)
    * @since 0.0.1
    */
-  capture(options: CameraPreviewPictureOptions): Promise<{ value: string; exif: ExifData }>;
+  capture(
+    options: CameraPreviewPictureOptions,
+  ): Promise<{ value: string; exif: ExifData; metrics?: CaptureMetrics; streamId?: string; requestId?: string }>;
 
   /**
    * Captures a single frame from the camera preview stream.
    *
+   * On Android the frame is read from the preview surface, framed like the preview, so it returns without waiting
+   * for focus, exposure or flash; a full still capture is only taken while the preview has not shown a frame yet.
+   *
    * @param {CameraSampleOptions} options - The options for capturing the sample.
-   * @returns {Promise<{ value: string }>} A promise that resolves with the sample image as a base64 encoded string.
+   * @returns {Promise<{ value: string; requestId?: string }>} A promise that resolves with the sample image as a base64
+   * encoded string (and, on Android, its request ID).
    * @since 0.0.1
    */
-  captureSample(options: CameraSampleOptions): Promise<{ value: string }>;
+  captureSample(options: CameraSampleOptions): Promise<{ value: string; requestId?: string }>;
+
+  /**
+   * Cancels an in-flight `capture` or `captureSample` call by its `requestId`. The cancelled call rejects with the
+   * code `captureCancelled`; the camera may still take the picture, but its processing stops at the next stage and
+   * the result is discarded. Results held back by `captureResultOrder: 'request'` behind it are released.
+   *
+   * @param {{ requestId: string }} options - The request to cancel.
+   * @returns {Promise<{ cancelled: boolean }>} `cancelled` is false when no such request was pending.
+   * @platform android
+   * @since 8.8.0
+   */
+  cancelCapture(options: { requestId: string }): Promise<{ cancelled: boolean }>;
+
+  /**
+   * Starts a continuous stream of downscaled preview frames, delivered through the `frame` event. Frames come
+   * from a dedicated analysis stream rather than from still captures, and are converted natively; when the
+   * consumer falls behind, older frames are dropped so the stream stays on the latest frame. Replaces a running
+   * stream. May fail together with `enableVideoMode` on devices that cannot run both.
+   *
+   * @param {FrameStreamOptions} options - Rate cap, size and encoding of the frames.
+   * @returns {Promise<void>} A promise that resolves once the stream is running.
+   * @platform android
+   * @since 8.8.0
+   */
+  startFrameStream(options?: FrameStreamOptions): Promise<void>;
+
+  /**
+   * Stops the frame stream started with `startFrameStream`.
+   *
+   * @returns {Promise<void>} A promise that resolves once the stream is stopped.
+   * @platform android
+   * @since 8.8.0
+   */
+  stopFrameStream(): Promise<void>;
+
+  /**
+   * Returns the delivered, skipped and dropped frame counters of the running frame stream.
+   *
+   * @returns {Promise<FrameStreamStats>} A promise that resolves with the counters.
+   * @platform android
+   * @since 8.8.0
+   */
+  getFrameStreamStats(): Promise<FrameStreamStats>;
+
+  /**
+   * Starts keeping the most recent preview frames, downscaled, in a fixed-size ring allocated up front, so
+   * `captureFromHistory` can return the moment before the user tapped. Replaces a running history.
+   *
+   * @param {FrameHistoryOptions} options - Frame count, frame size and memory budget of the history.
+   * @returns {Promise<FrameHistoryInfo>} A promise that resolves with the allocated history once it is recording.
+   * @platform android
+   * @since 8.8.0
+   */
+  startFrameHistory(options?: FrameHistoryOptions): Promise<FrameHistoryInfo>;
+
+  /**
+   * Stops the frame history started with `startFrameHistory` and releases its memory.
+   *
+   * @returns {Promise<void>} A promise that resolves once the history is stopped.
+   * @platform android
+   * @since 8.8.0
+   */
+  stopFrameHistory(): Promise<void>;
+
+  /**
+   * Returns the recorded frame closest to `offsetMs` before the call, as a JPEG. The frame comes from the history
+   * and is limited to its size; use `capture` for a full-resolution photo.
+   *
+   * @param {{ offsetMs?: number; quality?: number }} options - How far back to look (default 0, the latest frame)
+   * and the JPEG quality from 0 to 100 (default 85).
+   * @returns {Promise<HistoryFrame>} A promise that resolves with the frame.
+   * @platform android
+   * @since 8.8.0
+   */
+  captureFromHistory(options?: { offsetMs?: number; quality?: number }): Promise<HistoryFrame>;
+
+  /**
+   * Returns the timing of the native frame processors attached by other plugins (see `FrameProcessor` in the
+   * Android sources), keyed by the name they were attached under.
+   *
+   * @returns {Promise<{ processors: Record<string, FrameProcessorStats> }>} A promise that resolves with the stats.
+   * @platform android
+   * @since 8.8.0
+   */
+  getFrameProcessorStats(): Promise<{ processors: Record<string, FrameProcessorStats> }>;
+
+  /**
+   * Captures several photos in a row. Each shutter request is issued once the previous shutter has fired (or
+   * `intervalMs` after it) while earlier frames are still being processed, so the cadence is bounded by the sensor
+   * rather than by post-processing. Each frame is delivered through the `burstFrame` event as soon as it is ready,
+   * in completion order; the promise resolves with a summary once every frame is done. Frames not yet requested
+   * when the camera stops fail with `Camera is stopping`.
+   *
+   * @param {CameraBurstOptions} options - The options for the burst.
+   * @returns {Promise<BurstResult>} A promise that resolves when all frames have been delivered.
+   * @platform android
+   * @since 8.8.0
+   */
+  captureBurst(options: CameraBurstOptions): Promise<BurstResult>;
+
+  /**
+   * Returns counters of the bitmap pool used to post-process captured photos, to help tune memory usage
+   * in rapid-capture sessions. The pool is emptied when the camera stops.
+   *
+   * @returns {Promise<BitmapPoolStats>} A promise that resolves with the current pool counters.
+   * @platform android
+   * @since 8.8.0
+   */
+  getBitmapPoolStats(): Promise<BitmapPoolStats>;
+
+  /**
+   * Returns the metrics of the most recent captures (photos and burst frames), including per-stage timings, for
+   * performance tracking. The history survives camera restarts.
+   *
+   * @param {{ limit?: number; clear?: boolean }} options - `limit` keeps only the newest entries; `clear` empties the
+   * history after reading it.
+   * @returns {Promise<CaptureTimings>} A promise that resolves with the recorded captures, oldest first.
+   * @platform android
+   * @since 8.8.0
+   */
+  getCaptureTimings(options?: { limit?: number; clear?: boolean }): Promise<CaptureTimings>;
+
+  /**
+   * Sets the watermark drawn on captures taken with `embedWatermark: true`. The image is decoded once and kept
+   * until the camera stops; call without `image` to remove it.
+   *
+   * @param {WatermarkOptions} options - The watermark image and placement.
+   * @returns {Promise<void>} A promise that resolves when the watermark is set.
+   * @platform android
+   * @since 8.8.0
+   */
+  setWatermark(options: WatermarkOptions): Promise<void>;
+
+  /**
+   * Reads the EXIF metadata of an image file on the device, e.g. one returned by `capture` with `storeToFile`.
+   * Pairs with the `exif` capture option to defer extraction until the metadata is needed.
+   *
+   * @param {object} options - The file path and the fields to read (all known fields by default).
+   * @returns {Promise<{ exif: ExifData }>} A promise that resolves with the requested EXIF fields.
+   * @platform android
+   * @since 8.8.0
+   */
+  getExif(options: { path: string; exif?: ExifSelection }): Promise<{ exif: ExifData }>;
 
   /**
    * Gets the flash modes supported by the active camera.
@@ -482,6 +1187,28 @@ export interface CameraPreviewPlugin {
    */
   getAspectRatio(): Promise<{ aspectRatio: '4:3' | '16:9' }>;
 
+  /**
+   * Changes the capture mode of the running camera. The camera use cases are rebound, so the preview may
+   * briefly restart. Rejected while a capture, burst or sample is in progress.
+   *
+   * @param {{ captureMode: CaptureMode }} options - The requested capture mode.
+   * @returns {Promise<{ captureMode: CaptureMode }>} A promise that resolves once the camera is rebound, with the
+   * mode in effect, which is `minimizeLatency` when zero shutter lag is not available.
+   * @platform android
+   * @since 8.8.0
+   */
+  setCaptureMode(options: { captureMode: CaptureMode }): Promise<{ captureMode: CaptureMode }>;
+
+  /**
+   * Gets the capture mode in effect, taking zero shutter lag fallbacks (unsupported camera, flash, video mode)
+   * into account.
+   *
+   * @returns {Promise<{ captureMode: CaptureMode }>} A promise that resolves with the mode in effect.
+   * @platform android
+   * @since 8.8.0
+   */
+  getCaptureMode(): Promise<{ captureMode: CaptureMode }>;
+
   /**
    * Sets the grid mode of the camera preview overlay.
    *
@@ -736,6 +1463,61 @@ export interface CameraPreviewPlugin {
     eventName: 'orientationChange',
     listenerFunc: (data: { orientation: DeviceOrientation }) => void,
   ): Promise<PluginListenerHandle>;
+
+  /**
+   * Adds a listener for frames produced by {@link CameraPreviewPlugin.captureBurst}.
+   * @param {string} eventName - The event name to listen for.
+   * @param {Function} listenerFunc - The function to call for each burst frame.
+   * @returns {Promise<PluginListenerHandle>} A promise that resolves with a handle to the listener.
+   * @since 8.8.0
+   * @platform android
+   */
+  addListener(eventName: 'burstFrame', listenerFunc: (data: BurstFrame) => void): Promise<PluginListenerHandle>;
+
+  /**
+   * Adds a listener for the chunks of a capture taken with `stream: true`.
+   * All chunks of a stream are delivered before its `captureStreamEnd` event and before `capture` resolves.
+   * @param {string} eventName - The event name to listen for.
+   * @param {Function} listenerFunc - The function to call for each chunk.
+   * @returns {Promise<PluginListenerHandle>} A promise that resolves with a handle to the listener.
+   * @since 8.8.0
+   * @platform android
+   */
+  addListener(eventName: 'captureChunk', listenerFunc: (data: CaptureChunk) => void): Promise<PluginListenerHandle>;
+
+  /**
+   * Adds a listener for the end of a capture stream.
+   * @param {string} eventName - The event name to listen for.
+   * @param {Function} listenerFunc - The function to call when a stream completes.
+   * @returns {Promise<PluginListenerHandle>} A promise that resolves with a handle to the listener.
+   * @since 8.8.0
+   * @platform android
+   */
+  addListener(eventName: 'captureStreamEnd', listenerFunc: (data: CaptureStreamEnd) => void): Promise<PluginListenerHandle>;
+
+  /**
+   * Adds a listener for the early thumbnail of a capture taken with `thumbnail: true`.
+   * It is delivered before `capture` resolves; if it cannot be built, no event is sent and the capture is unaffected.
+   * @param {string} eventName - The event name to listen for.
+   * @param {Function} listenerFunc - The function to call with the thumbnail.
+   * @returns {Promise<PluginListenerHandle>} A promise that resolves with a handle to the listener.
+   * @since 8.8.0
+   * @platform android
+   */
+  addListener(
+    eventName: 'captureThumbnail',
+    listenerFunc: (data: CaptureThumbnail) => void,
+  ): Promise<PluginListenerHandle>;
+
+  /**
+   * Adds a listener for the frames of `startFrameStream`.
+   * @param {string} eventName - The event name to listen for.
+   * @param {Function} listenerFunc - The function to call with each frame.
+   * @returns {Promise<PluginListenerHandle>} A promise that resolves with a handle to the listener.
+   * @since 8.8.0
+   * @platform android
+   */
+  addListener(eventName: 'frame', listenerFunc: (data: StreamFrame) => void): Promise<PluginListenerHandle>;
   /**
    * Deletes a file at the given absolute path on the device.
    * Use this to quickly clean up temporary images created with `storeToFile`.
@@ -1,6 +1,12 @@
 import { Capacitor, registerPlugin } from '@capacitor/core';
 
-import type { CameraPreviewPlugin } from './definitions';
+import type {
+  CameraPreviewPictureOptions,
+  CameraPreviewPlugin,
+  CaptureMetrics,
+  ExifData,
+  PictureFormat,
+} from './definitions';
 
 const CameraPreview = registerPlugin<CameraPreviewPlugin>('CameraPreview', {
   web: () => import('./web').then((m) => new m.CameraPreviewWeb()),
@@ -33,3 +39,79 @@ export async function deleteFile(path: string): Promise<boolean> {
   const { success } = await (CameraPreview as any).deleteFile({ path });
   return !!success;
 }
+
+/**
+ * Captures a picture and returns it as a `Blob`. On Android the image is streamed in chunks
+ * (`stream: true`), so no single multi-megabyte base64 string is ever built. The blob's type is the MIME type
+ * of the image actually produced, which can differ from `format` where the platform falls back to another encoding.
+ */
+export async function captureToBlob(
+  options: CameraPreviewPictureOptions = {},
+): Promise<{ blob: Blob; exif: ExifData; metrics?: CaptureMetrics }> {
+  const streamId = options.streamId ?? `cpcp-${Date.now()}-${Math.random().toString(36).slice(2)}`;
+  const parts: Uint8Array[] = [];
+  const handle = await CameraPreview.addListener('captureChunk', (chunk) => {
+    if (chunk.streamId === streamId) {
+      parts[chunk.index] = base64ToBytes(chunk.data);
+    }
+  });
+  try {
+    const result = await CameraPreview.capture({ ...options, stream: true, streamId });
+    if (parts.length > 0) {
+      const type = captureMimeType(parts[0], options.format);
+      return { blob: new Blob(parts as BlobPart[], { type }), exif: result.exif, metrics: result.metrics };
+    }
+    // Not streamed (web, or storeToFile): value is a base64 string or a file path
+    const isPath = result.value.startsWith('/') || result.value.startsWith('file:');
+    const bytes = isPath
+      ? new Uint8Array(await (await fetch(Capacitor.convertFileSrc(result.value))).arrayBuffer())
+      : base64ToBytes(result.value);
+    const blob = new Blob([bytes] as BlobPart[], { type: captureMimeType(bytes, options.format) });
+    return { blob, exif: result.exif, metrics: result.metrics };
+  } finally {
+    await handle.remove();
+  }
+}
+
+const FORMAT_MIME_TYPES: Record<PictureFormat, string> = {
+  jpeg: 'image/jpeg',
+  png: 'image/png',
+  webp: 'image/webp',
+  'webp-lossless': 'image/webp',
+  heic: 'image/heic',
+};
+
+/**
+ * MIME type of an encoded capture, read from its signature: iOS always encodes JPEG, and browsers encode PNG
+ * for `heic` (and for `webp` when they lack a WebP encoder). Falls back to the requested format.
+ */
+function captureMimeType(head: Uint8Array | undefined, format: PictureFormat | undefined): string {
+  if (head && head.length >= 12) {
+    const tag = (start: number) => String.fromCharCode(head[start], head[start + 1], head[start + 2], head[start + 3]);
+    if (head[0] === 0xff && head[1] === 0xd8) {
+      return 'image/jpeg';
+    }
+    if (tag(0) === '\x89PNG') {
+      return 'image/png';
+    }
+    if (tag(0) === 'RIFF' && tag(8) === 'WEBP') {
+      return 'image/webp';
+    }
+    if (tag(4) === 'ftyp') {
+      return 'image/heic';
+    }
+  }
+  if (format === 'heic' && Capacitor.getPlatform() === 'web') {
+    return 'image/png';
+  }
+  return FORMAT_MIME_TYPES[format ?? 'jpeg'] ?? 'image/jpeg';
+}
+
+function base64ToBytes(base64: string): Uint8Array {
+  const binary = atob(base64);
+  const bytes = new Uint8Array(binary.length);
+  for (let i = 0; i < binary.length; i++) {
+    bytes[i] = binary.charCodeAt(i);
+  }
+  return bytes;
+}
@@ -2,6 +2,9 @@ import { WebPlugin } from '@capacitor/core';
 import type { PermissionState } from '@capacitor/core';
 
 import type {
+  BitmapPoolStats,
+  BurstResult,
+  CameraBurstOptions,
   CameraDevice,
   CameraOpacityOptions,
   CameraPreviewFlashMode,
@@ -9,14 +12,25 @@ import type {
   CameraPreviewPictureOptions,
   CameraPreviewPlugin,
   CameraSampleOptions,
+  CaptureMode,
+  CaptureTimings,
   CameraPermissionStatus,
   DeviceOrientation,
+  ExifData,
+  ExifSelection,
   GridMode,
   ExposureMode,
   FlashMode,
+  FrameHistoryInfo,
+  FrameHistoryOptions,
+  FrameProcessorStats,
+  FrameStreamOptions,
+  FrameStreamStats,
+  HistoryFrame,
   LensInfo,
   PermissionRequestOptions,
   SafeAreaInsets,
+  WatermarkOptions,
 } from './definitions';
 import { DeviceType } from './definitions';
 
@@ -627,10 +641,16 @@ export class CameraPreviewWeb extends WebPlugin implements CameraPreviewPlugin {
           // withExifLocation is not supported on web
         }
 
-        if ((options.format || 'jpeg') === 'jpeg') {
+        const format = options.format || 'jpeg';
+        if (format === 'jpeg') {
           base64EncodedImage = canvas
             .toDataURL('image/jpeg', (options.quality || 85) / 100.0)
             .replace('data:image/jpeg;base64,', '');
+        } else if (format === 'webp' || format === 'webp-lossless') {
+          // Browsers without a WebP encoder return a PNG data URL, hence the generic prefix strip
+          base64EncodedImage = canvas
+            .toDataURL('image/webp', format === 'webp-lossless' ? 1 : (options.quality || 85) / 100.0)
+            .replace(/^data:image\/[a-z]+;base64,/, '');
         } else {
           base64EncodedImage = canvas.toDataURL('image/png').replace('data:image/png;base64,', '');
         }
@@ -647,6 +667,58 @@ export class CameraPreviewWeb extends WebPlugin implements CameraPreviewPlugin {
     return this.capture(_options);
   }
 
+  async captureBurst(_options: CameraBurstOptions): Promise<BurstResult> {
+    throw new Error('captureBurst not supported under the web platform');
+  }
+
+  async getBitmapPoolStats(): Promise<BitmapPoolStats> {
+    throw new Error('getBitmapPoolStats not supported under the web platform');
+  }
+
+  async getCaptureTimings(_options?: { limit?: number; clear?: boolean }): Promise<CaptureTimings> {
+    throw new Error('getCaptureTimings not supported under the web platform');
+  }
+
+  async cancelCapture(_options: { requestId: string }): Promise<{ cancelled: boolean }> {
+    throw new Error('cancelCapture not supported under the web platform');
+  }
+
+  async startFrameStream(_options?: FrameStreamOptions): Promise<void> {
+    throw new Error('startFrameStream not supported under the web platform');
+  }
+
+  async stopFrameStream(): Promise<void> {
+    throw new Error('stopFrameStream not supported under the web platform');
+  }
+
+  async getFrameStreamStats(): Promise<FrameStreamStats> {
+    throw new Error('getFrameStreamStats not supported under the web platform');
+  }
+
+  async startFrameHistory(_options?: FrameHistoryOptions): Promise<FrameHistoryInfo> {
+    throw new Error('startFrameHistory not supported under the web platform');
+  }
+
+  async stopFrameHistory(): Promise<void> {
+    throw new Error('stopFrameHistory not supported under the web platform');
+  }
+
+  async captureFromHistory(_options?: { offsetMs?: number; quality?: number }): Promise<HistoryFrame> {
+    throw new Error('captureFromHistory not supported under the web platform');
+  }
+
+  async getFrameProcessorStats(): Promise<{ processors: Record<string, FrameProcessorStats> }> {
+    throw new Error('getFrameProcessorStats not supported under the web platform');
+  }
+
+  async setWatermark(_options: WatermarkOptions): Promise<void> {
+    throw new Error('setWatermark not supported under the web platform');
+  }
+
+  async getExif(_options: { path: string; exif?: ExifSelection }): Promise<{ exif: ExifData }> {
+    throw new Error('getExif not supported under the web platform');
+  }
+
   async stopRecordVideo(): Promise<any> {
     if (!this.mediaRecorder) {
       throw new Error('video recording is not running');
@@ -1023,6 +1095,14 @@ export class CameraPreviewWeb extends WebPlugin implements CameraPreviewPlugin {
     }
   }
 
+  async setCaptureMode(_options: { captureMode: CaptureMode }): Promise<{ captureMode: CaptureMode }> {
+    throw new Error('setCaptureMode not supported under the web platform');
+  }
+
+  async getCaptureMode(): Promise<{ captureMode: CaptureMode }> {
+    throw new Error('getCaptureMode not supported under the web platform');
+  }
+
   async getAspectRatio(): Promise<{ aspectRatio: '4:3' | '16:9' }> {
     const video = document.getElementById(DEFAULT_VIDEO_ID) as HTMLVideoElement;
     if (!video) {